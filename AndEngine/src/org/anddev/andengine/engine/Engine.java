@@ -431,6 +431,10 @@ public class Engine implements SensorEventListener, OnTouchListener, ITouchEvent
 		this.mUpdateThread.interrupt();
 	}
 
+	public boolean isUpdateThread() {
+		return Thread.currentThread() == this.mUpdateThread;
+	}
+
 	public void onResume() {
 		// TODO GLHelper.reset(pGL); ?
 		this.mTextureManager.reloadTextures();
@@ -51,6 +51,15 @@ public class TriangleBuilder extends FloatArraySlice {
         System.arraycopy(ary, 0, slice.ary, 0, length);
     }
 
+    public void appendVertices(FloatArraySlice slice) {
+        int start = slice.offset + slice.length;
+        if (slice.ary.length < start + length) {
+            slice.ary = Arrays.copyOf(slice.ary, start + length);
+        }
+        System.arraycopy(ary, 0, slice.ary, start, length);
+        slice.length += length;
+    }
+
     public void reset() {
         length = 0;
         maxX = 0f;
@@ -85,6 +85,45 @@ public class FlippableTextureQuad extends ATextureQuad {
         size.set(height * (size.x / size.y), height);
     }
 
+    /**
+     * Whether the quad would produce no visible pixels because it's transparent or scaled down to nothing.
+     */
+    public boolean isInvisible() {
+        if (alpha.value < 0.001f || accentColor != null && accentColor.a < 0.001f) {
+            return true;
+        }
+        return scale != null && (Math.abs(scale.x.value) < 0.0001f || Math.abs(scale.y.value) < 0.0001f);
+    }
+
+    /**
+     * Whether the quad's bounds intersect the given area. Rotated quads are tested with the circle enclosing them.
+     */
+    public boolean intersects(float left, float top, float right, float bottom) {
+
+        float l = -size.x * anchor.x();
+        float r = size.x + l;
+        float t = -size.y * anchor.y();
+        float b = size.y + t;
+
+        if (scale != null) {
+            l *= scale.x.value;
+            r *= scale.x.value;
+            t *= scale.y.value;
+            b *= scale.y.value;
+        }
+
+        float x = position.x.value;
+        float y = position.y.value;
+
+        if (rotation != null && rotation.value != 0) {
+            float radius = (float) Math.sqrt(Math.max(l * l, r * r) + Math.max(t * t, b * b));
+            return x + radius >= left && x - radius <= right && y + radius >= top && y - radius <= bottom;
+        }
+
+        return x + Math.max(l, r) >= left && x + Math.min(l, r) <= right
+                && y + Math.max(t, b) >= top && y + Math.min(t, b) <= bottom;
+    }
+
     @Override
     public void write(float[] ary, int offset) {
 
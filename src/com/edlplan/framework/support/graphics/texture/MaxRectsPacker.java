@@ -0,0 +1,192 @@
+package com.edlplan.framework.support.graphics.texture;
+
+import com.edlplan.framework.math.Vec2Int;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Packs rectangles into a single page with the MaxRects algorithm using the best short side fit heuristic,
+ * rectangles are never rotated.
+ */
+public class MaxRectsPacker {
+
+    private final int width;
+
+    private final int height;
+
+    private final List<int[]> freeRects = new ArrayList<>();
+
+    private int usedWidth;
+
+    private int usedHeight;
+
+    private long usedArea;
+
+
+    public MaxRectsPacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        freeRects.add(new int[]{0, 0, width, height});
+    }
+
+
+    /**
+     * Finds a place for a rectangle and marks it as used.
+     *
+     * @return The position of the rectangle, or {@code null} if it doesn't fit in this page.
+     */
+    public Vec2Int insert(int w, int h) {
+        int bestIndex = -1;
+        int bestShortSide = Integer.MAX_VALUE;
+        int bestLongSide = Integer.MAX_VALUE;
+
+        for (int i = 0, size = freeRects.size(); i < size; i++) {
+            int[] free = freeRects.get(i);
+
+            if (free[2] < w || free[3] < h) {
+                continue;
+            }
+
+            int leftoverX = free[2] - w;
+            int leftoverY = free[3] - h;
+            int shortSide = Math.min(leftoverX, leftoverY);
+            int longSide = Math.max(leftoverX, leftoverY);
+
+            if (shortSide < bestShortSide || shortSide == bestShortSide && longSide < bestLongSide) {
+                bestIndex = i;
+                bestShortSide = shortSide;
+                bestLongSide = longSide;
+            }
+        }
+
+        if (bestIndex == -1) {
+            return null;
+        }
+
+        int x = freeRects.get(bestIndex)[0];
+        int y = freeRects.get(bestIndex)[1];
+
+        place(x, y, w, h);
+
+        usedWidth = Math.max(usedWidth, x + w);
+        usedHeight = Math.max(usedHeight, y + h);
+        usedArea += (long) w * h;
+
+        return new Vec2Int(x, y);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The width of the bounding box of all placed rectangles.
+     */
+    public int getUsedWidth() {
+        return usedWidth;
+    }
+
+    /**
+     * The height of the bounding box of all placed rectangles.
+     */
+    public int getUsedHeight() {
+        return usedHeight;
+    }
+
+    /**
+     * The ratio between the area of the placed rectangles and the area of the page.
+     */
+    public float getOccupancy() {
+        return (float) usedArea / ((long) width * height);
+    }
+
+
+    /**
+     * Orders rectangles the way they should be inserted, MaxRects packs tighter when the largest rectangles are placed
+     * first.
+     */
+    public static <T> Comparator<T> largestFirst(ToIntFunction<T> width, ToIntFunction<T> height) {
+        return (a, b) -> {
+            int widthA = width.applyAsInt(a), heightA = height.applyAsInt(a);
+            int widthB = width.applyAsInt(b), heightB = height.applyAsInt(b);
+
+            int result = Integer.compare(Math.max(widthB, heightB), Math.max(widthA, heightA));
+            return result != 0 ? result : Long.compare((long) widthB * heightB, (long) widthA * heightA);
+        };
+    }
+
+    /**
+     * The smallest power of two that is greater than or equal to a value, used to size a page to what was placed in it.
+     */
+    public static int nextPowerOfTwo(int value) {
+        value = Math.max(value, 1);
+        int result = Integer.highestOneBit(value);
+        return result == value ? result : result << 1;
+    }
+
+
+    private void place(int x, int y, int w, int h) {
+        // Splitting every free rectangle that overlaps the placed one into up to four maximal rectangles.
+        for (int i = freeRects.size() - 1; i >= 0; i--) {
+            int[] free = freeRects.get(i);
+
+            if (x >= free[0] + free[2] || x + w <= free[0] || y >= free[1] + free[3] || y + h <= free[1]) {
+                continue;
+            }
+
+            freeRects.remove(i);
+
+            if (x > free[0]) {
+                freeRects.add(new int[]{free[0], free[1], x - free[0], free[3]});
+            }
+            if (x + w < free[0] + free[2]) {
+                freeRects.add(new int[]{x + w, free[1], free[0] + free[2] - x - w, free[3]});
+            }
+            if (y > free[1]) {
+                freeRects.add(new int[]{free[0], free[1], free[2], y - free[1]});
+            }
+            if (y + h < free[1] + free[3]) {
+                freeRects.add(new int[]{free[0], y + h, free[2], free[1] + free[3] - y - h});
+            }
+        }
+
+        prune();
+    }
+
+    /**
+     * Removes free rectangles that are fully contained in another one.
+     */
+    private void prune() {
+        for (int i = 0; i < freeRects.size(); i++) {
+            int[] a = freeRects.get(i);
+
+            for (int j = i + 1; j < freeRects.size(); j++) {
+                int[] b = freeRects.get(j);
+
+                if (contains(b, a)) {
+                    freeRects.remove(i);
+                    i--;
+                    break;
+                }
+
+                if (contains(a, b)) {
+                    freeRects.remove(j);
+                    j--;
+                }
+            }
+        }
+    }
+
+    private static boolean contains(int[] outer, int[] inner) {
+        return inner[0] >= outer[0] && inner[1] >= outer[1]
+                && inner[0] + inner[2] <= outer[0] + outer[2]
+                && inner[1] + inner[3] <= outer[1] + outer[3];
+    }
+}
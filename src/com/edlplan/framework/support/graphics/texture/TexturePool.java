@@ -7,6 +7,7 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
+import android.util.Log;
 
 import com.edlplan.andengine.TextureHelper;
 import com.edlplan.framework.math.Vec2Int;
@@ -35,6 +36,8 @@ import ru.nsu.ccfit.zuev.osu.helper.QualityFileBitmapSource;
 
 public class TexturePool {
 
+    private static final String TAG = "TexturePool";
+
     int glMaxWidth;
     BitmapFactory.Options options = new BitmapFactory.Options() {{
         inPremultiplied = true;
@@ -42,23 +45,15 @@ public class TexturePool {
     private File dir;
     private Set<ITexture> createdTextures = new HashSet<>();
     private HashMap<String, TextureRegion> textures = new HashMap<>();
-    private int currentPack = 0;
-    private int currentX;
-    private int currentY;
-    private int lineMaxY;
     private int marginX = 2, marginY = 2;
-    private int maxW, maxH;
 
     public TexturePool(File dir) {
         this.dir = dir;
         glMaxWidth = GLHelper.GlMaxTextureWidth;
-        if (BuildConfig.DEBUG) System.out.println("GL_MAX_TEXTURE_SIZE = " + glMaxWidth);
+        if (BuildConfig.DEBUG) Log.d(TAG, "GL_MAX_TEXTURE_SIZE = " + glMaxWidth);
         if (glMaxWidth == 0) {
             throw new RuntimeException("glMaxWidth not found");
         }
-        glMaxWidth = Math.min(glMaxWidth, 4096);
-        maxW = Math.min(400, glMaxWidth / 2);
-        maxH = Math.min(400, glMaxWidth / 2);
     }
 
     public void clear() {
@@ -67,8 +62,6 @@ public class TexturePool {
             GlobalManager.getInstance().getEngine().getTextureManager().unloadTexture(texture);
         }
         createdTextures.clear();
-        currentPack = 0;
-        currentX = currentY = lineMaxY = 0;
     }
 
     public void add(String name) {
@@ -80,6 +73,10 @@ public class TexturePool {
         bmp.recycle();
     }
 
+    /**
+     * Packs the given textures into as few atlas pages of the maximum texture size as possible, only textures that
+     * don't fit in a page are loaded individually.
+     */
     public void packAll(Iterator<String> collection, Consumer<Bitmap> onPackDrawDone) {
         clear();
 
@@ -87,16 +84,13 @@ public class TexturePool {
         for (String n : (Iterable<String>) () -> collection) {
             infos.add(loadInfo(n));
         }
-        Collections.sort(infos, (p1, p2) -> {
-            if (p1.size.y == p2.size.y) {
-                return Float.compare(p1.size.x, p2.size.x);
-            } else {
-                return Float.compare(p1.size.y, p2.size.y);
-            }
-        });
+
+        Collections.sort(infos, MaxRectsPacker.largestFirst(info -> info.size.x, info -> info.size.y));
+
+        List<MaxRectsPacker> pages = new ArrayList<>();
 
         for (TextureInfo t : infos) {
-            testAddRaw(t);
+            testAddRaw(t, pages);
         }
 
         Collections.sort(infos, (a, b) -> Integer.compare(a.pageIndex, b.pageIndex));
@@ -116,17 +110,6 @@ public class TexturePool {
             bmp.recycle();
         }
 
-        Bitmap pack = null;
-
-        if (iterator.hasNext()) {
-            int width = glMaxWidth;
-            int height = currentPack == 0 ? lineMaxY + 10 : glMaxWidth;
-            pack = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        }
-        if (pack == null) {
-            return;
-        }
-        Canvas canvas = new Canvas(pack);
         Paint paint = new Paint();
         paint.setAntiAlias(true);
         paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
@@ -134,12 +117,22 @@ public class TexturePool {
         Bitmap tmp;
         while (iterator.hasNext()) {
             toLoad.clear();
-            pack.eraseColor(Color.argb(0, 0, 0, 0));
             int currentPack = iterator.next().pageIndex;
             iterator.previous();
+
+            // Pages are shrunk to the power of two that holds what was placed in them, which mostly affects the last one.
+            MaxRectsPacker page = pages.get(currentPack);
+            int width = MaxRectsPacker.nextPowerOfTwo(page.getUsedWidth());
+            int height = MaxRectsPacker.nextPowerOfTwo(page.getUsedHeight());
+
+            Bitmap pack = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            pack.eraseColor(Color.argb(0, 0, 0, 0));
+            Canvas canvas = new Canvas(pack);
+
             while (iterator.hasNext()) {
                 TextureInfo info = iterator.next();
                 if (info.pageIndex != currentPack) {
+                    iterator.previous();
                     break;
                 }
                 toLoad.add(info);
@@ -151,7 +144,7 @@ public class TexturePool {
             }
             final QualityFileBitmapSource source = new QualityFileBitmapSource(
                     TextureHelper.createFactoryFromBitmap(pack));
-            final BitmapTextureAtlas tex = new BitmapTextureAtlas(glMaxWidth, glMaxWidth, TextureOptions.BILINEAR);
+            final BitmapTextureAtlas tex = new BitmapTextureAtlas(width, height, TextureOptions.BILINEAR);
             tex.addTextureAtlasSource(source, 0, 0);
             GlobalManager.getInstance().getEngine().getTextureManager().loadTexture(tex);
             createdTextures.add(tex);
@@ -159,8 +152,14 @@ public class TexturePool {
                 info.texture = new TextureRegion(tex, info.pos.x, info.pos.y, info.size.x, info.size.y);
                 info.texture.setTextureRegionBufferManaged(false);
             }
+            pack.recycle();
+        }
+
+        if (BuildConfig.DEBUG) {
+            for (int i = 0; i < pages.size(); i++) {
+                Log.d(TAG, "Texture page " + i + " occupancy: " + pages.get(i).getOccupancy());
+            }
         }
-        pack.recycle();
 
         for (TextureInfo info : infos) {
             directPut(info.name, info.texture);
@@ -168,47 +167,33 @@ public class TexturePool {
 
     }
 
-    private void testAddRaw(TextureInfo raw) {
-        if (raw.size.x > maxW || raw.size.y > maxH) {
+    private void testAddRaw(TextureInfo raw, List<MaxRectsPacker> pages) {
+        if (raw.size.x + marginX > glMaxWidth || raw.size.y + marginY > glMaxWidth) {
             raw.single = true;
             raw.pageIndex = -1;
-        } else {
-            tryAddToPack(raw);
-        }
-    }
-
-    private void tryAddToPack(TextureInfo raw) {
-        if (currentX + raw.size.x + marginX < glMaxWidth) {
-            tryAddInLine(raw);
-        } else {
-            toNextLine();
-            tryAddToPack(raw);
+            return;
         }
-    }
 
-    private void tryAddInLine(TextureInfo raw) {
-        if (currentY + raw.size.y + marginY < glMaxWidth) {
-            raw.single = false;
-            raw.pageIndex = currentPack;
-            raw.pos = new Vec2Int(currentX, currentY);
-            currentX += raw.size.x + marginX;
-            lineMaxY = Math.round(Math.max(lineMaxY, currentY + raw.size.y + marginY));
-        } else {
-            toNewPack();
-            tryAddToPack(raw);
+        for (int i = 0; i < pages.size(); i++) {
+            if (tryAddToPage(raw, pages.get(i), i)) {
+                return;
+            }
         }
-    }
 
-    public void toNewPack() {
-        currentPack++;
-        currentX = 0;
-        currentY = 0;
-        lineMaxY = 0;
+        pages.add(new MaxRectsPacker(glMaxWidth, glMaxWidth));
+        tryAddToPage(raw, pages.get(pages.size() - 1), pages.size() - 1);
     }
 
-    private void toNextLine() {
-        currentX = 0;
-        currentY = lineMaxY + marginY;
+    private boolean tryAddToPage(TextureInfo raw, MaxRectsPacker page, int pageIndex) {
+        // The margin avoids bleeding between neighbour textures when sampling with bilinear filtering.
+        Vec2Int pos = page.insert(raw.size.x + marginX, raw.size.y + marginY);
+        if (pos == null) {
+            return false;
+        }
+        raw.single = false;
+        raw.pageIndex = pageIndex;
+        raw.pos = pos;
+        return true;
     }
 
     private Bitmap loadBitmap(TextureInfo info) {
@@ -1,47 +1,67 @@
 package com.edlplan.framework.support.osb;
 
+import android.graphics.RectF;
+
 import com.edlplan.framework.support.batch.object.TextureQuadBatch;
 import com.edlplan.framework.support.graphics.BaseCanvas;
 import com.edlplan.framework.support.graphics.BlendType;
-import com.edlplan.framework.utils.advance.LinkedNode;
+
+import java.util.Comparator;
+import java.util.TreeSet;
 
 public class DepthOrderRenderEngine {
 
-    public LinkedNode<EGFStoryboardSprite> first, end;
+    /**
+     * Sprites are ordered by depth, sprites with the same depth are ordered from the latest added to the earliest
+     * added, which matches the order the previous linked list implementation produced.
+     */
+    private static final Comparator<EGFStoryboardSprite> DRAW_ORDER = (a, b) -> {
+        int result = Double.compare(a.sprite.depth, b.sprite.depth);
+        return result != 0 ? result : Long.compare(b.addOrder, a.addOrder);
+    };
 
-    public DepthOrderRenderEngine() {
-        first = new LinkedNode<>();
-        end = new LinkedNode<>();
-        first.insertToNext(end);
-    }
+    private final TreeSet<EGFStoryboardSprite> sprites = new TreeSet<>(DRAW_ORDER);
+
+    private long addCount;
 
     public void add(EGFStoryboardSprite sprite) {
-        for (LinkedNode<EGFStoryboardSprite> s = end.pre; s != first; s = s.pre) {
-            if (s.value.sprite.depth < sprite.sprite.depth) {
-                s.insertToNext(new LinkedNode<>(sprite));
-                return;
-            }
-        }
-        first.insertToNext(new LinkedNode<>(sprite));
+        sprite.addOrder = addCount++;
+        sprites.add(sprite);
     }
 
     public void remove(EGFStoryboardSprite sprite) {
-        for (LinkedNode<EGFStoryboardSprite> s = first.next; s != end; s = s.next) {
-            if (s.value == sprite) {
-                s.removeFromList();
-                break;
-            }
-        }
+        sprites.remove(sprite);
+    }
+
+    public int size() {
+        return sprites.size();
+    }
+
+    /**
+     * The sprites in the order they're drawn.
+     */
+    Iterable<EGFStoryboardSprite> getSprites() {
+        return sprites;
     }
 
     public void draw(BaseCanvas canvas) {
+        draw(canvas, null);
+    }
+
+    /**
+     * Draws the sprites, skipping the ones that are invisible or outside the given area.
+     */
+    public void draw(BaseCanvas canvas, RectF visibleArea) {
         TextureQuadBatch batch = TextureQuadBatch.getDefaultBatch();
-        for (LinkedNode<EGFStoryboardSprite> s = first.next; s != end; s = s.next) {
-            if (s.value.textureQuad.alpha.value < 0.001) {
+        for (EGFStoryboardSprite s : sprites) {
+            if (s.textureQuad.isInvisible()) {
+                continue;
+            }
+            if (visibleArea != null && !s.textureQuad.intersects(visibleArea.left, visibleArea.top, visibleArea.right, visibleArea.bottom)) {
                 continue;
             }
-            canvas.getBlendSetting().setBlendType(s.value.blendMode.value ? BlendType.Additive : BlendType.Normal);
-            batch.add(s.value.textureQuad);
+            canvas.getBlendSetting().setBlendType(s.blendMode.value ? BlendType.Additive : BlendType.Normal);
+            batch.add(s.textureQuad);
         }
     }
 
@@ -17,6 +17,12 @@ public class EGFStoryboardAnimationSprite extends EGFStoryboardSprite {
     @Override
     public void update(double time) {
         super.update(time);
+
+        // The frame is picked from the time alone, so it can be skipped while the sprite can't be seen.
+        if (textureQuad.isInvisible()) {
+            return;
+        }
+
         StoryboardAnimationSprite sprite = (StoryboardAnimationSprite) this.sprite;
         int idx = (int) (Math.max(0, time - sprite.startTime()) / sprite.frameDelay);
         if (idx >= sprite.frameCount) {
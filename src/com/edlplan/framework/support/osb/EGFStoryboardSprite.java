@@ -16,6 +16,11 @@ public class EGFStoryboardSprite extends PlayingSprite {
     public BooleanRef blendMode = new BooleanRef(false);
     protected OsbContext context;
 
+    /**
+     * The order in which this sprite was added to its render engine, used to order sprites with the same depth.
+     */
+    long addOrder;
+
     public EGFStoryboardSprite(OsbContext context) {
         this.context = context;
     }
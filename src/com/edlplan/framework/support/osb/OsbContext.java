@@ -1,5 +1,7 @@
 package com.edlplan.framework.support.osb;
 
+import android.graphics.RectF;
+
 import com.edlplan.framework.support.graphics.texture.TexturePool;
 
 public class OsbContext {
@@ -8,4 +10,9 @@ public class OsbContext {
 
     public LayerRenderEngine[] engines;
 
+    /**
+     * The area of the storyboard, in storyboard coordinates, that is currently visible on the screen.
+     */
+    public final RectF visibleArea = new RectF(-107, 0, 747, 480);
+
 }
@@ -0,0 +1,226 @@
+package com.edlplan.framework.support.osb;
+
+import android.util.Log;
+
+import com.edlplan.edlosbsupport.OsuStoryboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import ru.nsu.ccfit.zuev.osu.Config;
+import ru.nsu.ccfit.zuev.osu.helper.FileUtils;
+
+/**
+ * Stores parsed storyboards in the app's private cache directory so that they don't need to be parsed from text again.
+ * <br>
+ * A cache file is named after the MD5 hash of the .osu file it was parsed from and is ignored as soon as either that
+ * file or the .osb file changes. Cache files are never read from beatmap set directories, whose content comes from
+ * downloaded or imported archives, and only the classes of the storyboard model are accepted when reading them back.
+ */
+public final class StoryboardCache {
+
+    private static final String TAG = "StoryboardCache";
+
+    private static final int MAGIC = 0x4F534243; // "OSBC"
+
+    private static final int VERSION = 2;
+
+    private static final String EXTENSION = ".sbcache";
+
+    /**
+     * The classes outside of the storyboard model that a cache file may contain.
+     */
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+        "java.lang.Boolean",
+        "java.lang.Byte",
+        "java.lang.Character",
+        "java.lang.Double",
+        "java.lang.Enum",
+        "java.lang.Float",
+        "java.lang.Integer",
+        "java.lang.Long",
+        "java.lang.Number",
+        "java.lang.Short",
+        "java.lang.String",
+        "java.util.ArrayList",
+        "java.util.HashMap",
+        "java.util.LinkedList",
+        "java.util.LinkedHashMap"
+    ));
+
+
+    private StoryboardCache() {
+    }
+
+
+    /**
+     * Loads the cached storyboard of a beatmap.
+     *
+     * @param osuFile The .osu file of the beatmap.
+     * @param osbFile The .osb file of the beatmap set, or {@code null} if there's none.
+     * @return The storyboard, or {@code null} if there's no valid cache for the given files.
+     */
+    public static OsuStoryboard load(File osuFile, File osbFile) {
+        String osuHash = FileUtils.getMD5Checksum(osuFile);
+        File cacheFile = getCacheFile(osuHash);
+
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try {
+            // Reading the whole file at once, deserializing from memory is much faster than from a file stream.
+            byte[] bytes = new byte[(int) cacheFile.length()];
+
+            try (DataInputStream input = new DataInputStream(new FileInputStream(cacheFile))) {
+                input.readFully(bytes);
+            }
+
+            OsuStoryboard storyboard = read(new ByteArrayInputStream(bytes), computeKey(osuHash, osbFile));
+
+            if (storyboard == null) {
+                //noinspection ResultOfMethodCallIgnored
+                cacheFile.delete();
+            }
+
+            return storyboard;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to load storyboard cache " + cacheFile.getName(), e);
+            //noinspection ResultOfMethodCallIgnored
+            cacheFile.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores a parsed storyboard. This does nothing if the storyboard model can't be serialized.
+     */
+    public static void save(File osuFile, File osbFile, OsuStoryboard storyboard) {
+        if (!(storyboard instanceof Serializable)) {
+            Log.w(TAG, "The storyboard model is not serializable, storyboards are not cached.");
+            return;
+        }
+
+        String osuHash = FileUtils.getMD5Checksum(osuFile);
+        File cacheFile = getCacheFile(osuHash);
+        File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+
+        try {
+            File directory = cacheFile.getParentFile();
+
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Failed to create " + directory.getPath());
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            write(bytes, computeKey(osuHash, osbFile), storyboard);
+
+            try (FileOutputStream output = new FileOutputStream(temporaryFile)) {
+                bytes.writeTo(output);
+            }
+
+            if (!temporaryFile.renameTo(cacheFile)) {
+                throw new IOException("Failed to rename " + temporaryFile.getName());
+            }
+
+        } catch (IOException e) {
+            // A storyboard element that isn't serializable ends up here, the storyboard is parsed from text every time.
+            Log.e(TAG, "Failed to save storyboard cache " + cacheFile.getName(), e);
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+        }
+    }
+
+
+    /**
+     * Writes a storyboard with the header of a cache file.
+     *
+     * @param key The key of the files the storyboard was parsed from.
+     */
+    static void write(OutputStream output, String key, OsuStoryboard storyboard) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(key);
+
+        try (ObjectOutputStream objects = new ObjectOutputStream(data)) {
+            objects.writeObject(storyboard);
+        }
+    }
+
+    /**
+     * Reads a storyboard written by {@link #write}.
+     *
+     * @param key The key of the files the storyboard is expected to be parsed from.
+     * @return The storyboard, or {@code null} if the data is from another version or other files.
+     */
+    static OsuStoryboard read(InputStream input, String key) throws IOException, ClassNotFoundException {
+        DataInputStream data = new DataInputStream(input);
+
+        if (data.readInt() != MAGIC || data.readInt() != VERSION || !data.readUTF().equals(key)) {
+            return null;
+        }
+
+        try (ObjectInputStream objects = new ModelInputStream(data)) {
+            return (OsuStoryboard) objects.readObject();
+        }
+    }
+
+
+    private static File getCacheFile(String osuHash) {
+        return new File(new File(Config.getCachePath(), "storyboards"), osuHash + EXTENSION);
+    }
+
+    private static String computeKey(String osuHash, File osbFile) {
+        return osuHash + ":" + (osbFile != null ? FileUtils.getMD5Checksum(osbFile) : "");
+    }
+
+
+    /**
+     * Refuses every class that isn't part of the storyboard model, so that a tampered cache file can't instantiate
+     * arbitrary serializable classes.
+     */
+    private static final class ModelInputStream extends ObjectInputStream {
+
+        ModelInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+            String name = description.getName();
+
+            // Array class names are prefixed by one bracket per dimension, and object components are wrapped in "L;".
+            String component = name.replaceFirst("^\\[+", "");
+
+            if (component.length() > 1 && component.startsWith("L") && component.endsWith(";")) {
+                component = component.substring(1, component.length() - 1);
+            }
+
+            boolean isPrimitiveArray = name.startsWith("[") && component.length() == 1;
+
+            if (!isPrimitiveArray && !component.startsWith("com.edlplan.edlosbsupport.") && !ALLOWED_CLASSES.contains(component)) {
+                throw new InvalidClassException(name, "Not part of the storyboard model");
+            }
+
+            return super.resolveClass(description);
+        }
+    }
+}
@@ -19,7 +19,6 @@ import com.edlplan.framework.support.batch.object.TextureQuadBatch;
 import com.edlplan.framework.support.graphics.BaseCanvas;
 import com.edlplan.framework.support.graphics.texture.TexturePool;
 import com.edlplan.framework.support.util.Tracker;
-import com.edlplan.framework.utils.functionality.SmartIterator;
 
 import org.anddev.andengine.opengl.texture.region.TextureRegion;
 
@@ -111,6 +110,21 @@ public class StoryboardSprite extends SupportSprite {
         }
     }
 
+    /**
+     * Moves the storyboard to a time, its playback state is rebuilt when moving backwards as it only plays forwards.
+     */
+    public void seekTo(double time) {
+        if (time < this.time) {
+            loadFromCache();
+        }
+
+        this.time = time;
+
+        if (osbPlayer != null) {
+            osbPlayer.update(time);
+        }
+    }
+
     public boolean isStoryboardAvailable() {
         return storyboard != null;
     }
@@ -131,11 +145,12 @@ public class StoryboardSprite extends SupportSprite {
                 .minus(640 * 0.5f / scale, 480 * 0.5f / scale);
 
         canvas.translate(startOffset.x, startOffset.y).expendAxis(scale);
+        updateVisibleArea(canvas, startOffset, scale);
 
         if (context.engines != null) {
             for (LayerRenderEngine engine : context.engines) {
                 if (engine != null && engine.getLayer() == com.edlplan.edlosbsupport.elements.StoryboardSprite.Layer.Overlay) {
-                    engine.draw(canvas);
+                    engine.draw(canvas, context.visibleArea);
                 }
             }
         }
@@ -161,11 +176,12 @@ public class StoryboardSprite extends SupportSprite {
                 .minus(640 * 0.5f / scale, 480 * 0.5f / scale);
 
         canvas.translate(startOffset.x, startOffset.y).expendAxis(scale);
+        updateVisibleArea(canvas, startOffset, scale);
 
         if (context.engines != null) {
             for (LayerRenderEngine engine : context.engines) {
                 if (engine != null && engine.getLayer() != com.edlplan.edlosbsupport.elements.StoryboardSprite.Layer.Overlay) {
-                    engine.draw(canvas);
+                    engine.draw(canvas, context.visibleArea);
                 }
             }
         }
@@ -180,6 +196,17 @@ public class StoryboardSprite extends SupportSprite {
         }
     }
 
+    /**
+     * Converts the canvas bounds into storyboard coordinates, sprites outside of them are not drawn.
+     */
+    private void updateVisibleArea(BaseCanvas canvas, Vec2 startOffset, float scale) {
+        context.visibleArea.set(
+                -startOffset.x * scale,
+                -startOffset.y * scale,
+                (canvas.getWidth() - startOffset.x) * scale,
+                (canvas.getHeight() - startOffset.y) * scale);
+    }
+
     private void drawBackground(BaseCanvas canvas) {
         if (transparentBackground) {
             return;
@@ -217,8 +244,7 @@ public class StoryboardSprite extends SupportSprite {
         }
     }
 
-    private void loadOsb(String osuFile) {
-        File file = findOsb(osuFile);
+    private void loadOsb(File file) {
         if (file == null) {
             return;
         }
@@ -314,8 +340,19 @@ public class StoryboardSprite extends SupportSprite {
             context.engines[i] = new LayerRenderEngine(com.edlplan.edlosbsupport.elements.StoryboardSprite.Layer.values()[i]);
         }
 
-        loadOsb(osuFile);
-        loadOsu(osuFile);
+        File osb = findOsb(osuFile);
+        storyboard = StoryboardCache.load(osu, osb);
+
+        if (storyboard == null) {
+            loadOsb(osb);
+            loadOsu(osuFile);
+
+            if (storyboard != null) {
+                Tracker.createTmpNode("SaveStoryboardCache").wrap(() -> {
+                    StoryboardCache.save(osu, osb, storyboard);
+                }).then(System.out::println);
+            }
+        }
 
         if (storyboard == null) {
             return;
@@ -332,15 +369,7 @@ public class StoryboardSprite extends SupportSprite {
                                 1 : (counted.get(storyboard.backgroundFile) + 1));
             }
 
-            SmartIterator<String> allToPack = SmartIterator.wrap(counted.keySet().iterator())
-                    .applyFilter(s -> counted.get(s) >= 15);
-            pool.packAll(allToPack, null);
-
-            allToPack = SmartIterator.wrap(counted.keySet().iterator())
-                    .applyFilter(s -> counted.get(s) < 15);
-            while (allToPack.hasNext()) {
-                pool.add(allToPack.next());
-            }
+            pool.packAll(counted.keySet().iterator(), null);
         }).then(System.out::println);
 
 
@@ -20,6 +20,8 @@ public class DrawLinePath {
     Vec2 oth_expand = new Vec2();
     private TriangleBuilder triangles;
     private AbstractPath path;
+    private int[] jointOffsets;
+    private int[] quadOffsets;
 
     public DrawLinePath() {
         alpha = 1;
@@ -36,6 +38,25 @@ public class DrawLinePath {
     }
 
     public TriangleBuilder computeTriangles(TriangleBuilder builder) {
+        return computeTriangles(builder, null, null);
+    }
+
+    /**
+     * Computes the triangles of the whole path, optionally recording where the triangles of every point start.
+     * <br>
+     * Triangles are emitted in path order: the start cap, then for every point the joint with the previous segment
+     * followed by the quads of the segment to the next point, and the end cap. The vertex offsets (in floats) are
+     * the same for any width, so they can be shared between meshes built from the same path.
+     *
+     * @param jointOffsets Receives, for every point but the first, the offset where its joint (or the end cap for
+     *                     the last point) starts. May be null.
+     * @param quadOffsets  Receives, for every point but the last, the offset where the quads of the segment to the
+     *                     next point start. May be null.
+     */
+    public TriangleBuilder computeTriangles(TriangleBuilder builder, int[] jointOffsets, int[] quadOffsets) {
+        this.jointOffsets = jointOffsets;
+        this.quadOffsets = quadOffsets;
+
         TriangleBuilder cache = triangles;
         if (cache != null) {
             cache.applyVertices(builder);
@@ -45,9 +66,50 @@ public class DrawLinePath {
             init();
         }
         triangles = cache;
+
+        this.jointOffsets = null;
+        this.quadOffsets = null;
         return builder;
     }
 
+    /**
+     * Computes the triangles of a single segment, used to draw the partial segments of a cut path.
+     *
+     * @param theta The direction of the segment, used for the caps when both ends are at the same position.
+     */
+    public TriangleBuilder computeSegmentTriangles(TriangleBuilder builder, Vec2 from, Vec2 to, float theta,
+                                                   boolean withStartCap, boolean withEndCap) {
+        triangles = builder;
+        builder.reset();
+
+        if (withStartCap) {
+            addLineCap(from, theta + FMath.PiHalf, FMath.Pi);
+        }
+
+        if (Math.abs(to.x - from.x) > 0.001f || Math.abs(to.y - from.y) > 0.001f) {
+            addLineQuads(from, to);
+        }
+
+        if (withEndCap) {
+            addLineCap(to, theta - FMath.PiHalf, FMath.Pi);
+        }
+
+        triangles = null;
+        return builder;
+    }
+
+    private void markJoint(int index) {
+        if (jointOffsets != null) {
+            jointOffsets[index] = triangles.length;
+        }
+    }
+
+    private void markQuads(int index) {
+        if (quadOffsets != null) {
+            quadOffsets[index] = triangles.length;
+        }
+    }
+
 
     private void addLineCap(Vec2 org, float theta, float thetaDiff) {
         final float step = FMath.Pi / MAXRES;
@@ -125,7 +187,9 @@ public class DrawLinePath {
 
         float theta = Vec2.calTheta(path.get(0), path.get(1));
         addLineCap(path.get(0), theta + FMath.PiHalf, FMath.Pi);
+        markQuads(0);
         addLineQuads(path.get(0), path.get(1));
+        markJoint(1);
         if (path.size() == 2) {
             addLineCap(path.get(1), theta - FMath.PiHalf, FMath.Pi);
             return;
@@ -139,7 +203,9 @@ public class DrawLinePath {
             nextPoint = path.get(i);
             nextTheta = Vec2.calTheta(nowPoint, nextPoint);
             addLineCap(nowPoint, preTheta - FMath.PiHalf, nextTheta - preTheta);
+            markQuads(i - 1);
             addLineQuads(nowPoint, nextPoint);
+            markJoint(i);
             nowPoint = nextPoint;
             preTheta = nextTheta;
         }
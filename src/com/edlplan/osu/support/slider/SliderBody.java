@@ -1,16 +1,26 @@
 package com.edlplan.osu.support.slider;
 
 import com.edlplan.andengine.TriangleBuilder;
+import com.edlplan.framework.math.Vec2;
 import com.edlplan.framework.math.line.LinePath;
 import com.reco1l.andengine.shape.TriangleMesh;
 import com.reco1l.andengine.container.Container;
 import com.rian.osu.math.Vector2;
+import com.rian.osu.utils.FrameProfiler;
 
 
+/**
+ * Renders the body of a slider.
+ * <br>
+ * The meshes are built once for the whole path. Snaking only changes the range of triangles that is drawn, plus the
+ * partial segments at both ends of the visible part of the path, so its cost doesn't depend on the slider length.
+ */
 public class SliderBody extends Container {
 
     private static final BuildCache buildCache = new BuildCache();
 
+    private static final float LENGTH_TOLERANCE = 0.01f;
+
 
     private LinePath path;
 
@@ -32,6 +42,29 @@ public class SliderBody extends Container {
 
     private boolean shouldRebuildVertices = true;
 
+    private boolean shouldUpdateRange = true;
+
+    /**
+     * The length of the path at each of its points.
+     */
+    private float[] pointLengths = new float[0];
+
+    /**
+     * The vertex offsets of each point of the path, see {@link DrawLinePath#computeTriangles(TriangleBuilder, int[], int[])}.
+     */
+    private int[] jointOffsets = new int[0];
+
+    private int[] quadOffsets = new int[0];
+
+    /**
+     * The amount of vertex components of the full meshes.
+     */
+    private int vertexCount;
+
+    private final Vec2 cutStart = new Vec2();
+
+    private final Vec2 cutEnd = new Vec2();
+
 
     public SliderBody(boolean allowHint) {
 
@@ -73,13 +106,27 @@ public class SliderBody extends Container {
             endLength = path.getMeasurer().maxLength();
         }
 
+        int size = path.size();
+
+        if (pointLengths.length < size) {
+            pointLengths = new float[size];
+            jointOffsets = new int[size];
+            quadOffsets = new int[size];
+        }
+
+        for (int i = 0; i < size; i++) {
+            pointLengths[i] = i == 0 ? 0 : pointLengths[i - 1] + distance(path.get(i - 1), path.get(i));
+        }
+
         shouldRebuildVertices = true;
+        shouldUpdateRange = true;
         setPosition(position.x, position.y);
     }
 
 
     public void setBackgroundWidth(float value) {
         backgroundWidth = value;
+        shouldRebuildVertices = true;
     }
 
     public void setBackgroundColor(float r, float g, float b, float a) {
@@ -89,6 +136,7 @@ public class SliderBody extends Container {
 
     public void setHintVisible(boolean visible) {
         if (hint != null) {
+            shouldRebuildVertices |= visible && !hint.isVisible();
             hint.setVisible(visible);
             background.setClearDepthBufferBeforeDraw(!visible);
         } else {
@@ -98,6 +146,7 @@ public class SliderBody extends Container {
 
     public void setHintWidth(float value) {
         hintWidth = value;
+        shouldRebuildVertices = true;
     }
 
     public void setHintColor(float r, float g, float b, float a) {
@@ -109,6 +158,7 @@ public class SliderBody extends Container {
 
     public void setBorderWidth(float value) {
         borderWidth = value;
+        shouldRebuildVertices = true;
     }
 
     public void setBorderColor(float r, float g, float b) {
@@ -116,42 +166,200 @@ public class SliderBody extends Container {
     }
 
 
-    private void buildVertices(LinePath subPath) {
+    private void buildVertices() {
 
         TriangleBuilder builder = buildCache.triangleBuilder;
 
         if (hint != null && hint.isVisible()) {
             buildCache.drawLinePath
-                    .reset(subPath, Math.min(hintWidth, backgroundWidth - borderWidth))
+                    .reset(path, Math.min(hintWidth, backgroundWidth - borderWidth))
                     .computeTriangles(builder)
                     .applyVertices(hint.getVertices());
 
+            hint.invalidateVertices();
             hint.setContentSize(builder.maxX, builder.maxY);
         }
 
         buildCache.drawLinePath
-                .reset(subPath, backgroundWidth - borderWidth)
+                .reset(path, backgroundWidth - borderWidth)
                 .computeTriangles(builder)
                 .applyVertices(background.getVertices());
 
+        background.invalidateVertices();
         background.setContentSize(builder.maxX, builder.maxY);
 
         buildCache.drawLinePath
-                .reset(subPath, backgroundWidth)
-                .computeTriangles(builder)
+                .reset(path, backgroundWidth)
+                .computeTriangles(builder, jointOffsets, quadOffsets)
                 .applyVertices(border.getVertices());
 
+        border.invalidateVertices();
         border.setContentSize(builder.maxX, builder.maxY);
+
+        vertexCount = builder.length;
+    }
+
+    private void updateRange() {
+
+        int size = path.size();
+        float totalLength = size > 0 ? pointLengths[size - 1] : 0;
+
+        float start = Math.max(0, Math.min(startLength, totalLength));
+        float end = Math.max(start, Math.min(endLength, totalLength));
+
+        // Lengths within the tolerance are drawn from the full mesh, as the length reported by the path measurer may
+        // slightly differ from the one computed here.
+        boolean cutsStart = size >= 2 && start > LENGTH_TOLERANCE;
+        boolean cutsEnd = size >= 2 && end < totalLength - LENGTH_TOLERANCE;
+
+        if (!cutsStart && !cutsEnd) {
+            setRange(0, vertexCount);
+            clearExtraVertices();
+            return;
+        }
+
+        int startSegment = findSegment(start, size);
+        int endSegment = findSegment(end, size);
+
+        int rangeStart = cutsStart ? jointOffsets[startSegment + 1] : 0;
+        int rangeEnd = cutsEnd ? quadOffsets[endSegment] : vertexCount;
+
+        if (cutsStart) {
+            pointAt(start, startSegment, cutStart);
+        }
+
+        if (cutsEnd) {
+            pointAt(end, endSegment, cutEnd);
+        }
+
+        clearExtraVertices();
+
+        if (cutsStart && cutsEnd && startSegment == endSegment) {
+            buildSegment(cutStart, cutEnd, startSegment, true, true);
+            setRange(0, 0);
+            return;
+        }
+
+        if (cutsStart) {
+            buildSegment(cutStart, path.get(startSegment + 1), startSegment, true, false);
+        }
+
+        if (cutsEnd) {
+            // Appended after the start segment, if any, so both are drawn with a single call.
+            buildSegment(path.get(endSegment), cutEnd, endSegment, false, true);
+        }
+
+        setRange(rangeStart, Math.max(0, rangeEnd - rangeStart));
+    }
+
+    private void buildSegment(Vec2 from, Vec2 to, int segment, boolean withStartCap, boolean withEndCap) {
+
+        float theta = Vec2.calTheta(path.get(segment), path.get(segment + 1));
+        TriangleBuilder builder = buildCache.triangleBuilder;
+
+        if (hint != null && hint.isVisible()) {
+            buildCache.drawLinePath
+                    .reset(path, Math.min(hintWidth, backgroundWidth - borderWidth))
+                    .computeSegmentTriangles(builder, from, to, theta, withStartCap, withEndCap)
+                    .appendVertices(hint.getExtraVertices());
+        }
+
+        buildCache.drawLinePath
+                .reset(path, backgroundWidth - borderWidth)
+                .computeSegmentTriangles(builder, from, to, theta, withStartCap, withEndCap)
+                .appendVertices(background.getExtraVertices());
+
+        buildCache.drawLinePath
+                .reset(path, backgroundWidth)
+                .computeSegmentTriangles(builder, from, to, theta, withStartCap, withEndCap)
+                .appendVertices(border.getExtraVertices());
+    }
+
+    private void setRange(int offset, int length) {
+
+        if (hint != null) {
+            hint.getVertices().offset = offset;
+            hint.getVertices().length = length;
+        }
+
+        background.getVertices().offset = offset;
+        background.getVertices().length = length;
+
+        border.getVertices().offset = offset;
+        border.getVertices().length = length;
+    }
+
+    private void clearExtraVertices() {
+
+        if (hint != null) {
+            hint.getExtraVertices().length = 0;
+        }
+
+        background.getExtraVertices().length = 0;
+        border.getExtraVertices().length = 0;
+    }
+
+    /**
+     * Finds the segment of the path that contains the given length.
+     */
+    private int findSegment(float length, int size) {
+
+        int low = 0;
+        int high = size - 2;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (pointLengths[mid] <= length) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void pointAt(float length, int segment, Vec2 out) {
+
+        Vec2 from = path.get(segment);
+        Vec2 to = path.get(segment + 1);
+
+        float segmentLength = pointLengths[segment + 1] - pointLengths[segment];
+        float t = segmentLength > 0 ? (length - pointLengths[segment]) / segmentLength : 0;
+
+        out.x = from.x + (to.x - from.x) * t;
+        out.y = from.y + (to.y - from.y) * t;
+    }
+
+    private static float distance(Vec2 a, Vec2 b) {
+        float dx = b.x - a.x;
+        float dy = b.y - a.y;
+        return (float) Math.sqrt(dx * dx + dy * dy);
     }
 
 
     @Override
     protected void onManagedUpdate(float pSecondsElapsed) {
 
-        if (path != null && shouldRebuildVertices) {
-            shouldRebuildVertices = false;
+        if (path != null && (shouldRebuildVertices || shouldUpdateRange)) {
+            var profiler = FrameProfiler.getInstance();
+            profiler.begin(FrameProfiler.Section.SliderBodies);
+
+            if (shouldRebuildVertices) {
+                shouldRebuildVertices = false;
+                shouldUpdateRange = true;
+
+                buildVertices();
+            }
+
+            if (shouldUpdateRange) {
+                shouldUpdateRange = false;
 
-            buildVertices(path.cutPath(startLength, endLength).fitToLinePath(buildCache.path));
+                updateRange();
+            }
+
+            profiler.end(FrameProfiler.Section.SliderBodies);
         }
 
         super.onManagedUpdate(pSecondsElapsed);
@@ -159,13 +367,17 @@ public class SliderBody extends Container {
 
 
     public void setStartLength(float length) {
-        startLength = length;
-        shouldRebuildVertices = true;
+        if (startLength != length) {
+            startLength = length;
+            shouldUpdateRange = true;
+        }
     }
 
     public void setEndLength(float length) {
-        endLength = length;
-        shouldRebuildVertices = true;
+        if (endLength != length) {
+            endLength = length;
+            shouldUpdateRange = true;
+        }
     }
 
 
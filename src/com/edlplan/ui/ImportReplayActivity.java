@@ -12,6 +12,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoard;
+
 
 public class ImportReplayActivity extends Activity {
 
@@ -47,13 +49,19 @@ public class ImportReplayActivity extends Activity {
                 FileOutputStream outputStream = new FileOutputStream(rep);
                 outputStream.write(entry.replayFile);
                 outputStream.close();
-                if (DatabaseManager.getScoreInfoTable().insertScore(entry.scoreInfo) >= 0) {
-                    Toast.makeText(this, com.osudroid.resources.R.string.import_edr_successfully, Toast.LENGTH_SHORT).show();
-                    finish();
-                } else {
-                    Toast.makeText(this, com.osudroid.resources.R.string.failed_to_import_edr, Toast.LENGTH_SHORT).show();
-                    finish();
-                }
+                DatabaseManager.async(() -> {
+                    boolean inserted = DatabaseManager.getScoreInfoTable().insertScore(entry.scoreInfo) >= 0;
+                    ScoreBoard.invalidateLocalScores(entry.scoreInfo.getBeatmapMD5());
+
+                    runOnUiThread(() -> {
+                        if (inserted) {
+                            Toast.makeText(this, com.osudroid.resources.R.string.import_edr_successfully, Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, com.osudroid.resources.R.string.failed_to_import_edr, Toast.LENGTH_SHORT).show();
+                        }
+                        finish();
+                    });
+                });
             } catch (Exception e) {
                 e.printStackTrace();
                 Toast.makeText(this, String.format(getResources().getString(com.osudroid.resources.R.string.failed_to_import_edr_with_err), e.toString()), Toast.LENGTH_SHORT).show();
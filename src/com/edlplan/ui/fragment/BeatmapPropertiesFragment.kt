@@ -13,6 +13,7 @@ import com.edlplan.ui.BaseAnimationListener
 import com.edlplan.ui.EasingHelper
 import com.reco1l.osu.data.BeatmapOptions
 import com.reco1l.osu.data.DatabaseManager
+import com.reco1l.osu.mainThread
 import com.reco1l.osu.ui.MessageDialog
 import com.reco1l.toolkt.android.cornerRadius
 import com.reco1l.toolkt.android.dp
@@ -173,16 +174,28 @@ class BeatmapPropertiesFragment : BaseFragment(), IPropsMenu {
     override fun show(menu: SongMenu, item: BeatmapSetItem) {
         this.menu = menu
         this.item = item
-        beatmapOptions = DatabaseManager.beatmapOptionsTable.getOptions(item.beatmapSetInfo.directory)
-        if (beatmapOptions == null) {
-            beatmapOptions = BeatmapOptions(item.beatmapSetInfo.directory)
-            DatabaseManager.beatmapOptionsTable.insert(beatmapOptions!!)
+
+        val directory = item.beatmapSetInfo.directory
+
+        DatabaseManager.async {
+            var options = DatabaseManager.beatmapOptionsTable.getOptions(directory)
+            if (options == null) {
+                options = BeatmapOptions(directory)
+                DatabaseManager.beatmapOptionsTable.insert(options)
+            }
+
+            mainThread {
+                beatmapOptions = options
+                show()
+            }
         }
-        show()
     }
 
     fun saveProp() {
         item!!.isFavorite = beatmapOptions!!.isFavorite
-        DatabaseManager.beatmapOptionsTable.update(beatmapOptions!!)
+
+        // Copied as the fields keep changing while the user edits them.
+        val options = beatmapOptions!!.copy()
+        DatabaseManager.async { DatabaseManager.beatmapOptionsTable.update(options) }
     }
 }
@@ -15,6 +15,7 @@ import android.widget.TextView;
 import com.edlplan.framework.easing.Easing;
 import com.edlplan.ui.BaseAnimationListener;
 import com.edlplan.ui.EasingHelper;
+import com.reco1l.osu.Execution;
 import com.reco1l.osu.data.DatabaseManager;
 import com.reco1l.osu.ui.MessageDialog;
 import com.reco1l.osu.ui.PromptDialog;
@@ -24,7 +25,11 @@ import com.reco1l.toolkt.android.Views;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import ru.nsu.ccfit.zuev.osu.helper.StringTable;
 import ru.nsu.ccfit.zuev.osuplus.R;
@@ -63,10 +68,14 @@ public class CollectionsManagerFragment extends BaseFragment {
                         return null;
                     }
 
-                    if (!DatabaseManager.getBeatmapCollectionsTable().collectionExists(input) && !input.equals(StringTable.get(com.osudroid.resources.R.string.favorite_default))) {
-                        DatabaseManager.getBeatmapCollectionsTable().insertCollection(input);
-                        adapter.add(input);
-                    }
+                    DatabaseManager.async(() -> {
+                        var table = DatabaseManager.getBeatmapCollectionsTable();
+
+                        if (!table.collectionExists(input) && !input.equals(StringTable.get(com.osudroid.resources.R.string.favorite_default))) {
+                            table.insertCollection(input);
+                            Execution.mainThread(() -> adapter.add(input));
+                        }
+                    });
 
                     dialog.dismiss();
                     return null;
@@ -131,6 +140,7 @@ public class CollectionsManagerFragment extends BaseFragment {
         onLoadViewFunc = () -> {
             adapter = new SelectAdapter(onSelectListener);
             ((RecyclerView) findViewById(R.id.main_recycler_view)).setAdapter(adapter);
+            adapter.load();
         };
         show();
     }
@@ -139,6 +149,7 @@ public class CollectionsManagerFragment extends BaseFragment {
         onLoadViewFunc = () -> {
             adapter = new AddAdapter(track);
             ((RecyclerView) findViewById(R.id.main_recycler_view)).setAdapter(adapter);
+            adapter.load();
         };
         show();
     }
@@ -171,28 +182,71 @@ public class CollectionsManagerFragment extends BaseFragment {
 
     public abstract class FMAdapter extends RecyclerView.Adapter<VH> {
 
-        protected List<String> folders;
+        protected List<String> folders = new ArrayList<>();
+
+        /**
+         * The amount of beatmaps in each folder.
+         */
+        protected Map<String, Integer> beatmapCounts = new HashMap<>();
+
+        /**
+         * The folders that contain the track given by {@link #getTrack()}.
+         */
+        protected Set<String> trackFolders = new HashSet<>();
 
-        public FMAdapter() {
-            load();
-        }
 
         public void add(String folder) {
             folders.add(includeDefaultFolder() ? 1 : 0, folder);
+            beatmapCounts.put(folder, 0);
             notifyDataSetChanged();
         }
 
 
         protected abstract boolean includeDefaultFolder();
 
+        protected String getTrack() {
+            return null;
+        }
+
 
+        /**
+         * Loads the folders in the database thread and shows them once they're loaded.
+         */
         protected void load() {
-            folders = new ArrayList<>(DatabaseManager.getBeatmapCollectionsTable().getCollections());
-            Collections.sort(folders);
+            var track = getTrack();
 
-            if (includeDefaultFolder()) {
-                folders.add(0, StringTable.get(com.osudroid.resources.R.string.favorite_default));
-            }
+            DatabaseManager.async(() -> {
+                var table = DatabaseManager.getBeatmapCollectionsTable();
+
+                var loadedFolders = new ArrayList<>(table.getCollections());
+                Collections.sort(loadedFolders);
+
+                if (includeDefaultFolder()) {
+                    loadedFolders.add(0, StringTable.get(com.osudroid.resources.R.string.favorite_default));
+                }
+
+                var loadedCounts = new HashMap<String, Integer>();
+                var loadedTrackFolders = new HashSet<String>();
+
+                for (var folder : loadedFolders) {
+                    var maps = table.getBeatmaps(folder);
+
+                    if (maps != null) {
+                        loadedCounts.put(folder, maps.size());
+                    }
+
+                    if (track != null && table.inCollection(folder, track)) {
+                        loadedTrackFolders.add(folder);
+                    }
+                }
+
+                Execution.mainThread(() -> {
+                    folders = loadedFolders;
+                    beatmapCounts = loadedCounts;
+                    trackFolders = loadedTrackFolders;
+                    notifyDataSetChanged();
+                });
+            });
         }
 
         @NonNull
@@ -226,11 +280,12 @@ public class CollectionsManagerFragment extends BaseFragment {
                     .setMessage(getContext().getString(com.osudroid.resources.R.string.favorite_ensure))
                     .addButton("Yes", dialog -> {
 
-                        DatabaseManager.getBeatmapCollectionsTable().clearCollection(folder);
-                        DatabaseManager.getBeatmapCollectionsTable().deleteCollection(folder);
+                        DatabaseManager.async(() -> {
+                            DatabaseManager.getBeatmapCollectionsTable().clearCollection(folder);
+                            DatabaseManager.getBeatmapCollectionsTable().deleteCollection(folder);
+                        });
 
                         load();
-                        notifyDataSetChanged();
                         dialog.dismiss();
                         return null;
                     })
@@ -243,15 +298,15 @@ public class CollectionsManagerFragment extends BaseFragment {
         }
 
         protected void updateFolderNameText(VH holder, String name) {
-            var maps = DatabaseManager.getBeatmapCollectionsTable().getBeatmaps(name);
+            var count = beatmapCounts.get(name);
 
             holder.folderName.setText(name);
 
-            if (maps == null) {
+            if (count == null) {
                 holder.folderCount.setVisibility(View.GONE);
             } else {
                 holder.folderCount.setVisibility(View.VISIBLE);
-                holder.folderCount.setText("· " + maps.size() + " beatmaps");
+                holder.folderCount.setText("· " + count + " beatmaps");
             }
         }
     }
@@ -269,6 +324,11 @@ public class CollectionsManagerFragment extends BaseFragment {
             return false;
         }
 
+        @Override
+        protected String getTrack() {
+            return track;
+        }
+
         @Override
         public void onBindViewHolder(@NonNull VH holder, int position) {
 
@@ -277,19 +337,30 @@ public class CollectionsManagerFragment extends BaseFragment {
             var folder = folders.get(position);
 
             Texts.setDrawableLeft(holder.button2, getContext().getDrawable(
-                DatabaseManager.getBeatmapCollectionsTable().inCollection(folder, track)
+                trackFolders.contains(folder)
                     ? R.drawable.remove_24px
                     : R.drawable.add_24px
                 )
             );
             holder.button2.setOnClickListener(view -> {
 
-                if (DatabaseManager.getBeatmapCollectionsTable().inCollection(folder, track)) {
-                    DatabaseManager.getBeatmapCollectionsTable().removeBeatmap(folder, track);
+                var count = beatmapCounts.get(folder);
+
+                if (trackFolders.remove(folder)) {
+                    DatabaseManager.async(() -> DatabaseManager.getBeatmapCollectionsTable().removeBeatmap(folder, track));
                     Texts.setDrawableLeft(holder.button2, getContext().getDrawable(R.drawable.add_24px));
+
+                    if (count != null) {
+                        beatmapCounts.put(folder, count - 1);
+                    }
                 } else {
-                    DatabaseManager.getBeatmapCollectionsTable().addBeatmap(folder, track);
+                    trackFolders.add(folder);
+                    DatabaseManager.async(() -> DatabaseManager.getBeatmapCollectionsTable().addBeatmap(folder, track));
                     Texts.setDrawableLeft(holder.button2, getContext().getDrawable(R.drawable.remove_24px));
+
+                    if (count != null) {
+                        beatmapCounts.put(folder, count + 1);
+                    }
                 }
 
                 updateFolderNameText(holder, folder);
@@ -15,8 +15,10 @@ import com.edlplan.framework.easing.Easing;
 import com.edlplan.replay.OsuDroidReplayPack;
 import com.edlplan.ui.BaseAnimationListener;
 import com.edlplan.ui.EasingHelper;
+import com.reco1l.osu.Execution;
 import com.reco1l.osu.data.BeatmapInfo;
 import com.reco1l.osu.data.DatabaseManager;
+import com.reco1l.osu.data.ScoreInfo;
 import com.reco1l.osu.ui.MessageDialog;
 import com.reco1l.toolkt.android.Dimensions;
 import com.reco1l.toolkt.android.Views;
@@ -25,6 +27,7 @@ import java.io.File;
 import java.util.Locale;
 
 import ru.nsu.ccfit.zuev.osu.GlobalManager;
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoard;
 import ru.nsu.ccfit.zuev.osuplus.BuildConfig;
 import ru.nsu.ccfit.zuev.osuplus.R;
 
@@ -44,70 +47,44 @@ public class ScoreMenuFragment extends BaseFragment {
 
     @Override
     protected void onLoadView() {
-        findViewById(R.id.exportReplay).setOnClickListener(v -> {
+        findViewById(R.id.exportReplay).setOnClickListener(v -> DatabaseManager.async(() -> {
 
             var scoreInfo = DatabaseManager.getScoreInfoTable().getScore(scoreId);
 
             if (scoreInfo != null) {
-                try {
-                    String beatmapFilename = beatmap.getFilename();
-
-                    final File file = new File(
-                            new File(Environment.getExternalStorageDirectory(), "osu!droid/export"),
-                            String.format(Locale.getDefault(), "%s [%s]-%d.edr",
-                                    beatmapFilename.subSequence(0, beatmapFilename.lastIndexOf('.')),
-                                    scoreInfo.getPlayerName(),
-                                    scoreInfo.getTime())
-                    );
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    OsuDroidReplayPack.packTo(file, beatmap, scoreInfo);
-
-                    Snackbar.make(v, String.format(getResources().getString(com.osudroid.resources.R.string.frg_score_menu_export_succeed), file.getAbsolutePath()), 2750).setAction("Share", new View.OnClickListener() {
-                        @Override
-                        public void onClick(View v) {
-                            Intent intent = new Intent();
-                            intent.setAction(Intent.ACTION_VIEW);
-                            intent.setDataAndType(FileProvider.getUriForFile(
-                                    GlobalManager.getInstance().getMainActivity(),
-                                    BuildConfig.APPLICATION_ID + ".fileProvider",
-                                    file), "*/*");
-                            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-                            GlobalManager.getInstance().getMainActivity().startActivityForResult(intent, 0);
-                        }
-                    }).show();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Toast.makeText(v.getContext(), com.osudroid.resources.R.string.frg_score_menu_export_failed, Toast.LENGTH_SHORT).show();
-                }
+                Execution.mainThread(() -> exportReplay(v, scoreInfo));
             }
-        });
+        }));
 
         findViewById(R.id.deleteReplay).setOnClickListener(v -> {
             new MessageDialog()
                 .setTitle("Delete replay").setMessage("Are you sure?")
                 .addButton("Yes", dialog -> {
 
-                    try {
-                        dialog.dismiss();
-                        ScoreMenuFragment.this.dismiss();
-
-                        var scoreInfoTable = DatabaseManager.getScoreInfoTable();
-                        var scoreInfo = scoreInfoTable.getScore(scoreId);
-
-                        if (scoreInfo != null && scoreInfoTable.deleteScore(scoreId) != 0) {
-                            Snackbar.make(v, com.osudroid.resources.R.string.menu_deletescore_delete_success, 1500).show();
-                            GlobalManager.getInstance().getSongMenu().reloadScoreboard();
-
-                            new File(scoreInfo.getReplayPath()).delete();
-                        } else {
-                            Snackbar.make(v, "Failed to delete replay!", 1500).show();
+                    dialog.dismiss();
+                    ScoreMenuFragment.this.dismiss();
+
+                    DatabaseManager.async(() -> {
+                        try {
+                            var scoreInfoTable = DatabaseManager.getScoreInfoTable();
+                            var scoreInfo = scoreInfoTable.getScore(scoreId);
+
+                            if (scoreInfo != null && scoreInfoTable.deleteScore(scoreId) != 0) {
+                                new File(scoreInfo.getReplayPath()).delete();
+                                ScoreBoard.invalidateLocalScores(scoreInfo.getBeatmapMD5());
+
+                                Execution.mainThread(() -> {
+                                    Snackbar.make(v, com.osudroid.resources.R.string.menu_deletescore_delete_success, 1500).show();
+                                    GlobalManager.getInstance().getSongMenu().reloadScoreboard();
+                                });
+                            } else {
+                                Execution.mainThread(() -> Snackbar.make(v, "Failed to delete replay!", 1500).show());
+                            }
+                        } catch (Exception e) {
+                            Log.e("ScoreMenuFragment", "Failed to delete replay", e);
+                            Execution.mainThread(() -> Toast.makeText(v.getContext(), "Failed to delete replay!", Toast.LENGTH_SHORT).show());
                         }
-                    } catch (Exception e) {
-                        Log.e("ScoreMenuFragment", "Failed to delete replay", e);
-                        Toast.makeText(v.getContext(), "Failed to delete replay!", Toast.LENGTH_SHORT).show();
-                    }
+                    });
 
                     return null;
                 })
@@ -122,6 +99,41 @@ public class ScoreMenuFragment extends BaseFragment {
         Views.setCornerRadius(findViewById(R.id.fullLayout), Dimensions.getDp(14f));
     }
 
+    private void exportReplay(View v, ScoreInfo scoreInfo) {
+        try {
+            String beatmapFilename = beatmap.getFilename();
+
+            final File file = new File(
+                    new File(Environment.getExternalStorageDirectory(), "osu!droid/export"),
+                    String.format(Locale.getDefault(), "%s [%s]-%d.edr",
+                            beatmapFilename.subSequence(0, beatmapFilename.lastIndexOf('.')),
+                            scoreInfo.getPlayerName(),
+                            scoreInfo.getTime())
+            );
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            OsuDroidReplayPack.packTo(file, beatmap, scoreInfo);
+
+            Snackbar.make(v, String.format(getResources().getString(com.osudroid.resources.R.string.frg_score_menu_export_succeed), file.getAbsolutePath()), 2750).setAction("Share", new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    Intent intent = new Intent();
+                    intent.setAction(Intent.ACTION_VIEW);
+                    intent.setDataAndType(FileProvider.getUriForFile(
+                            GlobalManager.getInstance().getMainActivity(),
+                            BuildConfig.APPLICATION_ID + ".fileProvider",
+                            file), "*/*");
+                    intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    GlobalManager.getInstance().getMainActivity().startActivityForResult(intent, 0);
+                }
+            }).show();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Toast.makeText(v.getContext(), com.osudroid.resources.R.string.frg_score_menu_export_failed, Toast.LENGTH_SHORT).show();
+        }
+    }
+
     @Override
     public void dismiss() {
         playEndAnim(super::dismiss);
@@ -7,6 +7,9 @@ import com.reco1l.andengine.modifier.UniversalModifier.Companion.GlobalPool
 
 /**
  * A collection of static methods to create different types of modifiers.
+ *
+ * Sequences and parallels of two or three modifiers have fixed arity overloads so that Java callers don't need to
+ * allocate a varargs array for every hit object.
  * @see UniversalModifier
  * @see ModifierType
  * @author Reco1l
@@ -20,8 +23,8 @@ object Modifiers {
         it.setToDefault()
         it.type = Alpha
         it.duration = duration
-        it.initialValues = floatArrayOf(from)
-        it.finalValues = floatArrayOf(to)
+        it.setInitialValues(from)
+        it.setFinalValues(to)
         it.onFinished = listener
         it.eased(easing)
     }
@@ -40,8 +43,8 @@ object Modifiers {
         it.setToDefault()
         it.type = ScaleXY
         it.duration = duration
-        it.initialValues = floatArrayOf(from)
-        it.finalValues = floatArrayOf(to)
+        it.setInitialValues(from)
+        it.setFinalValues(to)
         it.onFinished = listener
         it.eased(easing)
     }
@@ -63,27 +66,47 @@ object Modifiers {
         it.type = Color
         it.duration = duration
         it.onFinished = listener
-        it.initialValues = floatArrayOf(fromRed, fromGreen, fromBlue)
-        it.finalValues = floatArrayOf(toRed, toGreen, toBlue)
+        it.setInitialValues(fromRed, fromGreen, fromBlue)
+        it.setFinalValues(toRed, toGreen, toBlue)
         it.eased(easing)
     }
 
     @JvmStatic
     @JvmOverloads
-    fun sequence(listener: OnModifierFinished? = null, vararg modifiers: UniversalModifier) = GlobalPool.obtain().also {
-        it.setToDefault()
-        it.type = Sequence
-        it.modifiers = arrayOf(*modifiers)
-        it.onFinished = listener
+    fun sequence(listener: OnModifierFinished? = null, vararg modifiers: UniversalModifier) = compound(Sequence, listener).also {
+        modifiers.forEach(it::addModifier)
+    }
+
+    @JvmStatic
+    fun sequence(first: UniversalModifier, second: UniversalModifier) = compound(Sequence, null).also {
+        it.addModifier(first)
+        it.addModifier(second)
+    }
+
+    @JvmStatic
+    fun sequence(first: UniversalModifier, second: UniversalModifier, third: UniversalModifier) = compound(Sequence, null).also {
+        it.addModifier(first)
+        it.addModifier(second)
+        it.addModifier(third)
     }
 
     @JvmStatic
     @JvmOverloads
-    fun parallel(listener: OnModifierFinished? = null, vararg modifiers: UniversalModifier) = GlobalPool.obtain().also {
-        it.setToDefault()
-        it.type = Parallel
-        it.modifiers = arrayOf(*modifiers)
-        it.onFinished = listener
+    fun parallel(listener: OnModifierFinished? = null, vararg modifiers: UniversalModifier) = compound(Parallel, listener).also {
+        modifiers.forEach(it::addModifier)
+    }
+
+    @JvmStatic
+    fun parallel(first: UniversalModifier, second: UniversalModifier) = compound(Parallel, null).also {
+        it.addModifier(first)
+        it.addModifier(second)
+    }
+
+    @JvmStatic
+    fun parallel(first: UniversalModifier, second: UniversalModifier, third: UniversalModifier) = compound(Parallel, null).also {
+        it.addModifier(first)
+        it.addModifier(second)
+        it.addModifier(third)
     }
 
     @JvmStatic
@@ -101,8 +124,8 @@ object Modifiers {
         it.setToDefault()
         it.type = TranslateY
         it.duration = duration
-        it.initialValues = floatArrayOf(from)
-        it.finalValues = floatArrayOf(to)
+        it.setInitialValues(from)
+        it.setFinalValues(to)
         it.onFinished = listener
         it.eased(easing)
     }
@@ -114,8 +137,8 @@ object Modifiers {
             it.setToDefault()
             it.type = MoveXY
             it.duration = duration
-            it.initialValues = floatArrayOf(fromX, fromY)
-            it.finalValues = floatArrayOf(toX, toY)
+            it.setInitialValues(fromX, fromY)
+            it.setFinalValues(toX, toY)
             it.onFinished = listener
             it.eased(easing)
         }
@@ -126,10 +149,17 @@ object Modifiers {
         it.setToDefault()
         it.type = Rotation
         it.duration = duration
-        it.initialValues = floatArrayOf(from)
-        it.finalValues = floatArrayOf(to)
+        it.setInitialValues(from)
+        it.setFinalValues(to)
         it.onFinished = listener
         it.eased(easing)
     }
 
+
+    private fun compound(type: ModifierType, listener: OnModifierFinished?) = GlobalPool.obtain().also {
+        it.setToDefault()
+        it.type = type
+        it.onFinished = listener
+    }
+
 }
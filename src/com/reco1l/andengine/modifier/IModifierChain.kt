@@ -58,7 +58,7 @@ interface IModifierChain {
         return applyModifier {
             type = TranslateXY
             duration = durationSec
-            finalValues = floatArrayOf(valueX, valueY)
+            setFinalValues(valueX, valueY)
         }
     }
 
@@ -66,7 +66,7 @@ interface IModifierChain {
         return applyModifier {
             type = TranslateX
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -74,7 +74,7 @@ interface IModifierChain {
         return applyModifier {
             type = TranslateY
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -85,7 +85,7 @@ interface IModifierChain {
         return applyModifier {
             type = MoveXY
             duration = durationSec
-            finalValues = floatArrayOf(valueX, valueY)
+            setFinalValues(valueX, valueY)
         }
     }
 
@@ -93,7 +93,7 @@ interface IModifierChain {
         return applyModifier {
             type = MoveX
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -101,7 +101,7 @@ interface IModifierChain {
         return applyModifier {
             type = MoveY
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -112,7 +112,7 @@ interface IModifierChain {
         return applyModifier {
             type = ScaleXY
             duration = durationSec
-            finalValues = floatArrayOf(value, value)
+            setFinalValues(value, value)
         }
     }
 
@@ -120,7 +120,7 @@ interface IModifierChain {
         return applyModifier {
             type = ScaleX
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -128,7 +128,7 @@ interface IModifierChain {
         return applyModifier {
             type = ScaleY
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -139,7 +139,7 @@ interface IModifierChain {
         return applyModifier {
             type = Alpha
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -151,8 +151,8 @@ interface IModifierChain {
         return applyModifier {
             type = Alpha
             duration = durationSec
-            initialValues = floatArrayOf(0f)
-            finalValues = floatArrayOf(1f)
+            setInitialValues(0f)
+            setFinalValues(1f)
         }
     }
 
@@ -164,7 +164,7 @@ interface IModifierChain {
         return applyModifier {
             type = Color
             duration = durationSec
-            finalValues = floatArrayOf(red, green, blue)
+            setFinalValues(red, green, blue)
         }
     }
 
@@ -175,7 +175,7 @@ interface IModifierChain {
         return applyModifier {
             type = Rotation
             duration = durationSec
-            finalValues = floatArrayOf(value)
+            setFinalValues(value)
         }
     }
 
@@ -98,40 +98,45 @@ enum class ModifierType {
         get() = this == Sequence || this == Parallel
 
 
-    fun getInitialValues(entity: IEntity): FloatArray? = when (this) {
+    /**
+     * Writes the current values of the entity that this modifier type animates into [out].
+     *
+     * @return The amount of values written, zero if this modifier type doesn't animate any value.
+     */
+    fun getInitialValues(entity: IEntity, out: FloatArray): Int = when (this) {
 
-        ScaleX -> floatArrayOf(entity.scaleX)
-        ScaleY -> floatArrayOf(entity.scaleY)
-        ScaleXY -> floatArrayOf(entity.scaleX, entity.scaleY)
+        ScaleX -> out.put(entity.scaleX)
+        ScaleY -> out.put(entity.scaleY)
+        ScaleXY -> out.put(entity.scaleX, entity.scaleY)
 
-        Alpha -> floatArrayOf(entity.alpha)
-        Color -> floatArrayOf(entity.red, entity.green, entity.blue)
+        Alpha -> out.put(entity.alpha)
+        Color -> out.put(entity.red, entity.green, entity.blue)
 
-        MoveX -> floatArrayOf(entity.x)
-        MoveY -> floatArrayOf(entity.y)
-        MoveXY -> floatArrayOf(entity.x, entity.y)
+        MoveX -> out.put(entity.x)
+        MoveY -> out.put(entity.y)
+        MoveXY -> out.put(entity.x, entity.y)
 
         TranslateX -> {
             entity as? ExtendedEntity ?: throw IllegalArgumentException("TranslateX is only available for ExtendedEntity instances.")
-            floatArrayOf(entity.translationX)
+            out.put(entity.translationX)
         }
 
         TranslateY -> {
             entity as? ExtendedEntity ?: throw IllegalArgumentException("TranslateX is only available for ExtendedEntity instances.")
-            floatArrayOf(entity.translationY)
+            out.put(entity.translationY)
         }
 
         TranslateXY -> {
             entity as? ExtendedEntity ?: throw IllegalArgumentException("TranslateX is only available for ExtendedEntity instances.")
-            floatArrayOf(entity.translationX, entity.translationY)
+            out.put(entity.translationX, entity.translationY)
         }
 
-        Rotation -> floatArrayOf(entity.rotation)
+        Rotation -> out.put(entity.rotation)
 
-        else -> null
+        else -> 0
     }
 
-    fun setValues(entity: IEntity, initialValues: FloatArray, finalValues: FloatArray, percentage: Float) {
+    fun setValues(entity: IEntity, initialValues: FloatArray, initialCount: Int, finalValues: FloatArray, finalCount: Int, percentage: Float) {
 
         fun valueAt(index: Int): Float {
             var i = index
@@ -139,8 +144,8 @@ enum class ModifierType {
             // This is a workaround for the case when the value count doesn't fit the type requirements.
             // `initialValues` shouldn't be settable as they should be calculated from the entity but since
             // we're supporting `Modifiers.kt` yet we need to handle this case.
-            i %= initialValues.size
-            i %= finalValues.size
+            i %= initialCount
+            i %= finalCount
 
             return initialValues[i] + percentage * (finalValues[i] - initialValues[i])
         }
@@ -181,4 +186,23 @@ enum class ModifierType {
     }
 
 
+    private fun FloatArray.put(value: Float): Int {
+        this[0] = value
+        return 1
+    }
+
+    private fun FloatArray.put(value0: Float, value1: Float): Int {
+        this[0] = value0
+        this[1] = value1
+        return 2
+    }
+
+    private fun FloatArray.put(value0: Float, value1: Float, value2: Float): Int {
+        this[0] = value0
+        this[1] = value1
+        this[2] = value2
+        return 3
+    }
+
+
 }
\ No newline at end of file
@@ -4,7 +4,6 @@ import android.util.*
 import com.edlplan.framework.easing.Easing
 import com.reco1l.andengine.modifier.ModifierType.*
 import com.reco1l.framework.*
-import com.reco1l.toolkt.kotlin.*
 import org.anddev.andengine.entity.*
 import org.anddev.andengine.entity.modifier.*
 import org.anddev.andengine.util.modifier.*
@@ -35,39 +34,31 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
     /**
      * Inner modifiers for [Sequence] or [Parallel] modifier types.
+     *
+     * The list is owned by this modifier and reused across pool cycles, so appending nested modifiers doesn't
+     * allocate once its capacity has grown to the usual chain length.
      */
-    var modifiers: Array<UniversalModifier>? = null
-        set(value) {
-            if (value != null && !type.isCompoundModifier) {
-                Log.w("UniversalModifier", "Cannot set inner modifiers for non-compound modifiers.")
-                return
-            }
-
-            var totalDuration = 0f
+    private val modifiers = ArrayList<UniversalModifier>(4)
 
-            value?.fastForEach {
-                it.parent = this
-
-                if (type == Sequence) {
-                    totalDuration += it.duration
-                } else {
-                    totalDuration = max(totalDuration, it.duration)
-                }
-            }
+    /**
+     * The initial values for the modifier, only the first [initialValueCount] values are used.
+     */
+    private val initialValues = FloatArray(MAX_VALUE_COUNT)
 
-            field = value
-            duration = totalDuration
-        }
+    /**
+     * The final values for the modifier, only the first [finalValueCount] values are used.
+     */
+    private val finalValues = FloatArray(MAX_VALUE_COUNT)
 
     /**
-     * The initial values for the modifier.
+     * The amount of initial values set, zero if they should be taken from the entity when the modifier starts.
      */
-    var initialValues: FloatArray? = null
+    private var initialValueCount = 0
 
     /**
-     * The final values for the modifier.
+     * The amount of final values set.
      */
-    var finalValues: FloatArray? = null
+    private var finalValueCount = 0
 
     /**
      * Callback to be called when the modifier finishes.
@@ -93,8 +84,17 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
 
     private fun clearNestedModifiers() {
-        modifiers?.fastForEach { it.onUnregister() }
-        modifiers = null
+        for (i in modifiers.indices) {
+            modifiers[i].onUnregister()
+        }
+        modifiers.clear()
+    }
+
+    private fun writeValues(target: FloatArray, count: Int, value0: Float, value1: Float, value2: Float): Int {
+        target[0] = value0
+        target[1] = value1
+        target[2] = value2
+        return count
     }
 
     override fun onUpdate(deltaSec: Float, entity: IEntity): Float {
@@ -107,8 +107,8 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
         if (elapsedSec < 0) {
             elapsedSec = 0f
 
-            if (!type.isCompoundModifier && initialValues == null) {
-                initialValues = type.getInitialValues(entity)
+            if (!type.isCompoundModifier && initialValueCount == 0) {
+                initialValueCount = type.getInitialValues(entity, initialValues)
             }
         }
 
@@ -118,7 +118,7 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
             var remainingDeltaSec = deltaSec
 
-            while (remainingDeltaSec > 0f && modifiers != null && !isFinished) {
+            while (remainingDeltaSec > 0f && modifiers.isNotEmpty() && !isFinished) {
 
                 var allModifiersFinished = true
 
@@ -126,7 +126,9 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
                     var maxConsumedDeltaSec = 0f
 
-                    for (modifier in modifiers!!) {
+                    for (i in modifiers.indices) {
+                        val modifier = modifiers[i]
+
                         if (!modifier.isFinished) {
                             allModifiersFinished = false
                             maxConsumedDeltaSec = max(maxConsumedDeltaSec, modifier.onUpdate(remainingDeltaSec, entity))
@@ -140,7 +142,9 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
                     var currentConsumedDeltaSec = 0f
 
-                    for (modifier in modifiers!!) {
+                    for (i in modifiers.indices) {
+                        val modifier = modifiers[i]
+
                         if (!modifier.isFinished) {
                             allModifiersFinished = false
                             currentConsumedDeltaSec = modifier.onUpdate(remainingDeltaSec, entity)
@@ -177,8 +181,8 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
                 // Assuming the percentage is 1 if the duration is 0 to prevent division by zero.
                 val percentage = if (duration > 0f) easing.interpolate(elapsedSec / duration) else 1f
 
-                if (initialValues != null && finalValues != null) {
-                    type.setValues(entity, initialValues!!, finalValues!!, percentage)
+                if (initialValueCount > 0 && finalValueCount > 0) {
+                    type.setValues(entity, initialValues, initialValueCount, finalValues, finalValueCount, percentage)
                 }
             }
         }
@@ -202,7 +206,10 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
      */
     override fun reset() {
         elapsedSec = -1f
-        modifiers?.fastForEach { it.reset() }
+
+        for (i in modifiers.indices) {
+            modifiers[i].reset()
+        }
     }
 
 
@@ -215,7 +222,7 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
             nested.parent = this
             nested.block()
 
-            modifiers = modifiers?.plus(nested) ?: arrayOf(nested)
+            addModifier(nested)
             return nested
         }
 
@@ -231,17 +238,19 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
             copy.type = type
             copy.easing = easing
-            copy.duration = duration
-            copy.modifiers = modifiers
             copy.onFinished = onFinished
-            copy.finalValues = finalValues
-            copy.initialValues = initialValues
+            copy.copyValuesFrom(this)
+
+            for (i in modifiers.indices) {
+                copy.addModifier(modifiers[i])
+            }
+            copy.duration = duration
 
-            modifiers = null // Preventing modifiers of the copy from being pooled.
+            modifiers.clear() // Preventing modifiers of the copy from being pooled.
             setToDefault()
 
             type = Sequence
-            modifiers = arrayOf(copy)
+            addModifier(copy)
         }
 
         return applyModifier(block)
@@ -256,7 +265,9 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
     fun eased(value: Easing): UniversalModifier {
 
         if (type.isCompoundModifier) {
-            modifiers?.fastForEach { it.eased(value) }
+            for (i in modifiers.indices) {
+                modifiers[i].eased(value)
+            }
         } else {
             easing = value
         }
@@ -264,6 +275,59 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
         return this
     }
 
+    /**
+     * Appends a nested modifier to a [Sequence] or [Parallel] modifier and updates its duration accordingly.
+     */
+    fun addModifier(modifier: UniversalModifier) {
+
+        if (!type.isCompoundModifier) {
+            Log.w("UniversalModifier", "Cannot set inner modifiers for non-compound modifiers.")
+            return
+        }
+
+        modifier.parent = this
+        modifiers.add(modifier)
+
+        duration = if (type == Sequence) duration + modifier.duration else max(duration, modifier.duration)
+    }
+
+    /**
+     * Sets the initial values for the modifier, if not set they're taken from the entity when the modifier starts.
+     */
+    fun setInitialValues(value: Float) {
+        initialValueCount = writeValues(initialValues, 1, value, 0f, 0f)
+    }
+
+    fun setInitialValues(value0: Float, value1: Float) {
+        initialValueCount = writeValues(initialValues, 2, value0, value1, 0f)
+    }
+
+    fun setInitialValues(value0: Float, value1: Float, value2: Float) {
+        initialValueCount = writeValues(initialValues, 3, value0, value1, value2)
+    }
+
+    /**
+     * Sets the final values for the modifier.
+     */
+    fun setFinalValues(value: Float) {
+        finalValueCount = writeValues(finalValues, 1, value, 0f, 0f)
+    }
+
+    fun setFinalValues(value0: Float, value1: Float) {
+        finalValueCount = writeValues(finalValues, 2, value0, value1, 0f)
+    }
+
+    fun setFinalValues(value0: Float, value1: Float, value2: Float) {
+        finalValueCount = writeValues(finalValues, 3, value0, value1, value2)
+    }
+
+    private fun copyValuesFrom(other: UniversalModifier) {
+        other.initialValues.copyInto(initialValues)
+        other.finalValues.copyInto(finalValues)
+        initialValueCount = other.initialValueCount
+        finalValueCount = other.finalValueCount
+    }
+
     /**
      * Sets the callback to be called when the modifier finishes.
      */
@@ -287,9 +351,9 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
         parent = null
         onFinished = null
-        finalValues = null
         allowNesting = true
-        initialValues = null
+        finalValueCount = 0
+        initialValueCount = 0
 
         clearNestedModifiers()
         reset()
@@ -359,18 +423,25 @@ class UniversalModifier @JvmOverloads constructor(private val pool: Pool<Univers
 
 
     override fun deepCopy(): UniversalModifier = UniversalModifier(pool).also { modifier ->
-        modifier.finalValues = finalValues?.copyOf()
-        modifier.initialValues = initialValues?.copyOf()
+        modifier.copyValuesFrom(this)
         modifier.type = type
         modifier.easing = easing
+
+        for (i in modifiers.indices) {
+            modifier.addModifier(modifiers[i].deepCopy())
+        }
         modifier.duration = duration
-        modifier.modifiers = modifiers?.map { it.deepCopy() }?.toTypedArray()
         modifier.onFinished = onFinished
     }
 
 
     companion object {
 
+        /**
+         * The maximum amount of values a modifier type can animate, see [ModifierType.Color].
+         */
+        const val MAX_VALUE_COUNT = 3
+
         /**
          * The global pool for universal modifiers.
          */
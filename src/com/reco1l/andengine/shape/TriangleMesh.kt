@@ -5,6 +5,7 @@ import com.edlplan.framework.utils.*
 import com.reco1l.andengine.*
 import org.anddev.andengine.engine.camera.*
 import org.anddev.andengine.opengl.util.*
+import java.nio.*
 import javax.microedition.khronos.opengles.*
 
 class TriangleMesh : ExtendedEntity(vertexBuffer = null) {
@@ -15,10 +16,26 @@ class TriangleMesh : ExtendedEntity(vertexBuffer = null) {
      */
     val vertices = FloatArraySlice()
 
+    /**
+     * Additional vertices drawn after [vertices].
+     *
+     * Used for small parts that change often while [vertices] is a range of a larger mesh that is built only once.
+     */
+    val extraVertices = FloatArraySlice()
+
+
+    /**
+     * The whole array of [vertices] in native memory, the range of [vertices] is drawn straight from it.
+     */
+    private var uploadedVertices: FloatBuffer? = null
+
+    private var shouldUploadVertices = true
+
 
     init {
         isCullingEnabled = false
         vertices.ary = FloatArray(0)
+        extraVertices.ary = FloatArray(0)
     }
 
 
@@ -32,6 +49,16 @@ class TriangleMesh : ExtendedEntity(vertexBuffer = null) {
     }
 
 
+    /**
+     * Marks the content of [vertices] as changed so that it's uploaded again before the next draw.
+     *
+     * This is not needed when only the range of [vertices] changes.
+     */
+    fun invalidateVertices() {
+        shouldUploadVertices = true
+    }
+
+
     override fun onInitDraw(pGL: GL10) {
 
         super.onInitDraw(pGL)
@@ -49,11 +76,34 @@ class TriangleMesh : ExtendedEntity(vertexBuffer = null) {
 
     override fun drawVertices(pGL: GL10, pCamera: Camera) {
 
-        if (vertices.length == 0) {
-            return
+        if (vertices.length > 0) {
+
+            if (shouldUploadVertices) {
+                shouldUploadVertices = false
+                uploadVertices()
+            }
+
+            pGL.glVertexPointer(2, GL10.GL_FLOAT, 0, uploadedVertices)
+            pGL.glDrawArrays(GL10.GL_TRIANGLES, vertices.offset / 2, vertices.length / 2)
+        }
+
+        if (extraVertices.length > 0) {
+            TriangleRenderer.get().renderTriangles(extraVertices, pGL)
         }
+    }
+
+    private fun uploadVertices() {
+
+        val array = vertices.ary
+
+        val buffer = uploadedVertices?.takeIf { it.capacity() >= array.size }
+            ?: ByteBuffer.allocateDirect(array.size * Float.SIZE_BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer()
+
+        buffer.position(0).limit(buffer.capacity())
+        buffer.put(array)
+        buffer.position(0)
 
-        TriangleRenderer.get().renderTriangles(vertices, pGL)
+        uploadedVertices = buffer
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.reco1l.andengine.text
+
+import kotlin.math.*
+
+/**
+ * Formats numbers into character arrays without allocating, used to update texts every frame.
+ */
+object DigitFormatter {
+
+    /**
+     * The maximum amount of characters of a formatted [Long], sign included.
+     */
+    const val MAX_LONG_LENGTH = 20
+
+    /**
+     * The maximum amount of decimals supported by [putFixedPoint].
+     */
+    const val MAX_DECIMALS = 9
+
+
+    /**
+     * Splits a double into two halves of 26 bits each, see [productError].
+     */
+    private const val SPLITTER = 134217729.0 // 2^27 + 1
+
+    private val POWERS_OF_TEN = LongArray(MAX_DECIMALS + 1).also {
+        it[0] = 1
+        for (i in 1 until it.size) {
+            it[i] = it[i - 1] * 10
+        }
+    }
+
+
+    /**
+     * Writes an integer padded with leading zeros, the same way as a `DecimalFormat` pattern made of [minDigits] zeros.
+     *
+     * @return The index after the last written character.
+     */
+    @JvmStatic
+    fun putInteger(destination: CharArray, start: Int, value: Long, minDigits: Int = 1): Int {
+
+        var position = start
+
+        if (value < 0) {
+            destination[position++] = '-'
+        }
+
+        // Not using abs() because it overflows for Long.MIN_VALUE, digits are taken from the negative value instead.
+        var remaining = if (value < 0) value else -value
+        val digits = max(countDigits(value), minDigits)
+
+        for (i in digits - 1 downTo 0) {
+            destination[position + i] = '0' + (-(remaining % 10)).toInt()
+            remaining /= 10
+        }
+
+        return position + digits
+    }
+
+    /**
+     * Writes a value with a fixed amount of decimals, rounded half to even the same way as a `DecimalFormat` pattern
+     * such as `0.00`.
+     *
+     * @return The index after the last written character.
+     */
+    @JvmStatic
+    fun putFixedPoint(destination: CharArray, start: Int, value: Double, decimals: Int): Int {
+
+        require(decimals in 0..MAX_DECIMALS) { "Unsupported amount of decimals: $decimals" }
+
+        val scale = POWERS_OF_TEN[decimals]
+        val scaled = roundHalfEven(value, scale.toDouble())
+
+        var position = start
+
+        // DecimalFormat keeps the sign of values that round to zero.
+        if (scaled == 0L && (value < 0 || 1 / value < 0)) {
+            destination[position++] = '-'
+        }
+
+        position = putInteger(destination, position, scaled / scale)
+
+        // The integer part of values between -1 and 0 is zero, which has no sign of its own.
+        if (scaled < 0 && scaled > -scale) {
+            System.arraycopy(destination, start, destination, start + 1, position - start)
+            destination[start] = '-'
+            position++
+        }
+
+        if (decimals > 0) {
+            destination[position++] = '.'
+            position = putInteger(destination, position, abs(scaled % scale), decimals)
+        }
+
+        return position
+    }
+
+    /**
+     * Writes a string as is.
+     *
+     * @return The index after the last written character.
+     */
+    @JvmStatic
+    fun putString(destination: CharArray, start: Int, value: String): Int {
+        value.toCharArray(destination, start)
+        return start + value.length
+    }
+
+
+    /**
+     * Rounds `value * scale` half to even based on the exact value of the product. Rounding the product itself isn't
+     * enough, `2.85 * 10` is exactly 28.5 in floating point although 2.85 is slightly above it.
+     */
+    private fun roundHalfEven(value: Double, scale: Double): Long {
+
+        val product = value * scale
+        var rounded = floor(product)
+        val fraction = product - rounded
+
+        if (fraction == 0.5) {
+            val error = productError(value, scale, product)
+
+            if (error > 0 || error == 0.0 && rounded % 2 != 0.0) {
+                rounded++
+            }
+        } else if (fraction > 0.5) {
+            rounded++
+        }
+
+        return rounded.toLong()
+    }
+
+    /**
+     * Computes the rounding error of a floating point product exactly with Dekker's algorithm, so that `a * b` equals
+     * `product + error`.
+     */
+    private fun productError(a: Double, b: Double, product: Double): Double {
+
+        val aSplit = SPLITTER * a
+        val aHigh = aSplit - (aSplit - a)
+        val aLow = a - aHigh
+
+        val bSplit = SPLITTER * b
+        val bHigh = bSplit - (bSplit - b)
+        val bLow = b - bHigh
+
+        return aHigh * bHigh - product + aHigh * bLow + aLow * bHigh + aLow * bLow
+    }
+
+    private fun countDigits(value: Long): Int {
+        var remaining = value
+        var digits = 1
+
+        while (remaining <= -10 || remaining >= 10) {
+            remaining /= 10
+            digits++
+        }
+
+        return digits
+    }
+}
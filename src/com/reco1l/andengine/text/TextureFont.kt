@@ -3,11 +3,22 @@ package com.reco1l.andengine.text
 import com.reco1l.andengine.*
 import com.reco1l.andengine.shape.*
 import org.anddev.andengine.engine.camera.*
+import org.anddev.andengine.opengl.buffer.BufferObject
 import org.anddev.andengine.opengl.texture.region.*
 import org.anddev.andengine.opengl.util.GLHelper
+import org.anddev.andengine.opengl.vertex.VertexBuffer
+import java.nio.FloatBuffer
 import javax.microedition.khronos.opengles.*
+import javax.microedition.khronos.opengles.GL10.*
 import kotlin.math.*
 
+/**
+ * Displays a text using a texture for each character.
+ *
+ * The quads of all glyphs are built into a single vertex and texture coordinates buffer whenever the text changes, so
+ * the whole text is drawn with a single call when all glyphs share a texture, or a call per consecutive run of glyphs
+ * sharing a texture otherwise.
+ */
 open class TextureFont(private val characters: MutableMap<Char, TextureRegion>) : Box() {
 
 
@@ -27,13 +38,14 @@ open class TextureFont(private val characters: MutableMap<Char, TextureRegion>)
 
     /**
      * The text to display.
+     *
+     * Texts that change every frame should rather be set with [setInteger] or [setFixedPoint], which don't allocate.
      */
-    var text = ""
+    var text: String
+        get() = String(characterBuffer, 0, textLength)
         set(value) {
-            if (field != value) {
-                field = value
-                isTextDirty = true
-            }
+            ensurePendingCapacity(value.length)
+            commit(DigitFormatter.putString(pendingBuffer, 0, value))
         }
 
     /**
@@ -61,15 +73,90 @@ open class TextureFont(private val characters: MutableMap<Char, TextureRegion>)
 
     private val textureRegions = mutableListOf<TextureRegion>()
 
+    /**
+     * The characters of the text, only the first [textLength] are meaningful.
+     */
+    private var characterBuffer = CharArray(INITIAL_TEXT_CAPACITY)
+
+    /**
+     * The characters a new text is formatted into before being compared with [characterBuffer].
+     */
+    private var pendingBuffer = CharArray(INITIAL_TEXT_CAPACITY)
+
+    private var textLength = 0
+
+    private var glyphVertexBuffer = GlyphVertexBuffer(INITIAL_GLYPH_CAPACITY)
+
+    private var glyphTextureBuffer = GlyphTextureBuffer(INITIAL_GLYPH_CAPACITY)
+
 
     private var isTextDirty = true
 
 
+    init {
+        setVertexBuffer(glyphVertexBuffer)
+    }
+
+
     fun setTextureScale(scale: Float) {
         textureScaleX = scale
         textureScaleY = scale
     }
 
+    /**
+     * Sets the text to an integer padded with leading zeros, followed by a suffix.
+     */
+    @JvmOverloads
+    fun setInteger(value: Long, minDigits: Int = 1, suffix: String = "") {
+        ensurePendingCapacity(max(DigitFormatter.MAX_LONG_LENGTH, minDigits + 1) + suffix.length)
+
+        val length = DigitFormatter.putInteger(pendingBuffer, 0, value, minDigits)
+        commit(DigitFormatter.putString(pendingBuffer, length, suffix))
+    }
+
+    /**
+     * Sets the text to a value with a fixed amount of decimals, followed by a suffix.
+     */
+    @JvmOverloads
+    fun setFixedPoint(value: Double, decimals: Int, suffix: String = "") {
+        ensurePendingCapacity(DigitFormatter.MAX_LONG_LENGTH + 2 + decimals + suffix.length)
+
+        val length = DigitFormatter.putFixedPoint(pendingBuffer, 0, value, decimals)
+        commit(DigitFormatter.putString(pendingBuffer, length, suffix))
+    }
+
+
+    private fun ensurePendingCapacity(capacity: Int) {
+        if (pendingBuffer.size < capacity) {
+            pendingBuffer = pendingBuffer.copyOf(capacity)
+        }
+    }
+
+    /**
+     * Makes the first [newLength] characters of [pendingBuffer] the text if they differ from the current one.
+     */
+    private fun commit(newLength: Int) {
+
+        if (newLength == textLength) {
+            var i = 0
+            while (i < newLength && pendingBuffer[i] == characterBuffer[i]) {
+                i++
+            }
+
+            if (i == newLength) {
+                return
+            }
+        }
+
+        // Swapping rather than copying, the previous text buffer is reused for the next one.
+        val previous = characterBuffer
+        characterBuffer = pendingBuffer
+        pendingBuffer = previous
+
+        textLength = newLength
+        isTextDirty = true
+    }
+
 
     override fun onManagedDraw(pGL: GL10, pCamera: Camera) {
 
@@ -89,9 +176,9 @@ open class TextureFont(private val characters: MutableMap<Char, TextureRegion>)
         contentHeight = 0f
 
         textureRegions.clear()
-        for (i in text.indices) {
+        for (i in 0 until textLength) {
 
-            val textureRegion = characters[text[i]] ?: continue
+            val textureRegion = characters[characterBuffer[i]] ?: continue
             val textureWidth = textureRegion.width * textureScaleX
             val textureHeight = textureRegion.height * textureScaleY
 
@@ -103,6 +190,40 @@ open class TextureFont(private val characters: MutableMap<Char, TextureRegion>)
 
         contentWidth -= spacing
         onContentSizeMeasured()
+
+        updateGlyphBuffers()
+    }
+
+    private fun updateGlyphBuffers() {
+
+        val glyphCount = textureRegions.size
+
+        val capacity = getGlyphCapacity(glyphVertexBuffer.capacity, glyphCount)
+
+        if (capacity != glyphVertexBuffer.capacity) {
+            glyphVertexBuffer = GlyphVertexBuffer(capacity)
+            setVertexBuffer(glyphVertexBuffer)
+
+            glyphTextureBuffer.unloadFromActiveBufferObjectManager()
+            glyphTextureBuffer = GlyphTextureBuffer(capacity)
+        }
+
+        var offsetX = 0f
+
+        for (i in 0 until glyphCount) {
+
+            val textureRegion = textureRegions[i]
+            val textureWidth = textureRegion.width * textureScaleX
+            val textureHeight = textureRegion.height * textureScaleY
+
+            putGlyphVertices(glyphVertexBuffer.floatBuffer, i, offsetX, textureWidth, textureHeight)
+            putGlyphTextureCoordinates(glyphTextureBuffer.floatBuffer, i, textureRegion.textureBuffer.floatBuffer)
+
+            offsetX += textureWidth + spacing
+        }
+
+        glyphVertexBuffer.setHardwareBufferNeedsUpdate()
+        glyphTextureBuffer.setHardwareBufferNeedsUpdate()
     }
 
     override fun onInitDraw(pGL: GL10) {
@@ -115,31 +236,40 @@ open class TextureFont(private val characters: MutableMap<Char, TextureRegion>)
     override fun doDraw(gl: GL10, camera: Camera) {
         onInitDraw(gl)
 
-        var offsetX = 0f
+        if (textureRegions.isEmpty()) {
+            return
+        }
 
-        for (i in textureRegions.indices) {
+        onApplyVertices(gl)
 
-            val texture = textureRegions[i]
-            val textureWidth = texture.width * textureScaleX
-            val textureHeight = texture.height * textureScaleY
+        if (GLHelper.EXTENSIONS_VERTEXBUFFEROBJECTS) {
+            val gl11 = gl as GL11
+            glyphTextureBuffer.selectOnHardware(gl11)
+            GLHelper.texCoordZeroPointer(gl11)
+        } else {
+            GLHelper.texCoordPointer(gl, glyphTextureBuffer.floatBuffer)
+        }
 
-            gl.glPushMatrix()
-            gl.glTranslatef(offsetX, 0f, 0f)
+        drawVertices(gl, camera)
+    }
 
-            vertexBuffer.update(textureWidth, textureHeight)
-            texture.onApply(gl)
+    override fun drawVertices(gl: GL10, camera: Camera) {
 
-            onApplyVertices(gl)
-            drawVertices(gl, camera)
-            gl.glPopMatrix()
+        var runStart = 0
 
-            offsetX += textureWidth + spacing
-        }
-    }
+        for (i in 1..textureRegions.size) {
+
+            val texture = textureRegions[runStart].texture
+
+            if (i < textureRegions.size && textureRegions[i].texture == texture) {
+                continue
+            }
 
+            texture.bind(gl)
+            gl.glDrawArrays(GL_TRIANGLES, runStart * VERTICES_PER_GLYPH, (i - runStart) * VERTICES_PER_GLYPH)
 
-    override fun getVertexBuffer(): BoxVertexBuffer {
-        return super.getVertexBuffer() as BoxVertexBuffer
+            runStart = i
+        }
     }
 
 
@@ -147,4 +277,83 @@ open class TextureFont(private val characters: MutableMap<Char, TextureRegion>)
 
     override fun onUpdateVertexBuffer() = Unit
 
+
+    class GlyphVertexBuffer(val capacity: Int) : VertexBuffer(capacity * VERTICES_PER_GLYPH * 2, GL11.GL_DYNAMIC_DRAW, true)
+
+    class GlyphTextureBuffer(val capacity: Int) : BufferObject(capacity * VERTICES_PER_GLYPH * 2, GL11.GL_DYNAMIC_DRAW, true)
+
+
+    companion object {
+
+        /**
+         * Every glyph is drawn as two triangles.
+         */
+        const val VERTICES_PER_GLYPH = 6
+
+        /**
+         * Enough for the counters shown during gameplay, longer texts grow the buffers.
+         */
+        internal const val INITIAL_GLYPH_CAPACITY = 8
+
+        /**
+         * Enough for any number formatted by [setInteger] or [setFixedPoint] with a short suffix.
+         */
+        private const val INITIAL_TEXT_CAPACITY = 32
+
+
+        /**
+         * Gets the amount of glyphs the buffers have to hold for a text, growing them only when they're too small.
+         *
+         * @param capacity The current capacity of the buffers.
+         * @param glyphCount The amount of glyphs of the text.
+         */
+        internal fun getGlyphCapacity(capacity: Int, glyphCount: Int): Int {
+            // Leaving room for a few more glyphs, counters grow one digit at a time.
+            return if (capacity < glyphCount) glyphCount + 4 else capacity
+        }
+
+        /**
+         * Puts the vertices of a glyph as two triangles.
+         *
+         * @param buffer The buffer to write to, every vertex being an x and y pair.
+         * @param index The index of the glyph in the text.
+         */
+        @JvmStatic
+        fun putGlyphVertices(buffer: FloatBuffer, index: Int, x: Float, width: Float, height: Float) {
+            putQuad(buffer, index, x, 0f, x + width, height)
+        }
+
+        /**
+         * Puts the texture coordinates of a glyph as two triangles.
+         *
+         * @param buffer The buffer to write to.
+         * @param index The index of the glyph in the text.
+         * @param regionBuffer The texture coordinates of the glyph's region, as the four corners of a triangle strip.
+         */
+        @JvmStatic
+        fun putGlyphTextureCoordinates(buffer: FloatBuffer, index: Int, regionBuffer: FloatBuffer) {
+            var i = index * VERTICES_PER_GLYPH * 2
+
+            // Triangles (0, 1, 2) and (2, 1, 3) of the strip, the same way the quad vertices are laid out.
+            for (corner in STRIP_TO_TRIANGLES) {
+                buffer.put(i++, regionBuffer.get(corner * 2))
+                buffer.put(i++, regionBuffer.get(corner * 2 + 1))
+            }
+        }
+
+        private fun putQuad(buffer: FloatBuffer, index: Int, left: Float, top: Float, right: Float, bottom: Float) {
+            var i = index * VERTICES_PER_GLYPH * 2
+
+            buffer.put(i++, left); buffer.put(i++, top)
+            buffer.put(i++, left); buffer.put(i++, bottom)
+            buffer.put(i++, right); buffer.put(i++, top)
+
+            buffer.put(i++, right); buffer.put(i++, top)
+            buffer.put(i++, left); buffer.put(i++, bottom)
+            buffer.put(i++, right); buffer.put(i, bottom)
+        }
+
+        private val STRIP_TO_TRIANGLES = intArrayOf(0, 1, 2, 2, 1, 3)
+    }
+
 }
\ No newline at end of file
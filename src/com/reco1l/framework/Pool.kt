@@ -1,6 +1,6 @@
 package com.reco1l.framework
 
-import java.util.LinkedList
+import java.util.ArrayDeque
 
 /**
  * A simple object pool implementation.
@@ -19,7 +19,8 @@ class Pool<T : Any> @JvmOverloads constructor(
 ) {
 
 
-    private val objects = LinkedList<T>()
+    // Array backed so that freeing an object doesn't allocate a list node.
+    private val objects = ArrayDeque<T>()
 
 
     /**
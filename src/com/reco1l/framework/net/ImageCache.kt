@@ -0,0 +1,237 @@
+package com.reco1l.framework.net
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.util.Log
+import android.util.LruCache
+import androidx.annotation.VisibleForTesting
+import okhttp3.Request
+import ru.nsu.ccfit.zuev.osu.Config
+import ru.nsu.ccfit.zuev.osu.helper.MD5Calculator
+import ru.nsu.ccfit.zuev.osuplus.BuildConfig
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.FutureTask
+
+/**
+ * Shared cache for remote images such as beatmap covers and avatars.
+ *
+ * Downsampled bitmaps are kept in a memory LRU bounded by their byte size, and the original files are kept in a
+ * size-capped disk cache that is revalidated with `ETag`/`Last-Modified` once per session. Concurrent requests for the
+ * same image are coalesced into a single fetch and decode.
+ */
+object ImageCache {
+
+    /**
+     * The maximum size of the disk cache in bytes.
+     */
+    const val MAX_DISK_SIZE = 64L * 1024 * 1024
+
+
+    private const val TAG = "ImageCache"
+
+
+    private val memory = object : LruCache<String, Bitmap>((Runtime.getRuntime().maxMemory() / 16).toInt()) {
+        override fun sizeOf(key: String, value: Bitmap) = value.allocationByteCount
+    }
+
+    private val pendingFiles = ConcurrentHashMap<String, FutureTask<File?>>()
+
+    private val pendingBitmaps = ConcurrentHashMap<String, FutureTask<Bitmap?>>()
+
+    /**
+     * The URLs whose cached file was already validated against the server in this session.
+     */
+    private val validatedUrls = ConcurrentHashMap.newKeySet<String>()
+
+    private val directory
+        get() = File(Config.getCachePath(), "images")
+
+    private var diskSize = -1L
+
+
+    /**
+     * Returns the bitmap for the given URL only if it's already in memory, this never blocks.
+     */
+    @JvmStatic
+    fun getCachedBitmap(url: String, width: Int, height: Int): Bitmap? = memory.get(bitmapKey(url, width, height))
+
+    /**
+     * Returns the bitmap for the given URL downsampled to be at least the given size, fetching and decoding it if
+     * needed. This blocks the calling thread.
+     *
+     * @param width The required width in pixels, or 0 to decode it at its original size.
+     * @param height The required height in pixels, or 0 to decode it at its original size.
+     */
+    @JvmStatic
+    fun getBitmap(url: String, width: Int, height: Int): Bitmap? {
+
+        val key = bitmapKey(url, width, height)
+
+        memory.get(key)?.let { return it }
+
+        return coalesce(pendingBitmaps, key) {
+            val file = getFile(url) ?: return@coalesce null
+            val bitmap = decode(file, width, height) ?: return@coalesce null
+
+            memory.put(key, bitmap)
+            bitmap
+        }
+    }
+
+    /**
+     * Returns the cached file for the given URL, fetching or revalidating it if needed. This blocks the calling thread.
+     *
+     * @return The file, or `null` if it isn't cached and couldn't be fetched.
+     */
+    @JvmStatic
+    fun getFile(url: String): File? {
+
+        val file = File(directory, MD5Calculator.getStringMD5(url))
+
+        if (file.exists() && url in validatedUrls) {
+            file.setLastModified(System.currentTimeMillis())
+            return file
+        }
+
+        return coalesce(pendingFiles, url) { fetch(url, file) }
+    }
+
+    /**
+     * Forgets the bitmaps in memory and which files were validated, as if a new session started. The files on disk are
+     * kept.
+     */
+    @VisibleForTesting
+    @Synchronized
+    internal fun clear() {
+        memory.evictAll()
+        validatedUrls.clear()
+        diskSize = -1
+    }
+
+
+    private fun bitmapKey(url: String, width: Int, height: Int) = "$url@${width}x$height"
+
+    private fun <T> coalesce(pending: ConcurrentHashMap<String, FutureTask<T>>, key: String, block: () -> T): T? {
+
+        val task = FutureTask(block)
+        val current = pending.putIfAbsent(key, task)
+
+        if (current != null) {
+            return try {
+                current.get()
+            } catch (e: Exception) {
+                null
+            }
+        }
+
+        try {
+            task.run()
+            return task.get()
+        } catch (e: Exception) {
+            return null
+        } finally {
+            pending.remove(key, task)
+        }
+    }
+
+    private fun fetch(url: String, file: File): File? {
+
+        val metadataFile = File(file.path + ".meta")
+        val request = Request.Builder().url(url)
+
+        if (file.exists() && metadataFile.exists()) {
+            val (eTag, lastModified) = metadataFile.readLines().let { it.getOrNull(0).orEmpty() to it.getOrNull(1).orEmpty() }
+
+            if (eTag.isNotEmpty()) request.header("If-None-Match", eTag)
+            if (lastModified.isNotEmpty()) request.header("If-Modified-Since", lastModified)
+        }
+
+        try {
+            WebRequest.globalClient.newCall(request.build()).execute().use { response ->
+
+                if (response.code == 304) {
+                    if (BuildConfig.DEBUG) Log.i(TAG, "Revalidated $url")
+                } else if (response.isSuccessful) {
+
+                    directory.mkdirs()
+
+                    val temporaryFile = File(file.path + ".tmp")
+                    temporaryFile.outputStream().use { response.body!!.byteStream().copyTo(it) }
+
+                    file.delete()
+                    temporaryFile.renameTo(file)
+
+                    metadataFile.writeText(response.header("ETag").orEmpty() + "\n" + response.header("Last-Modified").orEmpty())
+
+                    onFileWritten(file.length())
+                } else {
+                    throw UnsuccessfulResponseException(response)
+                }
+            }
+
+            validatedUrls.add(url)
+
+        } catch (e: IOException) {
+            // A stale file is better than no image at all.
+            Log.e(TAG, "Failed to fetch $url", e)
+        }
+
+        if (!file.exists()) {
+            return null
+        }
+
+        file.setLastModified(System.currentTimeMillis())
+        return file
+    }
+
+    private fun decode(file: File, width: Int, height: Int): Bitmap? {
+
+        val options = BitmapFactory.Options()
+
+        if (width > 0 && height > 0) {
+            options.inJustDecodeBounds = true
+            BitmapFactory.decodeFile(file.path, options)
+
+            var sampleSize = 1
+            while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+                sampleSize *= 2
+            }
+
+            options.inJustDecodeBounds = false
+            options.inSampleSize = sampleSize
+        }
+
+        return BitmapFactory.decodeFile(file.path, options)
+    }
+
+    @Synchronized
+    private fun onFileWritten(size: Long) {
+
+        val files = directory.listFiles { file -> !file.name.endsWith(".meta") && !file.name.endsWith(".tmp") } ?: return
+
+        if (diskSize < 0) {
+            diskSize = files.sumOf { it.length() }
+        } else {
+            diskSize += size
+        }
+
+        if (diskSize <= MAX_DISK_SIZE) {
+            return
+        }
+
+        // Evicting the least recently used files, their modification time is updated on every access.
+        files.sortBy { it.lastModified() }
+
+        for (file in files) {
+            if (diskSize <= MAX_DISK_SIZE * 3 / 4) {
+                break
+            }
+
+            diskSize -= file.length()
+            file.delete()
+            File(file.path + ".meta").delete()
+        }
+    }
+}
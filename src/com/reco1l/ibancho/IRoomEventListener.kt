@@ -1,5 +1,6 @@
 package com.reco1l.ibancho
 
+import com.reco1l.ibancho.data.LiveScoreUpdate
 import com.reco1l.ibancho.data.Room
 import com.reco1l.ibancho.data.RoomBeatmap
 import com.reco1l.ibancho.data.RoomGameplaySettings
@@ -110,6 +111,11 @@ interface IRoomEventListener {
      */
     fun onRoomLiveLeaderboard(leaderboard: JSONArray)
 
+    /**
+     * Emit when the server sends the live score changes of the players, only when the room supports `liveScoreDelta`.
+     */
+    fun onRoomLiveLeaderboardDelta(updates: List<LiveScoreUpdate>)
+
     /**
      * Emitted when all players have submitted their score.
      */
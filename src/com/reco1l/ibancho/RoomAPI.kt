@@ -9,6 +9,8 @@ import io.socket.client.Socket
 import io.socket.emitter.Emitter.Listener
 import org.json.JSONArray
 import org.json.JSONObject
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoardItem
+import java.io.IOException
 
 object RoomAPI {
 
@@ -31,6 +33,18 @@ object RoomAPI {
 
     private var socket: Socket? = null
 
+    /**
+     * Whether the server accepts and sends live scores through the binary `liveScoreDelta` event.
+     */
+    @JvmStatic
+    var isLiveScoreDeltaSupported = false
+        private set
+
+    /**
+     * The last live score sent through `liveScoreDelta`, the next one only carries the fields that changed.
+     */
+    private var lastLiveScore: ScoreBoardItem? = null
+
 
     // https://gist.github.com/Rian8337/ceab4d3b179cbeee7dd548cfcf145b95
     // Back-to-back events
@@ -120,6 +134,7 @@ object RoomAPI {
     private val playBeatmap = Listener {
 
         Multiplayer.log("RECEIVED: playBeatmap -> ${it.contentToString()}")
+        lastLiveScore = null
         roomEventListener?.onRoomMatchPlay()
     }
 
@@ -138,6 +153,28 @@ object RoomAPI {
         roomEventListener?.onRoomLiveLeaderboard(json)
     }
 
+    private val liveScoreDelta = Listener {
+
+        val data = it.getOrNull(0) as? ByteArray
+
+        if (data == null) {
+            Multiplayer.log("WARNING: Received liveScoreDelta without binary data.")
+            return@Listener
+        }
+
+        val updates = try {
+            LiveScoreCodec.decodeBatch(data)
+        } catch (e: IOException) {
+            Multiplayer.log("WARNING: Received malformed liveScoreDelta.")
+            return@Listener
+        } catch (e: RuntimeException) {
+            Multiplayer.log("WARNING: Failed to decode liveScoreDelta: ${e.message}")
+            return@Listener
+        }
+
+        roomEventListener?.onRoomLiveLeaderboardDelta(updates)
+    }
+
     // Server-to-client events
 
     private val initialConnection = Listener {
@@ -168,6 +205,9 @@ object RoomAPI {
         room.beatmap = parseBeatmap(json.optJSONObject("beatmap"))
         room.status = RoomStatus[json.getInt("status")]
 
+        isLiveScoreDeltaSupported = json.optBoolean("liveScoreDelta", false)
+        lastLiveScore = null
+
         socket!!.apply {
             on("beatmapChanged", beatmapChanged)
             on("hostChanged", hostChanged)
@@ -183,6 +223,7 @@ object RoomAPI {
             on("playBeatmap", playBeatmap)
             on("chatMessage", chatMessage)
             on("liveScoreData", liveScoreData)
+            on("liveScoreDelta", liveScoreDelta)
             on("playerJoined", playerJoined)
             on("playerLeft", playerLeft)
             on("allPlayersBeatmapLoadComplete", allPlayersBeatmapLoadComplete)
@@ -535,6 +576,24 @@ object RoomAPI {
         Multiplayer.log("EMITTED: liveScoreData -> $json")
     }
 
+    /**
+     * Submit the live score, only the fields that changed since the last submission are sent if the server supports it.
+     */
+    @JvmStatic
+    @Synchronized
+    fun submitLiveScore(item: ScoreBoardItem) {
+
+        if (!isLiveScoreDeltaSupported) {
+            submitLiveScore(item.toJson())
+            return
+        }
+
+        val data = LiveScoreCodec.encode(lastLiveScore, item) ?: return
+
+        socket?.emit("liveScoreDelta", data) ?: return
+        lastLiveScore = item
+    }
+
     /**
      * Notify beatmap finish load.
      */
@@ -0,0 +1,224 @@
+package com.reco1l.ibancho.data
+
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoardItem
+import java.io.ByteArrayOutputStream
+import java.io.EOFException
+
+/**
+ * A change in the live score of a player, only the fields flagged in [mask] are meaningful.
+ */
+class LiveScoreUpdate(
+
+    @JvmField
+    var username: String = "",
+
+    @JvmField
+    var mask: Int = 0,
+
+    @JvmField
+    var score: Int = 0,
+
+    @JvmField
+    var combo: Int = 0,
+
+    @JvmField
+    var accuracy: Float = 0f,
+
+    @JvmField
+    var isAlive: Boolean = true,
+
+    /**
+     * The rank given by the server, or -1 if the leaderboard has to be ordered by the client.
+     */
+    @JvmField
+    var rank: Int = -1
+) {
+
+    fun has(field: Int) = mask and field != 0
+
+    /**
+     * Applies the changed fields to an item.
+     *
+     * @return Whether any value of the item changed.
+     */
+    fun applyTo(item: ScoreBoardItem): Boolean {
+        var changed = false
+
+        if (has(LiveScoreCodec.SCORE) && item.playScore != score) {
+            item.playScore = score
+            changed = true
+        }
+        if (has(LiveScoreCodec.COMBO) && item.maxCombo != combo) {
+            item.maxCombo = combo
+            changed = true
+        }
+        if (has(LiveScoreCodec.ACCURACY) && item.accuracy != accuracy) {
+            item.accuracy = accuracy
+            changed = true
+        }
+        if (has(LiveScoreCodec.ALIVE) && item.isAlive != isAlive) {
+            item.isAlive = isAlive
+            changed = true
+        }
+        return changed
+    }
+
+    fun toScoreBoardItem() = ScoreBoardItem(username, score, combo, accuracy, isAlive).also { it.rank = rank }
+}
+
+/**
+ * Binary encoding for the `liveScoreDelta` event, it carries only the fields that changed since the previous update.
+ *
+ * A client update is `[mask][fields]`, a server update is `[count]` followed by `count` times
+ * `[username][mask][fields]`. Integers and lengths are unsigned LEB128 varints, accuracy is a big-endian IEEE 754
+ * float and strings are UTF-8 prefixed by their length. The alive state is carried in the mask itself.
+ */
+object LiveScoreCodec {
+
+    const val SCORE = 1
+
+    const val COMBO = 1 shl 1
+
+    const val ACCURACY = 1 shl 2
+
+    const val ALIVE = 1 shl 3
+
+    /**
+     * Set alongside [ALIVE] when the player is alive.
+     */
+    private const val ALIVE_VALUE = 1 shl 4
+
+
+    /**
+     * Encodes the fields of [current] that differ from [previous].
+     *
+     * @param previous The last update that was sent, or `null` to encode every field.
+     * @return The encoded update, or `null` if nothing changed.
+     */
+    @JvmStatic
+    fun encode(previous: ScoreBoardItem?, current: ScoreBoardItem): ByteArray? {
+
+        var mask = 0
+
+        if (previous == null || previous.playScore != current.playScore) mask = mask or SCORE
+        if (previous == null || previous.maxCombo != current.maxCombo) mask = mask or COMBO
+        if (previous == null || previous.accuracy != current.accuracy) mask = mask or ACCURACY
+        if (previous == null || previous.isAlive != current.isAlive) mask = mask or ALIVE
+
+        if (mask == 0) {
+            return null
+        }
+
+        val output = ByteArrayOutputStream(16)
+        writeFields(output, mask, current.playScore, current.maxCombo, current.accuracy, current.isAlive)
+        return output.toByteArray()
+    }
+
+    /**
+     * Decodes a batch of player updates sent by the server.
+     *
+     * @throws EOFException If the data is truncated or malformed.
+     */
+    @JvmStatic
+    fun decodeBatch(data: ByteArray): List<LiveScoreUpdate> {
+
+        val reader = Reader(data)
+        val count = reader.readVarInt()
+
+        // Every update takes at least one byte, a larger count can only come from malformed data.
+        if (count < 0 || count > reader.remaining) {
+            throw EOFException("Invalid live score update count: $count")
+        }
+
+        return List(count) {
+            val length = reader.readVarInt()
+            val username = String(data, reader.skip(length), length, Charsets.UTF_8)
+
+            LiveScoreUpdate(username).also { reader.readFields(it) }
+        }
+    }
+
+
+    private fun writeFields(output: ByteArrayOutputStream, mask: Int, score: Int, combo: Int, accuracy: Float, isAlive: Boolean) {
+
+        output.write(if (mask and ALIVE != 0 && isAlive) mask or ALIVE_VALUE else mask)
+
+        if (mask and SCORE != 0) writeVarInt(output, score)
+        if (mask and COMBO != 0) writeVarInt(output, combo)
+
+        if (mask and ACCURACY != 0) {
+            val bits = accuracy.toRawBits()
+            output.write(bits ushr 24)
+            output.write(bits ushr 16)
+            output.write(bits ushr 8)
+            output.write(bits)
+        }
+    }
+
+    private fun writeVarInt(output: ByteArrayOutputStream, value: Int) {
+        var remaining = value
+        while (remaining and 0x7F.inv() != 0) {
+            output.write(remaining and 0x7F or 0x80)
+            remaining = remaining ushr 7
+        }
+        output.write(remaining)
+    }
+
+
+    private class Reader(private val data: ByteArray) {
+
+        private var position = 0
+
+        val remaining
+            get() = data.size - position
+
+        fun readByte(): Int {
+            if (position >= data.size) {
+                throw EOFException("Live score data is truncated.")
+            }
+            return data[position++].toInt() and 0xFF
+        }
+
+        fun readVarInt(): Int {
+            var result = 0
+            var shift = 0
+
+            while (shift < 35) {
+                val byte = readByte()
+                result = result or (byte and 0x7F shl shift)
+
+                if (byte and 0x80 == 0) {
+                    return result
+                }
+                shift += 7
+            }
+            throw EOFException("Malformed varint in live score data.")
+        }
+
+        /**
+         * Skips the given amount of bytes and returns the position they start at.
+         */
+        fun skip(length: Int): Int {
+            if (length < 0 || length > remaining) {
+                throw EOFException("Live score data is truncated.")
+            }
+            val start = position
+            position += length
+            return start
+        }
+
+        fun readFields(update: LiveScoreUpdate) {
+            val mask = readByte()
+
+            update.mask = mask and ALIVE_VALUE.inv()
+            update.isAlive = mask and ALIVE_VALUE != 0
+
+            if (mask and SCORE != 0) update.score = readVarInt()
+            if (mask and COMBO != 0) update.combo = readVarInt()
+
+            if (mask and ACCURACY != 0) {
+                update.accuracy = Float.fromBits(readByte() shl 24 or (readByte() shl 16) or (readByte() shl 8) or readByte())
+            }
+        }
+    }
+}
@@ -61,6 +61,7 @@ object DifficultyCalculationManager {
 
         val pendingBeatmaps = LibraryManager.getLibrary().flatMap { set -> set.beatmaps.filter { it.needsDifficultyCalculation } }
         if (pendingBeatmaps.isEmpty()) {
+            PerformanceCalculationManager.calculatePerformances()
             return
         }
 
@@ -136,6 +137,9 @@ object DifficultyCalculationManager {
                 }
                 GlobalManager.getInstance().songMenu?.onDifficultyCalculationEnd()
 
+                // Score performance depends on the beatmaps, so it's calculated once they're done.
+                PerformanceCalculationManager.calculatePerformances()
+
             } catch (e: InterruptedException) {
                 Log.e("DifficultyCalculation", "Failed while waiting for executor termination.", e)
             }
@@ -0,0 +1,252 @@
+package com.reco1l.osu
+
+import android.content.SharedPreferences
+import android.util.Log
+import androidx.preference.PreferenceManager
+import com.reco1l.osu.data.DatabaseManager
+import com.reco1l.osu.data.ScoreInfo
+import com.reco1l.toolkt.kotlin.fastForEach
+import com.rian.osu.GameMode
+import com.rian.osu.beatmap.parser.BeatmapParser
+import com.rian.osu.difficulty.BeatmapDifficultyCalculator
+import com.rian.osu.difficulty.calculator.DroidDifficultyCalculator
+import com.rian.osu.difficulty.calculator.DroidPerformanceCalculationParameters
+import com.rian.osu.difficulty.calculator.DroidPerformanceCalculator
+import com.rian.osu.difficulty.calculator.PerformanceCalculationParameters
+import com.rian.osu.difficulty.calculator.PerformanceCalculator
+import com.rian.osu.difficulty.calculator.StandardDifficultyCalculator
+import com.rian.osu.difficulty.calculator.StandardPerformanceCalculator
+import ru.nsu.ccfit.zuev.osu.GlobalManager
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoard
+import ru.nsu.ccfit.zuev.osuplus.BuildConfig
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.ceil
+import kotlinx.coroutines.*
+
+/**
+ * Calculates the performance points of the local scores in bulk.
+ *
+ * Scores are grouped by beatmap so that every beatmap is parsed once, and difficulty attributes are calculated once
+ * per beatmap and mod combination. Results are written in batches, scores that were already written are skipped when
+ * the calculation is started again.
+ */
+object PerformanceCalculationManager {
+
+
+    /**
+     * The amount of scores written to the database in a single transaction.
+     */
+    internal const val BATCH_SIZE = 500
+
+
+    private val mainActivity = GlobalManager.getInstance().mainActivity
+
+    private val preferences
+        get() = PreferenceManager.getDefaultSharedPreferences(mainActivity)
+
+
+    private var job: Job? = null
+
+    private var badge: LoadingBadgeFragment? = null
+
+
+    @JvmStatic
+    fun checkForOutdatedPerformance() {
+        stopCalculation()
+
+        resetOutdatedPerformance(preferences)
+    }
+
+    /**
+     * Clears the performance of every score if it was calculated by an older [PerformanceCalculator.VERSION].
+     */
+    internal fun resetOutdatedPerformance(preferences: SharedPreferences) {
+        if (preferences.getLong("performanceVersion", 0) >= PerformanceCalculator.VERSION) {
+            return
+        }
+
+        DatabaseManager.scoreInfoTable.resetPerformance()
+        preferences.edit().putLong("performanceVersion", PerformanceCalculator.VERSION).apply()
+    }
+
+
+    @JvmStatic
+    fun calculatePerformances() {
+        if (job?.isActive == true) {
+            return
+        }
+
+        job = async {
+            val pendingScores = DatabaseManager.scoreInfoTable.getScoresWithoutPerformance()
+            if (pendingScores.isEmpty()) {
+                job = null
+                return@async
+            }
+
+            val totalScores = DatabaseManager.scoreInfoTable.getScoreCount()
+            val calculated = AtomicInteger(totalScores - pendingScores.size)
+
+            mainThread {
+                badge = LoadingBadgeFragment().apply {
+                    header = "Calculating score performance..."
+                    message = "During this process, the game may suffer performance degradation."
+                    isIndeterminate = true
+                    show()
+                }
+            }
+
+            val threadCount = ceil(Runtime.getRuntime().availableProcessors() / 2f).toInt()
+            val threadPool = Executors.newFixedThreadPool(threadCount)
+
+            // Scores are sorted by beatmap, every task takes all scores of a beatmap.
+            pendingScores.groupBy { it.beatmapMD5 }.values.forEach { scores ->
+                ensureActive()
+
+                threadPool.submit {
+                    try {
+                        val msStartTime = System.currentTimeMillis()
+
+                        calculateBeatmap(scores, this)
+                        ScoreBoard.invalidateLocalScores(scores[0].beatmapMD5)
+
+                        if (BuildConfig.DEBUG) {
+                            Log.i("PerformanceCalculation", "Calculated ${scores.size} scores of ${scores[0].beatmapMD5}, took ${System.currentTimeMillis() - msStartTime}ms.")
+                        }
+
+                    } catch (e: Exception) {
+                        if (e is CancellationException) {
+                            throw e
+                        }
+
+                        Log.e("PerformanceCalculation", "Error while calculating performance.", e)
+                    }
+
+                    val percentage = calculated.addAndGet(scores.size) * 100 / totalScores
+                    mainThread {
+                        badge?.apply {
+                            isIndeterminate = false
+                            progress = percentage
+                            header = "Calculating score performance... (${progress}%)"
+                        }
+                    }
+                }
+            }
+
+            threadPool.shutdown()
+            try {
+                threadPool.awaitTermination(1, TimeUnit.HOURS)
+            } catch (e: InterruptedException) {
+                Log.e("PerformanceCalculation", "Failed while waiting for executor termination.", e)
+            }
+
+            mainThread {
+                badge?.dismiss()
+                badge = null
+            }
+
+            job = null
+        }
+    }
+
+
+    @JvmStatic
+    fun stopCalculation() {
+        job?.cancel()
+        job = null
+
+        mainThread {
+            badge?.dismiss()
+            badge = null
+        }
+    }
+
+
+    /**
+     * Calculates the performance of all scores of a beatmap and writes it in batches of [BATCH_SIZE].
+     *
+     * @param scores The scores, which must all be of the same beatmap.
+     */
+    internal fun calculateBeatmap(scores: List<ScoreInfo>, scope: CoroutineScope) {
+        val results = calculateBeatmapScores(scores[0].beatmapMD5, scores, scope)
+
+        results.chunked(BATCH_SIZE).fastForEach {
+            scope.ensureActive()
+            DatabaseManager.scoreInfoTable.updateScores(it)
+        }
+    }
+
+    /**
+     * Calculates the performance of all scores of a beatmap.
+     *
+     * @return The scores with their performance set. Scores whose beatmap isn't imported or can't be parsed are marked
+     * with [ScoreInfo.PERFORMANCE_UNAVAILABLE] until it's imported again.
+     */
+    private fun calculateBeatmapScores(md5: String, scores: List<ScoreInfo>, scope: CoroutineScope): List<ScoreInfo> {
+
+        val beatmapInfo = DatabaseManager.beatmapInfoTable.getBeatmapByMD5(md5)
+            ?: return markUnavailable(scores)
+
+        val beatmap = BeatmapParser(beatmapInfo.path, scope).use { it.parse(true, GameMode.Droid) }
+            ?: return markUnavailable(scores)
+
+        val droidDifficultyCalculator = DroidDifficultyCalculator()
+        val standardDifficultyCalculator = StandardDifficultyCalculator()
+
+        val results = ArrayList<ScoreInfo>(scores.size)
+
+        // The mods string carries the speed multiplier and the custom difficulty settings as well, so scores with the
+        // same string share the same difficulty attributes.
+        scores.groupBy { it.mods }.forEach { (mods, modScores) ->
+            scope.ensureActive()
+
+            val parameters = BeatmapDifficultyCalculator.constructDifficultyParameters(modScores[0].toStatisticV2())!!
+            val isOldScore = !mods.contains('|')
+
+            val droidAttributes = droidDifficultyCalculator.calculate(
+                beatmap.createDroidPlayableBeatmap(parameters.mods, parameters.customSpeedMultiplier, isOldScore, scope),
+                scope
+            )
+
+            val standardAttributes = standardDifficultyCalculator.calculate(
+                beatmap.createStandardPlayableBeatmap(parameters.mods, parameters.customSpeedMultiplier, scope),
+                scope
+            )
+
+            val droidCalculator = DroidPerformanceCalculator(droidAttributes)
+            val standardCalculator = StandardPerformanceCalculator(standardAttributes)
+
+            modScores.fastForEach { score ->
+
+                val droidParameters = DroidPerformanceCalculationParameters().also {
+                    it.maxCombo = score.maxCombo
+                    it.countGreat = score.hit300
+                    it.countOk = score.hit100
+                    it.countMeh = score.hit50
+                    it.countMiss = score.misses
+                }
+
+                val standardParameters = PerformanceCalculationParameters().also {
+                    it.maxCombo = score.maxCombo
+                    it.countGreat = score.hit300
+                    it.countOk = score.hit100
+                    it.countMeh = score.hit50
+                    it.countMiss = score.misses
+                }
+
+                results.add(score.copy(
+                    droidPP = droidCalculator.calculate(droidParameters).total,
+                    standardPP = standardCalculator.calculate(standardParameters).total
+                ))
+            }
+        }
+
+        return results
+    }
+
+    private fun markUnavailable(scores: List<ScoreInfo>) = scores.map {
+        it.copy(droidPP = ScoreInfo.PERFORMANCE_UNAVAILABLE, standardPP = ScoreInfo.PERFORMANCE_UNAVAILABLE)
+    }
+
+}
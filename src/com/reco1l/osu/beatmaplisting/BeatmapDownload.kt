@@ -0,0 +1,431 @@
+package com.reco1l.osu.beatmaplisting
+
+import android.os.Environment.DIRECTORY_DOWNLOADS
+import android.util.Log
+import com.reco1l.framework.net.UnsuccessfulResponseException
+import com.reco1l.framework.net.WebRequest
+import okhttp3.Call
+import okhttp3.Request
+import ru.nsu.ccfit.zuev.osu.Config
+import ru.nsu.ccfit.zuev.osu.GlobalManager
+import ru.nsu.ccfit.zuev.osu.helper.FileUtils
+import java.io.File
+import java.io.FileOutputStream
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.SequenceInputStream
+import java.util.zip.ZipException
+import java.util.zip.ZipInputStream
+
+/**
+ * A beatmap set transfer.
+ *
+ * The archive is extracted into a temporary directory while it's being received, which is moved into the beatmaps
+ * directory once the transfer is completed so that the library never sees a partially extracted set. The received bytes
+ * are also appended to a partial file so that a paused or interrupted transfer can be resumed with an HTTP range request,
+ * the partial file is only read back when resuming or when the archive can't be extracted as a stream.
+ */
+class BeatmapDownload @JvmOverloads constructor(
+
+    val url: String,
+
+    val filename: String,
+
+    /**
+     * The directory the partial archive and the set being extracted are kept in.
+     */
+    private val downloadDirectory: File = temporaryDirectory
+
+) {
+
+
+    /**
+     * The current state of the transfer.
+     */
+    @Volatile
+    var state = State.Queued
+        private set
+
+    /**
+     * The amount of bytes received so far, including the ones received before resuming.
+     */
+    @Volatile
+    var receivedBytes = 0L
+        private set
+
+    /**
+     * The total size of the archive in bytes, or -1 if the server didn't specify it.
+     */
+    @Volatile
+    var totalBytes = -1L
+        private set
+
+    /**
+     * The current transfer speed in kilobytes per second.
+     */
+    @Volatile
+    var speedKbps = 0f
+        private set
+
+    /**
+     * The transfer progress in 0 to 100 range, or -1 if unknown.
+     */
+    val progress: Double
+        get() = if (totalBytes > 0) receivedBytes * 100.0 / totalBytes else -1.0
+
+
+    /**
+     * Called from the transfer thread whenever new bytes are received.
+     */
+    var onProgress: ((BeatmapDownload) -> Unit)? = null
+
+
+    private val partialFile = downloadDirectory.resolve("$filename.osz.part")
+
+    /**
+     * The directory the archive is extracted into until the transfer is completed.
+     */
+    private val extractionDirectory = downloadDirectory.resolve(filename)
+
+    private val directory = File(Config.getBeatmapPath(), filename)
+
+    @Volatile
+    private var call: Call? = null
+
+    @Volatile
+    private var requestedState: State? = null
+
+
+    /**
+     * The beatmap set directory the archive ends up in.
+     */
+    fun getDirectory() = directory
+
+    /**
+     * Performs the transfer on the calling thread until it's completed, paused or cancelled.
+     *
+     * @throws IOException If the transfer failed, the received bytes are kept so that it can be resumed.
+     */
+    @Throws(IOException::class)
+    fun execute() {
+
+        // A pause or cancellation requested while the transfer was queued applies right away.
+        requestedState?.let {
+            requestedState = null
+            state = it
+
+            if (it == State.Cancelled) {
+                deleteReceived()
+            }
+            return
+        }
+
+        state = State.Downloading
+
+        try {
+            transfer()
+        } catch (e: IOException) {
+            // Cancelling the call makes the pending read fail, that's expected when pausing or cancelling.
+            val requested = requestedState ?: run {
+                state = State.Failed
+                throw e
+            }
+            state = requested
+        } finally {
+            requestedState = null
+        }
+
+        if (state == State.Cancelled) {
+            deleteReceived()
+        }
+    }
+
+    /**
+     * Stops the transfer keeping the received bytes, it can be continued by calling [execute] again.
+     */
+    fun pause() = stop(State.Paused)
+
+    /**
+     * Stops the transfer and deletes everything that was received.
+     */
+    fun cancel() {
+        if (state == State.Downloading) {
+            stop(State.Cancelled)
+        } else {
+            requestedState = State.Cancelled
+            state = State.Cancelled
+            deleteReceived()
+        }
+    }
+
+
+    private fun deleteReceived() {
+        partialFile.delete()
+        extractionDirectory.deleteRecursively()
+    }
+
+    private fun stop(newState: State) {
+        requestedState = newState
+        call?.cancel()
+    }
+
+    private fun transfer() {
+
+        val offset = if (partialFile.exists()) partialFile.length() else 0L
+
+        val request = Request.Builder()
+            .url(url)
+            .header("User-Agent", "Chrome/Android")
+            .apply { if (offset > 0) header("Range", "bytes=$offset-") }
+            .build()
+
+        val call = WebRequest.globalClient.newCall(request)
+        this.call = call
+
+        // The request may have been stopped before the call was created.
+        if (requestedState != null) {
+            call.cancel()
+        }
+
+        val isExtracted = call.execute().use { response ->
+
+            // The requested range starts past the end of the archive, the partial file already holds all of it.
+            if (offset > 0 && response.code == 416) {
+                receivedBytes = offset
+                totalBytes = offset
+                return@use false
+            }
+
+            if (!response.isSuccessful) {
+                throw UnsuccessfulResponseException(response)
+            }
+
+            val body = response.body!!
+
+            // Servers that don't support range requests send the whole archive again.
+            val isResumed = offset > 0 && response.code == 206
+            val startOffset = if (isResumed) offset else 0L
+
+            receivedBytes = startOffset
+            totalBytes = if (body.contentLength() >= 0) startOffset + body.contentLength() else -1L
+
+            // Extraction starts over from the first entry.
+            extractionDirectory.deleteRecursively()
+
+            FileOutputStream(partialFile, isResumed).use { output ->
+
+                val incoming = ReceivingInputStream(body.byteStream(), output)
+
+                // The bytes received before resuming are read back from the partial file, since extraction starts
+                // over from the first entry.
+                val previous = if (isResumed) partialFile.inputStream() else null
+                val source = if (previous != null) SequenceInputStream(previous.limited(startOffset), incoming) else incoming
+
+                val isExtracted = try {
+                    extractStream(source)
+                    true
+                } catch (e: ZipException) {
+                    Log.w("BeatmapDownload", "Failed to extract $filename while downloading, extracting it afterwards.", e)
+                    false
+                } catch (e: IllegalArgumentException) {
+                    // Thrown by ZipInputStream for entry names that aren't encoded in UTF-8.
+                    Log.w("BeatmapDownload", "Failed to extract $filename while downloading, extracting it afterwards.", e)
+                    false
+                } finally {
+                    previous?.close()
+                }
+
+                // Receiving what's left (usually the central directory) so the partial file is complete.
+                incoming.drain()
+
+                isExtracted
+            }
+        }
+
+        if (!isExtracted) {
+            state = State.Extracting
+            extractFile()
+        }
+
+        moveToBeatmapDirectory()
+
+        partialFile.delete()
+        state = State.Completed
+    }
+
+    private fun extractStream(source: InputStream) {
+
+        val root = extractionDirectory.canonicalFile
+        var entryCount = 0
+
+        // Not closing the stream, the rest of the response is still needed after the last entry.
+        val zip = ZipInputStream(source)
+
+        while (true) {
+            val entry = zip.nextEntry ?: break
+            val target = File(root, entry.name.replace('\\', '/')).canonicalFile
+
+            // Rejecting entries that would be written outside the beatmap set directory.
+            if (!target.path.startsWith(root.path + File.separator)) {
+                throw ZipException("Illegal entry name: ${entry.name}")
+            }
+
+            if (entry.isDirectory) {
+                target.mkdirs()
+            } else {
+                target.parentFile?.mkdirs()
+                target.outputStream().use { zip.copyTo(it) }
+            }
+
+            entryCount++
+        }
+
+        if (entryCount == 0) {
+            throw ZipException("No entries found")
+        }
+    }
+
+    private fun extractFile() {
+
+        val archive = File(downloadDirectory, "$filename.osz")
+        archive.delete()
+
+        if (!partialFile.renameTo(archive)) {
+            throw IOException("Failed to rename ${partialFile.name}")
+        }
+
+        extractionDirectory.deleteRecursively()
+
+        // Extracted into a directory named after the archive, which is the extraction directory.
+        if (!FileUtils.extractZip(archive.path, downloadDirectory.path)) {
+            throw IOException("Failed to extract ZIP file.")
+        }
+
+        archive.delete()
+    }
+
+    private fun moveToBeatmapDirectory() {
+
+        if (!directory.exists() && extractionDirectory.renameTo(directory)) {
+            return
+        }
+
+        // The set is being updated, or the directories are not on the same file system.
+        extractionDirectory.copyRecursively(directory, overwrite = true)
+        extractionDirectory.deleteRecursively()
+    }
+
+
+    private fun InputStream.limited(length: Long) = object : FilterInputStream(this) {
+
+        private var remaining = length
+
+        override fun read(): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            val byte = super.read()
+            if (byte >= 0) {
+                remaining--
+            }
+            return byte
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            val read = super.read(b, off, minOf(len.toLong(), remaining).toInt())
+            if (read > 0) {
+                remaining -= read
+            }
+            return read
+        }
+    }
+
+
+    /**
+     * Appends every byte read from the network to the partial file and keeps track of the transfer progress.
+     */
+    private inner class ReceivingInputStream(input: InputStream, private val output: FileOutputStream) : FilterInputStream(input) {
+
+        private val startTime = System.currentTimeMillis()
+
+        private val startBytes = receivedBytes
+
+
+        override fun read(): Int {
+            val byte = super.read()
+            if (byte >= 0) {
+                output.write(byte)
+                onReceived(1)
+            }
+            return byte
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            val read = super.read(b, off, len)
+            if (read > 0) {
+                output.write(b, off, read)
+                onReceived(read)
+            }
+            return read
+        }
+
+        // Skipped bytes must still be written to the partial file.
+        override fun skip(n: Long): Long {
+            val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+            var skipped = 0L
+
+            while (skipped < n) {
+                val read = read(buffer, 0, minOf(buffer.size.toLong(), n - skipped).toInt())
+                if (read < 0) {
+                    break
+                }
+                skipped += read
+            }
+            return skipped
+        }
+
+        fun drain() {
+            val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+            @Suppress("ControlFlowWithEmptyBody")
+            while (read(buffer, 0, buffer.size) >= 0);
+        }
+
+
+        private fun onReceived(count: Int) {
+            receivedBytes += count
+
+            val elapsedMilliseconds = (System.currentTimeMillis() - startTime).toFloat()
+            if (elapsedMilliseconds > 0) {
+                speedKbps = (receivedBytes - startBytes) / elapsedMilliseconds / 1024f * 1000f
+            }
+
+            onProgress?.invoke(this@BeatmapDownload)
+        }
+    }
+
+
+    companion object {
+
+        /**
+         * The directory partial archives and sets being extracted are kept in, nothing else is stored there.
+         */
+        @JvmStatic
+        val temporaryDirectory: File
+            get() = GlobalManager.getInstance().mainActivity.getExternalFilesDir(DIRECTORY_DOWNLOADS)!!
+    }
+
+
+    enum class State {
+        Queued,
+        Downloading,
+        Paused,
+        Extracting,
+        Completed,
+        Failed,
+        Cancelled
+    }
+}
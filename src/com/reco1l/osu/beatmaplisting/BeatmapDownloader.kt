@@ -1,143 +1,248 @@
 package com.reco1l.osu.beatmaplisting
 
-import android.os.Environment.DIRECTORY_DOWNLOADS
 import android.view.View
 import com.osudroid.resources.R.*
-import com.reco1l.framework.net.FileRequest
-import com.reco1l.framework.net.IDownloaderObserver
 import com.reco1l.osu.mainThread
 import com.reco1l.osu.multiplayer.Multiplayer
 import com.reco1l.osu.multiplayer.RoomScene
 import com.reco1l.osu.ui.DownloadFragment
 import com.reco1l.toolkt.kotlin.async
-import net.lingala.zip4j.ZipFile
-import ru.nsu.ccfit.zuev.osu.Config
 import ru.nsu.ccfit.zuev.osu.GlobalManager
+import ru.nsu.ccfit.zuev.osu.LibraryManager
 import ru.nsu.ccfit.zuev.osu.ToastLogger
-import ru.nsu.ccfit.zuev.osu.helper.FileUtils
 import ru.nsu.ccfit.zuev.osu.helper.StringTable
 import java.io.IOException
 
-object BeatmapDownloader : IDownloaderObserver {
+/**
+ * Keeps a queue of beatmap sets to download and transfers up to [maxParallelDownloads] of them at a time.
+ */
+object BeatmapDownloader {
 
 
-    private lateinit var fragment: DownloadFragment
-
-    private lateinit var currentFilename: String
+    /**
+     * The maximum amount of beatmap sets transferred at the same time.
+     */
+    @JvmStatic
+    var maxParallelDownloads = 2
+        set(value) {
+            field = value.coerceAtLeast(1)
+            startPending()
+        }
 
 
     private val context = GlobalManager.getInstance().mainActivity
 
-    // TODO: We should adapt the system to allow multiple downloads at a time.
-    private var isDownloading = false
+    private val pending = ArrayDeque<BeatmapDownload>()
 
+    private val active = mutableListOf<BeatmapDownload>()
 
-    fun download(url: String, suggestedFilename: String) {
+    private val paused = mutableListOf<BeatmapDownload>()
 
-        if (isDownloading) {
-            return
-        }
-        isDownloading = true
+    private var fragment: DownloadFragment? = null
 
-        // Slash is the only character that is not allowed for filenames in the Android filesystem (which is just a Linux filesystem).
-        currentFilename = suggestedFilename.replace('/', ' ')
+    /**
+     * The last time the fragment was updated, progress updates are throttled to not flood the main thread.
+     */
+    private var lastUpdateTime = 0L
 
-        val file = context.getExternalFilesDir(DIRECTORY_DOWNLOADS)!!.resolve("$currentFilename.osz")
 
-        val downloader = FileRequest(file, url)
-        downloader.buildRequest { header("User-Agent", "Chrome/Android") }
+    fun download(url: String, suggestedFilename: String) {
 
-        fragment = DownloadFragment()
-        fragment.setDownloader(downloader) {
+        // Slash is the only character that is not allowed for filenames in the Android filesystem (which is just a Linux filesystem).
+        val filename = suggestedFilename.replace('/', ' ')
 
-            fragment.text.visibility = View.VISIBLE
-            fragment.text.text = context.getString(string.beatmap_downloader_connecting)
+        synchronized(this) {
+            if (pending.any { it.filename == filename } || active.any { it.filename == filename }) {
+                return
+            }
 
-            fragment.button.visibility = View.VISIBLE
-            fragment.button.text = context.getString(string.beatmap_downloader_cancel)
+            // A paused transfer of the same set is continued from where it stopped.
+            val download = paused.find { it.filename == filename }?.also { paused.remove(it) } ?: BeatmapDownload(url, filename)
+            pending.addLast(download)
+        }
 
-            downloader.observer = this@BeatmapDownloader
+        showFragment()
+        startPending()
+    }
 
-            async {
-                downloader.execute()
+    /**
+     * Pauses all transfers, they're continued with a range request once the same sets are downloaded again or
+     * [resumeAll] is called.
+     */
+    fun pauseAll() {
+        synchronized(this) {
+            active.forEach { it.pause() }
+            paused.addAll(pending)
+            pending.clear()
+        }
+    }
 
-                mainThread {
-                    fragment.text.text = StringTable.format(string.beatmap_downloader_downloading, currentFilename)
-                }
-            }
+    /**
+     * Resumes all paused transfers.
+     */
+    fun resumeAll() {
+        synchronized(this) {
+            pending.addAll(paused)
+            paused.clear()
+        }
 
-            fragment.button.setOnClickListener {
-                downloader.cancel()
-            }
+        if (pending.isNotEmpty()) {
+            showFragment()
         }
-        fragment.show()
+        startPending()
     }
 
+    /**
+     * Cancels all transfers, including the paused ones.
+     */
+    fun cancelAll() {
+        synchronized(this) {
+            active.forEach { it.cancel() }
+            pending.forEach { it.cancel() }
+            paused.forEach { it.cancel() }
+            pending.clear()
+            paused.clear()
+        }
+    }
 
-    override fun onDownloadEnd(downloader: FileRequest) {
-        mainThread {
-            fragment.progressBar.visibility = View.GONE
-            fragment.progressBar.isIndeterminate = true
-            fragment.progressBar.visibility = View.VISIBLE
+    /**
+     * Deletes what the transfers of a previous run left behind, paused transfers are only kept in memory so they can't be
+     * resumed after a restart. Nothing is deleted while this run has transfers.
+     */
+    @JvmStatic
+    fun deleteLeftovers() {
+        synchronized(this) {
+            if (active.isNotEmpty() || pending.isNotEmpty() || paused.isNotEmpty()) {
+                return
+            }
 
-            fragment.text.text = StringTable.format(string.beatmap_downloader_importing, currentFilename)
-            fragment.button.visibility = View.GONE
+            BeatmapDownload.temporaryDirectory.listFiles()?.forEach { it.deleteRecursively() }
         }
+    }
 
-        val file = downloader.file
+    /**
+     * Whether there are transfers in progress or waiting to start.
+     */
+    val isDownloading
+        get() = synchronized(this) { active.isNotEmpty() || pending.isNotEmpty() }
 
-        try {
-            ZipFile(file).use {
-                if (!it.isValidZipFile) {
-                    mainThread(fragment::dismiss)
-                    ToastLogger.showText("Import failed, invalid ZIP file.", true)
-                    return
-                }
 
-                if (!FileUtils.extractZip(file.path, Config.getBeatmapPath())) {
-                    mainThread(fragment::dismiss)
-                    ToastLogger.showText("Import failed, failed to extract ZIP file.", true)
+    private fun startPending() {
+
+        while (true) {
+            val download = synchronized(this) {
+                if (active.size >= maxParallelDownloads) {
                     return
                 }
+                pending.removeFirstOrNull()?.also { active.add(it) }
+            } ?: return
 
-                GlobalManager.getInstance().mainActivity.loadBeatmapLibrary()
+            download.onProgress = { updateFragment() }
+
+            async {
+                execute(download)
             }
+        }
+    }
+
+    private fun execute(download: BeatmapDownload) {
+
+        updateFragment(true)
+
+        try {
+            download.execute()
         } catch (e: IOException) {
-            ToastLogger.showText("Import failed:" + e.message, true)
+            ToastLogger.showText("Download failed. " + e.message, true)
         }
 
-        mainThread(fragment::dismiss)
+        when (download.state) {
 
-        if (Multiplayer.isConnected)
-            RoomScene.onRoomBeatmapChange(Multiplayer.room!!.beatmap)
+            BeatmapDownload.State.Completed -> {
+                LibraryManager.importBeatmapSet(download.getDirectory())
 
-        isDownloading = false
-    }
+                if (Multiplayer.isConnected)
+                    RoomScene.onRoomBeatmapChange(Multiplayer.room!!.beatmap)
+            }
+
+            // Failed transfers keep what was received, downloading the same set again resumes it.
+            BeatmapDownload.State.Paused, BeatmapDownload.State.Failed -> synchronized(this) { paused.add(download) }
+
+            BeatmapDownload.State.Cancelled -> ToastLogger.showText("Download canceled.", true)
 
-    override fun onDownloadCancel(downloader: FileRequest) {
-        ToastLogger.showText("Download canceled.", true)
+            else -> Unit
+        }
+
+        synchronized(this) { active.remove(download) }
+
+        startPending()
 
-        mainThread(fragment::dismiss)
-        isDownloading = false
+        if (!isDownloading) {
+            mainThread {
+                fragment?.dismiss()
+                fragment = null
+            }
+        } else {
+            updateFragment(true)
+        }
     }
 
-    override fun onDownloadUpdate(downloader: FileRequest) {
 
-        val info = "\n%.3f kb/s (%d%%)".format(downloader.speedKbps / 1024, downloader.progress.toInt())
+    private fun showFragment() = mainThread {
 
-        mainThread {
-            fragment.text.text = context.getString(string.beatmap_downloader_downloading).format(
-                currentFilename
-            ) + info
-            fragment.progressBar.isIndeterminate = false
-            fragment.progressBar.progress = downloader.progress.toInt()
+        if (fragment != null) {
+            return@mainThread
         }
+
+        val fragment = DownloadFragment()
+        this.fragment = fragment
+
+        fragment.setCancellable({ isDownloading }, ::pauseAll) {
+
+            fragment.text.visibility = View.VISIBLE
+            fragment.text.text = context.getString(string.beatmap_downloader_connecting)
+
+            fragment.button.visibility = View.VISIBLE
+            fragment.button.text = context.getString(string.beatmap_downloader_cancel)
+
+            fragment.button.setOnClickListener {
+                cancelAll()
+            }
+        }
+        fragment.show()
     }
 
-    override fun onDownloadFail(downloader: FileRequest, exception: Exception) {
-        ToastLogger.showText("Download failed. " + exception.message, true)
+    private fun updateFragment(force: Boolean = false) {
+
+        val time = System.currentTimeMillis()
 
-        mainThread(fragment::dismiss)
-        isDownloading = false
+        if (!force && time - lastUpdateTime < 100) {
+            return
+        }
+        lastUpdateTime = time
+
+        val downloads = synchronized(this) { active.toList() }
+
+        if (downloads.isEmpty()) {
+            return
+        }
+
+        val text = downloads.joinToString("\n") {
+            when (it.state) {
+                BeatmapDownload.State.Extracting -> StringTable.format(string.beatmap_downloader_importing, it.filename)
+                else -> StringTable.format(string.beatmap_downloader_downloading, it.filename) +
+                    " %.3f kb/s (%d%%)".format(it.speedKbps / 1024, it.progress.toInt().coerceAtLeast(0))
+            }
+        }
+
+        val queued = synchronized(this) { pending.size }
+        val progress = downloads.sumOf { it.progress.coerceAtLeast(0.0) } / downloads.size
+
+        mainThread {
+            val fragment = fragment ?: return@mainThread
+
+            fragment.text.text = if (queued > 0) "$text\n(+$queued queued)" else text
+            fragment.progressBar.isIndeterminate = downloads.all { it.progress < 0 }
+            fragment.progressBar.progress = progress.toInt()
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package com.reco1l.osu.beatmaplisting
 
-import android.graphics.BitmapFactory
 import android.graphics.Color
 import android.graphics.drawable.ColorDrawable
 import android.util.Log
@@ -35,6 +34,7 @@ import com.google.android.material.progressindicator.CircularProgressIndicator
 import com.reco1l.*
 import com.reco1l.framework.bass.URLBassStream
 import com.reco1l.framework.net.IDownloaderObserver
+import com.reco1l.framework.net.ImageCache
 import com.reco1l.framework.net.JsonArrayRequest
 import com.reco1l.osu.*
 import com.reco1l.osu.beatmaplisting.BeatmapMirrorSearchRequestModel.OrderType
@@ -59,7 +59,6 @@ import ru.nsu.ccfit.zuev.osu.GlobalManager
 import ru.nsu.ccfit.zuev.osu.MainScene.MusicOption
 import ru.nsu.ccfit.zuev.osu.ToastLogger
 import ru.nsu.ccfit.zuev.osuplus.R
-import java.net.URL
 import java.text.SimpleDateFormat
 import java.util.TimeZone
 import kotlinx.coroutines.CancellationException
@@ -566,6 +565,8 @@ class BeatmapSetViewHolder(itemView: View, private val mediaScope: CoroutineScop
 
     private var coverJob: Job? = null
 
+    private var boundBeatmapSet: BeatmapSetModel? = null
+
     private var previewJob: Job? = null
 
 
@@ -577,6 +578,8 @@ class BeatmapSetViewHolder(itemView: View, private val mediaScope: CoroutineScop
 
     fun bind(beatmapSet: BeatmapSetModel) {
 
+        boundBeatmapSet = beatmapSet
+
         status.text = itemView.context.getText(beatmapSet.status.stringId)
         creator.text = "Mapped by ${beatmapSet.creator}"
 
@@ -610,30 +613,42 @@ class BeatmapSetViewHolder(itemView: View, private val mediaScope: CoroutineScop
         }, TextView.BufferType.SPANNABLE)
 
         coverJob?.cancel()
+        coverJob = null
 
-        if (beatmapSet.thumbnail != null && !noTexturesMode) {
-            coverJob = mediaScope.launch {
+        val thumbnail = beatmapSet.thumbnail
 
-                try {
-                    URL(beatmapSet.thumbnail).openStream().use {
-                        ensureActive()
+        if (thumbnail != null && !noTexturesMode) {
+            val width = itemView.resources.getDimensionPixelSize(R.dimen.beatmap_downloader_item_width)
+            val height = 100f.dp.toInt()
 
-                        val bitmap = BitmapFactory.decodeStream(it)
+            val cachedBitmap = ImageCache.getCachedBitmap(thumbnail, width, height)
 
-                        mainThread { cover.setImageBitmap(bitmap) }
-                    }
+            if (cachedBitmap != null) {
+                cover.setImageBitmap(cachedBitmap)
+            } else {
+                cover.setImageDrawable(null)
 
-                } catch (e: Exception) {
-                    mainThread { cover.setImageDrawable(null) }
+                coverJob = mediaScope.launch {
 
-                    if (e is CancellationException) {
-                        throw e
-                    }
+                    try {
+                        val bitmap = ImageCache.getBitmap(thumbnail, width, height)
+                        ensureActive()
 
-                    Log.e("BeatmapDownloader", "Failed to load cover.", e)
-                }
+                        mainThread {
+                            // The holder may have been bound to another beatmap set in the meantime.
+                            if (beatmapSet == boundBeatmapSet) {
+                                cover.setImageBitmap(bitmap)
+                            }
+                        }
 
-                coverJob = null
+                    } catch (e: Exception) {
+                        if (e is CancellationException) {
+                            throw e
+                        }
+
+                        Log.e("BeatmapDownloader", "Failed to load cover.", e)
+                    }
+                }
             }
         } else {
             cover.setImageDrawable(null)
@@ -468,6 +468,9 @@ fun BeatmapInfo(data: Beatmap, lastModified: Long, calculateDifficulty: Boolean,
     @Query("UPDATE BeatmapInfo SET droidStarRating = null, standardStarRating = null")
     fun resetStarRatings()
 
+    @Query("SELECT * FROM BeatmapInfo WHERE md5 = :md5 LIMIT 1")
+    fun getBeatmapByMD5(md5: String): BeatmapInfo?
+
     @Query("DELETE FROM BeatmapInfo WHERE setDirectory = :directory")
     fun deleteBeatmapSet(directory: String)
 
@@ -478,6 +481,10 @@ fun BeatmapInfo(data: Beatmap, lastModified: Long, calculateDifficulty: Boolean,
     @Query("SELECT DISTINCT setDirectory, setId FROM BeatmapInfo")
     fun getBeatmapSetList() : List<BeatmapSetInfo>
 
+    @Transaction
+    @Query("SELECT DISTINCT setDirectory, setId FROM BeatmapInfo WHERE setDirectory = :directory")
+    fun getBeatmapSet(directory: String) : BeatmapSetInfo?
+
     @Query("SELECT DISTINCT setDirectory FROM BeatmapInfo")
     fun getBeatmapSetPaths() : List<String>
 
@@ -1,9 +1,19 @@
 package com.reco1l.osu.data
 
 import android.content.Context
+import android.os.Looper
 import android.util.Log
+import androidx.annotation.VisibleForTesting
 import androidx.room.*
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 import com.reco1l.toolkt.data.iterator
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.Runnable
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import org.apache.commons.io.FilenameUtils
 import org.json.JSONObject
 import ru.nsu.ccfit.zuev.osu.*
@@ -12,6 +22,7 @@ import ru.nsu.ccfit.zuev.osuplus.BuildConfig
 import java.io.File
 import java.io.IOException
 import java.io.ObjectInputStream
+import java.util.concurrent.Executors
 import ru.nsu.ccfit.zuev.osu.scoring.Replay
 
 
@@ -27,50 +38,103 @@ object DatabaseManager {
      */
     @JvmStatic
     val beatmapInfoTable
-        get() = database.getBeatmapInfoTable()
+        get() = checkThread().getBeatmapInfoTable()
 
     /**
      * Get the beatmap options table DAO.
      */
     @JvmStatic
     val beatmapOptionsTable
-        get() = database.getBeatmapOptionsTable()
+        get() = checkThread().getBeatmapOptionsTable()
 
     /**
      * Get the beatmap collections table DAO.
      */
     @JvmStatic
     val beatmapCollectionsTable
-        get() = database.getBeatmapCollectionsTable()
+        get() = checkThread().getBeatmapCollectionsTable()
 
     /**
      * Get the score table DAO.
      */
     @JvmStatic
     val scoreInfoTable
-        get() = database.getScoreInfoTable()
+        get() = checkThread().getScoreInfoTable()
 
     /**
      * Get the block area table DAO.
      */
     @JvmStatic
     val blockAreaTable
-        get() = database.getBlockAreaTable()
+        get() = checkThread().getBlockAreaTable()
+
+    /**
+     * Get the score submission queue table DAO.
+     */
+    @JvmStatic
+    val scoreSubmissionTable
+        get() = checkThread().getScoreSubmissionTable()
+
+
+    /**
+     * The thread every query is run on.
+     *
+     * Room doesn't allow queries on the main thread, and the update and draw threads must not wait for the disk either,
+     * so every access is expected to go through [async] or [query].
+     */
+    private val executor = Executors.newSingleThreadExecutor { Thread(it, "Database") }
+
+    /**
+     * The dispatcher of the database thread.
+     */
+    @JvmStatic
+    val dispatcher = executor.asCoroutineDispatcher()
+
+    private val scope = CoroutineScope(dispatcher)
 
 
     private lateinit var database: DroidDatabase
 
 
+    /**
+     * Returns the database after making sure it isn't accessed from the main or update thread.
+     *
+     * Room only refuses queries on the main thread, a query on the update thread would stall gameplay just as well.
+     */
+    private fun checkThread(): DroidDatabase {
+        check(!Looper.getMainLooper().isCurrentThread) {
+            "The database can't be accessed from the main thread, use DatabaseManager.async or DatabaseManager.query."
+        }
+        check(GlobalManager.getInstance().engine?.isUpdateThread != true) {
+            "The database can't be accessed from the update thread, use DatabaseManager.async or DatabaseManager.query."
+        }
+        return database
+    }
+
+
+    /**
+     * Runs a block on the database thread.
+     */
+    @JvmStatic
+    fun async(block: Runnable): Job = scope.launch {
+        try {
+            block.run()
+        } catch (e: Exception) {
+            Log.e("DatabaseManager", "Failed to run a database operation.", e)
+        }
+    }
+
+    /**
+     * Runs a query on the database thread and suspends until its result is available.
+     */
+    suspend fun <T> query(block: () -> T): T = withContext(dispatcher) { block() }
+
+
     @JvmStatic
     fun load(context: Context) {
 
         // Be careful when changing the database name, it may cause data loss.
-        database = Room.databaseBuilder(context, DroidDatabase::class.java, "${Config.getCorePath()}databases/room-${BuildConfig.BUILD_TYPE}.db")
-            // Is preferable to support migrations, otherwise destructive migration will run forcing
-            // tables to recreate (in case of beatmaps table it'll re-import all beatmaps).
-            // See https://developer.android.com/training/data-storage/room/migrating-db-versions.
-            .fallbackToDestructiveMigration()
-            .allowMainThreadQueries()
+        database = configure(Room.databaseBuilder(context, DroidDatabase::class.java, "${Config.getCorePath()}databases/room-${BuildConfig.BUILD_TYPE}.db"))
             .build()
 
         if (!BuildConfig.DEBUG) {
@@ -78,6 +142,28 @@ object DatabaseManager {
         }
     }
 
+    /**
+     * Uses an already built database, such as an in-memory one.
+     */
+    @VisibleForTesting
+    internal fun load(database: DroidDatabase) {
+        this.database = database
+    }
+
+    /**
+     * Applies the options every database is built with.
+     */
+    internal fun configure(builder: RoomDatabase.Builder<DroidDatabase>) = builder
+        // Is preferable to support migrations, otherwise destructive migration will run forcing
+        // tables to recreate (in case of beatmaps table it'll re-import all beatmaps).
+        // See https://developer.android.com/training/data-storage/room/migrating-db-versions.
+        .fallbackToDestructiveMigration()
+        .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
+        // Lets reads run while a write is in progress, such as the scores of the selected beatmap being loaded
+        // while difficulty calculation writes its results.
+        .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+        .setQueryExecutor(executor)
+
     @Suppress("UNCHECKED_CAST")
     private fun loadLegacyMigrations(context: Context) {
 
@@ -222,15 +308,47 @@ object DatabaseManager {
 
 }
 
+/**
+ * Adds the score submission queue table.
+ */
+private val MIGRATION_1_2 = object : Migration(1, 2) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `ScoreSubmission` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL, `beatmapFilename` TEXT NOT NULL, `beatmapMD5` TEXT NOT NULL, `scoreData` TEXT NOT NULL, `replayPath` TEXT NOT NULL, `attempts` INTEGER NOT NULL, `nextAttemptTime` INTEGER NOT NULL, `time` INTEGER NOT NULL)")
+    }
+}
+
+/**
+ * Adds the performance points columns to the score table.
+ */
+private val MIGRATION_2_3 = object : Migration(2, 3) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL("ALTER TABLE ScoreInfo ADD COLUMN droidPP REAL")
+        db.execSQL("ALTER TABLE ScoreInfo ADD COLUMN standardPP REAL")
+    }
+}
+
+/**
+ * Adds an index to page the local leaderboard of a beatmap without sorting all of its scores.
+ *
+ * The index also serves lookups by beatmap alone, so it replaces the previous index on the beatmap MD5.
+ */
+private val MIGRATION_3_4 = object : Migration(3, 4) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS `beatmapScoreIdx` ON `ScoreInfo` (`beatmapMD5`, `score`)")
+        db.execSQL("DROP INDEX IF EXISTS `beatmapIdx`")
+    }
+}
+
 @Database(
-    version = 1,
+    version = 4,
     entities = [
         BeatmapInfo::class,
         BeatmapOptions::class,
         ScoreInfo::class,
         BeatmapSetCollection::class,
         BeatmapSetCollection_BeatmapSetInfo::class,
-        BlockArea::class
+        BlockArea::class,
+        ScoreSubmission::class
     ]
 )
 abstract class DroidDatabase : RoomDatabase() {
@@ -244,4 +362,6 @@ abstract class DroidDatabase : RoomDatabase() {
     abstract fun getScoreInfoTable(): IScoreInfoDAO
 
     abstract fun getBlockAreaTable(): IBlockAreaDAO
+
+    abstract fun getScoreSubmissionTable(): IScoreSubmissionDAO
 }
\ No newline at end of file
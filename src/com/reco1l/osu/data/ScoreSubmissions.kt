@@ -0,0 +1,85 @@
+@file:JvmName("ScoreSubmissions")
+package com.reco1l.osu.data
+
+import androidx.room.Dao
+import androidx.room.Entity
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Query
+import androidx.room.Update
+
+
+/**
+ * A score waiting to be submitted to the server.
+ */
+@Entity
+data class ScoreSubmission @JvmOverloads constructor(
+
+    /**
+     * The submission ID.
+     */
+    @PrimaryKey(autoGenerate = true)
+    var id: Long = 0,
+
+    /**
+     * The ID of the user that set the score, scores are only submitted while that user is logged in.
+     */
+    val userId: Long,
+
+    /**
+     * The full name of the beatmap.
+     */
+    val beatmapFilename: String,
+
+    /**
+     * The MD5 hash of the beatmap.
+     */
+    val beatmapMD5: String,
+
+    /**
+     * The compiled score data.
+     */
+    val scoreData: String,
+
+    /**
+     * The replay file path.
+     */
+    val replayPath: String,
+
+    /**
+     * The amount of failed attempts.
+     */
+    var attempts: Int = 0,
+
+    /**
+     * The time at which the next attempt can be made.
+     */
+    var nextAttemptTime: Long = 0,
+
+    /**
+     * The time at which the score was set.
+     */
+    val time: Long = System.currentTimeMillis()
+
+)
+
+
+@Dao
+interface IScoreSubmissionDAO {
+
+    @Query("SELECT * FROM ScoreSubmission WHERE userId = :userId ORDER BY nextAttemptTime")
+    fun getPendingSubmissions(userId: Long): List<ScoreSubmission>
+
+    @Query("SELECT * FROM ScoreSubmission WHERE id = :id")
+    fun getSubmission(id: Long): ScoreSubmission?
+
+    @Insert
+    fun insertSubmission(submission: ScoreSubmission): Long
+
+    @Update
+    fun updateSubmission(submission: ScoreSubmission)
+
+    @Query("DELETE FROM ScoreSubmission WHERE id = :id")
+    fun deleteSubmission(id: Long): Int
+
+}
@@ -8,6 +8,7 @@ import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.PrimaryKey
 import androidx.room.Query
+import androidx.room.Update
 import org.apache.commons.io.FilenameUtils
 import org.json.JSONObject
 import ru.nsu.ccfit.zuev.osu.Config
@@ -16,7 +17,7 @@ import ru.nsu.ccfit.zuev.osu.scoring.StatisticV2
 
 @Entity(
     indices = [
-        Index(name = "beatmapIdx", value = ["beatmapMD5"]),
+        Index(name = "beatmapScoreIdx", value = ["beatmapMD5", "score"]),
     ]
 )
 data class ScoreInfo @JvmOverloads constructor(
@@ -97,6 +98,18 @@ data class ScoreInfo @JvmOverloads constructor(
      */
     val time: Long,
 
+    /**
+     * The osu!droid performance points of the score, `null` if it wasn't calculated yet or
+     * [PERFORMANCE_UNAVAILABLE] if its beatmap couldn't be loaded.
+     */
+    var droidPP: Double? = null,
+
+    /**
+     * The osu!standard performance points of the score, `null` if it wasn't calculated yet or
+     * [PERFORMANCE_UNAVAILABLE] if its beatmap couldn't be loaded.
+     */
+    var standardPP: Double? = null,
+
 ) {
 
     /**
@@ -115,7 +128,7 @@ data class ScoreInfo @JvmOverloads constructor(
      * The accuracy.
      */
     val accuracy
-        get() = if (notesHit == 0) 1f else (hit300 * 6f + hit100 * 2f + hit50) / (6f * notesHit)
+        get() = calculateAccuracy(hit300, hit100, hit50, misses)
 
 
     fun toStatisticV2() = StatisticV2().also {
@@ -138,6 +151,17 @@ data class ScoreInfo @JvmOverloads constructor(
     }
 
 
+    companion object {
+
+        /**
+         * Set as the performance of scores whose beatmap isn't imported or can't be parsed, so that they're not
+         * selected again every time the calculation runs. They're calculated again once beatmaps are imported.
+         */
+        const val PERFORMANCE_UNAVAILABLE = -1.0
+
+    }
+
+
 }
 
 fun ScoreInfo(json: JSONObject) =
@@ -162,11 +186,62 @@ fun ScoreInfo(json: JSONObject) =
         time = json.getLong("time"),
     )
 
+/**
+ * The columns of a score shown by the local leaderboard.
+ */
+data class LeaderboardScore(
+
+    val id: Long,
+
+    val playerName: String,
+
+    val mods: String,
+
+    val score: Int,
+
+    val maxCombo: Int,
+
+    val mark: String,
+
+    val hit300: Int,
+
+    val hit100: Int,
+
+    val hit50: Int,
+
+    val misses: Int,
+
+    /**
+     * The osu!droid performance points, `null` or [ScoreInfo.PERFORMANCE_UNAVAILABLE] if they aren't available.
+     */
+    val droidPP: Double?
+
+) {
+
+    /**
+     * The accuracy.
+     */
+    val accuracy
+        get() = calculateAccuracy(hit300, hit100, hit50, misses)
+
+}
+
+private fun calculateAccuracy(hit300: Int, hit100: Int, hit50: Int, misses: Int): Float {
+    val notesHit = hit300 + hit100 + hit50 + misses
+    return if (notesHit == 0) 1f else (hit300 * 6f + hit100 * 2f + hit50) / (6f * notesHit)
+}
+
 @Dao
 interface IScoreInfoDAO {
 
-    @Query("SELECT * FROM ScoreInfo WHERE beatmapMD5 = :beatmapMD5 ORDER BY score DESC")
-    fun getBeatmapScores(beatmapMD5: String): List<ScoreInfo>
+    @Query("SELECT id, playerName, mods, score, maxCombo, mark, hit300, hit100, hit50, misses, droidPP FROM ScoreInfo WHERE beatmapMD5 = :beatmapMD5 ORDER BY score DESC LIMIT :limit OFFSET :offset")
+    fun getBeatmapLeaderboard(beatmapMD5: String, offset: Int, limit: Int): List<LeaderboardScore>
+
+    @Query("SELECT id, playerName, mods, score, maxCombo, mark, hit300, hit100, hit50, misses, droidPP FROM ScoreInfo WHERE beatmapMD5 = :beatmapMD5 ORDER BY droidPP DESC, score DESC LIMIT :limit OFFSET :offset")
+    fun getBeatmapPerformanceLeaderboard(beatmapMD5: String, offset: Int, limit: Int): List<LeaderboardScore>
+
+    @Query("SELECT COUNT(*) FROM ScoreInfo WHERE beatmapMD5 = :beatmapMD5")
+    fun getBeatmapScoreCount(beatmapMD5: String): Int
 
     @Query("SELECT * FROM ScoreInfo WHERE id = :id")
     fun getScore(id: Int): ScoreInfo?
@@ -186,4 +261,22 @@ interface IScoreInfoDAO {
     @Query("SELECT EXISTS(SELECT 1 FROM ScoreInfo WHERE id = :id)")
     fun scoreExists(id: Long): Boolean
 
+    @Query("SELECT * FROM ScoreInfo WHERE droidPP IS NULL OR standardPP IS NULL ORDER BY beatmapMD5")
+    fun getScoresWithoutPerformance(): List<ScoreInfo>
+
+    @Query("SELECT COUNT(*) FROM ScoreInfo")
+    fun getScoreCount(): Int
+
+    @Update
+    fun updateScores(scores: List<ScoreInfo>)
+
+    @Query("UPDATE ScoreInfo SET droidPP = null, standardPP = null")
+    fun resetPerformance()
+
+    /**
+     * Marks the scores whose performance was unavailable to be calculated again if their beatmap is imported now.
+     */
+    @Query("UPDATE ScoreInfo SET droidPP = null, standardPP = null WHERE droidPP = ${ScoreInfo.PERFORMANCE_UNAVAILABLE} AND beatmapMD5 IN (SELECT md5 FROM BeatmapInfo)")
+    fun resetUnavailablePerformance()
+
 }
\ No newline at end of file
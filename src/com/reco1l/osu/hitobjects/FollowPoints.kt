@@ -2,143 +2,473 @@ package com.reco1l.osu.hitobjects
 
 import com.edlplan.framework.easing.*
 import com.reco1l.andengine.*
-import com.reco1l.andengine.modifier.*
-import com.reco1l.andengine.sprite.*
 import com.reco1l.framework.*
-import com.reco1l.osu.*
-import com.reco1l.toolkt.kotlin.*
 import com.rian.osu.beatmap.hitobject.*
-import org.anddev.andengine.entity.scene.*
+import org.anddev.andengine.engine.camera.*
 import org.anddev.andengine.opengl.texture.region.*
+import org.anddev.andengine.opengl.util.*
 import ru.nsu.ccfit.zuev.osu.*
 import ru.nsu.ccfit.zuev.skins.OsuSkin
+import java.nio.*
+import javax.microedition.khronos.opengles.*
 import kotlin.math.*
 
-object FollowPointConnection {
+/**
+ * The follow points of a whole beatmap, computed once when the beatmap is loaded.
+ *
+ * Points are sorted by [fadeInTimes]. All time units are in seconds.
+ */
+class FollowPointLayout private constructor(
+
+    /**
+     * The amount of follow points.
+     */
+    val size: Int
+
+) {
+
+    /**
+     * The position of each point when it starts fading in.
+     */
+    val startX = FloatArray(size)
+    val startY = FloatArray(size)
+
+    /**
+     * The position of each point once it's fully faded in.
+     */
+    val endX = FloatArray(size)
+    val endY = FloatArray(size)
+
+    /**
+     * The rotation of each point, as its cosine and sine.
+     */
+    val rotationCos = FloatArray(size)
+    val rotationSin = FloatArray(size)
+
+    /**
+     * The scale of each point once it's fully faded in, points start at 1.5 times this scale.
+     */
+    val scales = FloatArray(size)
+
+    val fadeInTimes = FloatArray(size)
+
+    val fadeOutTimes = FloatArray(size)
+
+    /**
+     * The duration of the fade in and fade out of each point.
+     */
+    val fadeDurations = FloatArray(size)
+
+    /**
+     * The longest time a point is visible, used to find the points that can be visible at a given time.
+     */
+    var maxLifetime = 0f
+        private set
+
+
+    /**
+     * Returns the index of the first point that can be visible at [time], or [size] if none can be.
+     *
+     * Points from this index onward are visible until one starts fading in after [time].
+     */
+    fun firstVisibleIndex(time: Float): Int {
+
+        val earliestFadeInTime = time - maxLifetime
+
+        var low = 0
+        var high = size
+
+        while (low < high) {
+            val middle = (low + high) ushr 1
+
+            if (fadeInTimes[middle] < earliestFadeInTime) {
+                low = middle + 1
+            } else {
+                high = middle
+            }
+        }
+
+        return low
+    }
+
+
+    companion object {
+
+        private const val SPACING = 32
 
+        private const val MAX_PREEMPT = 800
+
+
+        /**
+         * Computes the follow points between every pair of consecutive objects of a playable beatmap.
+         */
+        @JvmStatic
+        fun create(objects: List<HitObject>): FollowPointLayout {
+
+            var size = 0
+            forEachPoint(objects) { _, _, _, _, _, _, _, _, _ -> size++ }
+
+            val unsorted = FollowPointLayout(size)
+            var index = 0
+
+            forEachPoint(objects) { pointStartX, pointStartY, pointEndX, pointEndY, rotation, scale, fadeInTime, fadeOutTime, fadeDuration ->
+                unsorted.startX[index] = pointStartX
+                unsorted.startY[index] = pointStartY
+                unsorted.endX[index] = pointEndX
+                unsorted.endY[index] = pointEndY
+                unsorted.rotationCos[index] = cos(rotation)
+                unsorted.rotationSin[index] = sin(rotation)
+                unsorted.scales[index] = scale
+                unsorted.fadeInTimes[index] = fadeInTime
+                unsorted.fadeOutTimes[index] = fadeOutTime
+                unsorted.fadeDurations[index] = fadeDuration
+                index++
+            }
 
-    private const val SPACING = 32
+            // Points of a connection are already in order, but connections may overlap with each other.
+            val order = sortedIndices(unsorted.fadeInTimes)
 
-    private const val MAX_PREEMPT = 800
+            return FollowPointLayout(size).also { layout ->
 
+                for (i in 0 until size) {
+                    val source = order[i]
 
-    @JvmStatic
-    val pool = Pool {
+                    layout.startX[i] = unsorted.startX[source]
+                    layout.startY[i] = unsorted.startY[source]
+                    layout.endX[i] = unsorted.endX[source]
+                    layout.endY[i] = unsorted.endY[source]
+                    layout.rotationCos[i] = unsorted.rotationCos[source]
+                    layout.rotationSin[i] = unsorted.rotationSin[source]
+                    layout.scales[i] = unsorted.scales[source]
+                    layout.fadeInTimes[i] = unsorted.fadeInTimes[source]
+                    layout.fadeOutTimes[i] = unsorted.fadeOutTimes[source]
+                    layout.fadeDurations[i] = unsorted.fadeDurations[source]
 
-        // For optimization, we avoid using AnimatedSprite if there's one frame.
-        if (ResourceManager.getInstance().isTextureLoaded("followpoint-0")) {
-            AnimatedSprite("followpoint", true, OsuSkin.get().animationFramerate).also { sprite ->
-                sprite.frames.fastForEach {
-                    it?.applyFollowPointMaxSize()
+                    layout.maxLifetime = max(layout.maxLifetime, layout.fadeOutTimes[i] + layout.fadeDurations[i] - layout.fadeInTimes[i])
                 }
+            }
+        }
+
+        /**
+         * Returns the indices of [values] in ascending order of their value, equal values keeping their order.
+         */
+        internal fun sortedIndices(values: FloatArray): IntArray {
+
+            // Every value is packed with its index into a long that sorts the same way, so that the indices can be
+            // sorted as primitives.
+            val keys = LongArray(values.size) { i ->
+                val bits = values[i].toRawBits()
+                val sortableBits = bits xor (bits shr 31 and Int.MAX_VALUE)
 
-                sprite.onContentSizeMeasured()
-                sprite.isLoop = false
+                sortableBits.toLong() shl 32 or i.toLong()
             }
-        } else {
-            ExtendedSprite(ResourceManager.getInstance().getTexture("followpoint")).also {
-                it.textureRegion?.applyFollowPointMaxSize()
-                it.onContentSizeMeasured()
+
+            keys.sort()
+
+            return IntArray(keys.size) { keys[it].toInt() }
+        }
+
+        private inline fun forEachPoint(
+            objects: List<HitObject>,
+            action: (pointStartX: Float, pointStartY: Float, pointEndX: Float, pointEndY: Float, rotation: Float, scale: Float, fadeInTime: Float, fadeOutTime: Float, fadeDuration: Float) -> Unit
+        ) {
+
+            for (i in 0 until objects.size - 1) {
+
+                val start = objects[i]
+                val end = objects[i + 1]
+
+                if (start is Spinner || end is Spinner || start.isLastInCombo) {
+                    continue
+                }
+
+                // Reference: https://github.com/ppy/osu/blob/7bc8908ca9c026fed1d831eb6e58df7624a8d614/osu.Game.Rulesets.Osu/Objects/Drawables/Connections/FollowPointConnection.cs
+
+                val scale = start.gameplayScale
+                val startTime = (start.endTime / 1000f).toFloat()
+
+                val startPosition = start.gameplayStackedEndPosition
+                val endPosition = end.gameplayStackedPosition
+
+                val distanceX = endPosition.x - startPosition.x
+                val distanceY = endPosition.y - startPosition.y
+                val rotation = atan2(distanceY, distanceX)
+
+                val endFadeInTime = end.timeFadeIn.toFloat() / 1000f
+                val duration = (end.startTime - start.endTime).toFloat() / 1000f
+
+                // Preempt time can go below 800ms. Normally, this is achieved via the DT mod which uniformly speeds up all animations game wide regardless of AR.
+                // This uniform speedup is hard to match 1:1, however we can at least make AR>10 (via mods) feel good by extending the upper linear preempt function.
+                // Note that this doesn't exactly match the AR>10 visuals as they're classically known, but it feels good.
+                val preempt = min(MAX_PREEMPT.toFloat(), start.timePreempt.toFloat()) * min(1.0, start.timePreempt / HitObject.PREEMPT_MIN).toFloat() / 1000f
+
+                // Since the unit of spacing is in osu!pixels, we cannot directly port the reference code. As such, we need to
+                // approach it with another method. We use the distance between the start and end positions in osu!pixels to
+                // determine the amount of points to spawn, and then map them into gameplay positions in pixels.
+                val osuPixelsStartPosition = start.difficultyStackedEndPosition
+                val osuPixelsEndPosition = end.difficultyStackedPosition
+
+                val osuPixelsDistance = hypot(osuPixelsEndPosition.x - osuPixelsStartPosition.x, osuPixelsEndPosition.y - osuPixelsStartPosition.y).toInt()
+
+                var d = (SPACING * 1.5f).toInt()
+                while (d < osuPixelsDistance - SPACING) {
+
+                    val fraction = d.toFloat() / osuPixelsDistance
+                    val fadeOutTime = startTime + fraction * duration
+
+                    action(
+                        startPosition.x + distanceX * (fraction - 0.1f),
+                        startPosition.y + distanceY * (fraction - 0.1f),
+                        startPosition.x + distanceX * fraction,
+                        startPosition.y + distanceY * fraction,
+                        rotation,
+                        scale,
+                        fadeOutTime - preempt,
+                        fadeOutTime,
+                        endFadeInTime
+                    )
+
+                    d += SPACING
+                }
+            }
+        }
+    }
+}
+
+
+/**
+ * Draws the follow points of a [FollowPointLayout] that are visible at [time].
+ *
+ * Visible points are built into a single buffer every frame and drawn with a call per animation frame of the
+ * follow point texture, which is a single call for most skins.
+ */
+class FollowPointRenderer(private val layout: FollowPointLayout) : ExtendedEntity(vertexBuffer = null) {
+
+
+    /**
+     * The current time of the gameplay in seconds.
+     */
+    var time = 0f
+
+
+    private val frames = mutableListOf<TextureRegion>().also { frames ->
+
+        val frameCount = ResourceManager.getInstance().getFrameCount("followpoint")
+
+        for (i in 0 until frameCount) {
+            if (ResourceManager.getInstance().isTextureLoaded("followpoint-$i")) {
+                frames.add(ResourceManager.getInstance().getTexture("followpoint-$i"))
             }
         }
+
+        if (frames.isEmpty()) {
+            frames.add(ResourceManager.getInstance().getTexture("followpoint"))
+        }
+
+        frames.forEach { it.applyFollowPointMaxSize() }
+
+    }.toTypedArray()
+
+    /**
+     * The duration of each animation frame, the animation doesn't loop.
+     */
+    private val frameTime = 1f / OsuSkin.get().animationFramerate.let { if (it > 0) it else frames.size.toFloat() }
+
+    /**
+     * The texture coordinates of every frame, as the four corners of a triangle strip.
+     */
+    private val frameTextureCoordinates = FloatArray(frames.size * 8).also { coordinates ->
+        frames.forEachIndexed { i, frame ->
+            val regionBuffer = frame.textureBuffer.floatBuffer
+            for (j in 0 until 8) {
+                coordinates[i * 8 + j] = regionBuffer.get(j)
+            }
+        }
+    }
+
+    private val isPremultipliedAlpha = frames[0].texture.textureOptions.mPreMultipyAlpha
+
+    private var buffer = createBuffer(INITIAL_POINT_CAPACITY)
+
+
+    init {
+        isCullingEnabled = false
     }
 
 
-    private val expire = OnModifierFinished { fp ->
-        updateThread {
-            fp.detachSelf()
-            fp.reset()
-            pool.free(fp as ExtendedSprite)
+    override fun applyBlending(pGL: GL10) {
+        if (isPremultipliedAlpha) {
+            GLHelper.blendFunction(pGL, BLENDFUNCTION_SOURCE_PREMULTIPLYALPHA_DEFAULT, BLENDFUNCTION_DESTINATION_PREMULTIPLYALPHA_DEFAULT)
+        } else {
+            super.applyBlending(pGL)
+        }
+    }
+
+    override fun onInitDraw(pGL: GL10) {
+        super.onInitDraw(pGL)
+
+        GLHelper.disableCulling(pGL)
+        GLHelper.enableTextures(pGL)
+        GLHelper.enableTexCoordArray(pGL)
+        GLHelper.enableVertexArray(pGL)
+    }
+
+    override fun onUpdateVertexBuffer() = Unit
+
+    override fun drawVertices(pGL: GL10, pCamera: Camera) {
+
+        val firstIndex = layout.firstVisibleIndex(time)
+
+        for (frame in frames.indices) {
+
+            val pointCount = putFramePoints(frame, firstIndex)
+
+            if (pointCount == 0) {
+                continue
+            }
+
+            frames[frame].texture.bind(pGL)
+
+            // The vertices are read from client memory, a bound hardware buffer would take precedence over them.
+            GLHelper.bindBuffer(pGL as GL11, 0)
+
+            buffer.position(0)
+            pGL.glVertexPointer(2, GL10.GL_FLOAT, STRIDE, buffer)
+            buffer.position(2)
+            pGL.glTexCoordPointer(2, GL10.GL_FLOAT, STRIDE, buffer)
+            buffer.position(4)
+            pGL.glColorPointer(4, GL10.GL_FLOAT, STRIDE, buffer)
+            buffer.position(0)
+
+            pGL.glEnableClientState(GL10.GL_COLOR_ARRAY)
+            pGL.glDrawArrays(GL10.GL_TRIANGLES, 0, pointCount * VERTICES_PER_POINT)
+            pGL.glDisableClientState(GL10.GL_COLOR_ARRAY)
         }
     }
 
 
-    private fun TextureRegion.applyFollowPointMaxSize() {
-        // Reference: https://github.com/ppy/osu/blob/0811de728e4205a45e485d53ccdaf19a937c6033/osu.Game.Rulesets.Osu/Skinning/Legacy/OsuLegacySkinTransformer.cs#L95-L97
-        val newWidth = min(width, HitObject.OBJECT_RADIUS.toInt() * 2)
-        val newHeight = min(height, HitObject.OBJECT_RADIUS.toInt())
+    /**
+     * Puts the visible points showing an animation frame into the buffer.
+     *
+     * @return The amount of points that were put.
+     */
+    private fun putFramePoints(frame: Int, firstIndex: Int): Int {
+
+        val region = frames[frame]
+        var pointCount = 0
+
+        for (i in firstIndex until layout.size) {
+
+            val fadeInTime = layout.fadeInTimes[i]
+
+            if (fadeInTime > time) {
+                break
+            }
+
+            val fadeOutTime = layout.fadeOutTimes[i]
+            val fadeDuration = layout.fadeDurations[i]
+
+            if (time >= fadeOutTime + fadeDuration || getFrame(time - fadeInTime) != frame) {
+                continue
+            }
+
+            val progress = if (fadeDuration > 0) min(1f, (time - fadeInTime) / fadeDuration) else 1f
+            val easedProgress = Easing.OutQuad.interpolate(progress)
+
+            val alpha = if (time >= fadeOutTime) 1f - min(1f, (time - fadeOutTime) / fadeDuration) else progress
+            val scale = layout.scales[i] * (1.5f - 0.5f * easedProgress)
 
-        if (width != newWidth || height != newHeight) {
+            val x = layout.startX[i] + (layout.endX[i] - layout.startX[i]) * easedProgress
+            val y = layout.startY[i] + (layout.endY[i] - layout.startY[i]) * easedProgress
 
-            // Crop the texture from the center.
-            setTexturePosition(width / 2 - newWidth / 2, height / 2 - newHeight / 2)
+            ensureCapacity(pointCount + 1)
+            putPoint(pointCount, frame, x, y, region.width * scale / 2, region.height * scale / 2, layout.rotationCos[i], layout.rotationSin[i], alpha)
 
-            width = newWidth
-            height = newHeight
+            pointCount++
         }
+
+        return pointCount
     }
 
-    @JvmStatic
-    fun addConnection(scene: Scene, secPassed: Float, start: HitObject, end: HitObject) {
+    private fun getFrame(elapsedTime: Float) = min((elapsedTime / frameTime).toInt(), frames.size - 1)
 
-        // Reference: https://github.com/ppy/osu/blob/7bc8908ca9c026fed1d831eb6e58df7624a8d614/osu.Game.Rulesets.Osu/Objects/Drawables/Connections/FollowPointConnection.cs
+    private fun putPoint(index: Int, frame: Int, x: Float, y: Float, halfWidth: Float, halfHeight: Float, cos: Float, sin: Float, alpha: Float) {
 
-        val scale = start.gameplayScale
-        val startTime = (start.endTime / 1000f).toFloat()
+        // Textures with premultiplied alpha have to be faded through every color channel.
+        val color = if (isPremultipliedAlpha) alpha else 1f
+        var position = index * VERTICES_PER_POINT * FLOATS_PER_VERTEX
 
-        val startPosition = start.gameplayStackedEndPosition
-        val endPosition = end.gameplayStackedPosition
+        for (corner in STRIP_TO_TRIANGLES) {
 
-        val distanceX = endPosition.x - startPosition.x
-        val distanceY = endPosition.y - startPosition.y
-        val rotation = atan2(distanceY, distanceX) * (180f / Math.PI).toFloat()
+            // Strip corners are ordered as top left, bottom left, top right and bottom right.
+            val localX = if (corner < 2) -halfWidth else halfWidth
+            val localY = if (corner % 2 == 0) -halfHeight else halfHeight
 
-        val endFadeInTime = end.timeFadeIn.toFloat() / 1000f
-        val duration = (end.startTime - start.endTime).toFloat() / 1000f
+            buffer.put(position++, x + localX * cos - localY * sin)
+            buffer.put(position++, y + localX * sin + localY * cos)
+            buffer.put(position++, frameTextureCoordinates[frame * 8 + corner * 2])
+            buffer.put(position++, frameTextureCoordinates[frame * 8 + corner * 2 + 1])
+            buffer.put(position++, color)
+            buffer.put(position++, color)
+            buffer.put(position++, color)
+            buffer.put(position++, alpha)
+        }
+    }
 
-        // Preempt time can go below 800ms. Normally, this is achieved via the DT mod which uniformly speeds up all animations game wide regardless of AR.
-        // This uniform speedup is hard to match 1:1, however we can at least make AR>10 (via mods) feel good by extending the upper linear preempt function.
-        // Note that this doesn't exactly match the AR>10 visuals as they're classically known, but it feels good.
-        val preempt = min(MAX_PREEMPT.toFloat(), start.timePreempt.toFloat()) * min(1.0, start.timePreempt / HitObject.PREEMPT_MIN).toFloat() / 1000f
+    private fun ensureCapacity(pointCount: Int) {
 
-        // Since the unit of spacing is in osu!pixels, we cannot directly port the reference code. As such, we need to
-        // approach it with another method. We use the distance between the start and end positions in osu!pixels to
-        // determine the amount of sprites to spawn, and then map them into gameplay positions in pixels.
-        val osuPixelsStartPosition = start.difficultyStackedEndPosition
-        val osuPixelsEndPosition = end.difficultyStackedPosition
+        if (buffer.capacity() >= pointCount * VERTICES_PER_POINT * FLOATS_PER_VERTEX) {
+            return
+        }
 
-        val osuPixelsDistance = hypot(osuPixelsEndPosition.x - osuPixelsStartPosition.x, osuPixelsEndPosition.y - osuPixelsStartPosition.y).toInt()
+        val previous = buffer
+        buffer = createBuffer(pointCount * 2)
 
-        var d = (SPACING * 1.5f).toInt()
-        while (d < osuPixelsDistance - SPACING) {
+        previous.position(0)
+        buffer.put(previous)
+        buffer.position(0)
+    }
 
-            val fraction = d.toFloat() / osuPixelsDistance
 
-            val pointStartX = startPosition.x + distanceX * (fraction - 0.1f)
-            val pointStartY = startPosition.y + distanceY * (fraction - 0.1f)
+    companion object {
 
-            val pointEndX = startPosition.x + distanceX * fraction
-            val pointEndY = startPosition.y + distanceY * fraction
+        /**
+         * Every point is drawn as two triangles.
+         */
+        private const val VERTICES_PER_POINT = 6
 
-            val fadeOutTime = startTime + fraction * duration
-            val fadeInTime = fadeOutTime - preempt
+        /**
+         * Every vertex is made of its position, its texture coordinates and its color.
+         */
+        private const val FLOATS_PER_VERTEX = 8
 
-            val fp = pool.obtain()
+        private const val STRIDE = FLOATS_PER_VERTEX * Float.SIZE_BYTES
 
-            fp.clearEntityModifiers()
-            fp.setPosition(pointStartX, pointStartY)
-            fp.setOrigin(Anchor.Center)
-            fp.setScale(1.5f * scale)
-            fp.rotation = rotation
-            fp.alpha = 0f
+        /**
+         * Enough for most beatmaps, the buffer grows for denser ones.
+         */
+        private const val INITIAL_POINT_CAPACITY = 64
 
-            fp.registerEntityModifier(
-                Modifiers.sequence(expire,
-                    Modifiers.delay(fadeInTime - secPassed),
-                    Modifiers.parallel(null,
-                        Modifiers.fadeIn(endFadeInTime),
-                        Modifiers.scale(endFadeInTime, 1.5f * scale, scale, null, Easing.OutQuad),
-                        Modifiers.move(endFadeInTime, pointStartX, pointEndX, pointStartY, pointEndY, null, Easing.OutQuad),
-                        Modifiers.sequence(null,
-                            Modifiers.delay(fadeOutTime - fadeInTime),
-                            Modifiers.fadeOut(endFadeInTime)
-                        )
-                    )
-                )
-            )
+        private val STRIP_TO_TRIANGLES = intArrayOf(0, 1, 2, 2, 1, 3)
 
-            scene.attachChild(fp, 0)
-            d += SPACING
+
+        private fun createBuffer(pointCapacity: Int): FloatBuffer = ByteBuffer.allocateDirect(pointCapacity * VERTICES_PER_POINT * FLOATS_PER_VERTEX * Float.SIZE_BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asFloatBuffer()
+
+        private fun TextureRegion.applyFollowPointMaxSize() {
+            // Reference: https://github.com/ppy/osu/blob/0811de728e4205a45e485d53ccdaf19a937c6033/osu.Game.Rulesets.Osu/Skinning/Legacy/OsuLegacySkinTransformer.cs#L95-L97
+            val newWidth = min(width, HitObject.OBJECT_RADIUS.toInt() * 2)
+            val newHeight = min(height, HitObject.OBJECT_RADIUS.toInt())
+
+            if (width != newWidth || height != newHeight) {
+
+                // Crop the texture from the center.
+                setTexturePosition(width / 2 - newWidth / 2, height / 2 - newHeight / 2)
+
+                width = newWidth
+                height = newHeight
+            }
         }
     }
 }
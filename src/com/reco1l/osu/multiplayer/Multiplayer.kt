@@ -3,6 +3,7 @@ package com.reco1l.osu.multiplayer
 import android.text.format.DateFormat
 import android.util.Log
 import com.reco1l.ibancho.RoomAPI
+import com.reco1l.ibancho.data.LiveScoreUpdate
 import com.reco1l.ibancho.data.Room
 import com.reco1l.ibancho.data.RoomPlayer
 import com.reco1l.toolkt.kotlin.formatTimeMilliseconds
@@ -104,11 +105,18 @@ object Multiplayer {
             return
         }
 
-        GlobalManager.getInstance().gameScene.scoreBoard?.nextItems = MutableList(array.length()) { i ->
-            val json = array.getJSONObject(i)
+        GlobalManager.getInstance().gameScene.scoreBoard?.applyLiveUpdates(List(array.length()) { i ->
+            jsonToLiveScoreUpdate(array.getJSONObject(i), i + 1)
+        }, true)
+    }
+
+    fun onLiveLeaderboardDelta(updates: List<LiveScoreUpdate>) {
 
-            jsonToScoreboardItem(json).apply { rank = i + 1 }
+        if (GlobalManager.getInstance().engine.scene != GlobalManager.getInstance().gameScene.scene) {
+            return
         }
+
+        GlobalManager.getInstance().gameScene.scoreBoard?.applyLiveUpdates(updates, false)
     }
 
     fun onFinalLeaderboard(array: JSONArray) {
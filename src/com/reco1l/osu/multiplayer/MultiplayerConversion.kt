@@ -2,11 +2,12 @@
 
 package com.reco1l.osu.multiplayer
 
+import com.reco1l.ibancho.data.LiveScoreCodec
+import com.reco1l.ibancho.data.LiveScoreUpdate
 import org.json.JSONObject
 import ru.nsu.ccfit.zuev.osu.game.mods.GameMod
 import ru.nsu.ccfit.zuev.osu.game.mods.GameMod.*
 import ru.nsu.ccfit.zuev.osu.menu.ModMenu
-import ru.nsu.ccfit.zuev.osu.menu.ScoreBoardItem
 import ru.nsu.ccfit.zuev.osu.scoring.StatisticV2
 import java.util.*
 
@@ -145,14 +146,15 @@ fun modsToString(mod: EnumSet<GameMod>) = buildString {
 /**
  * Specifically made to handle `liveScoreData` event.
  */
-fun jsonToScoreboardItem(json: JSONObject) = ScoreBoardItem().apply {
-
-    userName = json.getString("username")
-    playScore = json.getInt("score")
-    maxCombo = json.getInt("combo")
-    accuracy = json.getDouble("accuracy").toFloat()
-    isAlive = json.getBoolean("isAlive")
-}
+fun jsonToLiveScoreUpdate(json: JSONObject, rank: Int) = LiveScoreUpdate(
+    username = json.getString("username"),
+    mask = LiveScoreCodec.SCORE or LiveScoreCodec.COMBO or LiveScoreCodec.ACCURACY or LiveScoreCodec.ALIVE,
+    score = json.getInt("score"),
+    combo = json.getInt("combo"),
+    accuracy = json.getDouble("accuracy").toFloat(),
+    isAlive = json.getBoolean("isAlive"),
+    rank = rank
+)
 
 /**
  * Specifically made to handle `scoreSubmission` event.
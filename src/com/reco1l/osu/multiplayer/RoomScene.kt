@@ -976,6 +976,10 @@ object RoomScene : Scene(), IRoomEventListener, IPlayerEventListener {
         Multiplayer.onLiveLeaderboard(leaderboard)
     }
 
+    override fun onRoomLiveLeaderboardDelta(updates: List<LiveScoreUpdate>) {
+        Multiplayer.onLiveLeaderboardDelta(updates)
+    }
+
     override fun onRoomFinalLeaderboard(leaderboard: JSONArray) {
         Multiplayer.onFinalLeaderboard(leaderboard)
     }
@@ -57,7 +57,7 @@ class NumberedCirclePiece(circleTexture: String, overlayTexture: String) : Circl
 
 
     fun setNumberText(value: Int) {
-        number.text = value.toString()
+        number.setInteger(value.toLong())
     }
 
     fun setNumberScale(value: Float) {
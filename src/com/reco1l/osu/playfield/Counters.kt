@@ -6,16 +6,11 @@ import com.reco1l.andengine.container.*
 import com.reco1l.andengine.modifier.OnModifierFinished
 import ru.nsu.ccfit.zuev.osu.*
 import ru.nsu.ccfit.zuev.skins.*
-import java.text.*
-import java.util.*
 import kotlin.math.roundToInt
 
 class ScoreCounter : SpriteFont(OsuSkin.get().scorePrefix) {
 
 
-    private val format = DecimalFormat("00000000", DecimalFormatSymbols(Locale.US))
-
-
     init {
         setAnchor(Anchor.TopRight)
         setOrigin(Anchor.TopRight)
@@ -27,12 +22,16 @@ class ScoreCounter : SpriteFont(OsuSkin.get().scorePrefix) {
 
 
     fun setScore(value: Int) {
-        text = format.format(value)
+        setInteger(value.toLong(), 8)
     }
 
 }
 
-class PPCounter(private val algorithm: DifficultyAlgorithm) : SpriteFont(OsuSkin.get().scorePrefix) {
+class PPCounter(algorithm: DifficultyAlgorithm) : SpriteFont(OsuSkin.get().scorePrefix) {
+
+
+    private val suffix = if (algorithm == DifficultyAlgorithm.droid) "dpp" else "pp"
+
 
     init {
         setAnchor(Anchor.TopRight)
@@ -43,7 +42,7 @@ class PPCounter(private val algorithm: DifficultyAlgorithm) : SpriteFont(OsuSkin
 
 
     fun setValue(value: Double) {
-        text = "${value.roundToInt()}${if (algorithm == DifficultyAlgorithm.droid) "dpp" else "pp"}"
+        setInteger(value.roundToInt().toLong(), suffix = suffix)
     }
 }
 
@@ -51,9 +50,6 @@ class PPCounter(private val algorithm: DifficultyAlgorithm) : SpriteFont(OsuSkin
 class AccuracyCounter : SpriteFont(OsuSkin.get().scorePrefix) {
 
 
-    private val format = DecimalFormat("0.00%", DecimalFormatSymbols(Locale.US))
-
-
     init {
         setAnchor(Anchor.TopRight)
         setOrigin(Anchor.TopRight)
@@ -64,7 +60,8 @@ class AccuracyCounter : SpriteFont(OsuSkin.get().scorePrefix) {
 
 
     fun setAccuracy(value: Float) {
-        text = format.format(value)
+        // Multiplying in double precision the same way DecimalFormat does for percentages.
+        setFixedPoint(value.toDouble() * 100, 2, "%")
     }
 
 }
@@ -106,7 +103,7 @@ class ComboCounter : Container() {
     }
 
     private val updateDisplayedCount = OnModifierFinished {
-        displayedCountTextSprite.text = "${current}x"
+        displayedCountTextSprite.setInteger(current.toLong(), suffix = "x")
     }
 
 
@@ -130,7 +127,7 @@ class ComboCounter : Container() {
         // Means the animation is disabled by the user.
         if (popOutCount == null) {
             current = value
-            displayedCountTextSprite.text = "${current}x"
+            displayedCountTextSprite.setInteger(current.toLong(), suffix = "x")
             return
         }
 
@@ -142,7 +139,7 @@ class ComboCounter : Container() {
         current = value
         updateDisplayedCount(popOutCount)
 
-        popOutCount.text = "${current}x"
+        popOutCount.setInteger(current.toLong(), suffix = "x")
         popOutCount.alpha = 0.6f
         popOutCount.setScale(1.56f)
 
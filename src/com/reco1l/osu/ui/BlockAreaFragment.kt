@@ -11,6 +11,7 @@ import androidx.core.view.updateLayoutParams
 import com.edlplan.ui.fragment.BaseFragment
 import com.reco1l.osu.data.BlockArea
 import com.reco1l.osu.data.DatabaseManager
+import com.reco1l.osu.mainThread
 import com.reco1l.toolkt.android.dp
 import com.reco1l.toolkt.android.removeSelf
 import com.rian.osu.math.Vector2
@@ -36,8 +37,18 @@ class BlockAreaFragment : BaseFragment() {
 
     override fun onLoadView() {
 
-        DatabaseManager.blockAreaTable.getAll().forEach {
-            blockAreaItems.add(BlockAreaItem(it, isEditing))
+        DatabaseManager.async {
+            val blockAreas = DatabaseManager.blockAreaTable.getAll()
+
+            mainThread {
+                blockAreas.forEach {
+                    blockAreaItems.add(BlockAreaItem(it, isEditing))
+                }
+
+                if (isEditing) {
+                    resetButton.isEnabled = blockAreaItems.isNotEmpty()
+                }
+            }
         }
 
         if (!isEditing) {
@@ -85,9 +96,14 @@ class BlockAreaFragment : BaseFragment() {
                 width = 128f.dp,
                 height = 128f.dp
             )
-            blockArea.id = DatabaseManager.blockAreaTable.insert(blockArea)
-            blockAreaItems.add(BlockAreaItem(blockArea, true))
-            resetButton.isEnabled = true
+            DatabaseManager.async {
+                blockArea.id = DatabaseManager.blockAreaTable.insert(blockArea)
+
+                mainThread {
+                    blockAreaItems.add(BlockAreaItem(blockArea, true))
+                    resetButton.isEnabled = true
+                }
+            }
         }
 
         resetButton = findViewById<View>(R.id.reset)!!
@@ -97,7 +113,7 @@ class BlockAreaFragment : BaseFragment() {
                 .setTitle("Reset Block Areas")
                 .setMessage("Are you sure you want to reset all block areas?")
                 .addButton("Yes") { dialog ->
-                    DatabaseManager.blockAreaTable.deleteAll()
+                    DatabaseManager.async { DatabaseManager.blockAreaTable.deleteAll() }
 
                     blockAreaItems.forEach {
                         it.itemView.removeSelf()
@@ -174,7 +190,8 @@ class BlockAreaFragment : BaseFragment() {
                         }
 
                         ACTION_UP -> {
-                            DatabaseManager.blockAreaTable.update(data)
+                            val blockArea = data.copy()
+                            DatabaseManager.async { DatabaseManager.blockAreaTable.update(blockArea) }
                             true
                         }
 
@@ -184,7 +201,7 @@ class BlockAreaFragment : BaseFragment() {
 
                 remove.setOnClickListener {
                     itemView.removeSelf()
-                    DatabaseManager.blockAreaTable.delete(data)
+                    DatabaseManager.async { DatabaseManager.blockAreaTable.delete(data) }
                     blockAreaItems.remove(this)
                     resetButton.isEnabled = blockAreaItems.isNotEmpty()
                 }
@@ -218,7 +235,8 @@ class BlockAreaFragment : BaseFragment() {
                         }
 
                         ACTION_UP -> {
-                            DatabaseManager.blockAreaTable.update(data)
+                            val blockArea = data.copy()
+                            DatabaseManager.async { DatabaseManager.blockAreaTable.update(blockArea) }
                             true
                         }
 
@@ -16,7 +16,9 @@ class DownloadFragment : LoadingFragment() {
     override val layoutID = R.layout.download_fragment
 
 
-    private lateinit var downloader: FileRequest
+    private lateinit var isCancellable: () -> Boolean
+
+    private lateinit var onCancel: () -> Unit
 
     private lateinit var onLoad: Runnable
 
@@ -45,8 +47,16 @@ class DownloadFragment : LoadingFragment() {
 
 
     fun setDownloader(downloader: FileRequest, onLoad: Runnable) {
+        setCancellable({ downloader.isDownloading }, downloader::cancel, onLoad)
+    }
+
+    /**
+     * Sets the action to run when the fragment is dismissed through a back press while [isCancellable] is true.
+     */
+    fun setCancellable(isCancellable: () -> Boolean, onCancel: () -> Unit, onLoad: Runnable) {
         this.onLoad = onLoad
-        this.downloader = downloader
+        this.isCancellable = isCancellable
+        this.onCancel = onCancel
     }
 
     fun setText(content: String) {
@@ -56,8 +66,8 @@ class DownloadFragment : LoadingFragment() {
 
 
     override fun callDismissOnBackPress() {
-        if (downloader.isDownloading) {
-            downloader.cancel()
+        if (isCancellable()) {
+            onCancel()
             return
         }
 
@@ -309,13 +309,15 @@ class SettingsFragment : com.edlplan.ui.fragment.SettingsFragment() {
 
     private fun handleLibrarySectionPreferences() {
         findPreference<Preference>("clear_beatmap_cache")!!.setOnPreferenceClickListener {
-            LibraryManager.clearDatabase()
-            ToastLogger.showText(StringTable.get(string.library_cleared), true)
+            async {
+                LibraryManager.clearDatabase()
+                ToastLogger.showText(StringTable.get(string.library_cleared), true)
+            }
             true
         }
 
         findPreference<Preference>("clear_properties")!!.setOnPreferenceClickListener {
-            DatabaseManager.beatmapOptionsTable.deleteAll()
+            DatabaseManager.async { DatabaseManager.beatmapOptionsTable.deleteAll() }
             true
         }
 
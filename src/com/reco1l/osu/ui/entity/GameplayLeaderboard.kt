@@ -1,6 +1,9 @@
 package com.reco1l.osu.ui.entity
 
 import android.opengl.GLES20
+import com.reco1l.ibancho.data.LiveScoreUpdate
+import com.reco1l.ibancho.data.WinCondition
+import com.reco1l.osu.multiplayer.Multiplayer
 import com.reco1l.osu.multiplayer.Multiplayer.isMultiplayer
 import org.anddev.andengine.entity.Entity
 import org.anddev.andengine.entity.sprite.Sprite
@@ -10,6 +13,7 @@ import ru.nsu.ccfit.zuev.osu.GlobalManager
 import ru.nsu.ccfit.zuev.osu.ResourceManager
 import ru.nsu.ccfit.zuev.osu.menu.ScoreBoardItem
 import ru.nsu.ccfit.zuev.osu.scoring.StatisticV2
+import java.util.concurrent.ConcurrentLinkedQueue
 
 class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2) : Entity(0f, 0f) {
 
@@ -17,6 +21,13 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
     var nextItems: List<ScoreBoardItem>? = null
 
 
+    /**
+     * Live score updates received from the server, they're applied in place on the update thread.
+     */
+    private val liveUpdates = ConcurrentLinkedQueue<LiveUpdateBatch>()
+
+    private val spritesByName = mutableMapOf<String, BoardItem>()
+
     private var playerSprite: BoardItem? = null
 
     private var lastTimeDataChange = 0L
@@ -57,6 +68,13 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
             invalidate(items)
         }
 
+        var isReordered = false
+
+        while (true) {
+            val batch = liveUpdates.poll() ?: break
+            isReordered = applyLiveUpdates(batch) || isReordered
+        }
+
         val spriteCount = childCount
 
         if (spriteCount == 0 || playerSprite == null) {
@@ -122,7 +140,7 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
         }
 
         // Updating positions only if needed.
-        if (playerPosition != lastPlayerPosition || isInvalidated) {
+        if (playerPosition != lastPlayerPosition || isInvalidated || isReordered) {
 
             if (playerPosition != lastPlayerPosition) {
                 setChildIndex(player, playerPosition)
@@ -178,9 +196,130 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
     }
 
 
+    /**
+     * Queues live score updates, existing entries are updated in place and only the ones whose position changed are
+     * moved.
+     *
+     * @param isSnapshot Whether [updates] has every player ordered by rank, the players missing from it are removed.
+     */
+    fun applyLiveUpdates(updates: List<LiveScoreUpdate>, isSnapshot: Boolean) {
+        liveUpdates.add(LiveUpdateBatch(updates, isSnapshot))
+    }
+
+
+    private fun applyLiveUpdates(batch: LiveUpdateBatch): Boolean {
+
+        var isReordered = false
+
+        // Removing the players that left the room.
+        if (batch.isSnapshot) {
+            val names = batch.updates.mapTo(HashSet()) { it.username }
+            val iterator = spritesByName.entries.iterator()
+
+            while (iterator.hasNext()) {
+                val (name, sprite) = iterator.next()
+
+                if (name !in names) {
+                    detachChild(sprite)
+                    iterator.remove()
+
+                    if (sprite == playerSprite) {
+                        playerSprite = null
+                    }
+                    isReordered = true
+                }
+            }
+        }
+
+        for (update in batch.updates) {
+            var sprite = spritesByName[update.username]
+
+            if (sprite == null) {
+                sprite = BoardItem(update.toScoreBoardItem())
+                spritesByName[update.username] = sprite
+
+                if (update.username == playerName) {
+                    playerSprite = sprite
+                    lastTimeDataChange = System.currentTimeMillis()
+                }
+
+                attachChild(sprite)
+                sprite.updateColors()
+                isReordered = true
+            } else {
+                val wasAlive = sprite.data.isAlive
+
+                if (update.applyTo(sprite.data)) {
+                    sprite.updateInfo()
+                }
+
+                if (wasAlive != sprite.data.isAlive) {
+                    sprite.updateColors()
+
+                    if (sprite == playerSprite) {
+                        lastTimeDataChange = System.currentTimeMillis()
+                    }
+                }
+            }
+
+            val index = getChildIndex(sprite)
+            val target = if (update.rank > 0) minOf(update.rank, childCount) - 1 else findLocalPosition(sprite, index)
+
+            if (target != index) {
+                setChildIndex(sprite, target)
+                isReordered = true
+            }
+        }
+
+        if (isReordered) {
+            for (i in 0 until childCount) {
+                val sprite = getChild(i) as BoardItem
+
+                if (sprite.data.rank != i + 1) {
+                    sprite.data.rank = i + 1
+                    sprite.updateRank()
+
+                    if (sprite == playerSprite) {
+                        lastTimeDataChange = System.currentTimeMillis()
+                    }
+                }
+            }
+        }
+
+        return isReordered
+    }
+
+    /**
+     * Finds the position of an entry by moving it past its neighbours according to the room win condition, this is
+     * used when the server doesn't provide the ranks.
+     */
+    private fun findLocalPosition(sprite: BoardItem, index: Int): Int {
+
+        var position = index
+
+        while (position > 0 && compareLiveScores(sprite.data, (getChild(position - 1) as BoardItem).data) > 0) {
+            position--
+        }
+
+        if (position == index) {
+            while (position < childCount - 1 && compareLiveScores(sprite.data, (getChild(position + 1) as BoardItem).data) < 0) {
+                position++
+            }
+        }
+
+        return position
+    }
+
+    private fun compareLiveScores(a: ScoreBoardItem, b: ScoreBoardItem) = when (Multiplayer.room?.winCondition) {
+        WinCondition.HighestAccuracy -> a.accuracy.compareTo(b.accuracy)
+        WinCondition.MaximumCombo -> a.maxCombo.compareTo(b.maxCombo)
+        else -> a.playScore.compareTo(b.playScore)
+    }
+
     private fun invalidate(items: List<ScoreBoardItem>?) {
 
         detachChildren()
+        spritesByName.clear()
 
         var list: List<ScoreBoardItem> = items ?: emptyList()
 
@@ -188,10 +327,15 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
 
             userName = playerName
 
-            // Setting the initial rank as the last rank, in local leaderboard it'll always be the last index because
-            // it's based on the local database. In online the server database provides up to 50 scores, so we can't know
-            // the actual last rank of it unless the provided leaderboard size is lower than 50.
-            if (!isGlobalLeaderboard || items.isNullOrEmpty() || items.size < 50)
+            // Setting the initial rank as the last rank. The local leaderboard is loaded in pages, so its last rank is
+            // based on the amount of scores in the local database rather than the loaded items. In online the server
+            // database provides up to 50 scores, so we can't know the actual last rank of it unless the provided
+            // leaderboard size is lower than 50.
+            if (!isGlobalLeaderboard) {
+                // The replayed score is counted by the local database but isn't part of the list.
+                val otherScores = GlobalManager.getInstance().songMenu.boardLocalScoreCount - if (isReplaying) 1 else 0
+                rank = maxOf(list.size, otherScores) + 1
+            } else if (items.isNullOrEmpty() || items.size < 50)
                 rank = list.size + 1
 
             list = list + this
@@ -251,6 +395,10 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
 
             sprite.updateColors()
             attachChild(sprite, 0)
+
+            if (isMultiplayer) {
+                spritesByName[it.userName] = sprite
+            }
             --i
         }
     }
@@ -342,6 +490,9 @@ class GameplayLeaderboard(var playerName: String, private val stats: StatisticV2
     }
 
 
+    private class LiveUpdateBatch(val updates: List<LiveScoreUpdate>, val isSnapshot: Boolean)
+
+
     companion object {
         private const val SPRITE_HEIGHT = 83
 
@@ -101,8 +101,7 @@ class SliderPath(
         var calculatedLength = 0.0
 
         for (i in 0 until calculatedPath.size - 1) {
-            val diff = calculatedPath[i + 1] - calculatedPath[i]
-            calculatedLength += diff.length.toDouble()
+            calculatedLength += calculatedPath[i].getDistance(calculatedPath[i + 1]).toDouble()
             cumulativeLength.add(calculatedLength)
         }
 
@@ -187,8 +186,8 @@ class SliderPath(
             return p0
         }
 
-        val w = (d - d0) / (d1 - d0)
-        return p0 + (p1 - p0) * w.toFloat()
+        val w = ((d - d0) / (d1 - d0)).toFloat()
+        return Vector2(p0.x + (p1.x - p0.x) * w, p0.y + (p1.y - p0.y) * w)
     }
 
     /**
@@ -240,7 +240,13 @@ abstract class DifficultyHitObject(
 
         val lastCursorPosition = getEndCursorPosition(lastObj)
 
-        lazyJumpDistance = (obj.difficultyStackedPosition * scalingFactor - lastCursorPosition * scalingFactor).length.toDouble()
+        val position = obj.difficultyStackedPosition
+
+        // Primitive arithmetic instead of vector operators to avoid allocating intermediate vectors per object.
+        lazyJumpDistance = hypot(
+            position.x * scalingFactor - lastCursorPosition.x * scalingFactor,
+            position.y * scalingFactor - lastCursorPosition.y * scalingFactor
+        ).toDouble()
         minimumJumpTime = strainTime
         minimumJumpDistance = lazyJumpDistance
 
@@ -268,7 +274,7 @@ abstract class DifficultyHitObject(
             // In this case the most natural jump path is better approximated by a new distance called "tailJumpDistance" - the distance between the slider's tail and the next hit object.
             //
             // Thus, the player is assumed to jump the minimum of these two distances in all cases.
-            val tailJumpDistance = (lastObj.tail.difficultyStackedPosition - obj.difficultyStackedPosition).length * scalingFactor
+            val tailJumpDistance = position.getDistance(lastObj.tail.difficultyStackedPosition) * scalingFactor
 
             minimumJumpDistance = max(
                 0.0,
@@ -281,11 +287,15 @@ abstract class DifficultyHitObject(
 
         if (lastLastObj != null && lastLastObj !is Spinner) {
             val lastLastCursorPosition = getEndCursorPosition(lastLastObj)
-            val v1 = lastLastCursorPosition - lastObj.difficultyStackedPosition
-            val v2 = obj.difficultyStackedPosition - lastCursorPosition
+            val lastPosition = lastObj.difficultyStackedPosition
+
+            val v1x = lastLastCursorPosition.x - lastPosition.x
+            val v1y = lastLastCursorPosition.y - lastPosition.y
+            val v2x = position.x - lastCursorPosition.x
+            val v2y = position.y - lastCursorPosition.y
 
-            val dot = v1.dot(v2)
-            val det = v1.x * v2.y - v1.y * v2.x
+            val dot = v1x * v2x + v1y * v2y
+            val det = v1x * v2y - v1y * v2x
 
             angle = abs(atan2(det.toDouble(), dot.toDouble()))
         }
@@ -319,13 +329,18 @@ abstract class DifficultyHitObject(
         // Temporary lazy end position until a real result can be derived.
         slider.lazyEndPosition = slider.difficultyStackedPosition + slider.path.positionAt(endTimeMin)
 
-        var currentCursorPosition = slider.difficultyStackedPosition
+        // The cursor position and movement are tracked as primitives to avoid allocating vectors per nested object.
+        var cursorX = slider.difficultyStackedPosition.x
+        var cursorY = slider.difficultyStackedPosition.y
         val scalingFactor = NORMALIZED_RADIUS / slider.difficultyRadius
 
         for (i in 1 until slider.nestedHitObjects.size) {
             val currentMovementObject = slider.nestedHitObjects[i]
-            var currentMovement = currentMovementObject.difficultyStackedPosition - currentCursorPosition
-            var currentMovementLength = scalingFactor * currentMovement.length
+            val movementObjectPosition = currentMovementObject.difficultyStackedPosition
+
+            var movementX = movementObjectPosition.x - cursorX
+            var movementY = movementObjectPosition.y - cursorY
+            var currentMovementLength = scalingFactor * hypot(movementX, movementY)
 
             // The amount of movement required so that the cursor position needs to be updated.
             var requiredMovement = assumedSliderRadius.toDouble()
@@ -335,12 +350,16 @@ abstract class DifficultyHitObject(
                 // There is both a lazy end position and the actual end slider position. We assume the player takes the simpler movement.
                 // For sliders that are circular, the lazy end position may actually be farther away than the sliders' true end.
                 // This code is designed to prevent buffing situations where lazy end is actually a less efficient movement.
-                val lazyMovement = slider.lazyEndPosition!! - currentCursorPosition
-                if (lazyMovement.length < currentMovement.length) {
-                    currentMovement = lazyMovement
+                val lazyEndPosition = slider.lazyEndPosition!!
+                val lazyMovementX = lazyEndPosition.x - cursorX
+                val lazyMovementY = lazyEndPosition.y - cursorY
+
+                if (hypot(lazyMovementX, lazyMovementY) < hypot(movementX, movementY)) {
+                    movementX = lazyMovementX
+                    movementY = lazyMovementY
                 }
 
-                currentMovementLength = scalingFactor * currentMovement.length
+                currentMovementLength = scalingFactor * hypot(movementX, movementY)
             } else if (currentMovementObject is SliderRepeat) {
                 // For a slider repeat, assume a tighter movement threshold to better assess repeat sliders.
                 requiredMovement = NORMALIZED_RADIUS.toDouble()
@@ -353,7 +372,10 @@ abstract class DifficultyHitObject(
                 // The extra brackets at the end here is necessary as the arithmetic operation of the
                 // latter must be done first, otherwise the precision loss order will not match the
                 // real algorithm.
-                currentCursorPosition = currentCursorPosition + currentMovement * ((currentMovementLength - requiredMovement) / currentMovementLength)
+                val movementScale = ((currentMovementLength - requiredMovement) / currentMovementLength).toFloat()
+
+                cursorX += movementX * movementScale
+                cursorY += movementY * movementScale
 
                 currentMovementLength *= (currentMovementLength - requiredMovement) / currentMovementLength
 
@@ -361,7 +383,7 @@ abstract class DifficultyHitObject(
             }
 
             if (i == slider.nestedHitObjects.size - 1) {
-                slider.lazyEndPosition = currentCursorPosition
+                slider.lazyEndPosition = Vector2(cursorX, cursorY)
             }
         }
     }
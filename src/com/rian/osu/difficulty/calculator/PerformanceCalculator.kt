@@ -103,4 +103,11 @@ abstract class PerformanceCalculator<
 
         max(countMiss.toDouble(), comboBasedMissCount)
     }
+
+    companion object {
+        /**
+         * The epoch time of the last change to the performance calculators, in milliseconds.
+         */
+        const val VERSION = 1729985821000
+    }
 }
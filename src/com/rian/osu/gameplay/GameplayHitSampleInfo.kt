@@ -1,10 +1,14 @@
 package com.rian.osu.gameplay
 
 import com.reco1l.framework.Pool
+import com.reco1l.toolkt.kotlin.fastForEach
+import com.rian.osu.beatmap.IBeatmap
 import com.rian.osu.beatmap.hitobject.BankHitSampleInfo
 import com.rian.osu.beatmap.hitobject.HitSampleInfo
+import com.rian.osu.beatmap.hitobject.Slider
 import kotlin.math.max
 import ru.nsu.ccfit.zuev.audio.BassSoundProvider
+import ru.nsu.ccfit.zuev.osu.Constants
 import ru.nsu.ccfit.zuev.skins.OsuSkin
 import ru.nsu.ccfit.zuev.osu.ResourceManager.getInstance as getResources
 
@@ -26,6 +30,13 @@ class GameplayHitSampleInfo : IGameplayHitSampleInfo {
             soundProvider?.setLooping(value)
         }
 
+    /**
+     * The stereo balance this [GameplayHitSampleInfo] is played with, from -1 (left) to 1 (right).
+     *
+     * @see getBalance
+     */
+    var balance = 0f
+
     private var sampleInfo: HitSampleInfo? = null
     private var soundProvider: BassSoundProvider? = null
 
@@ -42,15 +53,9 @@ class GameplayHitSampleInfo : IGameplayHitSampleInfo {
 
         this.sampleInfo = sampleInfo
 
-        for (i in sampleInfo.lookupNames.indices) {
-            soundProvider = getResources().getCustomSound(sampleInfo.lookupNames[i], false)
-
-            if (soundProvider != null) {
-                soundProvider!!.setFrequency(frequency)
-                soundProvider!!.setLooping(isLooping)
-                break
-            }
-        }
+        soundProvider = findSoundProvider(sampleInfo)
+        soundProvider?.setFrequency(frequency)
+        soundProvider?.setLooping(isLooping)
     }
 
     override fun play() {
@@ -58,7 +63,7 @@ class GameplayHitSampleInfo : IGameplayHitSampleInfo {
             return
         }
 
-        soundProvider?.play(max(0.05f, sampleInfo!!.volume / 100f))
+        soundProvider?.play(max(0.05f, sampleInfo!!.volume / 100f), balance)
     }
 
     override fun stop() {
@@ -68,6 +73,7 @@ class GameplayHitSampleInfo : IGameplayHitSampleInfo {
     override fun reset() {
         frequency = 1f
         isLooping = false
+        balance = 0f
         sampleInfo = null
         soundProvider = null
     }
@@ -78,5 +84,80 @@ class GameplayHitSampleInfo : IGameplayHitSampleInfo {
          */
         @JvmField
         val pool = Pool(25) { GameplayHitSampleInfo() }
+
+        /**
+         * The amount of playbacks of the same hit sample that can be heard at the same time.
+         */
+        const val POLYPHONY = 4
+
+        /**
+         * How far hit samples are panned towards the side of the playfield their object is on.
+         */
+        private const val BALANCE_ADJUST_AMOUNT = 0.4f
+
+        /**
+         * The providers whose polyphony was raised by [preload].
+         */
+        private val polyphonicProviders = mutableSetOf<BassSoundProvider>()
+
+        /**
+         * Gets the stereo balance of a sample played by an object.
+         *
+         * @param x The x position of the object, in osu!pixels.
+         */
+        @JvmStatic
+        fun getBalance(x: Float) = (x / Constants.MAP_WIDTH - 0.5f) * BALANCE_ADJUST_AMOUNT
+
+        /**
+         * Prepares every sample the hit objects of a beatmap can play, including the sliding and spinning samples
+         * sample control points switch between, so that their channels are not acquired during gameplay. This must
+         * be called after the beatmap skin was loaded.
+         */
+        @JvmStatic
+        fun preload(beatmap: IBeatmap) {
+            release()
+
+            val auxiliaryProviders = mutableSetOf<BassSoundProvider>()
+
+            fun addSamples(samples: List<HitSampleInfo>, providers: MutableSet<BassSoundProvider>) =
+                samples.fastForEach { sample -> findSoundProvider(sample)?.let { providers.add(it) } }
+
+            beatmap.hitObjects.objects.fastForEach { obj ->
+                addSamples(obj.samples, polyphonicProviders)
+
+                if (obj is Slider) {
+                    obj.nestedHitObjects.fastForEach { addSamples(it.samples, polyphonicProviders) }
+                }
+
+                obj.auxiliarySamples.fastForEach { sequence ->
+                    addSamples(sequence.samples.map { it.second }, auxiliaryProviders)
+                }
+            }
+
+            polyphonicProviders.forEach {
+                it.setPolyphony(POLYPHONY)
+                it.preload()
+            }
+
+            // Sliding and spinning samples loop or cut themselves off, so they keep a single voice.
+            auxiliaryProviders.forEach { it.preload() }
+        }
+
+        /**
+         * Restores the polyphony of the providers [preload] prepared, since they're shared with the rest of the game.
+         * This must be called when gameplay ends.
+         */
+        @JvmStatic
+        fun release() {
+            polyphonicProviders.forEach { it.setPolyphony(1) }
+            polyphonicProviders.clear()
+        }
+
+        private fun findSoundProvider(sampleInfo: HitSampleInfo): BassSoundProvider? {
+            for (i in sampleInfo.lookupNames.indices) {
+                getResources().getCustomSound(sampleInfo.lookupNames[i], false)?.let { return it }
+            }
+            return null
+        }
     }
 }
\ No newline at end of file
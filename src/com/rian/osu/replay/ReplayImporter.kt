@@ -5,6 +5,7 @@ import com.reco1l.osu.data.DatabaseManager.scoreInfoTable
 import java.io.File
 import java.util.zip.ZipEntry
 import java.util.zip.ZipInputStream
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoard
 import ru.nsu.ccfit.zuev.osu.scoring.Replay
 
 /**
@@ -101,6 +102,8 @@ object ReplayImporter {
             throw Exception("Failed to insert score to score database")
         }
 
+        ScoreBoard.invalidateLocalScores(scoreInfo.beatmapMD5)
+
         val replayFile = File(scoreInfo.replayPath)
 
         if (file.canonicalFile != replayFile.canonicalFile) {
@@ -127,5 +130,7 @@ object ReplayImporter {
         if (scoreInfoTable.insertScore(entry.scoreInfo) < 0) {
             throw Exception("Failed to insert score to score database")
         }
+
+        ScoreBoard.invalidateLocalScores(entry.scoreInfo.beatmapMD5)
     }
 }
\ No newline at end of file
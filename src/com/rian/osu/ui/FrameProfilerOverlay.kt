@@ -0,0 +1,170 @@
+package com.rian.osu.ui
+
+import android.content.Context
+import android.view.WindowManager
+import com.reco1l.andengine.Axes
+import com.reco1l.andengine.container.Container
+import com.reco1l.andengine.shape.Box
+import com.reco1l.andengine.shape.TriangleMesh
+import com.rian.osu.utils.FrameProfiler
+import org.anddev.andengine.entity.text.ChangeableText
+import org.anddev.andengine.opengl.font.Font
+import org.anddev.andengine.util.HorizontalAlign
+import ru.nsu.ccfit.zuev.osu.GlobalManager.getInstance as getGlobal
+
+/**
+ * Displays a rolling graph of the latest frame times recorded by a [FrameProfiler] and the sections that took the
+ * most time.
+ *
+ * All time units are in seconds unless stated otherwise.
+ *
+ * @param font The [Font] that will be used to display the sections.
+ * @param profiler The [FrameProfiler] to display.
+ */
+class FrameProfilerOverlay(font: Font, private val profiler: FrameProfiler) : Container() {
+
+    private val graphWidth = 240f
+    private val graphHeight = 80f
+
+    /**
+     * The amount of latest frames shown in the graph.
+     */
+    private val graphFrames = 120
+
+    /**
+     * The amount of sections listed below the graph.
+     */
+    private val listedSections = 3
+
+    /**
+     * The frame time in milliseconds that fills the whole graph height.
+     */
+    private val graphMaxFrameTime = 50f
+
+    @Suppress("DEPRECATION")
+    private val refreshRate = (getGlobal().mainActivity.getSystemService(Context.WINDOW_SERVICE) as WindowManager).defaultDisplay.refreshRate
+
+    private val smoothFrames = TriangleMesh()
+    private val slowFrames = TriangleMesh()
+
+    private val text = ChangeableText(0f, graphHeight + 4, font, "", HorizontalAlign.LEFT, 160)
+
+    private val averages = LongArray(FrameProfiler.Section.entries.size)
+    private val peaks = LongArray(FrameProfiler.Section.entries.size)
+    private val sortedSections = FrameProfiler.Section.entries.toTypedArray()
+
+    private var timeSinceLastTextUpdate = 0f
+    private val textUpdateInterval = 0.5f
+
+
+    init {
+        autoSizeAxes = Axes.None
+        setSize(graphWidth, graphHeight)
+
+        attachChild(Box().apply {
+            setSize(graphWidth, graphHeight)
+            setColor(0f, 0f, 0f)
+            alpha = 0.5f
+        })
+
+        smoothFrames.vertices.ary = FloatArray(graphFrames * 12)
+        smoothFrames.setColor(0.8f, 1f, 0.6f)
+        attachChild(smoothFrames)
+
+        slowFrames.vertices.ary = FloatArray(graphFrames * 12)
+        slowFrames.setColor(0.93f, 0.07f, 0.13f)
+        attachChild(slowFrames)
+
+        // The frame budget of the display.
+        attachChild(Box().apply {
+            setSize(graphWidth, 1f)
+            setPosition(0f, graphHeight - toGraphHeight(1000 / refreshRate))
+            alpha = 0.6f
+        })
+
+        attachChild(text)
+    }
+
+
+    override fun onManagedUpdate(pSecondsElapsed: Float) {
+        super.onManagedUpdate(pSecondsElapsed)
+
+        updateGraph()
+
+        timeSinceLastTextUpdate += pSecondsElapsed
+
+        if (timeSinceLastTextUpdate >= textUpdateInterval) {
+            timeSinceLastTextUpdate = 0f
+            updateText()
+        }
+    }
+
+    private fun updateGraph() {
+        val frames = minOf(graphFrames, profiler.frameCount)
+        val barWidth = graphWidth / graphFrames
+
+        // A frame is considered slow once it takes longer than one and a half refresh.
+        val slowThreshold = 1.5f * 1000 / refreshRate
+
+        var smoothLength = 0
+        var slowLength = 0
+
+        for (age in 0 until frames) {
+            val frameTime = profiler.getFrameTime(age) / 1e6f
+            val right = graphWidth - age * barWidth
+            val top = graphHeight - toGraphHeight(frameTime)
+
+            if (frameTime > slowThreshold) {
+                slowLength = putBar(slowFrames.vertices.ary, slowLength, right - barWidth, top, right)
+            } else {
+                smoothLength = putBar(smoothFrames.vertices.ary, smoothLength, right - barWidth, top, right)
+            }
+        }
+
+        smoothFrames.vertices.length = smoothLength
+        slowFrames.vertices.length = slowLength
+        smoothFrames.invalidateVertices()
+        slowFrames.invalidateVertices()
+    }
+
+    private fun updateText() {
+        val frames = profiler.aggregate(refreshRate.toInt(), averages, peaks)
+
+        if (frames == 0) {
+            text.text = ""
+            return
+        }
+
+        // Top-level sections contain the others, listing them would hide the actual offenders.
+        sortedSections.sortByDescending { if (it.isTopLevel) -1 else averages[it.ordinal] }
+
+        text.text = buildString {
+            for (i in 0 until listedSections) {
+                val section = sortedSections[i]
+
+                if (section.isTopLevel || averages[section.ordinal] == 0L) {
+                    break
+                }
+
+                append("%s %.2fms (peak %.2fms)\n".format(section.displayName, averages[section.ordinal] / 1e6f, peaks[section.ordinal] / 1e6f))
+            }
+        }
+    }
+
+    private fun toGraphHeight(milliseconds: Float) = minOf(milliseconds / graphMaxFrameTime, 1f) * graphHeight
+
+    private fun putBar(vertices: FloatArray, offset: Int, left: Float, top: Float, right: Float): Int {
+        var i = offset
+
+        // Two triangles, each vertex being an x and y pair.
+        vertices[i++] = left; vertices[i++] = top
+        vertices[i++] = right; vertices[i++] = top
+        vertices[i++] = left; vertices[i++] = graphHeight
+
+        vertices[i++] = right; vertices[i++] = top
+        vertices[i++] = right; vertices[i++] = graphHeight
+        vertices[i++] = left; vertices[i++] = graphHeight
+
+        return i
+    }
+}
@@ -0,0 +1,287 @@
+package com.rian.osu.utils
+
+import java.io.Writer
+import java.lang.ref.WeakReference
+import java.util.Locale
+
+/**
+ * Records how long each frame and each [Section] of it took.
+ *
+ * Sections are measured with [begin] and [end] and accumulated until [endFrame] is called, which pushes the frame into
+ * a ring buffer of [capacity] frames. All storage is allocated once, so recording doesn't allocate.
+ *
+ * All time units are in nanoseconds unless stated otherwise.
+ *
+ * @param capacity The amount of frames that are kept.
+ * @param clock The source of timestamps.
+ */
+class FrameProfiler @JvmOverloads constructor(
+    val capacity: Int = DEFAULT_CAPACITY,
+    private val clock: () -> Long = System::nanoTime
+) {
+
+    /**
+     * A part of the frame that is measured.
+     *
+     * @param displayName The name shown to the user.
+     * @param isTopLevel Whether the section isn't nested in another section, top-level sections are used to compute
+     * the time that isn't attributed to any section.
+     */
+    enum class Section(val displayName: String, val isTopLevel: Boolean) {
+        Update("Update", true),
+        Draw("Draw", true),
+        Gameplay("Gameplay", false),
+        HitObjects("Hit objects", false),
+        SliderBodies("Slider bodies", false),
+        Storyboard("Storyboard", false),
+        Audio("Audio", false),
+        HUD("HUD", false)
+    }
+
+
+    /**
+     * Whether sections and frames are recorded, calls are ignored when disabled.
+     *
+     * Disabling keeps the recorded frames so that they can still be exported.
+     */
+    var isEnabled = false
+        @Synchronized
+        set(value) {
+            if (value && !field) {
+                // The time spent disabled doesn't belong to the next frame.
+                lastFrameEnd = 0
+                sectionStarts.fill(0)
+                currentSectionTimes.fill(0)
+            }
+            field = value
+        }
+
+    /**
+     * The amount of recorded frames, at most [capacity].
+     */
+    var frameCount = 0
+        private set
+
+
+    private val sections = Section.entries.toTypedArray()
+
+    private val frameTimes = LongArray(capacity)
+
+    private val sectionTimes = Array(sections.size) { LongArray(capacity) }
+
+    private val collectedGarbage = BooleanArray(capacity)
+
+    /**
+     * The index the next frame is written to.
+     */
+    private var head = 0
+
+    private val sectionStarts = LongArray(sections.size)
+
+    private val currentSectionTimes = LongArray(sections.size)
+
+    private var lastFrameEnd = 0L
+
+    /**
+     * Cleared by the garbage collector, which tells that a collection happened since it was created.
+     */
+    private var garbageSentinel = WeakReference(Any())
+
+
+    fun begin(section: Section) {
+        if (isEnabled) {
+            sectionStarts[section.ordinal] = clock()
+        }
+    }
+
+    fun end(section: Section) {
+        if (isEnabled) {
+            val start = sectionStarts[section.ordinal]
+
+            if (start != 0L) {
+                currentSectionTimes[section.ordinal] += clock() - start
+                sectionStarts[section.ordinal] = 0
+            }
+        }
+    }
+
+    /**
+     * Measures [block] as [section].
+     */
+    inline fun <T> measure(section: Section, block: () -> T): T {
+        begin(section)
+        try {
+            return block()
+        } finally {
+            end(section)
+        }
+    }
+
+    /**
+     * Ends the current frame, its duration is the time since the previous call.
+     */
+    @Synchronized
+    fun endFrame() {
+        if (!isEnabled) {
+            return
+        }
+
+        val now = clock()
+
+        // The first frame has no start to measure from.
+        if (lastFrameEnd != 0L) {
+            frameTimes[head] = now - lastFrameEnd
+
+            for (i in sections.indices) {
+                sectionTimes[i][head] = currentSectionTimes[i]
+            }
+
+            collectedGarbage[head] = garbageSentinel.get() == null
+            if (collectedGarbage[head]) {
+                garbageSentinel = WeakReference(Any())
+            }
+
+            head = (head + 1) % capacity
+            frameCount = minOf(frameCount + 1, capacity)
+        }
+
+        lastFrameEnd = now
+        currentSectionTimes.fill(0)
+    }
+
+    @Synchronized
+    fun clear() {
+        head = 0
+        frameCount = 0
+        lastFrameEnd = 0
+        sectionStarts.fill(0)
+        currentSectionTimes.fill(0)
+    }
+
+
+    /**
+     * Returns the duration of a recorded frame.
+     *
+     * @param age The age of the frame, 0 is the latest one.
+     */
+    fun getFrameTime(age: Int) = frameTimes[indexOf(age)]
+
+    /**
+     * Returns the time spent in a [Section] during a recorded frame.
+     *
+     * @param age The age of the frame, 0 is the latest one.
+     */
+    fun getSectionTime(section: Section, age: Int) = sectionTimes[section.ordinal][indexOf(age)]
+
+    /**
+     * Returns whether the garbage collector ran during a recorded frame.
+     *
+     * @param age The age of the frame, 0 is the latest one.
+     */
+    fun hasCollectedGarbage(age: Int) = collectedGarbage[indexOf(age)]
+
+    /**
+     * Computes the average and the peak time of every [Section] over the latest frames.
+     *
+     * @param frames The amount of latest frames to aggregate.
+     * @param averages Receives the average time of each section, indexed by [Section.ordinal].
+     * @param peaks Receives the peak time of each section, indexed by [Section.ordinal].
+     * @return The amount of frames that were aggregated.
+     */
+    @Synchronized
+    fun aggregate(frames: Int, averages: LongArray, peaks: LongArray): Int {
+        val count = minOf(frames, frameCount)
+
+        averages.fill(0)
+        peaks.fill(0)
+
+        if (count == 0) {
+            return 0
+        }
+
+        for (i in sections.indices) {
+            var total = 0L
+            var peak = 0L
+
+            for (age in 0 until count) {
+                val time = sectionTimes[i][indexOf(age)]
+                total += time
+                peak = maxOf(peak, time)
+            }
+
+            averages[i] = total / count
+            peaks[i] = peak
+        }
+
+        return count
+    }
+
+    /**
+     * Writes the frames of the last [seconds] as CSV, oldest first.
+     *
+     * Every row has the frame time, the time of each [Section], the time that isn't attributed to a top-level
+     * section and whether the garbage collector ran, all times are in milliseconds.
+     *
+     * @return The amount of frames that were written.
+     */
+    @Synchronized
+    fun export(writer: Writer, seconds: Float): Int {
+        val limit = (seconds * 1e9).toLong()
+        var count = 0
+        var total = 0L
+
+        while (count < frameCount && total < limit) {
+            total += getFrameTime(count)
+            count++
+        }
+
+        writer.append("frame")
+        sections.forEach { writer.append(',').append(it.displayName) }
+        writer.append(",Unattributed,GC\n")
+
+        for (age in count - 1 downTo 0) {
+            val frameTime = getFrameTime(age)
+            var attributed = 0L
+
+            writer.append(formatMillis(frameTime))
+
+            sections.forEach {
+                val time = getSectionTime(it, age)
+                if (it.isTopLevel) {
+                    attributed += time
+                }
+                writer.append(',').append(formatMillis(time))
+            }
+
+            writer.append(',').append(formatMillis(maxOf(0, frameTime - attributed)))
+            writer.append(',').append(if (hasCollectedGarbage(age)) '1' else '0')
+            writer.append('\n')
+        }
+
+        writer.flush()
+        return count
+    }
+
+
+    private fun indexOf(age: Int): Int {
+        require(age in 0 until frameCount) { "Frame $age isn't recorded." }
+        return (head - 1 - age + capacity) % capacity
+    }
+
+    private fun formatMillis(nanos: Long) = "%.3f".format(Locale.US, nanos / 1e6)
+
+
+    companion object {
+
+        /**
+         * Enough for 30 seconds at 60 frames per second.
+         */
+        const val DEFAULT_CAPACITY = 1800
+
+        /**
+         * The profiler used by the game.
+         */
+        @JvmStatic
+        val instance = FrameProfiler()
+    }
+}
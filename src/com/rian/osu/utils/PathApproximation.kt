@@ -2,7 +2,6 @@ package com.rian.osu.utils
 
 import com.rian.osu.math.Precision.almostEquals
 import com.rian.osu.math.Vector2
-import com.rian.osu.math.times
 import java.util.*
 import kotlin.math.*
 
@@ -36,12 +35,22 @@ object PathApproximation {
         // (More specifically, we iteratively and adaptively refine our curve with a
         // depth-first search (https://en.wikipedia.org/wiki/Depth-first_search)
         // over the tree resulting from the subdivisions we make.)
-        val toFlatten = Stack<Array<Vector2?>>()
-        val freeBuffers = Stack<Array<Vector2?>>()
+        //
+        // Points are stored as interleaved X and Y components so that subdividing the curve doesn't allocate a
+        // vector for every intermediate point.
+        val toFlatten = Stack<FloatArray>()
+        val freeBuffers = Stack<FloatArray>()
 
-        toFlatten.push(controlPoints.toTypedArray())
-        val subdivisionBuffer1 = arrayOfNulls<Vector2>(count + 1)
-        val subdivisionBuffer2 = arrayOfNulls<Vector2>(count * 2 + 1)
+        val points = FloatArray((count + 1) * 2)
+
+        for (i in 0..count) {
+            points[i * 2] = controlPoints[i].x
+            points[i * 2 + 1] = controlPoints[i].y
+        }
+
+        toFlatten.push(points)
+        val subdivisionBuffer1 = FloatArray((count + 1) * 2)
+        val subdivisionBuffer2 = FloatArray((count * 2 + 1) * 2)
 
         while (toFlatten.isNotEmpty()) {
             val parent = toFlatten.pop()
@@ -58,13 +67,11 @@ object PathApproximation {
 
             // If we do not yet have a sufficiently "flat" (in other words, detailed) approximation we keep
             // subdividing the curve we are currently operating on.
-            val rightChild = if (freeBuffers.isNotEmpty()) freeBuffers.pop() else arrayOfNulls(count + 1)
+            val rightChild = if (freeBuffers.isNotEmpty()) freeBuffers.pop() else FloatArray((count + 1) * 2)
             bezierSubdivide(parent, subdivisionBuffer2, rightChild, subdivisionBuffer1, count + 1)
 
             // We re-use the buffer of the parent for one of the children, so that we save one allocation per iteration.
-            if (count + 1 >= 0) {
-                System.arraycopy(subdivisionBuffer2, 0, parent, 0, count + 1)
-            }
+            System.arraycopy(subdivisionBuffer2, 0, parent, 0, (count + 1) * 2)
 
             toFlatten.push(rightChild)
             toFlatten.push(parent)
@@ -169,9 +176,10 @@ object PathApproximation {
         for (i in 0 until amountPoints) {
             val fraction = i.toDouble() / (amountPoints - 1)
             val theta = thetaStart + direction * fraction * thetaRange
-            val o = Vector2(cos(theta).toFloat(), sin(theta).toFloat()) * radius
+            val oX = cos(theta).toFloat() * radius
+            val oY = sin(theta).toFloat() * radius
 
-            output.add(center + o)
+            output.add(Vector2(center.x + oX, center.y + oY))
         }
 
         return output
@@ -194,54 +202,60 @@ object PathApproximation {
      * checks (as the name suggests) whether our approximation is *locally* "flat". More curvy parts
      * need to have a denser approximation to be more "flat".
      *
-     * @param controlPoints The control points.
+     * @param controlPoints The control points, as interleaved X and Y components.
      */
-    private fun bezierIsFlatEnough(controlPoints: Array<Vector2?>) =
-        controlPoints.let {
-            for (i in 1 until it.size - 1) {
-                val prev = it[i - 1]!!
-                val current = it[i]!!
-                val next = it[i + 1]!!
-                val finalVec = prev - current * 2 + next
-
-                if (finalVec.length.pow(2f) > BEZIER_TOLERANCE.pow(2f) * 4) {
-                    return@let false
-                }
-            }
+    private fun bezierIsFlatEnough(controlPoints: FloatArray): Boolean {
+        for (i in 1 until controlPoints.size / 2 - 1) {
+            val prev = (i - 1) * 2
+            val current = i * 2
+            val next = (i + 1) * 2
+
+            val finalX = controlPoints[prev] - controlPoints[current] * 2 + controlPoints[next]
+            val finalY = controlPoints[prev + 1] - controlPoints[current + 1] * 2 + controlPoints[next + 1]
 
-            true
+            if (hypot(finalX, finalY).pow(2f) > BEZIER_TOLERANCE.pow(2f) * 4) {
+                return false
+            }
         }
 
+        return true
+    }
+
     /**
      * Approximates a Bézier curve.
      *
      * This uses [De Casteljau's algorithm](https://en.wikipedia.org/wiki/De_Casteljau%27s_algorithm) to obtain an optimal
      * piecewise-linear approximation of the Bézier curve with the same amount of points as there are control points.
      *
-     * @param controlPoints The control points describing the Bézier curve to be approximated.
+     * @param controlPoints The control points describing the Bézier curve to be approximated, as interleaved X and Y components.
      * @param output The points representing the resulting piecewise-linear approximation.
      * @param subdivisionBuffer1 The first buffer containing the current subdivision state.
      * @param subdivisionBuffer2 The second buffer containing the current subdivision state.
      * @param count The number of control points in the original array.
      */
     private fun bezierApproximate(
-        controlPoints: Array<Vector2?>, output: MutableList<Vector2>,
-        subdivisionBuffer1: Array<Vector2?>, subdivisionBuffer2: Array<Vector2?>,
+        controlPoints: FloatArray, output: MutableList<Vector2>,
+        subdivisionBuffer1: FloatArray, subdivisionBuffer2: FloatArray,
         count: Int
     ) {
         bezierSubdivide(controlPoints, subdivisionBuffer2, subdivisionBuffer1, subdivisionBuffer1, count)
 
         for (i in 0 until count - 1) {
-            subdivisionBuffer2[count + i] = subdivisionBuffer1[i + 1]
+            subdivisionBuffer2[(count + i) * 2] = subdivisionBuffer1[(i + 1) * 2]
+            subdivisionBuffer2[(count + i) * 2 + 1] = subdivisionBuffer1[(i + 1) * 2 + 1]
         }
 
-        output.add(controlPoints[0]!!)
+        output.add(Vector2(controlPoints[0], controlPoints[1]))
 
         for (i in 1 until count - 1) {
-            val index = 2 * i
-            val p = 0.25 * (subdivisionBuffer2[index - 1]!! + subdivisionBuffer2[index]!! * 2 + subdivisionBuffer2[index + 1]!!)
-
-            output.add(p)
+            val prev = (2 * i - 1) * 2
+            val current = 2 * i * 2
+            val next = (2 * i + 1) * 2
+
+            output.add(Vector2(
+                (subdivisionBuffer2[prev] + subdivisionBuffer2[current] * 2 + subdivisionBuffer2[next]) * 0.25f,
+                (subdivisionBuffer2[prev + 1] + subdivisionBuffer2[current + 1] * 2 + subdivisionBuffer2[next + 1]) * 0.25f
+            ))
         }
     }
 
@@ -251,26 +265,29 @@ object PathApproximation {
      * Effectively this splits the original curve into 2 curves which result in the original curve
      * when pieced back together.
      *
-     * @param controlPoints The anchor points of the slider.
+     * @param controlPoints The anchor points of the slider, as interleaved X and Y components.
      * @param l Parts of the slider for approximation.
      * @param r Parts of the slider for approximation.
      * @param subdivisionBuffer Parts of the slider for approximation.
      * @param count The amount of anchor points in the slider.
      */
     private fun bezierSubdivide(
-        controlPoints: Array<Vector2?>, l: Array<Vector2?>, r: Array<Vector2?>,
-        subdivisionBuffer: Array<Vector2?>, count: Int
+        controlPoints: FloatArray, l: FloatArray, r: FloatArray,
+        subdivisionBuffer: FloatArray, count: Int
     ) {
-        for (i in 0 until count) {
-            subdivisionBuffer[i] = controlPoints[i]
-        }
+        System.arraycopy(controlPoints, 0, subdivisionBuffer, 0, count * 2)
 
         for (i in 0 until count) {
-            l[i] = subdivisionBuffer[0]
-            r[count - i - 1] = subdivisionBuffer[count - i - 1]
+            val last = (count - i - 1) * 2
+
+            l[i * 2] = subdivisionBuffer[0]
+            l[i * 2 + 1] = subdivisionBuffer[1]
+            r[last] = subdivisionBuffer[last]
+            r[last + 1] = subdivisionBuffer[last + 1]
 
             for (j in 0 until count - i - 1) {
-                subdivisionBuffer[j] = (subdivisionBuffer[j]!! + subdivisionBuffer[j + 1]!!) / 2
+                subdivisionBuffer[j * 2] = (subdivisionBuffer[j * 2] + subdivisionBuffer[j * 2 + 2]) / 2
+                subdivisionBuffer[j * 2 + 1] = (subdivisionBuffer[j * 2 + 1] + subdivisionBuffer[j * 2 + 3]) / 2
             }
         }
     }
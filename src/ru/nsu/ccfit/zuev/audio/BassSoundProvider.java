@@ -14,9 +14,14 @@ public class BassSoundProvider {
     public static final BassSoundProvider EMPTY = new BassSoundProvider();
 
     private int sample = 0;
-    private int channel = 0;
     private boolean looping;
 
+    /**
+     * The channels the sample is played on. By default a playback cuts off the previous one, hit sounds use more
+     * voices so that fast streams and slider ticks can overlap.
+     */
+    private VoicePool voices = createVoicePool(1);
+
     /**
      * The rate at which the sound is played back (affects pitch). 1 is 100% playback speed, or default frequency.
      */
@@ -58,6 +63,16 @@ public class BassSoundProvider {
     }
 
     public void play(float volume) {
+        play(volume, 0);
+    }
+
+    /**
+     * Plays the sample on a free voice, or on the oldest playing voice if all of them are busy.
+     *
+     * @param volume The volume of this playback, from 0 to 1.
+     * @param balance The stereo balance of this playback, from -1 (left) to 1 (right).
+     */
+    public void play(float volume, float balance) {
         if (sample == 0) {
             return;
         }
@@ -69,35 +84,29 @@ public class BassSoundProvider {
             return;
         }
 
-        if (channel == 0) {
-            channel = BASS.BASS_SampleGetChannel(sample, BASS.BASS_SAMCHAN_STREAM);
-
-            if (channel == 0) {
-                return;
-            }
-
-            applyAudioEffectsToChannel();
-            BASS.BASS_ChannelSetAttribute(channel, BASS.BASS_ATTRIB_NOBUFFER, 1);
+        // A looping sound is never layered over itself.
+        if (looping) {
+            stop();
         }
 
+        int channel = voices.acquire();
+
         if (channel == 0) {
             return;
         }
 
-        // Ensure the current playback is stopped first.
-        stop();
-
-        BASS.BASS_ChannelPlay(channel, true);
         BASS.BASS_ChannelSetAttribute(channel, BASS.BASS_ATTRIB_VOL, finalVolume);
+        BASS.BASS_ChannelSetAttribute(channel, BASS.BASS_ATTRIB_PAN, balance);
+        BASS.BASS_ChannelPlay(channel, true);
     }
 
     public void stop() {
-        if (channel == 0) {
-            return;
-        }
+        for (int i = 0; i < voices.size(); i++) {
+            int channel = voices.get(i);
 
-        if (BASS.BASS_ChannelIsActive(channel) == BASS.BASS_ACTIVE_PLAYING) {
-            BASS.BASS_ChannelStop(channel);
+            if (channel != 0 && BASS.BASS_ChannelIsActive(channel) == BASS.BASS_ACTIVE_PLAYING) {
+                BASS.BASS_ChannelStop(channel);
+            }
         }
     }
 
@@ -106,9 +115,38 @@ public class BassSoundProvider {
             return;
         }
 
+        // Freeing the sample also frees its channels.
         BASS.BASS_SampleFree(sample);
         sample = 0;
-        channel = 0;
+        voices.clear();
+    }
+
+    /**
+     * Sets the amount of playbacks of this sample that can be heard at the same time.
+     */
+    public void setPolyphony(int polyphony) {
+        if (voices.size() == Math.max(1, polyphony)) {
+            return;
+        }
+
+        stop();
+
+        for (int i = 0; i < voices.size(); i++) {
+            if (voices.get(i) != 0) {
+                BASS.BASS_ChannelFree(voices.get(i));
+            }
+        }
+
+        voices = createVoicePool(polyphony);
+    }
+
+    /**
+     * Creates the channels of every voice ahead of time so that they're not acquired during gameplay.
+     */
+    public void preload() {
+        if (sample != 0) {
+            voices.preload();
+        }
     }
 
     public void setLooping(boolean looping) {
@@ -149,6 +187,12 @@ public class BassSoundProvider {
     }
 
     private void applyAudioEffectsToChannel() {
+        for (int i = 0; i < voices.size(); i++) {
+            applyAudioEffectsToChannel(voices.get(i));
+        }
+    }
+
+    private void applyAudioEffectsToChannel(int channel) {
         if (channel == 0) {
             return;
         }
@@ -161,4 +205,29 @@ public class BassSoundProvider {
 
         BASS.BASS_ChannelSetAttribute(channel, BASS.BASS_ATTRIB_FREQ, sampleInfo.freq * frequency);
     }
+
+    private VoicePool createVoicePool(int polyphony) {
+        return new VoicePool(new VoicePool.Backend() {
+            @Override
+            public int createVoice() {
+                if (sample == 0) {
+                    return 0;
+                }
+
+                int channel = BASS.BASS_SampleGetChannel(sample, BASS.BASS_SAMCHAN_STREAM);
+
+                if (channel != 0) {
+                    applyAudioEffectsToChannel(channel);
+                    BASS.BASS_ChannelSetAttribute(channel, BASS.BASS_ATTRIB_NOBUFFER, 1);
+                }
+
+                return channel;
+            }
+
+            @Override
+            public boolean isPlaying(int voice) {
+                return BASS.BASS_ChannelIsActive(voice) == BASS.BASS_ACTIVE_PLAYING;
+            }
+        }, polyphony);
+    }
 }
@@ -0,0 +1,259 @@
+package ru.nsu.ccfit.zuev.audio;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reduces FFT frames into logarithmic bands whose levels jump to new peaks and then decay, at a fixed rate independent
+ * of the frame rate.
+ * <br>
+ * Analysis runs on its own thread while results are being read and publishes every step into one of two
+ * {@link Bands} buffers, so readers never wait on it. A reader keeps a consistent view as long as it's done before
+ * two more steps are published, which only matters visually.
+ */
+public class SpectrumAnalyzer {
+
+    /**
+     * The source of FFT frames.
+     */
+    public interface Source {
+
+        /**
+         * Fills the magnitudes of the current FFT frame.
+         *
+         * @return Whether a frame was available, the bands are left as is otherwise.
+         */
+        boolean getSpectrum(float[] destination);
+    }
+
+    /**
+     * The levels and opacities of every band at an analysis step.
+     */
+    public static final class Bands {
+
+        private final float[] levels;
+
+        private final float[] alphas;
+
+        private Bands(int bandCount) {
+            levels = new float[bandCount];
+            alphas = new float[bandCount];
+        }
+
+        /**
+         * The level of a band, as the highest FFT magnitude it recently reached.
+         */
+        public float getLevel(int band) {
+            return levels[band];
+        }
+
+        public float getAlpha(int band) {
+            return alphas[band];
+        }
+    }
+
+
+    /**
+     * The amount of analysis steps per second.
+     */
+    public static final int ANALYSIS_RATE = 60;
+
+    /**
+     * The opacity of a band when it reaches a new peak.
+     */
+    public static final float PEAK_ALPHA = 0.4f;
+
+    /**
+     * The amount of steps it takes for a band to decay from a peak to nothing.
+     */
+    public static final int DECAY_STEPS = 20;
+
+    /**
+     * How long analysis keeps running after the bands were last read, in milliseconds.
+     */
+    private static final long IDLE_TIMEOUT = 1000;
+
+    private static final String TAG = "SpectrumAnalyzer";
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    private final Source source;
+
+    private final int bandCount;
+
+    /**
+     * The first FFT bin of every band, bins start after the DC component.
+     */
+    private final int[] bandStarts;
+
+    /**
+     * The FFT bin after the last one of every band.
+     */
+    private final int[] bandEnds;
+
+    private final float[] fft;
+
+    private final float[] decayRates;
+
+    private final Bands[] buffers;
+
+    private volatile Bands published;
+
+    private volatile boolean isResetPending;
+
+    private volatile long lastReadTime;
+
+    private volatile ScheduledFuture<?> task;
+
+
+    /**
+     * @param source The source of FFT frames.
+     * @param bandCount The amount of bands.
+     * @param binCount The amount of bins in an FFT frame, a power of two.
+     * @param windowSize The amount of bands the logarithmic scale is divided in, bands above {@code bandCount} are
+     * left out.
+     */
+    public SpectrumAnalyzer(Source source, int bandCount, int binCount, int windowSize) {
+        this.source = source;
+        this.bandCount = bandCount;
+
+        fft = new float[binCount];
+        decayRates = new float[bandCount];
+        buffers = new Bands[] { new Bands(bandCount), new Bands(bandCount) };
+        published = buffers[0];
+
+        bandStarts = new int[bandCount];
+        bandEnds = new int[bandCount];
+
+        int octaves = Integer.numberOfTrailingZeros(binCount);
+        int lastBin = binCount - 1;
+
+        for (int i = 0, leftBound = 0; i < bandCount; i++) {
+            int rightBound = (int) Math.pow(2., i * (double) octaves / (windowSize - 1));
+
+            if (rightBound <= leftBound) {
+                rightBound = leftBound + 1;
+            }
+
+            if (rightBound > lastBin) {
+                rightBound = lastBin;
+            }
+
+            bandStarts[i] = leftBound;
+            bandEnds[i] = Math.max(leftBound, rightBound);
+            leftBound = bandEnds[i];
+        }
+    }
+
+
+    /**
+     * Returns the latest published bands and keeps the analysis running.
+     */
+    public Bands getBands() {
+        lastReadTime = System.currentTimeMillis();
+
+        if (task == null) {
+            start();
+        }
+
+        return published;
+    }
+
+    /**
+     * Clears the bands at the next analysis step.
+     */
+    public void reset() {
+        isResetPending = true;
+    }
+
+    /**
+     * Reduces an FFT frame into the next bands and publishes them.
+     *
+     * @param frame The FFT frame, or {@code null} to decay the bands without a new frame.
+     */
+    public void analyze(float[] frame) {
+        Bands previous = published;
+        Bands next = previous == buffers[0] ? buffers[1] : buffers[0];
+
+        if (isResetPending) {
+            isResetPending = false;
+            previous = next;
+
+            for (int i = 0; i < bandCount; i++) {
+                next.levels[i] = 0;
+                next.alphas[i] = 0;
+                decayRates[i] = 0;
+            }
+        }
+
+        for (int i = 0; i < bandCount; i++) {
+            float peak = 0;
+
+            if (frame != null) {
+                for (int bin = bandStarts[i]; bin < bandEnds[i]; bin++) {
+                    peak = Math.max(peak, frame[1 + bin]);
+                }
+            }
+
+            if (peak > previous.levels[i]) {
+                next.levels[i] = peak;
+                next.alphas[i] = PEAK_ALPHA;
+                decayRates[i] = peak / DECAY_STEPS;
+            } else {
+                next.levels[i] = Math.max(previous.levels[i] - decayRates[i], 0);
+                next.alphas[i] = Math.max(previous.alphas[i] - PEAK_ALPHA / DECAY_STEPS, 0);
+            }
+        }
+
+        published = next;
+    }
+
+    Bands getPublished() {
+        return published;
+    }
+
+    int getBandStart(int band) {
+        return bandStarts[band];
+    }
+
+    int getBandEnd(int band) {
+        return bandEnds[band];
+    }
+
+
+    private synchronized void start() {
+        if (task != null) {
+            return;
+        }
+
+        task = executor.scheduleAtFixedRate(this::step, 0, 1000000 / ANALYSIS_RATE, TimeUnit.MICROSECONDS);
+    }
+
+    private synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    private void step() {
+        if (System.currentTimeMillis() - lastReadTime > IDLE_TIMEOUT) {
+            stop();
+            return;
+        }
+
+        // Frames aren't available while the music is paused, the bands stay as they are unless they have to be cleared.
+        if (source.getSpectrum(fft)) {
+            analyze(fft);
+        } else if (isResetPending) {
+            analyze(null);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.nsu.ccfit.zuev.audio;
+
+/**
+ * A fixed amount of playback voices for a single sample. A new playback takes a voice that isn't playing, or steals
+ * the voice that started playing the longest time ago once all of them are busy.
+ * <br>
+ * Voices are created once and reused for every playback, so playing a sample never allocates a channel after the
+ * pool is full.
+ */
+public class VoicePool {
+
+    /**
+     * The playback backend the voices are created in.
+     */
+    public interface Backend {
+
+        /**
+         * Creates a voice.
+         *
+         * @return The handle of the voice, or 0 if it couldn't be created.
+         */
+        int createVoice();
+
+        /**
+         * Whether the voice is currently playing.
+         */
+        boolean isPlaying(int voice);
+    }
+
+
+    private final Backend backend;
+
+    private final int[] voices;
+
+    /**
+     * The order in which each voice started playing, the lowest is the oldest.
+     */
+    private final long[] startOrders;
+
+    private long playCount;
+
+
+    public VoicePool(Backend backend, int size) {
+        this.backend = backend;
+        voices = new int[Math.max(1, size)];
+        startOrders = new long[voices.length];
+    }
+
+
+    /**
+     * Takes the voice for a new playback.
+     *
+     * @return The handle of the voice, or 0 if no voice could be created.
+     */
+    public int acquire() {
+
+        int oldest = -1;
+
+        for (int i = 0; i < voices.length; i++) {
+
+            if (voices[i] == 0) {
+                voices[i] = backend.createVoice();
+
+                if (voices[i] == 0) {
+                    continue;
+                }
+                return use(i);
+            }
+
+            if (!backend.isPlaying(voices[i])) {
+                return use(i);
+            }
+
+            if (oldest == -1 || startOrders[i] < startOrders[oldest]) {
+                oldest = i;
+            }
+        }
+
+        return oldest != -1 ? use(oldest) : 0;
+    }
+
+    /**
+     * Creates every voice ahead of time so that the first playbacks don't have to.
+     */
+    public void preload() {
+        for (int i = 0; i < voices.length; i++) {
+            if (voices[i] == 0) {
+                voices[i] = backend.createVoice();
+            }
+        }
+    }
+
+    public int size() {
+        return voices.length;
+    }
+
+    /**
+     * Returns the handle of a voice, or 0 if it wasn't created yet.
+     */
+    public int get(int index) {
+        return voices[index];
+    }
+
+    /**
+     * Forgets all voices, this is meant to be called once the backend released them.
+     */
+    public void clear() {
+        for (int i = 0; i < voices.length; i++) {
+            voices[i] = 0;
+            startOrders[i] = 0;
+        }
+        playCount = 0;
+    }
+
+
+    private int use(int index) {
+        startOrders[index] = ++playCount;
+        return voices[index];
+    }
+}
@@ -11,6 +11,7 @@ import com.un4seen.bass.BASS;
 import com.un4seen.bass.BASS_FX;
 
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 
 import ru.nsu.ccfit.zuev.audio.Status;
 import ru.nsu.ccfit.zuev.osu.Config;
@@ -25,6 +26,7 @@ public class BassAudioFunc {
     private final BASS.BASS_CHANNELINFO channelInfo = new BASS.BASS_CHANNELINFO();
 
     private ByteBuffer buffer = null;
+    private FloatBuffer spectrumBuffer = null;
     private int playFlag = BASS.BASS_STREAM_PRESCAN;
     private boolean isGaming = false;
     private BroadcastReceiver receiver;
@@ -185,19 +187,24 @@ public class BassAudioFunc {
         return 0;
     }
 
-    public float[] getSpectrum() {
+    /**
+     * Fills the magnitudes of the current FFT frame, {@code WINDOW_FFT / 2} values at most.
+     *
+     * @return Whether the channel is playing, the destination is left as is otherwise.
+     */
+    public boolean getSpectrum(float[] destination) {
         if (BASS.BASS_ChannelIsActive(channel) != BASS.BASS_ACTIVE_PLAYING) {
-            return null;
+            return false;
         }
         if (buffer == null) {
             buffer = ByteBuffer.allocateDirect(WINDOW_FFT << 1);
             buffer.order(null);
+            spectrumBuffer = buffer.asFloatBuffer();
         }
         BASS.BASS_ChannelGetData(channel, buffer, BASS.BASS_DATA_FFT1024);
-        int resSize = WINDOW_FFT >> 1;
-        float[] spectrum = new float[resSize];
-        buffer.asFloatBuffer().get(spectrum);
-        return spectrum;
+        spectrumBuffer.position(0);
+        spectrumBuffer.get(destination, 0, Math.min(destination.length, WINDOW_FFT >> 1));
+        return true;
     }
 
     private void doClear() {
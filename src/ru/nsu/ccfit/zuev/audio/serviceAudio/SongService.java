@@ -203,11 +203,11 @@ public class SongService extends Service {
         return 0;
     }
 
-    public float[] getSpectrum() {
+    public boolean getSpectrum(float[] destination) {
         if (audioFunc != null) {
-            return audioFunc.getSpectrum();
+            return audioFunc.getSpectrum(destination);
         }
-        return new float[0];
+        return false;
     }
 
     public float getVolume() {
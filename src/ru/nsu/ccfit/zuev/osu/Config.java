@@ -48,8 +48,10 @@ public class Config {
         useCustomSounds,
         corovans,
         showFPS,
+        showFrameProfiler,
         showAverageOffset,
         showUnstableRate,
+        showErrorMeterStatistics,
         animateFollowCircle,
         animateComboText,
         snakingInSliders,
@@ -126,8 +128,10 @@ public class Config {
         comboburst = prefs.getBoolean("comboburst", false);
         corovans = prefs.getBoolean("images", false);
         showFPS = prefs.getBoolean("fps", true);
+        showFrameProfiler = prefs.getBoolean("frameProfiler", false);
         showAverageOffset = prefs.getBoolean("averageOffset", true);
         showUnstableRate = prefs.getBoolean("unstableRate", true);
+        showErrorMeterStatistics = prefs.getBoolean("errorMeterStatistics", false);
         errorMeter = Integer.parseInt(prefs.getString("errormeter", "0"));
         spinnerStyle = Integer.parseInt(prefs.getString("spinnerstyle", "1"));
         showFirstApproachCircle = prefs.getBoolean("showfirstapproachcircle", false);
@@ -333,6 +337,14 @@ public class Config {
         Config.showFPS = showFPS;
     }
 
+    public static boolean isShowFrameProfiler() {
+        return showFrameProfiler;
+    }
+
+    public static void setShowFrameProfiler(final boolean showFrameProfiler) {
+        Config.showFrameProfiler = showFrameProfiler;
+    }
+
     public static boolean isShowAverageOffset() {
         return showAverageOffset;
     }
@@ -349,6 +361,14 @@ public class Config {
         Config.showUnstableRate = showUnstableRate;
     }
 
+    public static boolean isShowErrorMeterStatistics() {
+        return showErrorMeterStatistics;
+    }
+
+    public static void setShowErrorMeterStatistics(final boolean showErrorMeterStatistics) {
+        Config.showErrorMeterStatistics = showErrorMeterStatistics;
+    }
+
     public static boolean isShowScoreboard() {
         return showScoreboard;
     }
@@ -0,0 +1,129 @@
+package ru.nsu.ccfit.zuev.osu;
+
+import com.reco1l.osu.data.BeatmapInfo;
+import com.reco1l.osu.data.BeatmapSetInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the beatmaps and beatmap sets of the library by their keys, so that lookups don't have to walk the library.
+ * <br>
+ * Several beatmap sets can hold a beatmap with the same MD5, so every MD5 keeps all of its entries and a lookup
+ * returns the one added last. An MD5 only disappears once none of its entries is left.
+ */
+final class LibraryIndex {
+
+
+    private final Map<String, List<BeatmapInfo>> beatmapsByMD5 = new HashMap<>();
+
+    private final Map<String, BeatmapSetInfo> beatmapSetsByDirectory = new HashMap<>();
+
+    /**
+     * The position of every beatmap set in the library by its directory. Removals and shuffles move every
+     * following beatmap set, so positions are rebuilt on the next lookup instead of being kept up to date.
+     */
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    private boolean arePositionsValid = false;
+
+
+    synchronized void rebuild(List<BeatmapSetInfo> library) {
+
+        beatmapsByMD5.clear();
+        beatmapSetsByDirectory.clear();
+        arePositionsValid = false;
+
+        for (int i = 0; i < library.size(); i++) {
+            add(library.get(i));
+        }
+    }
+
+    synchronized void add(BeatmapSetInfo beatmapSet) {
+
+        var beatmaps = beatmapSet.getBeatmaps();
+
+        for (int i = 0; i < beatmaps.size(); i++) {
+            var beatmap = beatmaps.get(i);
+            put(beatmapsByMD5, beatmap.getMD5(), beatmap);
+        }
+
+        beatmapSetsByDirectory.put(beatmapSet.getDirectory(), beatmapSet);
+
+        arePositionsValid = false;
+    }
+
+    synchronized void remove(BeatmapSetInfo beatmapSet) {
+
+        var beatmaps = beatmapSet.getBeatmaps();
+
+        // Only entries of this beatmap set are removed, another one may still hold the same key.
+        for (int i = 0; i < beatmaps.size(); i++) {
+            var beatmap = beatmaps.get(i);
+            remove(beatmapsByMD5, beatmap.getMD5(), beatmap);
+        }
+
+        beatmapSetsByDirectory.remove(beatmapSet.getDirectory(), beatmapSet);
+
+        arePositionsValid = false;
+    }
+
+    synchronized void invalidatePositions() {
+        arePositionsValid = false;
+    }
+
+
+    synchronized BeatmapInfo getBeatmap(String md5) {
+        return last(beatmapsByMD5.get(md5));
+    }
+
+    synchronized BeatmapSetInfo getBeatmapSet(String directory) {
+        return beatmapSetsByDirectory.get(directory);
+    }
+
+    /**
+     * Returns the position of a beatmap set in the library, or -1 if it isn't in it.
+     */
+    synchronized int getPosition(List<BeatmapSetInfo> library, String directory) {
+
+        if (!arePositionsValid) {
+            positions.clear();
+
+            for (int i = 0; i < library.size(); i++) {
+                positions.put(library.get(i).getDirectory(), i);
+            }
+
+            arePositionsValid = true;
+        }
+
+        var position = positions.get(directory);
+        return position != null ? position : -1;
+    }
+
+
+    private static <K, V> void put(Map<K, List<V>> map, K key, V value) {
+        var values = map.get(key);
+
+        if (values == null) {
+            // Keys are almost always unique, a single entry is the common case.
+            values = new ArrayList<>(1);
+            map.put(key, values);
+        }
+
+        values.add(value);
+    }
+
+    private static <K, V> void remove(Map<K, List<V>> map, K key, V value) {
+        var values = map.get(key);
+
+        if (values != null && values.remove(value) && values.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private static <V> V last(List<V> values) {
+        return values != null ? values.get(values.size() - 1) : null;
+    }
+}
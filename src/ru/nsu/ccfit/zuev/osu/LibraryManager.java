@@ -32,6 +32,8 @@ public class LibraryManager {
 
     private static boolean isCaching = true;
 
+    private static final LibraryIndex index = new LibraryIndex();
+
 
     private static final ArrayList<BeatmapInfo> pendingBeatmaps = new ArrayList<>();
 
@@ -69,6 +71,7 @@ public class LibraryManager {
     public static void loadLibrary() {
 
         library = new ArrayList<>();
+        index.rebuild(library);
 
         if (!FileUtils.canUseSD() || !checkDirectory(Config.getScorePath()) && !checkDirectory(Config.getBeatmapPath())) {
             return;
@@ -76,6 +79,7 @@ public class LibraryManager {
 
         currentIndex = 0;
         library = DatabaseManager.getBeatmapInfoTable().getBeatmapSetList();
+        index.rebuild(library);
 
         DifficultyCalculationManager.calculateDifficulties();
     }
@@ -121,7 +125,81 @@ public class LibraryManager {
     public static void deleteBeatmapSet(BeatmapSetInfo beatmapSet) {
         FilesKt.deleteRecursively(new File(beatmapSet.getPath()));
         DatabaseManager.getBeatmapInfoTable().deleteBeatmapSet(beatmapSet.getDirectory());
-        loadLibrary();
+        removeFromLibrary(beatmapSet.getDirectory());
+    }
+
+    /**
+     * Imports a single beatmap set directory into the database and reloads the library, used after a beatmap set was
+     * downloaded instead of scanning the whole beatmap directory.
+     */
+    public static void importBeatmapSet(File directory) {
+
+        synchronized (pendingBeatmaps) {
+            scanBeatmapSetFolder(directory);
+
+            try {
+                DatabaseManager.getBeatmapInfoTable().insertAll(pendingBeatmaps);
+
+                if (!pendingBeatmaps.isEmpty()) {
+                    DatabaseManager.getScoreInfoTable().resetUnavailablePerformance();
+                }
+            } catch (Exception e) {
+                Log.e("LibraryManager", "Failed to insert beatmaps into database.", e);
+            }
+
+            pendingBeatmaps.clear();
+        }
+
+        var beatmapSet = DatabaseManager.getBeatmapInfoTable().getBeatmapSet(directory.getName());
+
+        // The beatmap set may be imported again after being updated, in which case it replaces the previous entry.
+        removeFromLibrary(directory.getName());
+
+        if (beatmapSet != null) {
+            addToLibrary(beatmapSet);
+        }
+
+        DifficultyCalculationManager.calculateDifficulties();
+    }
+
+    /**
+     * Adds a beatmap set to the library without reloading it from the database.
+     * <br>
+     * The library is copied rather than modified so that it can still be iterated by other threads.
+     */
+    private static void addToLibrary(BeatmapSetInfo beatmapSet) {
+
+        synchronized (index) {
+            var newLibrary = new ArrayList<>(library);
+            newLibrary.add(beatmapSet);
+
+            library = newLibrary;
+            index.add(beatmapSet);
+        }
+    }
+
+    /**
+     * Removes a beatmap set from the library without reloading it from the database.
+     */
+    private static void removeFromLibrary(String directory) {
+
+        synchronized (index) {
+            var beatmapSet = index.getBeatmapSet(directory);
+
+            if (beatmapSet == null) {
+                return;
+            }
+
+            var newLibrary = new ArrayList<>(library);
+            newLibrary.remove(beatmapSet);
+
+            library = newLibrary;
+            index.remove(beatmapSet);
+
+            if (currentIndex >= library.size()) {
+                currentIndex = 0;
+            }
+        }
     }
 
     private static void scanBeatmapSetFolder(File directory) {
@@ -183,6 +261,7 @@ public class LibraryManager {
 
     public static void shuffleLibrary() {
         Collections.shuffle(library);
+        index.invalidatePositions();
         currentIndex = 0;
     }
 
@@ -219,16 +298,7 @@ public class LibraryManager {
 
 
     public static void findBeatmapSetIndex(BeatmapInfo info) {
-
-        for (int i = 0; i < library.size(); i++) {
-
-            if (library.get(i).getDirectory().equals(info.getSetDirectory())) {
-                currentIndex = i;
-                return;
-            }
-        }
-
-        currentIndex = 0;
+        currentIndex = Math.max(0, index.getPosition(library, info.getSetDirectory()));
     }
 
 
@@ -239,19 +309,7 @@ public class LibraryManager {
             return null;
         }
 
-        for (int i = library.size() - 1; i >= 0; i--) {
-            var beatmaps = library.get(i).getBeatmaps();
-
-            for (int j = beatmaps.size() - 1; j >= 0; j--) {
-                var beatmap = beatmaps.get(j);
-
-                if (md5.equals(beatmap.getMD5())) {
-                    return beatmap;
-                }
-            }
-        }
-
-        return null;
+        return index.getBeatmap(md5);
     }
 
 
@@ -327,6 +385,11 @@ public class LibraryManager {
 
             try {
                 DatabaseManager.getBeatmapInfoTable().insertAll(pendingBeatmaps);
+
+                if (!pendingBeatmaps.isEmpty()) {
+                    DatabaseManager.getScoreInfoTable().resetUnavailablePerformance();
+                }
+
                 pendingBeatmaps.clear();
             } catch (Exception e) {
                 Log.e("LibraryManager", "Failed to insert beatmaps into database.", e);
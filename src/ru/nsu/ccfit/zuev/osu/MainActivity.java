@@ -43,6 +43,8 @@ import com.google.firebase.crashlytics.FirebaseCrashlytics;
 import com.reco1l.ibancho.LobbyAPI;
 import com.reco1l.osu.AccessibilityDetector;
 import com.reco1l.osu.DifficultyCalculationManager;
+import com.reco1l.osu.PerformanceCalculationManager;
+import com.reco1l.osu.beatmaplisting.BeatmapDownloader;
 import com.reco1l.osu.data.BeatmapInfo;
 import com.reco1l.osu.Execution;
 import com.reco1l.osu.multiplayer.Multiplayer;
@@ -51,6 +53,7 @@ import com.reco1l.osu.multiplayer.LobbyScene;
 import com.reco1l.osu.multiplayer.RoomScene;
 
 import com.rian.osu.difficulty.BeatmapDifficultyCalculator;
+import com.rian.osu.utils.FrameProfiler;
 import net.lingala.zip4j.ZipFile;
 
 import org.anddev.andengine.engine.Engine;
@@ -77,6 +80,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import javax.microedition.khronos.opengles.GL10;
+
 import ru.nsu.ccfit.zuev.audio.serviceAudio.SaveServiceObject;
 import ru.nsu.ccfit.zuev.audio.serviceAudio.SongService;
 import ru.nsu.ccfit.zuev.osu.helper.FileUtils;
@@ -156,7 +161,28 @@ public class MainActivity extends BaseGameActivity implements
         opt.setNeedsSound(true);
         opt.getRenderOptions().disableExtensionVertexBufferObjects();
         opt.getTouchOptions().enableRunOnUpdateThread();
-        final Engine engine = new Engine(opt);
+        final Engine engine = new Engine(opt) {
+            @Override
+            protected void onUpdate(long pNanosecondsElapsed) throws InterruptedException {
+                var profiler = FrameProfiler.getInstance();
+
+                profiler.begin(FrameProfiler.Section.Update);
+                super.onUpdate(pNanosecondsElapsed);
+                profiler.end(FrameProfiler.Section.Update);
+            }
+
+            @Override
+            protected void onDrawScene(GL10 pGL) {
+                var profiler = FrameProfiler.getInstance();
+
+                profiler.begin(FrameProfiler.Section.Draw);
+                super.onDrawScene(pGL);
+                profiler.end(FrameProfiler.Section.Draw);
+
+                // Update and draw run one after the other, so a frame ends once it's drawn.
+                profiler.endFrame();
+            }
+        };
 
         if (!MultiTouch.isSupported(this)) {
             // Warning player that they will have to single tap forever.
@@ -298,6 +324,7 @@ public class MainActivity extends BaseGameActivity implements
             checkNewSkins();
             Config.loadSkins();
             DifficultyCalculationManager.checkForOutdatedStarRatings();
+            PerformanceCalculationManager.checkForOutdatedPerformance();
             loadBeatmapLibrary();
 
             SplashScene.INSTANCE.playWelcomeAnimation();
@@ -465,6 +492,8 @@ public class MainActivity extends BaseGameActivity implements
             }
         }
 
+        BeatmapDownloader.deleteLeftovers();
+
         LibraryManager.scanDirectory();
         LibraryManager.loadLibrary();
     }
@@ -53,7 +53,6 @@ import org.anddev.andengine.util.modifier.ease.EaseCubicOut;
 import org.anddev.andengine.util.modifier.ease.EaseElasticOut;
 import org.anddev.andengine.util.modifier.ease.EaseExponentialOut;
 
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.TimerTask;
 import java.util.concurrent.Executors;
@@ -63,7 +62,9 @@ import java.util.concurrent.TimeUnit;
 import javax.microedition.khronos.opengles.GL10;
 
 import ru.nsu.ccfit.zuev.audio.BassSoundProvider;
+import ru.nsu.ccfit.zuev.audio.SpectrumAnalyzer;
 import ru.nsu.ccfit.zuev.audio.Status;
+import ru.nsu.ccfit.zuev.audio.serviceAudio.BassAudioFunc;
 import ru.nsu.ccfit.zuev.osu.game.LinearSongProgress;
 import ru.nsu.ccfit.zuev.osu.online.OnlineManager;
 import ru.nsu.ccfit.zuev.osu.online.OnlinePanel;
@@ -85,9 +86,10 @@ public class MainScene implements IUpdateHandler {
     private Scene scene;
     private ChangeableText musicInfoText;
     private final Rectangle[] spectrum = new Rectangle[120];
-    private final float[] peakLevel = new float[120];
-    private final float[] peakDownRate = new float[120];
-    private final float[] peakAlpha = new float[120];
+    private final SpectrumAnalyzer spectrumAnalyzer = new SpectrumAnalyzer(destination -> {
+        var songService = GlobalManager.getInstance().getSongService();
+        return songService != null && songService.getSpectrum(destination);
+    }, 120, BassAudioFunc.WINDOW_FFT >> 1, 240);
     private LinkedList<TimingControlPoint> timingControlPoints;
     private LinkedList<EffectControlPoint> effectControlPoints;
     private TimingControlPoint currentTimingPoint;
@@ -723,37 +725,10 @@ public class MainScene implements IUpdateHandler {
                     particleEnabled = false;
                 }
 
-                int windowSize = 240;
-                int spectrumWidth = 120;
-                float[] fft = GlobalManager.getInstance().getSongService().getSpectrum();
-                if (fft == null) return;
-                for (int i = 0, leftBound = 0; i < spectrumWidth; i++) {
-                    float peak = 0;
-                    int rightBound = (int) Math.pow(2., i * 9. / (windowSize - 1));
-                    if (rightBound <= leftBound) rightBound = leftBound + 1;
-                    if (rightBound > 511) rightBound = 511;
-
-                    for (; leftBound < rightBound; leftBound++) {
-                        if (peak < fft[1 + leftBound])
-                            peak = fft[1 + leftBound];
-                    }
-
-                    float initialAlpha = 0.4f;
-                    float gradient = 20;
-                    float currPeakLevel = peak * 500;
-
-                    if (currPeakLevel > peakLevel[i]) {
-                        peakLevel[i] = currPeakLevel;
-                        peakDownRate[i] = peakLevel[i] / gradient;
-                        peakAlpha[i] = initialAlpha;
-
-                    } else {
-                        peakLevel[i] = Math.max(peakLevel[i] - peakDownRate[i], 0f);
-                        peakAlpha[i] = Math.max(peakAlpha[i] - initialAlpha / gradient, 0f);
-                    }
-
-                    spectrum[i].setWidth(250f + peakLevel[i]);
-                    spectrum[i].setAlpha(peakAlpha[i]);
+                var bands = spectrumAnalyzer.getBands();
+                for (int i = 0; i < spectrum.length; i++) {
+                    spectrum[i].setWidth(250f + bands.getLevel(i) * 500);
+                    spectrum[i].setAlpha(bands.getAlpha(i));
                 }
             } else {
                 for (Rectangle specRectangle : spectrum) {
@@ -853,9 +828,7 @@ public class MainScene implements IUpdateHandler {
             }
         }
 
-        Arrays.fill(peakLevel, 0f);
-        Arrays.fill(peakDownRate, 1f);
-        Arrays.fill(peakAlpha, 0f);
+        spectrumAnalyzer.reset();
 
         try (var parser = new BeatmapParser(beatmapInfo.getPath())) {
             var beatmap = parser.parse(false);
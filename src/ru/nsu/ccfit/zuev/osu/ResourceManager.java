@@ -16,8 +16,10 @@ import org.anddev.andengine.engine.Engine;
 import org.anddev.andengine.opengl.font.Font;
 import org.anddev.andengine.opengl.font.FontFactory;
 import org.anddev.andengine.opengl.font.StrokeFont;
+import org.anddev.andengine.opengl.texture.ITexture;
 import org.anddev.andengine.opengl.texture.TextureOptions;
 import org.anddev.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlas;
+import org.anddev.andengine.opengl.texture.atlas.bitmap.source.IBitmapTextureAtlasSource;
 import org.anddev.andengine.opengl.texture.region.TextureRegion;
 import org.anddev.andengine.opengl.texture.region.TextureRegionFactory;
 import org.anddev.andengine.util.Debug;
@@ -27,6 +29,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -41,6 +44,7 @@ import ru.nsu.ccfit.zuev.osu.helper.FileUtils;
 import ru.nsu.ccfit.zuev.osu.helper.MD5Calculator;
 import ru.nsu.ccfit.zuev.osu.helper.QualityAssetBitmapSource;
 import ru.nsu.ccfit.zuev.osu.helper.QualityFileBitmapSource;
+import ru.nsu.ccfit.zuev.osu.helper.TextureAtlasBuilder;
 import ru.nsu.ccfit.zuev.osu.online.OnlineManager;
 import ru.nsu.ccfit.zuev.osuplus.BuildConfig;
 import ru.nsu.ccfit.zuev.skins.OsuSkin;
@@ -79,6 +83,28 @@ public class ResourceManager {
         "sliderfollowcircle-"
     };
 
+    /**
+     * The prefixes of the gameplay textures that are packed into shared atlases, these are drawn together every frame
+     * so keeping them in a few pages saves a texture bind per element.
+     */
+    private static final String[] ATLAS_TEXTURES = {
+        "approachcircle",
+        "default-",
+        "followpoint",
+        "hit0",
+        "hit100",
+        "hit300",
+        "hit50",
+        "hitcircle",
+        "lighting",
+        "reversearrow",
+        "sliderb",
+        "sliderendcircle",
+        "sliderfollowcircle",
+        "sliderscorepoint",
+        "sliderstartcircle",
+    };
+
     /**
      * <h2>Explanation</h2>
      * <p>
@@ -103,6 +129,19 @@ public class ResourceManager {
     private final Map<String, TextureRegion> customTextures = new HashMap<>();
     private final Map<String, BassSoundProvider> customSounds = new HashMap<>();
 
+    /**
+     * The atlas pages shared by the textures of the current skin and the current beatmap skin respectively. Unloading a
+     * single texture from these must not unload its page, the pages are unloaded as a whole when the skin changes.
+     */
+    private final Set<ITexture> skinAtlasPages = new HashSet<>();
+    private final Set<ITexture> customAtlasPages = new HashSet<>();
+
+    /**
+     * The builders collecting the textures to pack while a skin or a beatmap skin is being loaded.
+     */
+    private TextureAtlasBuilder skinAtlasBuilder;
+    private TextureAtlasBuilder customAtlasBuilder;
+
     private Engine engine;
     private Context context;
 
@@ -130,6 +169,11 @@ public class ResourceManager {
         customTextures.clear();
         customFrameCount.clear();
 
+        skinAtlasPages.clear();
+        customAtlasPages.clear();
+        skinAtlasBuilder = null;
+        customAtlasBuilder = null;
+
         initSecurityUtils();
     }
 
@@ -249,6 +293,8 @@ public class ResourceManager {
         frameCount.clear();
         customFrameCount.clear();
 
+        skinAtlasBuilder = new TextureAtlasBuilder(TextureOptions.BILINEAR);
+
         try {
 
             String[] availableAnimatableFilenames = filter(availableFiles.keySet().toArray(new String[0]), f -> any(ANIMATABLE_TEXTURES, f::startsWith)).toArray(new String[0]);
@@ -319,6 +365,8 @@ public class ResourceManager {
 
         } catch (final IOException e) {
             Debug.e("Resources: " + e.getMessage(), e);
+        } finally {
+            buildSkinAtlas();
         }
 
         try {
@@ -352,6 +400,44 @@ public class ResourceManager {
             textures.put("lighting", null);
     }
 
+    /**
+     * Packs the gameplay textures collected while loading the skin and releases the pages of the previous skin.
+     */
+    private void buildSkinAtlas() {
+
+        var builder = skinAtlasBuilder;
+        skinAtlasBuilder = null;
+
+        var previousPages = new HashSet<>(skinAtlasPages);
+        skinAtlasPages.clear();
+        skinAtlasPages.addAll(builder.build(engine.getTextureManager()));
+
+        // Regions of the previous skin that weren't replaced by the new one would point to an unloaded page.
+        textures.values().removeIf(region -> region != null && previousPages.contains(region.getTexture()));
+
+        for (var page : previousPages) {
+            engine.getTextureManager().unloadTexture(page);
+        }
+    }
+
+    private static boolean isAtlasTexture(String name) {
+        return any(ATLAS_TEXTURES, name::startsWith);
+    }
+
+    private boolean isAtlasPage(ITexture texture) {
+        return skinAtlasPages.contains(texture) || customAtlasPages.contains(texture);
+    }
+
+    /**
+     * Whether a texture is loaded or waiting to be packed into an atlas.
+     */
+    private boolean hasTexture(String name, boolean isBeatmapSkin) {
+        if (isBeatmapSkin) {
+            return customTextures.containsKey(name) || customAtlasBuilder != null && customAtlasBuilder.contains(name);
+        }
+        return textures.containsKey(name) || skinAtlasBuilder != null && skinAtlasBuilder.contains(name);
+    }
+
     /**
      * Parses the frame count from the filename and updates the customFrameCount map.
      *
@@ -382,13 +468,12 @@ public class ResourceManager {
             frameIndex = Integer.parseInt(values.get(2));
         }
 
-        var skinTextures = isBeatmapSkin ? customTextures : textures;
         var skinFrameCount = isBeatmapSkin ? customFrameCount : frameCount;
 
         if (result == null || checkFirstFrameExists
-                && !skinTextures.containsKey(textureName)
-                && !skinTextures.containsKey(textureName + "-0")
-                && !skinTextures.containsKey(textureName + "0")) {
+                && !hasTexture(textureName, isBeatmapSkin)
+                && !hasTexture(textureName + "-0", isBeatmapSkin)
+                && !hasTexture(textureName + "0", isBeatmapSkin)) {
             skinFrameCount.remove(textureName);
             return -1;
         }
@@ -491,6 +576,14 @@ public class ResourceManager {
         return region;
     }
 
+    /**
+     * Loads a texture and stores it under a name.
+     *
+     * @return The region of the texture, a {@link BlankTextureRegion} if the file doesn't exist, or {@code null} if it
+     * couldn't be decoded. {@code null} is also returned for gameplay textures loaded while a skin is being loaded,
+     * since they're deferred to the skin atlas; their region is available through {@link #getTexture(String)} once
+     * the skin is loaded.
+     */
     public TextureRegion loadTexture(final String resname, final String file,
                                      final boolean external, final TextureOptions opt, Engine engine) {
         TextureRegion region;
@@ -515,10 +608,7 @@ public class ResourceManager {
                 return null;
             }
 
-            final BitmapTextureAtlas tex = new BitmapTextureAtlas(source.getWidth(), source.getHeight(), opt);
-            region = TextureRegionFactory.createFromSource(tex, source, 0, 0, false);
-            engine.getTextureManager().loadTexture(tex);
-            textures.put(resname, region);
+            region = createTexture(resname, source, opt, engine);
         } else {
             final QualityAssetBitmapSource source;
 
@@ -531,12 +621,27 @@ public class ResourceManager {
             if (source.getWidth() == 0 || source.getHeight() == 0 || !source.preload()) {
                 return null;
             }
-            final BitmapTextureAtlas tex = new BitmapTextureAtlas(source.getWidth(), source.getHeight(), opt);
-            region = TextureRegionFactory.createFromSource(tex, source, 0, 0, false);
-            engine.getTextureManager().loadTexture(tex);
-            textures.put(resname, region);
+            region = createTexture(resname, source, opt, engine);
+        }
+
+        return region;
+    }
+
+    /**
+     * Creates the texture in an atlas of its own, or defers it to the skin atlas if it's a gameplay texture and a skin
+     * is being loaded, in which case {@code null} is returned and the region is available once the skin is loaded.
+     */
+    private TextureRegion createTexture(final String resname, final IBitmapTextureAtlasSource source,
+                                        final TextureOptions opt, Engine engine) {
+        if (skinAtlasBuilder != null && opt == TextureOptions.BILINEAR && isAtlasTexture(resname)) {
+            skinAtlasBuilder.add(resname, source, region -> textures.put(resname, region));
+            return null;
         }
 
+        final BitmapTextureAtlas tex = new BitmapTextureAtlas(source.getWidth(), source.getHeight(), opt);
+        TextureRegion region = TextureRegionFactory.createFromSource(tex, source, 0, 0, false);
+        engine.getTextureManager().loadTexture(tex);
+        textures.put(resname, region);
         return region;
     }
 
@@ -766,9 +871,43 @@ public class ResourceManager {
         if (!source.preload()) {
             return;
         }
+
+        if (customAtlasBuilder != null && isAtlasTexture(resname)) {
+            final String name = resname;
+            final boolean isMultiframe = multiframe;
+            final String frameDelimiter = delimiter;
+
+            customAtlasBuilder.add(name, source, region -> putCustomTexture(name, isMultiframe, frameDelimiter, region));
+            return;
+        }
+
         BitmapTextureAtlas tex = new BitmapTextureAtlas(source.getWidth(), source.getHeight(), TextureOptions.BILINEAR);
         TextureRegion region = TextureRegionFactory.createFromSource(tex, source, 0, 0, false);
         engine.getTextureManager().loadTexture(tex);
+        putCustomTexture(resname, multiframe, delimiter, region);
+    }
+
+    /**
+     * Starts collecting the gameplay textures of a beatmap skin to pack them into shared atlases,
+     * {@link #endCustomTextureAtlas()} must be called once all textures were passed to {@link #loadCustomTexture(File)}.
+     */
+    public void beginCustomTextureAtlas() {
+        customAtlasBuilder = new TextureAtlasBuilder(TextureOptions.BILINEAR);
+    }
+
+    /**
+     * Packs the gameplay textures collected since {@link #beginCustomTextureAtlas()} was called.
+     */
+    public void endCustomTextureAtlas() {
+        var builder = customAtlasBuilder;
+        customAtlasBuilder = null;
+
+        if (builder != null) {
+            customAtlasPages.addAll(builder.build(engine.getTextureManager()));
+        }
+    }
+
+    private void putCustomTexture(String resname, boolean multiframe, String delimiter, TextureRegion region) {
         if (multiframe) {
             int i = 0;
             while (textures.containsKey(resname + delimiter + i)) {
@@ -802,15 +941,19 @@ public class ResourceManager {
 
     public void unloadTexture(final String name) {
         if (textures.get(name) != null) {
-            engine.getTextureManager().unloadTexture(
-                    Objects.requireNonNull(textures.get(name)).getTexture());
+            var texture = Objects.requireNonNull(textures.get(name)).getTexture();
+            if (!isAtlasPage(texture)) {
+                engine.getTextureManager().unloadTexture(texture);
+            }
             textures.remove(name);
             Debug.i("Texture \"" + name + "\"unloaded");
         }
     }
 
     public void unloadTexture(TextureRegion texture) {
-        engine.getTextureManager().unloadTexture(texture.getTexture());
+        if (!isAtlasPage(texture.getTexture())) {
+            engine.getTextureManager().unloadTexture(texture.getTexture());
+        }
 
         List<String> toRemove = new ArrayList<>();
 
@@ -833,15 +976,18 @@ public class ResourceManager {
         for (final BassSoundProvider s : customSounds.values()) {
             s.free();
         }
-        final Set<String> texnames = customTextures.keySet();
-        for (final String s : texnames) {
-            TextureRegion tex = customTextures.get(s);
+        // Several regions share the same texture when they're aliases or packed into an atlas, each texture must only be unloaded once.
+        final Set<ITexture> loadedTextures = new HashSet<>();
+        for (final TextureRegion tex : customTextures.values()) {
             if (tex != null && tex.getTexture() != null && tex.getTexture().isLoadedToHardware()) {
-                engine.getTextureManager().unloadTexture(tex.getTexture());
-                // engine.getTextureManager().loadTexture(textures.get(s).getTexture());
+                loadedTextures.add(tex.getTexture());
             }
         }
+        for (final ITexture texture : loadedTextures) {
+            engine.getTextureManager().unloadTexture(texture);
+        }
         customTextures.clear();
+        customAtlasPages.clear();
         customSounds.clear();
         customFrameCount.clear();
     }
@@ -73,6 +73,16 @@ public class BreakAnimator extends GameObject {
     }
 
     public void init(final float length) {
+        init(length, 0);
+    }
+
+    /**
+     * Starts a break that has already been going on for some time, as when seeking into it.
+     *
+     * @param length The length of the break, in seconds.
+     * @param elapsed The time since the break started, in seconds.
+     */
+    public void init(final float length, final float elapsed) {
         if (this.length > 0 && time < this.length) {
             return;
         }
@@ -104,6 +114,43 @@ public class BreakAnimator extends GameObject {
             mark.setScale(1.2f);
             scene.attachChild(mark, 0);
         }
+
+        if (elapsed > 0) {
+            // The transitions that were already passed are skipped, only their end state is restored.
+            time = elapsed;
+
+            if (length - time <= 1) {
+                for (final Sprite sp : arrows) {
+                    sp.setVisible(true);
+                    sp.setIgnoreUpdate(false);
+                }
+            }
+
+            if (length > 1) {
+                setBgFade(Math.min(1, Math.min(time, length - time) * 2));
+            }
+        }
+    }
+
+    /**
+     * Ends the current break immediately without it being reported as over.
+     */
+    public void reset() {
+        if (isbreak) {
+            resumeBgFade();
+            if (mark != null) {
+                mark.detachSelf();
+            }
+            for (final Sprite sp : arrows) {
+                sp.detachSelf();
+            }
+            passfail.detachSelf();
+        }
+
+        isbreak = false;
+        over = false;
+        length = 0;
+        time = 0;
     }
 
     private void setBgFade(float percent) {
@@ -55,6 +55,11 @@ public abstract class GameObject {
 
     public void tryHit(float dt) {}
 
+    /**
+     * Removes this object from the scene without judging it, e.g. when seeking a replay.
+     */
+    public void release() {}
+
     public PointF getPosition() {
         return position;
     }
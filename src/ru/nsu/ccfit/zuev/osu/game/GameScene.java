@@ -20,6 +20,7 @@ import com.edlplan.framework.utils.functionality.SmartIterator;
 import com.reco1l.andengine.modifier.UniversalModifier;
 import com.reco1l.ibancho.RoomAPI;
 import com.reco1l.osu.DifficultyCalculationManager;
+import com.reco1l.osu.PerformanceCalculationManager;
 import com.reco1l.osu.data.BeatmapInfo;
 import com.reco1l.osu.Execution;
 import com.reco1l.osu.data.DatabaseManager;
@@ -30,7 +31,8 @@ import com.reco1l.andengine.Modifiers;
 import com.reco1l.andengine.Anchor;
 import com.reco1l.andengine.sprite.VideoSprite;
 import com.reco1l.andengine.ExtendedScene;
-import com.reco1l.osu.hitobjects.FollowPointConnection;
+import com.reco1l.osu.hitobjects.FollowPointLayout;
+import com.reco1l.osu.hitobjects.FollowPointRenderer;
 import com.reco1l.osu.playfield.GameplayHUD;
 import com.reco1l.osu.playfield.ProgressIndicatorType;
 import com.reco1l.osu.hitobjects.SliderTickSprite;
@@ -54,7 +56,10 @@ import com.rian.osu.difficulty.attributes.DroidDifficultyAttributes;
 import com.rian.osu.difficulty.attributes.StandardDifficultyAttributes;
 import com.rian.osu.difficulty.attributes.TimedDifficultyAttributes;
 import com.rian.osu.difficulty.calculator.DifficultyCalculationParameters;
+import com.rian.osu.gameplay.GameplayHitSampleInfo;
 import com.rian.osu.ui.FPSCounter;
+import com.rian.osu.ui.FrameProfilerOverlay;
+import com.rian.osu.utils.FrameProfiler;
 import com.rian.osu.utils.ModUtils;
 
 import org.anddev.andengine.engine.Engine;
@@ -78,6 +83,8 @@ import org.anddev.andengine.util.Debug;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CancellationException;
 
@@ -104,9 +111,13 @@ import ru.nsu.ccfit.zuev.osu.helper.StringTable;
 import ru.nsu.ccfit.zuev.osu.menu.LoadingScreen;
 import ru.nsu.ccfit.zuev.osu.menu.ModMenu;
 import ru.nsu.ccfit.zuev.osu.menu.PauseMenu;
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoard;
 import ru.nsu.ccfit.zuev.osu.menu.ScoreBoardItem;
 import ru.nsu.ccfit.zuev.osu.online.OnlineFileOperator;
+import ru.nsu.ccfit.zuev.osu.scoring.HitJudgement;
 import ru.nsu.ccfit.zuev.osu.scoring.Replay;
+import ru.nsu.ccfit.zuev.osu.scoring.ReplaySeekIndex;
+import ru.nsu.ccfit.zuev.osu.scoring.ReplayStatisticReconstructor;
 import ru.nsu.ccfit.zuev.osu.scoring.ResultType;
 import ru.nsu.ccfit.zuev.osu.scoring.ScoringScene;
 import ru.nsu.ccfit.zuev.osu.scoring.StatisticV2;
@@ -137,13 +148,14 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
     private float leadOut = 0;
     private LinkedList<HitObject> objects;
     private ArrayList<RGBColor> comboColors;
-    private boolean comboWasMissed = false;
-    private boolean comboWas100 = false;
+    private final HitJudgement hitJudgement = new HitJudgement();
     private LinkedList<GameObject> activeObjects;
     private LinkedList<GameObject> expiredObjects;
     private Queue<BreakPeriod> breakPeriods = new LinkedList<>();
     public GameplayLeaderboard scoreBoard;
     private HitErrorMeter hitErrorMeter;
+    private FollowPointLayout followPointLayout;
+    private FollowPointRenderer followPointRenderer;
     private Metronome metronome;
     private float scale;
     private float objectTimePreempt;
@@ -164,6 +176,8 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
     private Replay replay;
     private boolean replaying;
     private String replayFilePath;
+    private ReplaySeekIndex replaySeekIndex;
+    private ReplayStatisticReconstructor replayStatisticReconstructor;
     private float offsetSum;
     private int offsetRegs;
     private Rectangle dimRectangle = null;
@@ -171,8 +185,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
     private int failcount = 0;
     private RGBColor sliderBorderColor;
     private float lastActiveObjectHitTime = 0;
-    private SliderPath[] sliderPaths = null;
-    private LinePath[] sliderRenderPaths = null;
+    private SliderPathPipeline sliderPathPipeline = null;
     private int sliderIndex = 0;
 
     private StoryboardSprite storyboardSprite;
@@ -191,6 +204,8 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
     private ChangeableText urText;
     private ChangeableText memText;
 
+    private final FrameProfiler profiler = FrameProfiler.getInstance();
+
     // Game
 
     /**
@@ -443,6 +458,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
         // TODO skin manager
         BeatmapSkinManager.getInstance().loadBeatmapSkin(playableBeatmap.getBeatmapsetPath());
+        GameplayHitSampleInfo.preload(playableBeatmap);
 
         breakPeriods = new LinkedList<>();
         for (var period : playableBeatmap.getEvents().breaks) {
@@ -551,7 +567,10 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
         JobKt.ensureActive(scope.getCoroutineContext());
 
-        FollowPointConnection.getPool().renew(16);
+        followPointLayout = FollowPointLayout.create(playableBeatmap.getHitObjects().objects);
+
+        JobKt.ensureActive(scope.getCoroutineContext());
+
         SliderTickSprite.getPool().renew(16);
         UniversalModifier.GlobalPool.renew(24);
 
@@ -560,6 +579,8 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         offsetRegs = 0;
 
         replaying = false;
+        replaySeekIndex = null;
+        replayStatisticReconstructor = null;
         replay = new Replay(true);
         replay.setObjectCount(objects.size());
         replay.setBeatmap(beatmapInfo.getFullBeatmapsetName(), beatmapInfo.getFullBeatmapName(), parsedBeatmap.getMd5());
@@ -571,6 +592,11 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
                 return false;
             }
             GameHelper.setReplayVersion(replay.replayVersion);
+
+            replaySeekIndex = new ReplaySeekIndex(replay.cursorMoves);
+            replayStatisticReconstructor = new ReplayStatisticReconstructor(
+                playableBeatmap, replay.objectData, objectTimePreempt, replay.replayVersion
+            );
         } else if (modMenu.getMod().contains(GameMod.MOD_AUTO)) {
             replay = null;
         }
@@ -609,7 +635,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         sliderIndex = 0;
 
         // Mod changes may require recalculating slider paths (i.e. Hard Rock)
-        if (sliderPaths == null || sliderRenderPaths == null || (shouldParseBeatmap && !sameParameters)) {
+        if (sliderPathPipeline == null || (shouldParseBeatmap && !sameParameters)) {
             calculateAllSliderPaths(scope);
         }
 
@@ -677,6 +703,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
         loadingJob = Execution.async((scope) -> {
             DifficultyCalculationManager.stopCalculation();
+            PerformanceCalculationManager.stopCalculation();
 
             boolean succeeded = false;
 
@@ -814,6 +841,15 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             counterTexts.add(memText);
         }
 
+        profiler.clear();
+        profiler.setEnabled(Config.isShowFrameProfiler());
+
+        if (Config.isShowFrameProfiler()) {
+            var profilerOverlay = new FrameProfilerOverlay(counterTextFont, profiler);
+            profilerOverlay.setPosition(10, Config.getRES_HEIGHT() - 180);
+            hud.attachChild(profilerOverlay);
+        }
+
         updateCounterTexts();
 
         // Attach the counter texts
@@ -830,8 +866,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
         Arrays.fill(cursorIIsDown, false);
 
-        comboWas100 = false;
-        comboWasMissed = false;
+        hitJudgement.reset();
         previousFrameTime = 0;
 
         firstObjectStartTime = (float) objects.peek().startTime / 1000;
@@ -901,6 +936,10 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             }
         }
 
+        followPointRenderer = new FollowPointRenderer(followPointLayout);
+        followPointRenderer.setTime(elapsedTime);
+        bgScene.attachChild(followPointRenderer, 0);
+
         if (Config.getErrorMeter() == 1 || (Config.getErrorMeter() == 2 && replaying)) {
             hitErrorMeter = new HitErrorMeter(hud, new PointF(Config.getRES_WIDTH() / 2f, Config.getRES_HEIGHT() - 20), playableBeatmap.getDifficulty().od, 12, difficultyHelper);
         }
@@ -1032,13 +1071,24 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
     @Override
     public void onUpdate(final float pSecondsElapsed) {
+        profiler.begin(FrameProfiler.Section.Gameplay);
+        try {
+            updateGameplay(pSecondsElapsed);
+        } finally {
+            profiler.end(FrameProfiler.Section.Gameplay);
+        }
+    }
+
+    private void updateGameplay(final float pSecondsElapsed) {
         previousFrameTime = SystemClock.uptimeMillis();
 
         float dt = pSecondsElapsed;
         if (GlobalManager.getInstance().getSongService().getStatus() == Status.PLAYING) {
             //处理时间差过于庞大的情况
+            profiler.begin(FrameProfiler.Section.Audio);
             final float realsecPassed = //Config.isSyncMusic() ?
                     GlobalManager.getInstance().getSongService().getPosition() / 1000.0f;// : realTime;
+            profiler.end(FrameProfiler.Section.Audio);
             final float criticalError = Config.isSyncMusic() ? 0.1f : 0.5f;
             final float normalError = Config.isSyncMusic() ? dt : 0.05f;
 
@@ -1056,7 +1106,9 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             elapsedTime += dt;
         }
 
+        profiler.begin(FrameProfiler.Section.HUD);
         updateCounterTexts();
+        profiler.end(FrameProfiler.Section.HUD);
 
         if (Multiplayer.isMultiplayer)
         {
@@ -1076,7 +1128,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
                     if (!Objects.equals(liveScore, lastScoreSent))
                     {
                         lastScoreSent = liveScore;
-                        Execution.async(() -> Execution.runSafe(() -> RoomAPI.submitLiveScore(lastScoreSent.toJson())));
+                        Execution.async(() -> Execution.runSafe(() -> RoomAPI.submitLiveScore(liveScore)));
                     }
                 }
             }
@@ -1086,7 +1138,9 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
         if (Config.isEnableStoryboard()) {
             if (storyboardSprite != null) {
+                profiler.begin(FrameProfiler.Section.Storyboard);
                 storyboardSprite.updateTime(mSecPassed);
+                profiler.end(FrameProfiler.Section.Storyboard);
             }
         }
 
@@ -1234,11 +1288,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         }
 
         if (gameStarted) {
-            double rate = 0.375;
-            if (playableBeatmap.getDifficulty().hp > 0 && distToNextObject > 0) {
-                rate = 1 + playableBeatmap.getDifficulty().hp / (2 * distToNextObject);
-            }
-            stat.changeHp((float) -rate * 0.01f * dt);
+            stat.changeHp(-HitJudgement.getDrainRate(playableBeatmap.getDifficulty().hp, distToNextObject) * dt);
 
             if (stat.getHp() <= 0 && stat.canFail) {
                 if (GameHelper.isEasy() && failcount < 3) {
@@ -1262,6 +1312,10 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             hitErrorMeter.update(dt);
         }
 
+        if (followPointRenderer != null) {
+            followPointRenderer.setTime(elapsedTime);
+        }
+
         if (comboBurst != null) {
             if (stat.getCombo() == 0) {
                 comboBurst.breakCombo();
@@ -1276,6 +1330,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             activeObjects.remove(object);
         }
 
+        profiler.begin(FrameProfiler.Section.HitObjects);
         updatePassiveObjects(dt);
         if (Config.isRemoveSliderLock()) {
             updateLastActiveObjectHitTime();
@@ -1302,6 +1357,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         } else {
             tryHitActiveObjects(dt);
         }
+        profiler.end(FrameProfiler.Section.HitObjects);
 
         if (video != null && elapsedTime >= videoOffset)
         {
@@ -1364,7 +1420,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
                 }
 
             } else if (obj instanceof Spinner parsedSpinner) {
-                final float rps = 2 + 2 * playableBeatmap.getDifficulty().od / 10f;
+                final float rps = HitJudgement.getSpinnerRotationsPerSecond(playableBeatmap.getDifficulty().od);
                 final var gameplaySpinner = GameObjectPool.getInstance().getSpinner();
 
                 gameplaySpinner.init(this, bgScene, parsedSpinner, rps, stat);
@@ -1399,10 +1455,6 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
                         gameplaySlider.getReplayData().tickSet = new BitSet();
                 }
             }
-
-            if (!(obj instanceof Spinner) && nextObj != null && !(nextObj instanceof Spinner) && !obj.isLastInCombo()) {
-                FollowPointConnection.addConnection(bgScene, elapsedTime, obj, nextObj);
-            }
         }
 
         // 节拍器
@@ -1420,6 +1472,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         if (shouldBePunished || (objects.isEmpty() && activeObjects.isEmpty() && leadOut > 2)) {
             scene = new ExtendedScene();
             engine.getCamera().setHUD(null);
+            GameplayHitSampleInfo.release();
             BeatmapSkinManager.setSkinEnabled(false);
             GameObjectPool.getInstance().purge();
             timingControlPoints.clear();
@@ -1433,10 +1486,17 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             lastDifficultyCalculationParameters = null;
             droidTimedDifficultyAttributes = null;
             standardTimedDifficultyAttributes = null;
-            sliderPaths = null;
-            sliderRenderPaths = null;
+            if (sliderPathPipeline != null) {
+                sliderPathPipeline.shutdown();
+                sliderPathPipeline = null;
+            }
             String replayPath = null;
             stat.setTime(System.currentTimeMillis());
+
+            if (profiler.isEnabled()) {
+                profiler.setEnabled(false);
+                Execution.async(this::exportFrameProfile);
+            }
             if (replay != null && !replaying) {
                 String ctime = String.valueOf(System.currentTimeMillis());
                 replayPath = Config.getCorePath() + "Scores/"
@@ -1548,6 +1608,196 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         }
     }
 
+    /**
+     * Seeks the replay that is being watched to the given time.
+     * <br>
+     * Judged objects are not simulated again: the statistics are rebuilt from the replay's per-object results and
+     * the cursors are restored from the replay's {@link ReplaySeekIndex}. The seek target is moved back to the start of
+     * any object that would be in the middle of its judgement at that time, so that every object is either fully
+     * judged or spawned again from its approach.
+     *
+     * @param targetTime The time to seek to, in seconds.
+     */
+    public void seekReplay(float targetTime) {
+        if (!replaying || replaySeekIndex == null || replayStatisticReconstructor == null) {
+            return;
+        }
+
+        Execution.updateThread(() -> {
+            if (isGameOver || paused || playableBeatmap == null) {
+                return;
+            }
+
+            performReplaySeek(targetTime);
+        });
+    }
+
+    private void performReplaySeek(float targetTime) {
+        var hitObjects = playableBeatmap.getHitObjects().objects;
+        float time = Math.max(totalOffset, Math.min(targetTime, lastObjectEndTime));
+        int judgedCount;
+
+        while (true) {
+            double msTime = time * 1000d;
+            judgedCount = 0;
+
+            while (judgedCount < hitObjects.size() && replayStatisticReconstructor.getJudgementTime(judgedCount) < msTime) {
+                ++judgedCount;
+            }
+
+            if (judgedCount == hitObjects.size() || hitObjects.get(judgedCount).startTime > msTime) {
+                break;
+            }
+
+            // The first unjudged object is in the middle of its judgement, move back before it starts.
+            time = (float) (hitObjects.get(judgedCount).startTime / 1000) - 0.001f;
+        }
+
+        time = Math.max(totalOffset, time);
+        int msTime = (int) (time * 1000);
+
+        // Remove every object that is on screen without judging it.
+        for (int i = activeObjects.size() - 1; i >= 0; --i) {
+            activeObjects.get(i).release();
+        }
+        activeObjects.clear();
+        expiredObjects.clear();
+
+        objects = new LinkedList<>(hitObjects.subList(judgedCount, hitObjects.size()));
+        lastObjectId = judgedCount - 1;
+        sliderIndex = 0;
+
+        for (int i = 0; i < judgedCount; ++i) {
+            if (hitObjects.get(i) instanceof com.rian.osu.beatmap.hitobject.Slider) {
+                ++sliderIndex;
+            }
+        }
+
+        if (sliderPathPipeline != null) {
+            sliderPathPipeline.prioritize(sliderIndex);
+        }
+
+        // Restore the control points that are active at the seek target.
+        timingControlPoints = new LinkedList<>(playableBeatmap.getControlPoints().timing.controlPoints);
+        effectControlPoints = new LinkedList<>(playableBeatmap.getControlPoints().effect.controlPoints);
+        activeTimingPoint = playableBeatmap.getControlPoints().timing.defaultControlPoint;
+        activeEffectPoint = playableBeatmap.getControlPoints().effect.defaultControlPoint;
+
+        if (!timingControlPoints.isEmpty()) {
+            activeTimingPoint = timingControlPoints.poll();
+        }
+
+        if (!effectControlPoints.isEmpty()) {
+            activeEffectPoint = effectControlPoints.poll();
+        }
+
+        while (!timingControlPoints.isEmpty() && timingControlPoints.peek().time <= msTime) {
+            activeTimingPoint = timingControlPoints.poll();
+        }
+
+        while (!effectControlPoints.isEmpty() && effectControlPoints.peek().time <= msTime) {
+            activeEffectPoint = effectControlPoints.poll();
+        }
+
+        breakPeriods = new LinkedList<>();
+        BreakPeriod currentBreak = null;
+
+        for (var period : playableBeatmap.getEvents().breaks) {
+            if (period.endTime / 1000f <= time) {
+                continue;
+            }
+
+            var breakPeriod = new BreakPeriod(period.startTime / 1000f, period.endTime / 1000f);
+
+            if (breakPeriod.getStart() <= time) {
+                currentBreak = breakPeriod;
+            } else {
+                breakPeriods.add(breakPeriod);
+            }
+        }
+
+        // Rebuild the statistics from the replay's object results.
+        var replayStat = scoringScene.getReplayStat();
+        replayStat.resetHitOffsets();
+        offsetSum = 0;
+        offsetRegs = 0;
+
+        replayStatisticReconstructor.reconstruct(stat, hitJudgement, judgedCount, msTime, offset -> {
+            offsetSum += (float) offset;
+            offsetRegs++;
+            stat.addHitOffset(offset);
+            replayStat.addHitOffset(offset);
+        });
+
+        // Restore the break state after the health, which decides whether the break shows a pass or a fail.
+        breakAnimator.reset();
+
+        if (currentBreak != null) {
+            gameStarted = false;
+            breakAnimator.init(currentBreak.getLength(), time - currentBreak.getStart());
+        } else {
+            gameStarted = time + objectTimePreempt > hitObjects.get(0).startTime / 1000;
+        }
+
+        hud.setHealthBarVisibility(currentBreak == null);
+
+        if (GameHelper.isFlashLight()) {
+            flashlightSprite.onBreak(currentBreak != null);
+        }
+
+        if (judgedCount > 0) {
+            updatePPCounter(judgedCount - 1);
+        }
+
+        // Restore the cursors.
+        var cursorState = new ReplaySeekIndex.CursorState();
+
+        for (int i = 0; i < replaySeekIndex.getCursorCount() && i < CursorCount; ++i) {
+            int index = replaySeekIndex.indexAfter(i, msTime);
+            replaySeekIndex.restoreCursorState(i, index, cursorState);
+
+            replay.cursorIndex[i] = index;
+            replay.lastMoveIndex[i] = cursorState.lastMoveIndex;
+
+            cursors[i].mouseDown = cursorState.isDown;
+            cursors[i].mouseOldDown = cursorState.isDown;
+            cursors[i].mousePressed = false;
+
+            if (cursorState.hasPosition) {
+                cursors[i].mousePos.set(cursorState.x, cursorState.y);
+            }
+        }
+
+        elapsedTime = time;
+        leadOut = 0;
+
+        var songService = GlobalManager.getInstance().getSongService();
+        if (songService.getStatus() != Status.PLAYING) {
+            songService.play();
+            songService.setVolume(Config.getBgmVolume());
+            totalLength = songService.getLength();
+        }
+        musicStarted = true;
+        songService.seekTo((int) Math.ceil((time - totalOffset) * 1000));
+
+        if (video != null && videoStarted && time >= videoOffset) {
+            video.seekTo((int) ((time - videoOffset) * 1000));
+        }
+
+        if (Config.isEnableStoryboard() && storyboardSprite != null) {
+            storyboardSprite.seekTo(msTime);
+        }
+
+        if (linearSongProgress != null) {
+            linearSongProgress.setPassedTime(time);
+        }
+
+        if (skipBtn != null && time > skipTime - 1f) {
+            skipBtn.detachSelf();
+            skipBtn = null;
+        }
+    }
+
     private void updateLastActiveObjectHitTime() {
         for (int i = 0, size = activeObjects.size(); i < size; i++) {
             var obj = activeObjects.get(i);
@@ -1627,6 +1877,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
     private void onExit() {
 
         Execution.updateThread(() -> {
+            GameplayHitSampleInfo.release();
             BeatmapSkinManager.setSkinEnabled(false);
             GameObjectPool.getInstance().purge();
             stopLoopingSamples();
@@ -1652,8 +1903,10 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             lastDifficultyCalculationParameters = null;
             droidTimedDifficultyAttributes = null;
             standardTimedDifficultyAttributes = null;
-            sliderPaths = null;
-            sliderRenderPaths = null;
+            if (sliderPathPipeline != null) {
+                sliderPathPipeline.shutdown();
+                sliderPathPipeline = null;
+            }
         });
 
         // osu!stable restarts the song back to preview time when the player is in the last 10 seconds *or* 2% of the beatmap.
@@ -1683,6 +1936,24 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         }
     }
 
+    /**
+     * Saves the frames recorded by the frame profiler during the play.
+     */
+    private void exportFrameProfile() {
+        var directory = new File(Config.getCorePath(), "Profiler");
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e("GameScene", "Failed to create the frame profiler directory.");
+            return;
+        }
+
+        try (var writer = new FileWriter(new File(directory, System.currentTimeMillis() + ".csv"))) {
+            profiler.export(writer, 30);
+        } catch (IOException e) {
+            Log.e("GameScene", "Failed to export the frame profile.", e);
+        }
+    }
+
     public void quit() {
 
         if (blockAreaFragment != null) {
@@ -1709,6 +1980,8 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             videoStarted = false;
         }
 
+        profiler.setEnabled(false);
+
         onExit();
         if (GlobalManager.getInstance().getCamera() instanceof SmoothCamera) {
             SmoothCamera camera = (SmoothCamera) (GlobalManager.getInstance().getCamera());
@@ -1747,77 +2020,32 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
             return "hit0";
         }
 
-        boolean writeReplay = objectId != -1 && replay != null && !replaying;
-        if (score == 0) {
-            if (stat.getCombo() > 30) {
-                ResourceManager.getInstance().getCustomSound("combobreak", 1)
-                        .play();
-            }
-            comboWasMissed = true;
-            stat.registerHit(0, false, false, incrementCombo);
-            if (writeReplay) replay.addObjectScore(objectId, ResultType.MISS);
-            if (GameHelper.isPerfect()) {
-                gameover();
+        if (score == 0 && stat.getCombo() > 30) {
+            ResourceManager.getInstance().getCustomSound("combobreak", 1)
+                    .play();
+        }
 
-                if (!Multiplayer.isMultiplayer)
-                    restartGame();
-            }
-            if (GameHelper.isSuddenDeath()) {
-                stat.changeHp(-1.0f);
-                gameover();
-            }
-            if (objectId != -1) {
-                updatePPCounter(objectId);
-            }
-            return "hit0";
+        String scoreName = hitJudgement.registerHit(stat, score, endCombo, incrementCombo);
+
+        if (objectId != -1 && replay != null && !replaying) {
+            replay.addObjectScore(objectId, switch (score) {
+                case 300 -> ResultType.HIT300;
+                case 100 -> ResultType.HIT100;
+                case 50 -> ResultType.HIT50;
+                default -> ResultType.MISS;
+            });
         }
 
-        String scoreName = "hit300";
-        if (score == 50) {
-            stat.registerHit(50, false, false, incrementCombo);
-            if (writeReplay) replay.addObjectScore(objectId, ResultType.HIT50);
-            scoreName = "hit50";
-            comboWas100 = true;
-            if(GameHelper.isPerfect()){
-                gameover();
+        if (score != 300 && GameHelper.isPerfect()) {
+            gameover();
 
-                if (!Multiplayer.isMultiplayer)
-                    restartGame();
-            }
-        } else if (score == 100) {
-            comboWas100 = true;
-            if (writeReplay) replay.addObjectScore(objectId, ResultType.HIT100);
-            if (endCombo && !comboWasMissed) {
-                stat.registerHit(100, true, false, incrementCombo);
-                scoreName = "hit100k";
-            } else {
-                stat.registerHit(100, false, false, incrementCombo);
-                scoreName = "hit100";
-            }
-            if(GameHelper.isPerfect()){
-                gameover();
-                if (!Multiplayer.isMultiplayer)
-                    restartGame();
-            }
-        } else if (score == 300) {
-            if (writeReplay) replay.addObjectScore(objectId, ResultType.HIT300);
-            if (endCombo && !comboWasMissed) {
-                if (!comboWas100) {
-                    stat.registerHit(300, true, true, incrementCombo);
-                    scoreName = "hit300g";
-                } else {
-                    stat.registerHit(300, true, false, incrementCombo);
-                    scoreName = "hit300k";
-                }
-            } else {
-                stat.registerHit(300, false, false, incrementCombo);
-                scoreName = "hit300";
-            }
+            if (!Multiplayer.isMultiplayer)
+                restartGame();
         }
 
-        if (endCombo) {
-            comboWas100 = false;
-            comboWasMissed = false;
+        if (score == 0 && GameHelper.isSuddenDeath()) {
+            stat.changeHp(-1.0f);
+            gameover();
         }
 
         if (objectId != -1) {
@@ -1853,24 +2081,15 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
         //(30 - overallDifficulty) / 100f
         float overallDifficulty = playableBeatmap.getDifficulty().od;
-        if (accuracy > difficultyHelper.hitWindowFor50(overallDifficulty) || forcedScore == ResultType.MISS.getId()) {
+        int score = HitJudgement.getCircleScore(accuracy, forcedScore, difficultyHelper, overallDifficulty);
+
+        if (score == 0) {
             createHitEffect(pos, "hit0", color);
             registerHit(id, 0, endCombo);
             return;
         }
 
-        String scoreName;
-        if (forcedScore == ResultType.HIT300.getId() ||
-                forcedScore == 0 && accuracy <= difficultyHelper.hitWindowFor300(overallDifficulty)) {
-            //(75 + 25 * (5 - overallDifficulty) / 5) / 1000)
-            scoreName = registerHit(id, 300, endCombo);
-        } else if (forcedScore == ResultType.HIT100.getId() ||
-                forcedScore == 0 && accuracy <= difficultyHelper.hitWindowFor100(overallDifficulty)) {
-            //(150 + 50 * (5 - overallDifficulty) / 5) / 1000)
-            scoreName = registerHit(id, 100, endCombo);
-        } else {
-            scoreName = registerHit(id, 50, endCombo);
-        }
+        String scoreName = registerHit(id, score, endCombo);
 
         createBurstEffect(pos, color);
         createHitEffect(pos, scoreName, color);
@@ -1963,19 +2182,7 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
         }
 
         if (replay != null && !replaying) {
-            short acc = (short) (totalScore * 4);
-            switch (score) {
-                case 300:
-                    acc += 3;
-                    break;
-                case 100:
-                    acc += 2;
-                    break;
-                case 50:
-                    acc += 1;
-                    break;
-            }
-            replay.addObjectResult(id, acc, null);
+            replay.addObjectResult(id, HitJudgement.encodeSpinnerResult(totalScore, score), null);
         }
 
         final PointF pos = new PointF((float) Config.getRES_WIDTH() / 2,
@@ -2090,6 +2297,15 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
 
 
     public boolean onSceneTouchEvent(final Scene pScene, final TouchEvent event) {
+        if (replaying && !isGameOver && linearSongProgress != null && event.isActionDown()
+                && event.getY() >= Config.getRES_HEIGHT() - 50) {
+            // Tapping the progress bar while watching a replay seeks to the tapped position.
+            float progress = FMath.clamp(event.getX() / Config.getRES_WIDTH(), 0, 1);
+
+            seekReplay(firstObjectStartTime + progress * (lastObjectEndTime - firstObjectStartTime));
+            return true;
+        }
+
         if (replaying || isGameOver) {
             return false;
         }
@@ -2630,44 +2846,21 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
     }
 
     private void calculateAllSliderPaths(final CoroutineScope scope) {
-        if (playableBeatmap.getHitObjects().getSliderCount() == 0) {
-            return;
-        }
-
-        sliderPaths = new SliderPath[playableBeatmap.getHitObjects().getSliderCount()];
-        sliderRenderPaths = new LinePath[playableBeatmap.getHitObjects().getSliderCount()];
-        sliderIndex = 0;
-
-        for (var obj : playableBeatmap.getHitObjects().objects) {
-            JobKt.ensureActive(scope.getCoroutineContext());
-
-            if (!(obj instanceof com.rian.osu.beatmap.hitobject.Slider slider)) {
-                continue;
-            }
-
-            sliderPaths[sliderIndex] = GameHelper.convertSliderPath(slider);
-            sliderRenderPaths[sliderIndex] = GameHelper.convertSliderPath(sliderPaths[sliderIndex]);
-            ++sliderIndex;
+        if (sliderPathPipeline != null) {
+            sliderPathPipeline.shutdown();
         }
 
+        sliderPathPipeline = new SliderPathPipeline(playableBeatmap.getHitObjects().objects);
+        sliderPathPipeline.prepare(scope);
         sliderIndex = 0;
     }
 
     private SliderPath getSliderPath(int index) {
-        if (sliderPaths != null && index < sliderPaths.length && index >= 0){
-            return sliderPaths[index];
-        }
-        else {
-            return null;
-        }
+        return sliderPathPipeline != null ? sliderPathPipeline.getPath(index) : null;
     }
 
     private LinePath getSliderRenderPath(int index) {
-        if (sliderRenderPaths != null && index < sliderRenderPaths.length && index >= 0) {
-            return sliderRenderPaths[index];
-        } else {
-            return null;
-        }
+        return sliderPathPipeline != null ? sliderPathPipeline.getRenderPath(index) : null;
     }
 
     public boolean getReplaying() {
@@ -2699,11 +2892,11 @@ public class GameScene implements IUpdateHandler, GameObjectListener,
                 stat.setReplayFilename(odrFilename);
                 stat.setBeatmapMD5(lastBeatmapInfo.getMD5());
 
-                try {
-                    DatabaseManager.getScoreInfoTable().insertScore(stat.toScoreInfo());
-                } catch (Exception e) {
-                    Log.e("GameScene", "Failed to save score to database", e);
-                }
+                var scoreInfo = stat.toScoreInfo();
+                DatabaseManager.async(() -> {
+                    DatabaseManager.getScoreInfoTable().insertScore(scoreInfo);
+                    ScoreBoard.invalidateLocalScores(scoreInfo.getBeatmapMD5());
+                });
             }
 
             ToastLogger.showText(StringTable.get(com.osudroid.resources.R.string.message_save_replay_successful), true);
@@ -145,6 +145,7 @@ public class GameplayHitCircle extends GameObject {
         for (int i = 0, size = parsedSamples.size(); i < size; i++) {
             var gameplaySample = GameplayHitSampleInfo.pool.obtain();
             gameplaySample.init(parsedSamples.get(i));
+            gameplaySample.setBalance(GameplayHitSampleInfo.getBalance(beatmapCircle.getPosition().x));
 
             if (GameHelper.isSamplesMatchPlaybackRate()) {
                 gameplaySample.setFrequency(GameHelper.getSpeedMultiplier());
@@ -180,6 +181,12 @@ public class GameplayHitCircle extends GameObject {
         scene = null;
     }
 
+    @Override
+    public void release() {
+        passedTime = -1;
+        removeFromScene();
+    }
+
     private boolean canBeHit(float dt, float frameHitOffset) {
         // At this point, the object's state is already in the next update tick.
         // However, hit judgements require the object's state to be in the previous tick.
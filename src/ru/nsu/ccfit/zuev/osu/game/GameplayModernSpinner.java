@@ -14,6 +14,7 @@ import org.anddev.andengine.util.MathUtils;
 import ru.nsu.ccfit.zuev.osu.Constants;
 import ru.nsu.ccfit.zuev.osu.ResourceManager;
 import ru.nsu.ccfit.zuev.osu.Utils;
+import ru.nsu.ccfit.zuev.osu.scoring.HitJudgement;
 import ru.nsu.ccfit.zuev.osu.scoring.ScoreNumber;
 import ru.nsu.ccfit.zuev.osu.scoring.StatisticV2;
 
@@ -83,11 +84,7 @@ public class GameplayModernSpinner extends GameplaySpinner {
         this.listener = listener;
         this.stat = stat;
         duration = (float) beatmapSpinner.getDuration() / 1000f;
-        needRotations = rps * duration;
-
-        if (duration < 0.05f) {
-            needRotations = 0.1f;
-        }
+        needRotations = HitJudgement.getSpinnerRequiredRotations(rps, duration);
 
         clear = duration <= 0f;
         fullRotations = 0;
@@ -229,28 +226,48 @@ public class GameplayModernSpinner extends GameplaySpinner {
                         Modifiers.color(0.1f, 1f, 0f, 1f, 0.8f, 1f, 1f)
                     )
                 );
-                float rate = 0.375f;
-                if (GameHelper.getHealthDrain() > 0) {
-                    rate = 1 + (GameHelper.getHealthDrain() / 4f);
-                }
-                stat.changeHp(rate * 0.01f * duration / needRotations);
+                stat.changeHp(HitJudgement.getSpinnerRotationHp(true, GameHelper.getHealthDrain(), duration, needRotations));
             }
         } else if (Math.abs(rotations) > 1) {
             rotations -= 1 * Math.signum(rotations);
             if (replayObjectData == null || replayObjectData.accuracy / 4 > fullRotations) {
                 fullRotations++;
                 stat.registerSpinnerHit();
-                float rate = 0.375f;
-                if (GameHelper.getHealthDrain() > 0) {
-                    rate = 1 + (GameHelper.getHealthDrain() / 2f);
-                }
-                stat.changeHp(rate * 0.01f * duration / needRotations);
+                stat.changeHp(HitJudgement.getSpinnerRotationHp(false, GameHelper.getHealthDrain(), duration, needRotations));
             }
         }
 
         oldMouse.set(currMouse);
     }
 
+    @Override
+    public void release() {
+        if (scene == null) {
+            return;
+        }
+
+        // The top sprite modifier would otherwise judge the spinner once it finishes.
+        top.clearEntityModifiers();
+        bottom.clearEntityModifiers();
+        middle.clearEntityModifiers();
+        middle2.clearEntityModifiers();
+        glow.clearEntityModifiers();
+
+        scene.detachChild(middle);
+        scene.detachChild(middle2);
+        scene.detachChild(bottom);
+        scene.detachChild(top);
+        scene.detachChild(glow);
+        scene.detachChild(bonusScore);
+
+        listener.removeObject(GameplayModernSpinner.this);
+        GameObjectPool.getInstance().putSpinner(this);
+
+        stopLoopingSamples();
+        playAndFreeHitSamples(0);
+        scene = null;
+    }
+
     public void removeFromScene() {
         glow.clearEntityModifiers();
         scene.detachChild(middle);
@@ -287,13 +304,7 @@ public class GameplayModernSpinner extends GameplaySpinner {
             score = 300;
         }
         if (replayObjectData != null) {
-            score = switch (replayObjectData.accuracy % 4) {
-                case 0 -> 0;
-                case 1 -> 50;
-                case 2 -> 100;
-                case 3 -> 300;
-                default -> score;
-            };
+            score = HitJudgement.decodeSpinnerScore(replayObjectData.accuracy);
         }
         stopLoopingSamples();
         listener.onSpinnerHit(id, score, endsCombo, this.score + fullRotations - 1);
@@ -29,7 +29,7 @@ import ru.nsu.ccfit.zuev.osu.RGBColor;
 import ru.nsu.ccfit.zuev.osu.ResourceManager;
 import ru.nsu.ccfit.zuev.osu.Utils;
 import ru.nsu.ccfit.zuev.osu.game.GameHelper.SliderPath;
-import ru.nsu.ccfit.zuev.osu.helper.DifficultyHelper;
+import ru.nsu.ccfit.zuev.osu.scoring.HitJudgement;
 import ru.nsu.ccfit.zuev.skins.OsuSkin;
 
 import java.util.BitSet;
@@ -514,6 +514,17 @@ public class GameplaySlider extends GameObject {
         scene = null;
     }
 
+    @Override
+    public void release() {
+        if (scene == null) {
+            return;
+        }
+
+        isOver = true;
+        isFollowCircleAnimating = false;
+        removeFromScene();
+    }
+
     public void poolObject() {
 
         headCirclePiece.clearEntityModifiers();
@@ -613,38 +624,10 @@ public class GameplaySlider extends GameObject {
         }
 
         // Calculating score
-        int firstHitScore = 0;
-        if (GameHelper.isScoreV2()) {
-            // If ScoreV2 is active, the accuracy of hitting the slider head is additionally accounted for when judging the entire slider:
-            // Getting a 300 for a slider requires getting a 300 judgement for the slider head.
-            // Getting a 100 for a slider requires getting a 100 judgement or better for the slider head.
-            DifficultyHelper diffHelper = GameHelper.getDifficultyHelper();
-            float od = GameHelper.getOverallDifficulty();
-
-            if (Math.abs(firstHitAccuracy) <= diffHelper.hitWindowFor300(od) * 1000) {
-                firstHitScore = 300;
-            } else if (Math.abs(firstHitAccuracy) <= diffHelper.hitWindowFor100(od) * 1000) {
-                firstHitScore = 100;
-            }
-        }
-
-        int totalTicks = beatmapSlider.getNestedHitObjects().size();
-        int score = 0;
-
-        if (ticksGot > 0) {
-            score = 50;
-        }
+        int score = HitJudgement.getSliderScore(ticksGot, beatmapSlider.getNestedHitObjects().size(), firstHitAccuracy,
+            GameHelper.isScoreV2(), GameHelper.getDifficultyHelper(), GameHelper.getOverallDifficulty());
 
-        if (ticksGot >= totalTicks / 2 && (!GameHelper.isScoreV2() || firstHitScore >= 100)) {
-            score = 100;
-        }
-
-        if (ticksGot >= totalTicks && (!GameHelper.isScoreV2() || firstHitScore == 300)) {
-            score = 300;
-        }
-
-        // In replays older than version 6, slider ends always give combo even when not being tracked.
-        boolean awardCombo = isTracking || (replayObjectData != null && GameHelper.getReplayVersion() < 6);
+        boolean awardCombo = HitJudgement.isSliderEndComboAwarded(isTracking, replayObjectData != null, GameHelper.getReplayVersion());
 
         listener.onSliderHit(id, score, spanEndJudgementPosition, endsCombo, bodyColor,
             GameObjectListener.SLIDER_END, awardCombo);
@@ -899,9 +882,7 @@ public class GameplaySlider extends GameObject {
         startHit = true;
         firstHitAccuracy = (int) (hitOffset * 1000);
 
-        float mehWindow = GameHelper.getDifficultyHelper().hitWindowFor50(GameHelper.getOverallDifficulty());
-
-        if (-mehWindow <= hitOffset && hitOffset <= getLateHitThreshold()) {
+        if (HitJudgement.isSliderHeadHit(hitOffset, duration, GameHelper.getDifficultyHelper(), GameHelper.getOverallDifficulty())) {
             listener.registerAccuracy(hitOffset);
             playCurrentNestedObjectHitSound();
             ticksGot++;
@@ -1152,6 +1133,7 @@ public class GameplaySlider extends GameObject {
             for (int j = 0; j < nestedHitSamples[i].length; ++j) {
                 var gameplaySample = GameplayHitSampleInfo.pool.obtain();
                 gameplaySample.init(nestedObjectSamples.get(j));
+                gameplaySample.setBalance(GameplayHitSampleInfo.getBalance(nestedObjects.get(i).getPosition().x));
 
                 if (GameHelper.isSamplesMatchPlaybackRate()) {
                     gameplaySample.setFrequency(GameHelper.getSpeedMultiplier());
@@ -21,6 +21,7 @@ import ru.nsu.ccfit.zuev.osu.Config;
 import ru.nsu.ccfit.zuev.osu.Constants;
 import ru.nsu.ccfit.zuev.osu.ResourceManager;
 import ru.nsu.ccfit.zuev.osu.Utils;
+import ru.nsu.ccfit.zuev.osu.scoring.HitJudgement;
 import ru.nsu.ccfit.zuev.osu.scoring.ScoreNumber;
 import ru.nsu.ccfit.zuev.osu.scoring.StatisticV2;
 import ru.nsu.ccfit.zuev.skins.OsuSkin;
@@ -110,10 +111,7 @@ public class GameplaySpinner extends GameObject {
         this.duration = (float) beatmapSpinner.getDuration() / 1000f;
         this.beatmapSpinner = beatmapSpinner;
 
-        needRotations = rps * duration;
-        if (duration < 0.05f) {
-            needRotations = 0.1f;
-        }
+        needRotations = HitJudgement.getSpinnerRequiredRotations(rps, duration);
 
         this.listener = listener;
         this.stat = stat;
@@ -219,13 +217,7 @@ public class GameplaySpinner extends GameObject {
             score = 300;
         }
         if (replayObjectData != null) {
-            score = switch (replayObjectData.accuracy % 4) {
-                case 0 -> 0;
-                case 1 -> 50;
-                case 2 -> 100;
-                case 3 -> 300;
-                default -> score;
-            };
+            score = HitJudgement.decodeSpinnerScore(replayObjectData.accuracy);
         }
         stopLoopingSamples();
         listener.onSpinnerHit(id, score, endsCombo, this.score + fullRotations - 1);
@@ -233,6 +225,36 @@ public class GameplaySpinner extends GameObject {
     }
 
 
+    @Override
+    public void release() {
+        if (scene == null) {
+            return;
+        }
+
+        // The approach circle modifier would otherwise judge the spinner once it finishes.
+        approachCircle.clearEntityModifiers();
+        background.clearEntityModifiers();
+        circle.clearEntityModifiers();
+        metre.clearEntityModifiers();
+        spinText.clearEntityModifiers();
+        clearText.clearEntityModifiers();
+
+        scene.detachChild(clearText);
+        scene.detachChild(spinText);
+        scene.detachChild(background);
+        approachCircle.detachSelf();
+        scene.detachChild(circle);
+        scene.detachChild(metre);
+        scene.detachChild(bonusScore);
+
+        listener.removeObject(GameplaySpinner.this);
+        GameObjectPool.getInstance().putSpinner(this);
+
+        stopLoopingSamples();
+        playAndFreeHitSamples(0);
+        scene = null;
+    }
+
     @Override
     public void update(final float dt) {
         if (circle.getAlpha() == 0) {
@@ -314,22 +336,14 @@ public class GameplaySpinner extends GameObject {
                 score++;
                 scene.attachChild(bonusScore);
                 spinnerBonusSample.play();
-                float rate = 0.375f;
-                if (GameHelper.getHealthDrain() > 0) {
-                    rate = 1 + (GameHelper.getHealthDrain() / 4f);
-                }
-                stat.changeHp(rate * 0.01f * duration / needRotations);
+                stat.changeHp(HitJudgement.getSpinnerRotationHp(true, GameHelper.getHealthDrain(), duration, needRotations));
             }
         } else if (Math.abs(rotations) > 1) {
             rotations -= 1 * Math.signum(rotations);
             if (replayObjectData == null || replayObjectData.accuracy / 4 > fullRotations) {
                 fullRotations++;
                 stat.registerSpinnerHit();
-                float rate = 0.375f;
-                if (GameHelper.getHealthDrain() > 0) {
-                    rate = 1 + (GameHelper.getHealthDrain() / 2f);
-                }
-                stat.changeHp(rate * 0.01f * duration / needRotations);
+                stat.changeHp(HitJudgement.getSpinnerRotationHp(false, GameHelper.getHealthDrain(), duration, needRotations));
             }
         }
         metre.setPosition(metre.getX(),
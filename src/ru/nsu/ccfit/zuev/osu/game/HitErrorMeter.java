@@ -2,36 +2,71 @@ package ru.nsu.ccfit.zuev.osu.game;
 
 import android.graphics.PointF;
 
+import com.reco1l.andengine.ExtendedEntity;
+
+import org.anddev.andengine.engine.camera.Camera;
 import org.anddev.andengine.entity.primitive.Rectangle;
 import org.anddev.andengine.entity.scene.Scene;
+import org.anddev.andengine.opengl.util.GLHelper;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 
-import java.util.LinkedList;
-import java.util.List;
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
 
 import ru.nsu.ccfit.zuev.osu.helper.DifficultyHelper;
 
 /**
  * Created by dgsrz on 15/10/18.
+ * <br>
+ * The latest hit results are kept in a ring buffer and drawn as a single mesh, each indicator fading out according to
+ * its age.
  */
 public class HitErrorMeter extends GameObject {
 
-    private final Scene bgScene;
+    /**
+     * The maximum amount of indicators shown at once, the oldest one is replaced once it's reached.
+     */
+    private static final int CAPACITY = 64;
+
+    /**
+     * How long an indicator is shown, in seconds.
+     */
+    private static final float LIFETIME = 5f;
+
+    private static final float INDICATOR_ALPHA = 0.6f;
+
+    /**
+     * The scale from a hit error in seconds to a distance on the meter.
+     */
+    private static final float PIXELS_PER_SECOND = 750;
+
     private final PointF barAnchor;
     private final float barHeight;
     private final float boundary;
-    private final List<Rectangle> onDisplayIndicators;
-    private final List<Rectangle> recycledIndicators;
-    private DifficultyHelper difficultyHelper;
+
+    /**
+     * The hit errors of the indicators in seconds, ordered from the oldest starting at {@link #tail}.
+     */
+    private final float[] errors = new float[CAPACITY];
+
+    private final float[] ages = new float[CAPACITY];
+
+    private int tail = 0;
+
+    private int count = 0;
+
+    private final IndicatorMesh mesh;
+
+    private final boolean showStatistics;
 
     public HitErrorMeter(Scene scene, PointF anchor, float difficulty, float height, DifficultyHelper difficultyHelper) {
         barAnchor = anchor;
         barHeight = height;
-        bgScene = scene;
-
-        onDisplayIndicators = new LinkedList<>();
-        recycledIndicators = new LinkedList<>();
 
-        this.difficultyHelper = difficultyHelper;
+        showStatistics = Config.isShowErrorMeterStatistics();
 
         boundary = difficultyHelper.hitWindowFor50(difficulty);
 
@@ -55,6 +90,11 @@ public class HitErrorMeter extends GameObject {
         hit300.setColor(70f / 255f, 180f / 255f, 220f / 255f, 0.8f);
         scene.attachChild(hit300);
 
+        // Indicators, the mean and the unstable rate markers are all part of the same mesh.
+        mesh = new IndicatorMesh(CAPACITY + 2);
+        mesh.setZIndex(10);
+        scene.attachChild(mesh);
+
         Rectangle hitIndicator = new Rectangle(anchor.x - 2, anchor.y - height, 4, height * 2);
         hitIndicator.setColor(1f, 1f, 1f, 0.8f);
         hitIndicator.setZIndex(15);
@@ -63,49 +103,183 @@ public class HitErrorMeter extends GameObject {
 
     @Override
     public void update(float dt) {
-        while (!onDisplayIndicators.isEmpty()) {
-            if (onDisplayIndicators.get(0).getAlpha() <= 0) {
-                Rectangle removed = onDisplayIndicators.remove(0);
-                removed.setVisible(false);
-                removed.setIgnoreUpdate(true);
-                removed.detachSelf();
-                recycledIndicators.add(removed);
-            } else {
-                break;
-            }
+
+        for (int i = 0; i < count; i++) {
+            ages[(tail + i) % CAPACITY] += dt;
         }
-        for (int i = 0, size = onDisplayIndicators.size(); i < size; i++) {
-            var result = onDisplayIndicators.get(i);
-            float currentAlpha = result.getAlpha() - 0.002f;
-            result.setAlpha(currentAlpha);
+
+        // Indicators are ordered by age, so the expired ones are always at the tail.
+        while (count > 0 && ages[tail] >= LIFETIME) {
+            tail = (tail + 1) % CAPACITY;
+            count--;
         }
+
+        buildMesh();
     }
 
     public void putErrorResult(float errorResult) {
         if (Math.abs(errorResult) > boundary) {
             return;
         }
-        errorResult = errorResult * 750;
-        if (recycledIndicators.isEmpty()) {
-            Rectangle indicator = new Rectangle(barAnchor.x - 2, barAnchor.y - barHeight, 4, barHeight * 2);
-            float posX = indicator.getX() + errorResult;
-            float posY = indicator.getY();
-            indicator.setPosition(posX, posY);
-            indicator.setColor(70f / 255f, 180f / 255f, 220f / 255f, 0.6f);
-            indicator.setZIndex(10);
-            bgScene.attachChild(indicator);
-            onDisplayIndicators.add(indicator);
+
+        int index = (tail + count) % CAPACITY;
+
+        if (count == CAPACITY) {
+            tail = (tail + 1) % CAPACITY;
         } else {
-            Rectangle indicator = recycledIndicators.remove(0);
-            float posX = barAnchor.x - 2 + errorResult;
-            float posY = indicator.getY();
-            indicator.setPosition(posX, posY);
-            indicator.setColor(70f / 255f, 180f / 255f, 220f / 255f, 0.6f);
-            indicator.setZIndex(10);
-            indicator.setVisible(true);
-            indicator.setIgnoreUpdate(false);
-            bgScene.attachChild(indicator);
-            onDisplayIndicators.add(indicator);
+            count++;
+        }
+
+        errors[index] = errorResult;
+        ages[index] = 0;
+    }
+
+    private void buildMesh() {
+
+        mesh.clear();
+
+        float top = barAnchor.y - barHeight;
+        float bottom = barAnchor.y + barHeight;
+
+        float sum = 0;
+
+        for (int i = 0; i < count; i++) {
+            int index = (tail + i) % CAPACITY;
+            float x = barAnchor.x + errors[index] * PIXELS_PER_SECOND;
+            float alpha = INDICATOR_ALPHA * (1 - ages[index] / LIFETIME);
+
+            mesh.putQuad(x - 2, top, x + 2, bottom, 70f / 255f, 180f / 255f, 220f / 255f, alpha);
+            sum += errors[index];
+        }
+
+        if (count == 0 || !showStatistics) {
+            return;
+        }
+
+        float mean = sum / count;
+        float meanX = barAnchor.x + mean * PIXELS_PER_SECOND;
+
+        // The markers are placed above the meter.
+        float markerBottom = top - 2;
+        float markerTop = markerBottom - barHeight / 2;
+
+        float variance = 0;
+
+        for (int i = 0; i < count; i++) {
+            float deviation = errors[(tail + i) % CAPACITY] - mean;
+            variance += deviation * deviation;
+        }
+
+        // The unstable rate is ten times the standard deviation in milliseconds, the band spans one standard
+        // deviation on each side of the mean.
+        float deviationLength = (float) Math.sqrt(variance / count) * PIXELS_PER_SECOND;
+        mesh.putQuad(meanX - deviationLength, markerTop, meanX + deviationLength, markerBottom, 1f, 1f, 1f, 0.3f);
+
+        mesh.putQuad(meanX - 1.5f, markerTop - 2, meanX + 1.5f, markerBottom, 1f, 1f, 1f, 0.9f);
+    }
+
+
+    /**
+     * Draws colored quads with a single call, each vertex carrying its own color.
+     */
+    private static final class IndicatorMesh extends ExtendedEntity {
+
+        private static final int VERTICES_PER_QUAD = 6;
+
+        /**
+         * Every vertex is made of its position followed by its color.
+         */
+        private static final int FLOATS_PER_VERTEX = 6;
+
+        private static final int STRIDE = FLOATS_PER_VERTEX * Float.BYTES;
+
+        private final FloatBuffer buffer;
+
+        private final int capacity;
+
+        private int quadCount = 0;
+
+
+        private IndicatorMesh(int capacity) {
+            super(null);
+
+            this.capacity = capacity;
+
+            buffer = ByteBuffer.allocateDirect(capacity * VERTICES_PER_QUAD * FLOATS_PER_VERTEX * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+
+            setCullingEnabled(false);
+        }
+
+
+        void clear() {
+            quadCount = 0;
+        }
+
+        void putQuad(float left, float top, float right, float bottom, float red, float green, float blue, float alpha) {
+
+            if (quadCount == capacity) {
+                return;
+            }
+
+            int position = quadCount * VERTICES_PER_QUAD * FLOATS_PER_VERTEX;
+
+            position = putVertex(position, left, top, red, green, blue, alpha);
+            position = putVertex(position, left, bottom, red, green, blue, alpha);
+            position = putVertex(position, right, top, red, green, blue, alpha);
+
+            position = putVertex(position, right, top, red, green, blue, alpha);
+            position = putVertex(position, left, bottom, red, green, blue, alpha);
+            putVertex(position, right, bottom, red, green, blue, alpha);
+
+            quadCount++;
+        }
+
+        private int putVertex(int position, float x, float y, float red, float green, float blue, float alpha) {
+            buffer.put(position++, x);
+            buffer.put(position++, y);
+            buffer.put(position++, red);
+            buffer.put(position++, green);
+            buffer.put(position++, blue);
+            buffer.put(position++, alpha);
+            return position;
+        }
+
+
+        @Override
+        protected void onInitDraw(GL10 pGL) {
+            super.onInitDraw(pGL);
+
+            GLHelper.disableCulling(pGL);
+            GLHelper.disableTextures(pGL);
+            GLHelper.disableTexCoordArray(pGL);
+            GLHelper.enableVertexArray(pGL);
+        }
+
+        @Override
+        protected void onUpdateVertexBuffer() {
+        }
+
+        @Override
+        protected void drawVertices(GL10 pGL, Camera pCamera) {
+
+            if (quadCount == 0) {
+                return;
+            }
+
+            // The vertices are read from client memory, a bound hardware buffer would take precedence over them.
+            GLHelper.bindBuffer((GL11) pGL, 0);
+
+            buffer.position(0);
+            pGL.glVertexPointer(2, GL10.GL_FLOAT, STRIDE, buffer);
+            buffer.position(2);
+            pGL.glColorPointer(4, GL10.GL_FLOAT, STRIDE, buffer);
+            buffer.position(0);
+
+            pGL.glEnableClientState(GL10.GL_COLOR_ARRAY);
+            pGL.glDrawArrays(GL10.GL_TRIANGLES, 0, quadCount * VERTICES_PER_QUAD);
+            pGL.glDisableClientState(GL10.GL_COLOR_ARRAY);
         }
     }
 }
@@ -0,0 +1,240 @@
+package ru.nsu.ccfit.zuev.osu.game;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.edlplan.framework.math.line.LinePath;
+import com.rian.osu.beatmap.hitobject.HitObject;
+import com.rian.osu.beatmap.hitobject.Slider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import kotlinx.coroutines.CoroutineScope;
+import kotlinx.coroutines.JobKt;
+import ru.nsu.ccfit.zuev.osu.game.GameHelper.SliderPath;
+import ru.nsu.ccfit.zuev.osuplus.BuildConfig;
+
+/**
+ * Converts the paths of the sliders of a beatmap into their gameplay and render paths ahead of the playhead.
+ * <br>
+ * Only the sliders within the first {@link #UPFRONT_DURATION}ms are converted while loading, the rest are converted
+ * in beatmap order by background workers while the game is running. A slider that is requested before a worker
+ * reached it is converted on the calling thread.
+ */
+public class SliderPathPipeline {
+
+    /**
+     * The amount of time, in milliseconds from the first slider, whose sliders are converted before gameplay starts.
+     */
+    public static final double UPFRONT_DURATION = 10000;
+
+    private static final String TAG = "SliderPathPipeline";
+
+    private final List<Slider> sliders;
+
+    private final AtomicReferenceArray<Entry> entries;
+
+    /**
+     * The index of the next slider to be claimed by a worker.
+     */
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    private ExecutorService workers;
+
+    private volatile boolean isShutdown;
+
+    /**
+     * The index of the first slider that wasn't ready when last checked, counting from the last requested slider.
+     */
+    private int readyFrontier;
+
+    private double minimumLead = Double.POSITIVE_INFINITY;
+
+    private int stallCount;
+
+
+    public SliderPathPipeline(@NonNull List<HitObject> objects) {
+        sliders = new ArrayList<>();
+
+        for (int i = 0, size = objects.size(); i < size; i++) {
+            if (objects.get(i) instanceof Slider slider) {
+                sliders.add(slider);
+            }
+        }
+
+        entries = new AtomicReferenceArray<>(sliders.size());
+    }
+
+    /**
+     * Converts the sliders within the first {@link #UPFRONT_DURATION}ms, and starts the workers that convert the rest.
+     * <br>
+     * The calling thread takes part in the conversion until the upfront sliders are ready.
+     */
+    public void prepare(@NonNull CoroutineScope scope) {
+        int count = sliders.size();
+
+        if (count == 0) {
+            return;
+        }
+
+        double upfrontEndTime = sliders.get(0).startTime + UPFRONT_DURATION;
+        int upfrontCount = 0;
+
+        while (upfrontCount < count && sliders.get(upfrontCount).startTime <= upfrontEndTime) {
+            upfrontCount++;
+        }
+
+        if (upfrontCount < count) {
+            int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+            workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+                var thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+            for (int i = 0; i < threadCount; i++) {
+                workers.submit(this::runWorker);
+            }
+
+            // Letting the submitted workers finish without accepting new ones.
+            workers.shutdown();
+        }
+
+        int index;
+        while ((index = nextIndex.get()) < upfrontCount) {
+            JobKt.ensureActive(scope.getCoroutineContext());
+
+            if (nextIndex.compareAndSet(index, index + 1)) {
+                convert(index);
+            }
+        }
+
+        // Upfront sliders claimed by a worker may not be finished yet, converting them here rather than waiting.
+        for (int i = 0; i < upfrontCount; i++) {
+            JobKt.ensureActive(scope.getCoroutineContext());
+
+            if (entries.get(i) == null) {
+                convert(i);
+            }
+        }
+    }
+
+    /**
+     * Moves the workers forward so that they continue from the given slider, used when the playhead jumps ahead.
+     */
+    public void prioritize(int index) {
+        int current;
+        while ((current = nextIndex.get()) < index && !nextIndex.compareAndSet(current, index)) {
+            // Retrying until either a worker moved past the index or the update succeeded.
+        }
+    }
+
+    public SliderPath getPath(int index) {
+        var entry = obtain(index);
+        return entry != null ? entry.path : null;
+    }
+
+    public LinePath getRenderPath(int index) {
+        var entry = obtain(index);
+        return entry != null ? entry.renderPath : null;
+    }
+
+    /**
+     * The smallest distance, in milliseconds, that the converted sliders were ahead of a requested slider.
+     */
+    public double getMinimumLead() {
+        return minimumLead;
+    }
+
+    /**
+     * The amount of sliders that had to be converted on the calling thread because they weren't ready.
+     */
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Stops the workers, sliders that were not converted yet will be converted on request.
+     */
+    public void shutdown() {
+        isShutdown = true;
+
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+
+        if (BuildConfig.DEBUG && !sliders.isEmpty()) {
+            Log.i(TAG, "Minimum lead: " + minimumLead + "ms, stalls: " + stallCount + ".");
+        }
+    }
+
+
+    private Entry obtain(int index) {
+        if (index < 0 || index >= sliders.size()) {
+            return null;
+        }
+
+        var entry = entries.get(index);
+
+        if (entry == null) {
+            stallCount++;
+            minimumLead = Math.min(minimumLead, 0);
+            return convert(index);
+        }
+
+        // Sliders before the requested one don't matter for the playhead, e.g. after skipping ahead. The frontier
+        // only moves forward, so advancing it is amortized constant time.
+        readyFrontier = Math.max(readyFrontier, index);
+
+        while (readyFrontier < sliders.size() && entries.get(readyFrontier) != null) {
+            readyFrontier++;
+        }
+
+        var lead = sliders.get(readyFrontier - 1).startTime - sliders.get(index).startTime;
+        minimumLead = Math.min(minimumLead, lead);
+
+        return entry;
+    }
+
+    private void runWorker() {
+        int index;
+
+        while (!isShutdown && (index = nextIndex.getAndIncrement()) < sliders.size()) {
+            if (entries.get(index) == null) {
+                convert(index);
+            }
+        }
+    }
+
+    private Entry convert(int index) {
+        var path = GameHelper.convertSliderPath(sliders.get(index));
+        var entry = new Entry(path, GameHelper.convertSliderPath(path));
+
+        // Another thread may have converted the same slider in the meantime, in which case its result is kept.
+        if (!entries.compareAndSet(index, null, entry)) {
+            return entries.get(index);
+        }
+
+        return entry;
+    }
+
+
+    private static final class Entry {
+        final SliderPath path;
+        final LinePath renderPath;
+
+        Entry(SliderPath path, LinePath renderPath) {
+            this.path = path;
+            this.renderPath = renderPath;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ru.nsu.ccfit.zuev.osu.helper;
+
+import com.edlplan.framework.math.Vec2Int;
+import com.edlplan.framework.support.graphics.texture.MaxRectsPacker;
+
+import org.anddev.andengine.opengl.texture.TextureManager;
+import org.anddev.andengine.opengl.texture.TextureOptions;
+import org.anddev.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlas;
+import org.anddev.andengine.opengl.texture.atlas.bitmap.source.IBitmapTextureAtlasSource;
+import org.anddev.andengine.opengl.texture.region.TextureRegion;
+import org.anddev.andengine.opengl.texture.region.TextureRegionFactory;
+import org.anddev.andengine.opengl.util.GLHelper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Collects texture sources and packs them into as few shared {@link BitmapTextureAtlas} pages as possible, so that
+ * elements drawn together don't need a texture bind each.
+ */
+public class TextureAtlasBuilder {
+
+    /**
+     * The maximum size of a page, textures that don't fit in a page get an atlas of their own.
+     */
+    private static final int MAX_PAGE_SIZE = 2048;
+
+    /**
+     * Transparent pixels left between textures so that bilinear filtering doesn't bleed neighbours into each other.
+     */
+    private static final int PADDING = 2;
+
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private final TextureOptions options;
+
+
+    public TextureAtlasBuilder(TextureOptions options) {
+        this.options = options;
+    }
+
+
+    /**
+     * Adds a texture to be packed, replacing the previously added texture with the same name.
+     *
+     * @param onPacked Called with the region of the texture once {@link #build(TextureManager)} is called.
+     */
+    public void add(String name, IBitmapTextureAtlasSource source, Consumer<TextureRegion> onPacked) {
+        entries.remove(name);
+        entries.put(name, new Entry(source, onPacked));
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Packs the added textures, loads the pages and notifies every texture with its region in the order they were added.
+     *
+     * @return The created pages.
+     */
+    public List<BitmapTextureAtlas> build(TextureManager textureManager) {
+
+        int pageSize = GLHelper.GlMaxTextureWidth > 0 ? Math.min(GLHelper.GlMaxTextureWidth, MAX_PAGE_SIZE) : MAX_PAGE_SIZE;
+
+        var sorted = new ArrayList<>(entries.values());
+        sorted.sort(MaxRectsPacker.largestFirst(entry -> entry.source.getWidth(), entry -> entry.source.getHeight()));
+
+        var pages = new ArrayList<BitmapTextureAtlas>();
+        var pending = new ArrayList<Entry>();
+        MaxRectsPacker packer = null;
+
+        for (var entry : sorted) {
+            int width = entry.source.getWidth() + PADDING;
+            int height = entry.source.getHeight() + PADDING;
+
+            if (width > pageSize || height > pageSize) {
+                var atlas = new BitmapTextureAtlas(entry.source.getWidth(), entry.source.getHeight(), options);
+                entry.region = TextureRegionFactory.createFromSource(atlas, entry.source, 0, 0, false);
+                pages.add(atlas);
+                continue;
+            }
+
+            Vec2Int position = packer != null ? packer.insert(width, height) : null;
+
+            if (position == null) {
+                if (packer != null) {
+                    pages.add(createPage(packer, pending));
+                }
+                packer = new MaxRectsPacker(pageSize, pageSize);
+                position = packer.insert(width, height);
+            }
+
+            entry.x = position.x;
+            entry.y = position.y;
+            pending.add(entry);
+        }
+
+        if (packer != null) {
+            pages.add(createPage(packer, pending));
+        }
+
+        for (var page : pages) {
+            textureManager.loadTexture(page);
+        }
+
+        for (var entry : entries.values()) {
+            entry.onPacked.accept(entry.region);
+        }
+
+        entries.clear();
+        return pages;
+    }
+
+
+    private BitmapTextureAtlas createPage(MaxRectsPacker packer, List<Entry> pending) {
+
+        var atlas = new BitmapTextureAtlas(MaxRectsPacker.nextPowerOfTwo(packer.getUsedWidth()),
+            MaxRectsPacker.nextPowerOfTwo(packer.getUsedHeight()), options);
+
+        for (var entry : pending) {
+            entry.region = TextureRegionFactory.createFromSource(atlas, entry.source, entry.x, entry.y, false);
+        }
+
+        pending.clear();
+        return atlas;
+    }
+
+
+    private static class Entry {
+
+        private final IBitmapTextureAtlasSource source;
+
+        private final Consumer<TextureRegion> onPacked;
+
+        private TextureRegion region;
+
+        private int x;
+
+        private int y;
+
+
+        private Entry(IBitmapTextureAtlasSource source, Consumer<TextureRegion> onPacked) {
+            this.source = source;
+            this.onPacked = onPacked;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.nsu.ccfit.zuev.osu.menu;
 
+import com.reco1l.osu.Execution;
 import com.reco1l.osu.data.BeatmapInfo;
 import com.reco1l.osu.data.DatabaseManager;
 
@@ -100,7 +101,19 @@ public class BeatmapItem extends Sprite {
         if (beatmapInfo == null) {
             return;
         }
-        var newmark = DatabaseManager.getScoreInfoTable().getBestMark(beatmapInfo.getMD5());
+        var md5 = beatmapInfo.getMD5();
+
+        DatabaseManager.async(() -> {
+            var newmark = DatabaseManager.getScoreInfoTable().getBestMark(md5);
+            Execution.updateThread(() -> applyMark(md5, newmark));
+        });
+    }
+
+    private void applyMark(String md5, String newmark) {
+        // The item may have been given another beatmap while the mark was loading.
+        if (beatmapInfo == null || !beatmapInfo.getMD5().equals(md5)) {
+            return;
+        }
         if (currentMark != null && currentMark.equals(newmark)) {
             return;
         }
@@ -1,5 +1,6 @@
 package ru.nsu.ccfit.zuev.osu.menu;
 
+import com.reco1l.osu.Execution;
 import com.reco1l.osu.data.BeatmapSetInfo;
 import org.anddev.andengine.entity.Entity;
 import org.anddev.andengine.entity.scene.Scene;
@@ -15,7 +16,6 @@ import ru.nsu.ccfit.zuev.osu.Config;
 import ru.nsu.ccfit.zuev.osu.LibraryManager;
 import ru.nsu.ccfit.zuev.osu.ResourceManager;
 import com.reco1l.osu.data.BeatmapInfo;
-import com.reco1l.osu.data.DatabaseManager;
 
 import ru.nsu.ccfit.zuev.osu.Utils;
 import ru.nsu.ccfit.zuev.osu.DifficultyAlgorithm;
@@ -35,7 +35,6 @@ public class BeatmapSetItem {
     WeakReference<MenuItemListener> listener;
     private BeatmapItem selectedBeatmapItem = null;
     private boolean visible = true;
-    private boolean favorite;
     private boolean deleted = false;
     private Entity layer = null;
     private int beatmapId = -1;
@@ -56,10 +55,6 @@ public class BeatmapSetItem {
         creatorStr = StringTable.format(com.osudroid.resources.R.string.menu_creator,
                 beatmapInfo.getCreator());
         beatmapItems = new BeatmapItem[beatmapSetInfo.getCount()];
-
-        var props = DatabaseManager.getBeatmapOptionsTable().getOptions(beatmapSetInfo.getDirectory());
-        favorite = props != null && props.isFavorite();
-
     }
 
     public BeatmapSetItem(final MenuItemListener listener, final BeatmapSetInfo beatmapSetInfo, int id) {
@@ -78,10 +73,6 @@ public class BeatmapSetItem {
         creatorStr = StringTable.format(com.osudroid.resources.R.string.menu_creator, beatmapInfo.getCreator());
         beatmapItems = new BeatmapItem[1];
         beatmapId = id;
-
-        var props = DatabaseManager.getBeatmapOptionsTable().getOptions(beatmapSetInfo.getDirectory());
-        favorite = props != null && props.isFavorite();
-
     }
 
 
@@ -329,7 +320,7 @@ public class BeatmapSetItem {
         freeBackground();
         visible = false;
         deleted = true;
-        LibraryManager.deleteBeatmapSet(beatmapSetInfo);
+        Execution.async(() -> LibraryManager.deleteBeatmapSet(beatmapSetInfo));
     }
 
     public boolean isVisible() {
@@ -441,11 +432,15 @@ public class BeatmapSetItem {
     }
 
     public boolean isFavorite() {
-        return favorite;
+        var listener = this.listener.get();
+        return listener != null && listener.isFavorite(beatmapSetDir);
     }
 
     public void setFavorite(final boolean favorite) {
-        this.favorite = favorite;
+        var listener = this.listener.get();
+        if (listener != null) {
+            listener.setFavorite(beatmapSetDir, favorite);
+        }
     }
 
     public void showPropertiesMenu() {
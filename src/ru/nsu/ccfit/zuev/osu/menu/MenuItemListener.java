@@ -18,4 +18,8 @@ public interface MenuItemListener {
     boolean isSelectAllowed();
 
     void showPropertiesMenu(BeatmapSetItem item);
+
+    boolean isFavorite(String setDirectory);
+
+    void setFavorite(String setDirectory, boolean favorite);
 }
@@ -5,6 +5,7 @@ import android.util.Log;
 import com.reco1l.osu.data.BeatmapInfo;
 import com.reco1l.osu.Execution;
 import com.reco1l.osu.data.DatabaseManager;
+import com.reco1l.osu.data.LeaderboardScore;
 import com.reco1l.osu.multiplayer.Multiplayer;
 
 import org.anddev.andengine.entity.Entity;
@@ -30,6 +31,25 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 
 public class ScoreBoard extends Entity implements ScrollDetector.IScrollDetectorListener {
+
+    /**
+     * The amount of local scores shown at once, more are loaded as the board is scrolled.
+     */
+    private static final int LOCAL_PAGE_SIZE = 50;
+
+    /**
+     * The amount of beatmaps whose local scores are kept in memory, so that going back and forth between
+     * difficulties doesn't query them again.
+     */
+    private static final int LOCAL_CACHE_SIZE = 8;
+
+    private static final Map<String, LocalScores> localScoresCache = new LinkedHashMap<String, LocalScores>(LOCAL_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LocalScores> eldest) {
+            return size() > LOCAL_CACHE_SIZE;
+        }
+    };
+
     private final Scene mainScene;
     private final MenuItemListener listener;
     private final ChangeableText loadingText;
@@ -55,6 +75,15 @@ public class ScoreBoard extends Entity implements ScrollDetector.IScrollDetector
     private boolean moved = false;
     private ArrayList<ScoreBoardItem> scoreItems = null;
 
+    /**
+     * The local scores being shown, or {@code null} if the board shows online scores.
+     */
+    private LocalScores localScores;
+
+    private int shownLocalScores = 0;
+
+    private boolean isLoadingPage = false;
+
 
     private LoadTask currentTask;
 
@@ -323,70 +352,129 @@ public class ScoreBoard extends Entity implements ScrollDetector.IScrollDetector
                     return;
                 }
 
-                var scores = DatabaseManager.getScoreInfoTable().getBeatmapScores(beatmap.getMD5());
+                var scores = getLocalScores(beatmap.getMD5(),
+                    Config.getBeatmapLeaderboardScoringMode() == BeatmapLeaderboardScoringMode.PP);
+
+                if (!isActive()) {
+                    return;
+                }
+
+                localScores = scores;
+                shownLocalScores = 0;
 
-                if (scores.isEmpty() || !isActive()) {
+                if (scores.getTotalCount() == 0) {
 
                     // This allows the in-game leaderboard to show even if the local database is empty, it'll append
                     // the player score (because the in-game leaderboard assumes that the board finished loading only
                     // if the scores list isn't null).
-                    if (isActive()) {
-                        scoreItems = new ArrayList<>();
-                    }
+                    scoreItems = new ArrayList<>();
                     return;
                 }
 
-                var items = new ArrayList<ScoreBoardItem>(scores.size());
-                var sb = new StringBuilder();
+                showNextLocalPage(this, scores);
+                percentShow = 0;
+            }
+        };
+        loadExecutor.submit(currentTask);
+    }
 
-                int nextTotalScore;
+    /**
+     * Shows the next page of the local scores, called once the board is scrolled close to its end.
+     */
+    private void loadNextLocalPage() {
 
-                for (int i = 0; i < scores.size() && isActive(); ++i) {
+        var task = currentTask;
+        var scores = localScores;
 
-                    var score = scores.get(i);
+        // The first page is still being shown.
+        if (scoreItems == null) {
+            return;
+        }
 
-                    sb.setLength(0);
-                    var totalScore = formatScore(sb, score.getScore());
+        if (task == null || scores == null || isLoadingPage || shownLocalScores >= scores.getTotalCount()) {
+            return;
+        }
 
-                    sb.setLength(0);
-                    var titleStr = sb.append('#').append(i + 1).append(' ').append(score.getPlayerName())
-                            .append('\n')
-                            .append(StringTable.format(com.osudroid.resources.R.string.menu_score, totalScore, score.getMaxCombo()))
-                            .toString();
+        isLoadingPage = true;
 
-                    if (i < scores.size() - 1) {
-                        nextTotalScore = scores.get(i + 1).getScore();
-                    } else {
-                        nextTotalScore = 0;
+        try {
+            loadExecutor.submit(() -> {
+                try {
+                    if (task.isActive()) {
+                        showNextLocalPage(task, scores);
                     }
+                } finally {
+                    isLoadingPage = false;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            isLoadingPage = false;
+        }
+    }
 
-                    sb.setLength(0);
-                    var modString = convertModString(sb, score.getMods());
-                    var diffTotalScore = score.getScore() - nextTotalScore;
+    private void showNextLocalPage(LoadTask task, LocalScores scores) {
 
-                    sb.setLength(0);
-                    var accStr = sb.append(modString)
-                            .append('\n')
-                            .append(StringTable.format("%.2f", GameHelper.Round(score.getAccuracy() * 100, 2))).append('%')
-                            .append('\n')
-                            .append(nextTotalScore == 0 ? "-" : ((diffTotalScore != 0 ? "+" : "") + diffTotalScore))
-                            .toString();
+        var start = shownLocalScores;
+        var end = Math.min(start + LOCAL_PAGE_SIZE, scores.getTotalCount());
 
-                    if (!isActive()) {
-                        return;
-                    }
+        // Every item shows the difference with the next score, so one more score than shown is needed.
+        scores.ensureLoaded(end + 1);
+        end = Math.min(end, scores.getTotalCount());
 
-                    attachChild(new ScoreItem(avatarExecutor, titleStr, accStr, score.getMark(), false, (int) score.getId(), null, null, false));
+        var items = scoreItems != null ? new ArrayList<>(scoreItems) : new ArrayList<ScoreBoardItem>(end);
+        var sb = new StringBuilder();
 
-                    var item = new ScoreBoardItem();
-                    item.set(i + 1, score.getPlayerName(), score.getMaxCombo(), score.getScore(), (int) score.getId());
-                    items.add(item);
-                }
-                scoreItems = items;
-                percentShow = 0;
+        for (int i = start; i < end; ++i) {
+
+            var score = scores.get(i);
+
+            var isPPScoringMode = scores.isByPerformance();
+
+            sb.setLength(0);
+            var totalScore = isPPScoringMode ?
+                // For display purposes, we round the pp.
+                formatPP(sb, (int) Math.round(getDisplayedPP(score))) :
+                formatScore(sb, score.getScore());
+
+            sb.setLength(0);
+            var titleStr = sb.append('#').append(i + 1).append(' ').append(score.getPlayerName())
+                    .append('\n')
+                    .append(StringTable.format(
+                        isPPScoringMode ? com.osudroid.resources.R.string.menu_performance : com.osudroid.resources.R.string.menu_score, totalScore, score.getMaxCombo()))
+                    .toString();
+
+            long nextTotalScore = 0;
+
+            if (i < scores.getTotalCount() - 1) {
+                var next = scores.get(i + 1);
+                nextTotalScore = isPPScoringMode ? Math.round(getDisplayedPP(next)) : next.getScore();
             }
-        };
-        loadExecutor.submit(currentTask);
+
+            sb.setLength(0);
+            var modString = convertModString(sb, score.getMods());
+            var diffTotalScore = (isPPScoringMode ? Math.round(getDisplayedPP(score)) : score.getScore()) - nextTotalScore;
+
+            sb.setLength(0);
+            var accStr = sb.append(modString)
+                    .append('\n')
+                    .append(StringTable.format("%.2f", GameHelper.Round(score.getAccuracy() * 100, 2))).append('%')
+                    .append('\n')
+                    .append(nextTotalScore == 0 ? "-" : ((diffTotalScore != 0 ? "+" : "") + diffTotalScore))
+                    .toString();
+
+            if (!task.isActive()) {
+                return;
+            }
+
+            attachChild(new ScoreItem(task.avatarExecutor, titleStr, accStr, score.getMark(), false, (int) score.getId(), null, null, false));
+
+            var item = new ScoreBoardItem();
+            item.set(i + 1, score.getPlayerName(), score.getMaxCombo(), score.getScore(), (int) score.getId());
+            items.add(item);
+        }
+
+        shownLocalScores = end;
+        scoreItems = items;
     }
 
     public synchronized void init(final BeatmapInfo beatmapInfo) {
@@ -401,6 +489,7 @@ public class ScoreBoard extends Entity implements ScrollDetector.IScrollDetector
         lastBeatmapInfo = beatmapInfo;
         wasOnline = showOnlineScores;
         scoreItems = null;
+        localScores = null;
 
         Execution.updateThread(() -> {
 
@@ -451,6 +540,11 @@ public class ScoreBoard extends Entity implements ScrollDetector.IScrollDetector
             camY += velocityY * pSecondsElapsed;
             maxY = y - 0.8f * (Config.getRES_HEIGHT() - 110 - (height - 32));
 
+            // Loading the next page before reaching the end so that scrolling doesn't stop.
+            if (camY > maxY - Config.getRES_HEIGHT()) {
+                loadNextLocalPage();
+            }
+
             if (camY <= -146 && velocityY < 0 || camY > maxY && velocityY > 0) {
                 camY -= velocityY * pSecondsElapsed;
                 velocityY = 0;
@@ -566,6 +660,110 @@ public class ScoreBoard extends Entity implements ScrollDetector.IScrollDetector
         return scoreItems;
     }
 
+    /**
+     * Returns the amount of local scores of the shown beatmap, which can be more than the loaded items.
+     */
+    public int getLocalScoreCount() {
+        var scores = localScores;
+        return scores != null ? scores.getTotalCount() : 0;
+    }
+
+
+    /**
+     * The performance points shown for a local score, scores without them count as 0.
+     */
+    private static double getDisplayedPP(LeaderboardScore score) {
+        var pp = score.getDroidPP();
+        return pp != null && pp > 0 ? pp : 0;
+    }
+
+    private static LocalScores getLocalScores(String md5, boolean byPerformance) {
+
+        LocalScores scores;
+        var key = byPerformance ? "pp:" + md5 : md5;
+
+        synchronized (localScoresCache) {
+            scores = localScoresCache.get(key);
+
+            if (scores == null) {
+                scores = new LocalScores(md5, byPerformance);
+                localScoresCache.put(key, scores);
+            }
+        }
+
+        scores.ensureLoaded(LOCAL_PAGE_SIZE + 1);
+        return scores;
+    }
+
+    /**
+     * Discards the cached local scores of a beatmap, to be called after one of its scores was inserted or deleted, or
+     * after their performance was calculated.
+     */
+    public static void invalidateLocalScores(String md5) {
+        synchronized (localScoresCache) {
+            localScoresCache.remove(md5);
+            localScoresCache.remove("pp:" + md5);
+        }
+    }
+
+
+    /**
+     * The local scores of a beatmap, ordered by score or performance and loaded in pages.
+     */
+    private static final class LocalScores {
+
+        private final String md5;
+
+        private final boolean byPerformance;
+
+        private final ArrayList<LeaderboardScore> scores = new ArrayList<>();
+
+        private int totalCount = -1;
+
+
+        private LocalScores(String md5, boolean byPerformance) {
+            this.md5 = md5;
+            this.byPerformance = byPerformance;
+        }
+
+
+        /**
+         * Loads pages until at least the given amount of scores is loaded, or all of them are.
+         */
+        synchronized void ensureLoaded(int count) {
+
+            var table = DatabaseManager.getScoreInfoTable();
+
+            if (totalCount == -1) {
+                totalCount = table.getBeatmapScoreCount(md5);
+            }
+
+            while (scores.size() < Math.min(count, totalCount)) {
+                var page = byPerformance ?
+                    table.getBeatmapPerformanceLeaderboard(md5, scores.size(), LOCAL_PAGE_SIZE) :
+                    table.getBeatmapLeaderboard(md5, scores.size(), LOCAL_PAGE_SIZE);
+                scores.addAll(page);
+
+                // Scores were deleted since they were counted.
+                if (page.size() < LOCAL_PAGE_SIZE) {
+                    totalCount = scores.size();
+                }
+            }
+        }
+
+        boolean isByPerformance() {
+            return byPerformance;
+        }
+
+        synchronized int getTotalCount() {
+            return totalCount;
+        }
+
+        synchronized LeaderboardScore get(int index) {
+            return scores.get(index);
+        }
+    }
+
 
     private abstract class LoadTask implements Runnable {
 
@@ -50,6 +50,7 @@ import org.anddev.andengine.util.MathUtils;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -103,6 +104,11 @@ public class SongMenu implements IUpdateHandler, MenuItemListener,
     private String filterText = "";
     private boolean favsOnly = false;
     private List<String> limitC;
+
+    /**
+     * The directories of the beatmap sets marked as favorite, loaded from the database when the menu is loaded.
+     */
+    private final Set<String> favoriteSetDirectories = ConcurrentHashMap.newKeySet();
     private float maxY = 100500;
     private int pointerId = -1;
     private float initalY = -1;
@@ -158,6 +164,10 @@ public class SongMenu implements IUpdateHandler, MenuItemListener,
         return board.isShowOnlineScores();
     }
 
+    public int getBoardLocalScoreCount() {
+        return board.getLocalScoreCount();
+    }
+
     public ArrayList<BeatmapSetItem> getMenuItems() {
         return items;
     }
@@ -170,12 +180,56 @@ public class SongMenu implements IUpdateHandler, MenuItemListener,
     }
 
     public void loadFilter(IFilterMenu filterMenu) {
-        setFilter(
-            filterMenu.getFilter(),
-            filterMenu.getOrder(),
-            filterMenu.isFavoritesOnly(),
-            filterMenu.getFavoriteFolder() == null ? null : DatabaseManager.getBeatmapCollectionsTable().getBeatmaps(filterMenu.getFavoriteFolder())
-        );
+        var filter = filterMenu.getFilter();
+        var order = filterMenu.getOrder();
+        var favoritesOnly = filterMenu.isFavoritesOnly();
+        var folder = filterMenu.getFavoriteFolder();
+
+        if (folder == null) {
+            setFilter(filter, order, favoritesOnly, null);
+            return;
+        }
+
+        DatabaseManager.async(() -> {
+            var limit = DatabaseManager.getBeatmapCollectionsTable().getBeatmaps(folder);
+            Execution.updateThread(() -> setFilter(filter, order, favoritesOnly, limit));
+        });
+    }
+
+    private void loadFavorites() {
+        DatabaseManager.async(() -> {
+            var directories = DatabaseManager.getBeatmapOptionsTable().getFavoriteSetDirectories();
+
+            Execution.updateThread(() -> {
+                favoriteSetDirectories.clear();
+                favoriteSetDirectories.addAll(directories);
+
+                // The items were filtered before the favorites were known.
+                if (favsOnly) {
+                    var lowerFilter = filterText.toLowerCase();
+                    for (var item : items) {
+                        item.applyFilter(lowerFilter, true, limitC);
+                    }
+
+                    if (selectedItem != null && !selectedItem.isVisible()) {
+                        selectedItem = null;
+                        selectedBeatmap = null;
+                    }
+                }
+            });
+        });
+    }
+
+    public boolean isFavorite(String setDirectory) {
+        return favoriteSetDirectories.contains(setDirectory);
+    }
+
+    public void setFavorite(String setDirectory, boolean favorite) {
+        if (favorite) {
+            favoriteSetDirectories.add(setDirectory);
+        } else {
+            favoriteSetDirectories.remove(setDirectory);
+        }
     }
 
     public void reload() {
@@ -196,6 +250,7 @@ public class SongMenu implements IUpdateHandler, MenuItemListener,
         selectedBeatmap = null;
         SongMenuPool.getInstance().init();
         loadFilterFragment();
+        loadFavorites();
         updateMusicEffects();
 
         scene.attachChild(backLayer);
@@ -1258,14 +1313,21 @@ public class SongMenu implements IUpdateHandler, MenuItemListener,
         }
 
 
-        var stat = DatabaseManager.getScoreInfoTable().getScore(id).toStatisticV2();
+        Execution.async(() -> {
+            var scoreInfo = DatabaseManager.getScoreInfoTable().getScore(id);
+            if (scoreInfo == null) {
+                return;
+            }
+
+            var stat = scoreInfo.toStatisticV2();
 
-        if (stat.isLegacySC()) {
-            stat.processLegacySC(selectedBeatmap);
-        }
+            if (stat.isLegacySC()) {
+                stat.processLegacySC(selectedBeatmap);
+            }
 
-        scoreScene.load(stat, null, null, Config.getScorePath() + stat.getReplayFilename(), null, selectedBeatmap);
-        engine.setScene(scoreScene.getScene());
+            scoreScene.load(stat, null, null, Config.getScorePath() + stat.getReplayFilename(), null, selectedBeatmap);
+            engine.setScene(scoreScene.getScene());
+        });
     }
 
 
@@ -1579,9 +1641,9 @@ public class SongMenu implements IUpdateHandler, MenuItemListener,
             final String lowerFilter = searchBar.getFilter().toLowerCase();
             final boolean favsOnly = searchBar.isFavoritesOnly();
 
-            var limit = DatabaseManager.getBeatmapCollectionsTable().getBeatmaps(searchBar.getFavoriteFolder());
+            // The collection of the current filter was already loaded by setFilter().
             for (final BeatmapSetItem item : items) {
-                item.applyFilter(lowerFilter, favsOnly, limit);
+                item.applyFilter(lowerFilter, favsOnly, limitC);
             }
         }
     }
@@ -1,12 +1,11 @@
 package ru.nsu.ccfit.zuev.osu.online;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 
 import com.google.firebase.analytics.FirebaseAnalytics;
 
-import com.reco1l.osu.data.BeatmapInfo;
+import com.reco1l.framework.net.ImageCache;
+
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 
@@ -82,33 +81,33 @@ public class OnlineManager {
             failMessage = "Cannot connect to server";
             throw new OnlineManagerException("Cannot connect to server", e);
         }
-        failMessage = "";
 
-        //TODO debug code
-		/*Debug.i("Received " + response.size() + " lines");
-		for(String str: response)
-		{
-			Debug.i(str);
-		}*/
+        failMessage = getResponseFailMessage(response);
+
+        if (!failMessage.isEmpty()) {
+            return null;
+        }
+
+        return response;
+    }
 
+    /**
+     * Returns the reason a response failed, or an empty string if it succeeded.
+     */
+    private static String getResponseFailMessage(ArrayList<String> response) {
         if (response.size() == 0 || response.get(0).length() == 0) {
-            failMessage = "Got empty response";
             Debug.i("Received empty response!");
-            return null;
+            return "Got empty response";
         }
 
         if (!response.get(0).equals("SUCCESS")) {
             Debug.i("sendRequest response code:  " + response.get(0));
-            if (response.size() >= 2) {
-                failMessage = response.get(1);
-            } else
-                failMessage = "Unknown server error";
-            Debug.i("Received fail: " + failMessage);
-            return null;
+            var message = response.size() >= 2 ? response.get(1) : "Unknown server error";
+            Debug.i("Received fail: " + message);
+            return message;
         }
 
-
-        return response;
+        return "";
     }
 
     public boolean logIn() throws OnlineManagerException {
@@ -175,21 +174,30 @@ public class OnlineManager {
         return true;
     }
 
-    public boolean sendRecord(BeatmapInfo beatmap, String scoreData, String replayPath) throws OnlineManagerException {
+    /**
+     * Submits a score in a single attempt, retrying is left to the caller.
+     * <br>
+     * Unlike other requests this doesn't change the shared fail message, so that independent submissions can run
+     * concurrently. The user statistics are only updated when the submission succeeds.
+     */
+    public SubmissionResult sendRecord(String filename, String hash, String scoreData, String replayPath) {
         Debug.i("Sending record...");
 
+        var result = new SubmissionResult();
+
         File replayFile = new File(replayPath);
         if (!replayFile.exists()) {
-            failMessage = "Replay file not found";
+            result.failMessage = "Replay file not found";
+            result.rejected = true;
             Debug.e("Replay file not found");
-            return false;
+            return result;
         }
 
         var post = new FormDataPostBuilder();
         post.addParam("userID", String.valueOf(userId));
         post.addParam("ssid", ssid);
-        post.addParam("filename", beatmap.getFullBeatmapName().trim());
-        post.addParam("hash", beatmap.getMD5());
+        post.addParam("filename", filename.trim());
+        post.addParam("hash", hash);
         post.addParam("data", scoreData);
 
         MediaType replayMime = MediaType.parse("application/octet-stream");
@@ -198,33 +206,57 @@ public class OnlineManager {
         post.addParam("replayFile", replayFile.getName(), replayFileBody);
         post.addParam("replayFileChecksum", FileUtils.getSHA256Checksum(replayFile));
 
-        ArrayList<String> response = sendRequest(post, endpoint + "submit.php");
-
-        if (response == null) {
-            return false;
+        ArrayList<String> response;
+        try {
+            response = post.requestWithAttempts(endpoint + "submit.php", 1);
+        } catch (RequestException e) {
+            Debug.e(e.getMessage(), e);
+            result.failMessage = "Cannot connect to server";
+            return result;
         }
 
-        if (failMessage.equals("Invalid record data"))
-            return false;
+        result.failMessage = getResponseFailMessage(response);
+
+        if (!result.failMessage.isEmpty()) {
+            // A failure stated by the server is final, submitting the same score again would fail the same way.
+            result.rejected = response.size() >= 2 && response.get(0).equals("FAIL");
+            return result;
+        }
 
         if (response.size() < 2) {
-            failMessage = "Invalid server response";
-            return false;
+            result.failMessage = "Invalid server response";
+            return result;
         }
 
         String[] resp = response.get(1).split("\\s+");
-        if (resp.length < 4) {
-            failMessage = "Invalid server response";
-            return false;
+        if (resp.length < 5) {
+            result.failMessage = "Invalid server response";
+            return result;
         }
 
-        rank = Integer.parseInt(resp[0]);
-        score = Long.parseLong(resp[1]);
-        accuracy = Float.parseFloat(resp[2]);
-        mapRank = Integer.parseInt(resp[3]);
-        pp = Math.round(Float.parseFloat(resp[4]));
+        try {
+            result.rank = Integer.parseInt(resp[0]);
+            result.score = Long.parseLong(resp[1]);
+            result.accuracy = Float.parseFloat(resp[2]);
+            result.mapRank = Integer.parseInt(resp[3]);
+            result.pp = Math.round(Float.parseFloat(resp[4]));
+        } catch (NumberFormatException e) {
+            Debug.e(e.getMessage(), e);
+            result.failMessage = "Invalid server response";
+            return result;
+        }
 
-        return true;
+        result.success = true;
+
+        synchronized (this) {
+            rank = result.rank;
+            score = result.score;
+            accuracy = result.accuracy;
+            mapRank = result.mapRank;
+            pp = result.pp;
+        }
+
+        return result;
     }
 
     public ArrayList<String> getTop(final String hash) throws OnlineManagerException {
@@ -276,63 +308,33 @@ public class OnlineManager {
     public boolean loadAvatarToTextureManager(String avatarURL) {
         if (avatarURL == null || avatarURL.length() == 0) return false;
 
-        String filename = MD5Calculator.getStringMD5(avatarURL);
-        Debug.i("Loading avatar from " + avatarURL);
-        Debug.i("filename = " + filename);
-        File picfile = new File(Config.getCachePath(), filename);
-        OnlineFileOperator.downloadFile(avatarURL, picfile.getAbsolutePath(), true);
-
-        var bitmap = loadAvatarToBitmap(picfile);
-        int imageWidth = 0, imageHeight = 0;
-
-        if (bitmap != null) {
-            imageWidth = bitmap.getWidth();
-            imageHeight = bitmap.getHeight();
+        if (loadAvatarTexture(avatarURL)) {
+            return true;
         }
 
-        if (imageWidth * imageHeight > 0) {
-            // Avatar has been cached locally
-            ResourceManager.getInstance().loadHighQualityFile(filename, picfile);
-            if (ResourceManager.getInstance().getAvatarTextureIfLoaded(avatarURL) != null) {
-                return true;
-            }
-        } else {
-            // Avatar not found, download the default avatar
-            String defaultAvatarFilename = MD5Calculator.getStringMD5(defaultAvatarURL);
-            File avatarFile = new File(Config.getCachePath(), defaultAvatarFilename);
-            OnlineFileOperator.downloadFile(defaultAvatarURL, avatarFile.getAbsolutePath());
-
-            bitmap = loadAvatarToBitmap(avatarFile);
-            if (bitmap != null) {
-                imageWidth = bitmap.getWidth();
-                imageHeight = bitmap.getHeight();
-            }
+        // Avatar not found, use the default avatar
+        return loadAvatarTexture(defaultAvatarURL);
+    }
 
-            if (imageWidth * imageHeight > 0) {
-                //Avatar has been cached locally
-                ResourceManager.getInstance().loadHighQualityFile(defaultAvatarFilename, avatarFile);
-                if (ResourceManager.getInstance().getAvatarTextureIfLoaded(defaultAvatarURL) != null) {
-                    return true;
-                }
-            }
+    /**
+     * Loads an avatar into the texture manager unless it's already loaded, the image is obtained through the
+     * {@link ImageCache} so that it's only fetched again when it changed on the server.
+     */
+    private boolean loadAvatarTexture(String avatarURL) {
+        String filename = MD5Calculator.getStringMD5(avatarURL);
+
+        if (ResourceManager.getInstance().getTextureIfLoaded(filename) != null) {
+            return true;
         }
 
-        Debug.i("Success!");
-        return false;
-    }
+        Debug.i("Loading avatar from " + avatarURL);
+        File picfile = ImageCache.getFile(avatarURL);
 
-    private Bitmap loadAvatarToBitmap(File avatarFile) {
-        if (!avatarFile.exists()) {
-            return null;
+        if (picfile == null) {
+            return false;
         }
 
-        try {
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inJustDecodeBounds = true;
-            return BitmapFactory.decodeFile(avatarFile.getPath());
-        } catch (NullPointerException e) {
-            return null;
-        }
+        return ResourceManager.getInstance().loadHighQualityFile(filename, picfile) != null;
     }
 
     public String getScorePack(int playid) throws OnlineManagerException {
@@ -400,6 +402,25 @@ public class OnlineManager {
         return mapRank;
     }
 
+    /**
+     * The outcome of a score submission.
+     */
+    public static class SubmissionResult {
+        public boolean success;
+        public String failMessage = "";
+        public long rank;
+        public long score;
+        public float accuracy;
+        public float pp;
+        public int mapRank;
+
+        /**
+         * Whether the score itself was rejected, in which case submitting it again won't succeed. Connection errors and
+         * malformed responses are not rejections.
+         */
+        public boolean rejected;
+    }
+
     public static class OnlineManagerException extends Exception {
         private static final long serialVersionUID = -5703212596292949401L;
 
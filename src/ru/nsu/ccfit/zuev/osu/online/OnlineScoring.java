@@ -3,6 +3,8 @@ package ru.nsu.ccfit.zuev.osu.online;
 import android.content.Intent;
 import android.net.Uri;
 
+import androidx.annotation.NonNull;
+
 import com.google.android.material.snackbar.Snackbar;
 import com.reco1l.osu.data.BeatmapInfo;
 import com.reco1l.osu.Execution;
@@ -123,6 +125,7 @@ public class OnlineScoring {
                     updatePanels();
                     OnlineManager.getInstance().setStayOnline(true);
                     loadAvatar(true);
+                    ScoreSubmissionQueue.getInstance().resume();
                 } else {
                     setPanelMessage("Cannot log in", OnlineManager.getInstance().getFailMessage());
                     OnlineManager.getInstance().setStayOnline(false);
@@ -150,46 +153,36 @@ public class OnlineScoring {
         if (!OnlineManager.getInstance().isStayOnline())
             return;
 
+        if (!record.isScoreValid()) {
+            Debug.e("Detected illegal actions.");
+            panel.setFail();
+            return;
+        }
+
         Debug.i("Sending score");
 
         final String recordData = record.compile();
 
-        Execution.async(() -> {
-            boolean success = false;
-            synchronized (onlineMutex) {
-                for (int i = 0; i < attemptCount; i++) {
-                    if (!record.isScoreValid()) {
-                        Debug.e("Detected illegal actions.");
-                        break;
-                    }
+        ScoreSubmissionQueue.getInstance().enqueue(beatmap.getFullBeatmapName(), beatmap.getMD5(), recordData, replayPath, new ScoreSubmissionQueue.Listener() {
+            private int failedAttempts = 0;
 
-                    try {
-                        success = OnlineManager.getInstance().sendRecord(beatmap, recordData, replayPath);
-                    } catch (OnlineManager.OnlineManagerException e) {
-                        Debug.e("Login error: " + e.getMessage());
-                        success = false;
-                    }
-
-                    if (OnlineManager.getInstance().getFailMessage().length() > 0) {
-                        ToastLogger.showText(OnlineManager.getInstance().getFailMessage(), true);
-                        if (OnlineManager.getInstance().getFailMessage().equals("Invalid record data"))
-                            i = attemptCount;
-                    } else if (success) {
-                        updatePanels();
-                        OnlineManager mgr = OnlineManager.getInstance();
-                        panel.show(mgr.getMapRank(), mgr.getRank(), mgr.getScore(), mgr.getAccuracy(), mgr.getPP());
-                        break;
-                    }
+            @Override
+            public void onSuccess(@NonNull OnlineManager.SubmissionResult result) {
+                updatePanels();
+                panel.show(result.mapRank, result.rank, result.score, result.accuracy, result.pp);
+            }
 
-                    try {
-                        Thread.sleep(5000);
-                    } catch (InterruptedException ignored) {
-                    }
-                }
+            @Override
+            public boolean onFailure(@NonNull String message, boolean willRetry) {
+                ToastLogger.showText(message, true);
 
-                if (!success) {
+                // The score is still submitted in the background, the panel only stops waiting for it.
+                if (!willRetry || ++failedAttempts >= attemptCount) {
                     panel.setFail();
+                    return true;
                 }
+
+                return false;
             }
         });
     }
@@ -51,6 +51,9 @@ public abstract class PostBuilder {
 
             if (response == null || response.isEmpty() || response.get(0).isEmpty()
                     || !(response.get(0).equals("FAIL") || response.get(0).equals("SUCCESS"))) {
+                if (i == attempts - 1) {
+                    break;
+                }
                 try {
                     Thread.sleep(3000);
                 } catch (InterruptedException ignored) {
@@ -0,0 +1,257 @@
+package ru.nsu.ccfit.zuev.osu.online;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.reco1l.osu.data.DatabaseManager;
+import com.reco1l.osu.data.IScoreSubmissionDAO;
+import com.reco1l.osu.data.ScoreSubmission;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import ru.nsu.ccfit.zuev.osuplus.BuildConfig;
+
+/**
+ * Persists scores waiting to be submitted and submits them in the background.
+ * <br>
+ * A submission is stored before its first attempt and only removed once the server accepted or rejected it, so scores
+ * whose submission is interrupted by a connection loss or the game being closed are submitted again after logging in.
+ * Failed attempts are rescheduled with an exponential backoff instead of blocking a thread.
+ */
+public class ScoreSubmissionQueue {
+
+    /**
+     * The maximum amount of submissions running at the same time.
+     */
+    public static final int MAX_CONCURRENT_SUBMISSIONS = 2;
+
+    /**
+     * The delay, in milliseconds, before retrying a submission that failed for the first time.
+     */
+    public static final long BASE_RETRY_DELAY = 5000;
+
+    /**
+     * The maximum delay, in milliseconds, between two attempts of the same submission.
+     */
+    public static final long MAX_RETRY_DELAY = 30 * 60 * 1000;
+
+    private static final String TAG = "ScoreSubmissionQueue";
+
+    private final Transport transport;
+
+    private final Supplier<IScoreSubmissionDAO> table;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The IDs of the submissions that are scheduled or running, used to not schedule the same submission twice.
+     */
+    private final Set<Long> scheduled = ConcurrentHashMap.newKeySet();
+
+    private final Map<Long, Listener> listeners = new ConcurrentHashMap<>();
+
+
+    private ScoreSubmissionQueue() {
+        this(new OnlineTransport(), DatabaseManager::getScoreSubmissionTable,
+                Executors.newScheduledThreadPool(MAX_CONCURRENT_SUBMISSIONS, runnable -> {
+                    var thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    ScoreSubmissionQueue(Transport transport, Supplier<IScoreSubmissionDAO> table, ScheduledExecutorService executor) {
+        this.transport = transport;
+        this.table = table;
+        this.executor = executor;
+    }
+
+
+    public static ScoreSubmissionQueue getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Stores a score and submits it as soon as possible.
+     *
+     * @param listener Notified about the outcome of the first attempt, and about the success of later attempts.
+     */
+    public void enqueue(@NonNull String filename, @NonNull String hash, @NonNull String scoreData,
+                        @NonNull String replayPath, @Nullable Listener listener) {
+        executor.execute(() -> {
+            var submission = new ScoreSubmission(transport.getUserId(), filename, hash, scoreData, replayPath);
+            submission.setId(table.get().insertSubmission(submission));
+
+            if (listener != null) {
+                listeners.put(submission.getId(), listener);
+            }
+
+            schedule(submission.getId(), 0);
+        });
+    }
+
+    /**
+     * Schedules the stored submissions of the logged in user, called after logging in.
+     */
+    public void resume() {
+        executor.execute(() -> {
+            var submissions = table.get().getPendingSubmissions(transport.getUserId());
+            var now = System.currentTimeMillis();
+
+            for (int i = 0, size = submissions.size(); i < size; i++) {
+                var submission = submissions.get(i);
+                schedule(submission.getId(), Math.max(0, submission.getNextAttemptTime() - now));
+            }
+
+            if (BuildConfig.DEBUG && !submissions.isEmpty()) {
+                Log.i(TAG, "Resumed " + submissions.size() + " pending submissions.");
+            }
+        });
+    }
+
+
+    private void schedule(long id, long delay) {
+        if (scheduled.add(id)) {
+            executor.schedule(() -> attempt(id), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void attempt(long id) {
+        try {
+            tryAttempt(id);
+        } catch (RuntimeException e) {
+            // The submission stays stored and is scheduled again after the next login.
+            Log.e(TAG, "Submission " + id + " failed unexpectedly.", e);
+            scheduled.remove(id);
+            notifyFailure(id, "Unexpected error", true);
+        }
+    }
+
+    private void tryAttempt(long id) {
+        var table = this.table.get();
+        var submission = table.getSubmission(id);
+
+        if (submission == null) {
+            scheduled.remove(id);
+            listeners.remove(id);
+            return;
+        }
+
+        // The submission stays stored and is scheduled again once its user logs in.
+        if (!transport.isLoggedIn() || transport.getUserId() != submission.getUserId()) {
+            scheduled.remove(id);
+            notifyFailure(id, "Not logged in", true);
+            return;
+        }
+
+        var result = transport.send(submission);
+
+        if (result.success || result.rejected) {
+            table.deleteSubmission(id);
+            scheduled.remove(id);
+
+            var listener = listeners.remove(id);
+
+            if (listener != null) {
+                if (result.success) {
+                    listener.onSuccess(result);
+                } else {
+                    listener.onFailure(result.failMessage, false);
+                }
+            }
+            return;
+        }
+
+        submission.setAttempts(submission.getAttempts() + 1);
+
+        var delay = Math.min(MAX_RETRY_DELAY, BASE_RETRY_DELAY << Math.min(submission.getAttempts() - 1, 20));
+        submission.setNextAttemptTime(System.currentTimeMillis() + delay);
+        table.updateSubmission(submission);
+
+        if (BuildConfig.DEBUG) {
+            Log.i(TAG, "Submission " + id + " failed (" + result.failMessage + "), retrying in " + delay + "ms.");
+        }
+
+        notifyFailure(id, result.failMessage, true);
+
+        executor.schedule(() -> attempt(id), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void notifyFailure(long id, String message, boolean willRetry) {
+        var listener = listeners.get(id);
+
+        if (listener != null && listener.onFailure(message, willRetry)) {
+            listeners.remove(id);
+        }
+    }
+
+
+    private static final class InstanceHolder {
+        private static final ScoreSubmissionQueue instance = new ScoreSubmissionQueue();
+    }
+
+
+    /**
+     * Sends submissions to the server.
+     */
+    interface Transport {
+
+        /**
+         * The ID of the logged in user.
+         */
+        long getUserId();
+
+        /**
+         * Whether a user is logged in.
+         */
+        boolean isLoggedIn();
+
+        @NonNull
+        OnlineManager.SubmissionResult send(@NonNull ScoreSubmission submission);
+    }
+
+    private static final class OnlineTransport implements Transport {
+
+        @Override
+        public long getUserId() {
+            return OnlineManager.getInstance().getUserId();
+        }
+
+        @Override
+        public boolean isLoggedIn() {
+            return OnlineManager.getInstance().isStayOnline();
+        }
+
+        @NonNull
+        @Override
+        public OnlineManager.SubmissionResult send(@NonNull ScoreSubmission submission) {
+            return OnlineManager.getInstance().sendRecord(submission.getBeatmapFilename(), submission.getBeatmapMD5(),
+                    submission.getScoreData(), submission.getReplayPath());
+        }
+    }
+
+
+    public interface Listener {
+
+        /**
+         * Called when the score was accepted by the server.
+         */
+        void onSuccess(@NonNull OnlineManager.SubmissionResult result);
+
+        /**
+         * Called when an attempt failed.
+         *
+         * @param willRetry Whether the submission was kept to be retried later.
+         * @return Whether the listener should no longer be notified about this submission.
+         */
+        boolean onFailure(@NonNull String message, boolean willRetry);
+    }
+}
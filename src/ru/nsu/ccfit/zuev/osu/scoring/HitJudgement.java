@@ -0,0 +1,249 @@
+package ru.nsu.ccfit.zuev.osu.scoring;
+
+import androidx.annotation.NonNull;
+
+import ru.nsu.ccfit.zuev.osu.helper.DifficultyHelper;
+
+/**
+ * The judgement rules shared by gameplay and {@link ReplayStatisticReconstructor}, so that a replay rebuilt without
+ * being played back ends up with the same statistics.
+ * <br>
+ * An instance keeps track of the results of the current combo, which decide whether a combo ending hit is a katu or
+ * a geki.
+ */
+public final class HitJudgement {
+
+    private boolean comboWasMissed;
+    private boolean comboWas100;
+
+
+    public void reset() {
+        comboWasMissed = false;
+        comboWas100 = false;
+    }
+
+    /**
+     * Registers the result of an object into a {@link StatisticV2}.
+     *
+     * @param score The result, either 0, 50, 100 or 300.
+     * @param endCombo Whether the object ends its combo.
+     * @param incrementCombo Whether the hit increments the combo.
+     * @return The name of the hit effect of the result.
+     */
+    public String registerHit(@NonNull StatisticV2 stat, int score, boolean endCombo, boolean incrementCombo) {
+
+        if (score == 0) {
+            comboWasMissed = true;
+            stat.registerHit(0, false, false, incrementCombo);
+            return "hit0";
+        }
+
+        String scoreName = "hit300";
+
+        if (score == 50) {
+            stat.registerHit(50, false, false, incrementCombo);
+            scoreName = "hit50";
+            comboWas100 = true;
+        } else if (score == 100) {
+            comboWas100 = true;
+            if (endCombo && !comboWasMissed) {
+                stat.registerHit(100, true, false, incrementCombo);
+                scoreName = "hit100k";
+            } else {
+                stat.registerHit(100, false, false, incrementCombo);
+                scoreName = "hit100";
+            }
+        } else if (score == 300) {
+            if (endCombo && !comboWasMissed) {
+                if (!comboWas100) {
+                    stat.registerHit(300, true, true, incrementCombo);
+                    scoreName = "hit300g";
+                } else {
+                    stat.registerHit(300, true, false, incrementCombo);
+                    scoreName = "hit300k";
+                }
+            } else {
+                stat.registerHit(300, false, false, incrementCombo);
+                scoreName = "hit300";
+            }
+        }
+
+        if (endCombo) {
+            comboWas100 = false;
+            comboWasMissed = false;
+        }
+
+        return scoreName;
+    }
+
+
+    /**
+     * Gets the result of a hit circle.
+     *
+     * @param accuracy The absolute hit offset, in seconds.
+     * @param forcedScore The result stored in a replay, or 0 to judge by the hit offset.
+     * @return The result, 0 for a miss.
+     */
+    public static int getCircleScore(float accuracy, byte forcedScore, DifficultyHelper helper, float overallDifficulty) {
+
+        if (accuracy > helper.hitWindowFor50(overallDifficulty) || forcedScore == ResultType.MISS.getId()) {
+            return 0;
+        }
+
+        if (forcedScore == ResultType.HIT300.getId() ||
+                forcedScore == 0 && accuracy <= helper.hitWindowFor300(overallDifficulty)) {
+            return 300;
+        }
+
+        if (forcedScore == ResultType.HIT100.getId() ||
+                forcedScore == 0 && accuracy <= helper.hitWindowFor100(overallDifficulty)) {
+            return 100;
+        }
+
+        return 50;
+    }
+
+    /**
+     * Whether a slider head judged at a hit offset is hit.
+     *
+     * @param hitOffset The hit offset, in seconds.
+     * @param sliderDuration The duration of the whole slider, in seconds.
+     */
+    public static boolean isSliderHeadHit(double hitOffset, double sliderDuration, DifficultyHelper helper,
+                                          float overallDifficulty) {
+        float mehWindow = helper.hitWindowFor50(overallDifficulty);
+
+        return -mehWindow <= hitOffset && hitOffset <= Math.min(mehWindow, (float) sliderDuration);
+    }
+
+    /**
+     * Gets the result of a whole slider.
+     *
+     * @param ticksGot The amount of nested objects that were hit, including the head.
+     * @param totalTicks The amount of nested objects.
+     * @param firstHitAccuracy The hit offset of the slider head, in milliseconds.
+     * @param isScoreV2 Whether ScoreV2 is active.
+     */
+    public static int getSliderScore(int ticksGot, int totalTicks, int firstHitAccuracy, boolean isScoreV2,
+                                     DifficultyHelper helper, float overallDifficulty) {
+        int firstHitScore = 0;
+        if (isScoreV2) {
+            // If ScoreV2 is active, the accuracy of hitting the slider head is additionally accounted for when judging the entire slider:
+            // Getting a 300 for a slider requires getting a 300 judgement for the slider head.
+            // Getting a 100 for a slider requires getting a 100 judgement or better for the slider head.
+            if (Math.abs(firstHitAccuracy) <= helper.hitWindowFor300(overallDifficulty) * 1000) {
+                firstHitScore = 300;
+            } else if (Math.abs(firstHitAccuracy) <= helper.hitWindowFor100(overallDifficulty) * 1000) {
+                firstHitScore = 100;
+            }
+        }
+
+        int score = 0;
+
+        if (ticksGot > 0) {
+            score = 50;
+        }
+
+        if (ticksGot >= totalTicks / 2 && (!isScoreV2 || firstHitScore >= 100)) {
+            score = 100;
+        }
+
+        if (ticksGot >= totalTicks && (!isScoreV2 || firstHitScore == 300)) {
+            score = 300;
+        }
+
+        return score;
+    }
+
+    /**
+     * Whether a slider end awards combo.
+     *
+     * @param isTracking Whether the slider end was tracked.
+     * @param isReplay Whether the slider is played back from a replay.
+     */
+    public static boolean isSliderEndComboAwarded(boolean isTracking, boolean isReplay, int replayVersion) {
+        // In replays older than version 6, slider ends always give combo even when not being tracked.
+        return isTracking || isReplay && replayVersion < 6;
+    }
+
+    /**
+     * Gets the amount of rotations per second a spinner needs to be cleared.
+     */
+    public static float getSpinnerRotationsPerSecond(float overallDifficulty) {
+        return 2 + 2 * overallDifficulty / 10f;
+    }
+
+    /**
+     * Gets the amount of rotations a spinner needs to be cleared.
+     *
+     * @param duration The duration of the spinner, in seconds.
+     */
+    public static float getSpinnerRequiredRotations(float rotationsPerSecond, float duration) {
+        if (duration < 0.05f) {
+            return 0.1f;
+        }
+
+        return rotationsPerSecond * duration;
+    }
+
+    /**
+     * Gets the health a spinner rotation restores.
+     *
+     * @param isBonus Whether the rotation is past the ones needed to clear the spinner.
+     * @param duration The duration of the spinner, in seconds.
+     */
+    public static float getSpinnerRotationHp(boolean isBonus, float healthDrain, float duration, float needRotations) {
+        float rate = 0.375f;
+        if (healthDrain > 0) {
+            rate = 1 + healthDrain / (isBonus ? 4f : 2f);
+        }
+
+        return rate * 0.01f * duration / needRotations;
+    }
+
+    /**
+     * Encodes the result of a spinner the way it's stored as the accuracy of its replay data.
+     *
+     * @param rotations The amount of rotations.
+     * @param score The result.
+     */
+    public static short encodeSpinnerResult(int rotations, int score) {
+        int result = switch (score) {
+            case 300 -> 3;
+            case 100 -> 2;
+            case 50 -> 1;
+            default -> 0;
+        };
+
+        return (short) (rotations * 4 + result);
+    }
+
+    /**
+     * Decodes the result of a spinner from the accuracy of its replay data.
+     */
+    public static int decodeSpinnerScore(int accuracy) {
+        // The accuracy is negative when a spinner was judged without any rotation, which is decoded as a miss.
+        return switch (accuracy % 4) {
+            case 1 -> 50;
+            case 2 -> 100;
+            case 3 -> 300;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Gets the health lost per second while no object is judged.
+     *
+     * @param healthDrain The HP of the beatmap.
+     * @param distToNextObject The time between the last spawned object and the one after it, in seconds, or 0 if
+     * there is none.
+     */
+    public static float getDrainRate(float healthDrain, double distToNextObject) {
+        double rate = 0.375;
+        if (healthDrain > 0 && distToNextObject > 0) {
+            rate = 1 + healthDrain / (2 * distToNextObject);
+        }
+
+        return (float) rate * 0.01f;
+    }
+}
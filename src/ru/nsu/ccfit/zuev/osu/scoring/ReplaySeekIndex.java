@@ -0,0 +1,147 @@
+package ru.nsu.ccfit.zuev.osu.scoring;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * A time-bucketed index over the cursor movements of a {@link Replay}.
+ * <br>
+ * For every cursor, the index stores the first movement index of each {@link #BUCKET_LENGTH}ms bucket, so that the
+ * movement cursor of a replay can be moved to an arbitrary time by looking up the bucket and scanning only the
+ * movements inside of it, instead of stepping through every movement since the beginning of the replay.
+ */
+public class ReplaySeekIndex {
+
+    /**
+     * The length of a time bucket in milliseconds.
+     */
+    public static final int BUCKET_LENGTH = 1000;
+
+    private final List<Replay.MoveArray> cursorMoves;
+
+    /**
+     * The first movement index of each bucket, per cursor.
+     */
+    private final int[][] bucketStarts;
+
+
+    public ReplaySeekIndex(@NonNull List<Replay.MoveArray> cursorMoves) {
+        this.cursorMoves = cursorMoves;
+
+        bucketStarts = new int[cursorMoves.size()][];
+
+        for (int i = 0; i < cursorMoves.size(); i++) {
+            var moves = cursorMoves.get(i);
+            int lastTime = moves.size > 0 ? Math.max(0, moves.movements[moves.size - 1].time) : 0;
+            var starts = new int[lastTime / BUCKET_LENGTH + 2];
+
+            int bucket = 0;
+            for (int j = 0; j < moves.size; j++) {
+                int time = Math.max(0, moves.movements[j].time);
+
+                while (bucket <= time / BUCKET_LENGTH) {
+                    starts[bucket++] = j;
+                }
+            }
+
+            while (bucket < starts.length) {
+                starts[bucket++] = moves.size;
+            }
+
+            bucketStarts[i] = starts;
+        }
+    }
+
+    /**
+     * Gets the amount of cursors that are indexed.
+     */
+    public int getCursorCount() {
+        return bucketStarts.length;
+    }
+
+    /**
+     * Finds the index of the first movement of a cursor whose time is strictly after the given time.
+     * <br>
+     * In other words, the returned index is the value {@link Replay#cursorIndex} would have after the replay
+     * has been played up to the given time.
+     *
+     * @param cursor The cursor index.
+     * @param time   The time, in milliseconds.
+     * @return The index of the first movement after {@code time}.
+     */
+    public int indexAfter(int cursor, int time) {
+        var moves = cursorMoves.get(cursor);
+        var starts = bucketStarts[cursor];
+
+        if (time < 0) {
+            int index = 0;
+
+            while (index < moves.size && moves.movements[index].time <= time) {
+                index++;
+            }
+
+            return index;
+        }
+
+        int bucket = Math.min(time / BUCKET_LENGTH, starts.length - 1);
+        int index = starts[bucket];
+
+        while (index < moves.size && moves.movements[index].time <= time) {
+            index++;
+        }
+
+        return index;
+    }
+
+    /**
+     * Restores the state of a cursor at the given movement index, as if every movement before it had been played.
+     *
+     * @param cursor The cursor index.
+     * @param index  The movement index, usually obtained from {@link #indexAfter(int, int)}.
+     * @param state  The state to write into.
+     */
+    public void restoreCursorState(int cursor, int index, @NonNull CursorState state) {
+        var moves = cursorMoves.get(cursor);
+
+        state.isDown = false;
+        state.lastMoveIndex = -1;
+        state.hasPosition = false;
+
+        if (index <= 0 || moves.size == 0) {
+            return;
+        }
+
+        var last = moves.movements[index - 1];
+
+        state.isDown = last.touchType != TouchType.UP;
+
+        if (last.touchType == TouchType.MOVE) {
+            state.lastMoveIndex = index - 1;
+        }
+
+        // The position is held by the last non-UP movement, which is almost always adjacent.
+        for (int i = index - 1; i >= 0; i--) {
+            var movement = moves.movements[i];
+
+            if (movement.touchType != TouchType.UP) {
+                state.x = movement.point.x;
+                state.y = movement.point.y;
+                state.hasPosition = true;
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * The state of a cursor at a given point of a replay.
+     */
+    public static class CursorState {
+        public boolean isDown;
+        public boolean hasPosition;
+        public float x;
+        public float y;
+        public int lastMoveIndex = -1;
+    }
+}
@@ -0,0 +1,337 @@
+package ru.nsu.ccfit.zuev.osu.scoring;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.rian.osu.beatmap.PlayableBeatmap;
+import com.rian.osu.beatmap.hitobject.HitCircle;
+import com.rian.osu.beatmap.hitobject.HitObject;
+import com.rian.osu.beatmap.hitobject.Slider;
+import com.rian.osu.beatmap.hitobject.Spinner;
+import com.rian.osu.beatmap.hitobject.sliderobject.SliderTick;
+import com.rian.osu.beatmap.timings.BreakPeriod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+import ru.nsu.ccfit.zuev.osu.game.GameHelper;
+
+/**
+ * Rebuilds a {@link StatisticV2} from the per-object results stored in a {@link Replay}, without simulating gameplay.
+ * <br>
+ * Judgements are applied in the same order and through the same {@link HitJudgement} rules that {@code GameScene}
+ * applies them while playing a replay back, which makes the result deterministic for a given set of objects. Passive
+ * health drain is integrated between judgements instead of per frame, so health can differ slightly from playback
+ * where it reaches its bounds.
+ */
+public class ReplayStatisticReconstructor {
+
+    private final List<HitObject> objects;
+    private final Replay.ReplayObjectData[] objectData;
+    private final List<BreakPeriod> breaks;
+    private final PlayableBeatmap beatmap;
+    private final float overallDifficulty;
+    private final float healthDrain;
+    private final float objectTimePreempt;
+    private final int replayVersion;
+
+    private int spawnedCount;
+    private int breakIndex;
+    private double drainTime;
+    private double breakEndTime;
+    private boolean isDraining;
+
+
+    /**
+     * @param objectData The per-object results of the replay, which are copied so that they're never modified.
+     * @param objectTimePreempt The time an object is spawned before its start time, in seconds.
+     */
+    public ReplayStatisticReconstructor(@NonNull PlayableBeatmap beatmap, @NonNull Replay.ReplayObjectData[] objectData,
+                                        float objectTimePreempt, int replayVersion) {
+        this.beatmap = beatmap;
+        this.objects = beatmap.getHitObjects().objects;
+        this.breaks = beatmap.getEvents().breaks;
+        this.overallDifficulty = beatmap.getDifficulty().od;
+        this.healthDrain = beatmap.getDifficulty().hp;
+        this.objectTimePreempt = objectTimePreempt;
+        this.replayVersion = replayVersion;
+
+        this.objectData = new Replay.ReplayObjectData[objects.size()];
+        System.arraycopy(objectData, 0, this.objectData, 0, Math.min(objectData.length, this.objectData.length));
+    }
+
+    /**
+     * Gets the time at which an object is judged when its replay data is played back, in milliseconds.
+     */
+    public double getJudgementTime(int index) {
+        var object = objects.get(index);
+        var data = getData(index);
+
+        if (object instanceof HitCircle) {
+            float mehWindow = GameHelper.getDifficultyHelper().hitWindowFor50(overallDifficulty);
+            float offset = data.accuracy / 1000f;
+
+            return object.startTime + (Math.abs(offset) > mehWindow ? mehWindow : offset) * 1000;
+        }
+
+        return object.getEndTime();
+    }
+
+    /**
+     * Resets the judgements of a {@link StatisticV2} and applies the results of the first {@code count} objects, along
+     * with the health drained until a time.
+     *
+     * @param stat The statistic to write into.
+     * @param judgement The combo state to write into, as used by gameplay afterwards.
+     * @param count The amount of objects, from the beginning of the beatmap, that have been judged.
+     * @param time The time to drain health until, in milliseconds.
+     * @param hitOffsetListener Receives every hit offset that would have been registered, in seconds.
+     */
+    public void reconstruct(@NonNull StatisticV2 stat, @NonNull HitJudgement judgement, int count, double time,
+                            @Nullable DoubleConsumer hitOffsetListener) {
+        stat.resetJudgements();
+        judgement.reset();
+
+        spawnedCount = 0;
+        breakIndex = 0;
+        drainTime = Double.NEGATIVE_INFINITY;
+        breakEndTime = Double.NaN;
+        isDraining = false;
+
+        var judgements = new ArrayList<Judgement>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            var object = objects.get(i);
+
+            if (object instanceof HitCircle) {
+                judgements.add(new Judgement(getJudgementTime(i), i, Judgement.OBJECT));
+            } else if (object instanceof Slider slider) {
+                var data = getData(i);
+                var nestedObjects = slider.getNestedHitObjects();
+
+                // Nested objects that passed before the head was judged are judged along with the head.
+                double headTime = Math.min(slider.startTime + data.accuracy, slider.getEndTime());
+                judgements.add(new Judgement(headTime, i, Judgement.SLIDER_HEAD));
+
+                // The slider end is judged as part of the whole slider below.
+                for (int j = 1; j < nestedObjects.size() - 1; j++) {
+                    judgements.add(new Judgement(Math.max(nestedObjects.get(j).startTime, headTime), i, j));
+                }
+
+                judgements.add(new Judgement(slider.getEndTime(), i, Judgement.OBJECT));
+            } else if (object instanceof Spinner) {
+                judgements.add(new Judgement(object.getEndTime(), i, Judgement.OBJECT));
+            }
+        }
+
+        // List.sort is stable, so judgements at the same time keep the object order.
+        judgements.sort((a, b) -> Double.compare(a.time, b.time));
+
+        for (int i = 0, size = judgements.size(); i < size; i++) {
+            var entry = judgements.get(i);
+            var object = objects.get(entry.object);
+
+            drainUntil(stat, entry.time);
+
+            if (object instanceof HitCircle) {
+                applyCircle(stat, judgement, entry.object, hitOffsetListener);
+            } else if (object instanceof Slider slider) {
+                applySlider(stat, judgement, slider, entry, hitOffsetListener);
+            } else if (object instanceof Spinner spinner) {
+                applySpinner(stat, judgement, spinner, entry.object);
+            }
+        }
+
+        drainUntil(stat, time);
+    }
+
+    private void applyCircle(StatisticV2 stat, HitJudgement judgement, int index, DoubleConsumer hitOffsetListener) {
+        var data = getData(index);
+        var helper = GameHelper.getDifficultyHelper();
+        var endsCombo = objects.get(index).isLastInCombo();
+        float offset = data.accuracy / 1000f;
+        float accuracy = Math.abs(offset);
+
+        if (accuracy > helper.hitWindowFor50(overallDifficulty)) {
+            // The circle timed out, which is judged as a miss that does not end the combo.
+            judgement.registerHit(stat, 0, false, true);
+            return;
+        }
+
+        if (hitOffsetListener != null) {
+            hitOffsetListener.accept(offset);
+        }
+
+        int score = HitJudgement.getCircleScore(accuracy, data.result, helper, overallDifficulty);
+        judgement.registerHit(stat, score, endsCombo, true);
+    }
+
+    private void applySlider(StatisticV2 stat, HitJudgement judgement, Slider slider, Judgement entry,
+                             DoubleConsumer hitOffsetListener) {
+        var data = getData(entry.object);
+        var nestedObjects = slider.getNestedHitObjects();
+        var helper = GameHelper.getDifficultyHelper();
+        double duration = slider.getDuration() / 1000;
+
+        if (entry.nested == Judgement.SLIDER_HEAD) {
+            double offset = data.accuracy / 1000d;
+
+            if (HitJudgement.isSliderHeadHit(offset, duration, helper, overallDifficulty)) {
+                if (hitOffsetListener != null) {
+                    hitOffsetListener.accept(offset);
+                }
+
+                stat.registerHit(30, false, false);
+            } else {
+                stat.registerHit(0, true, false);
+            }
+            return;
+        }
+
+        if (entry.nested != Judgement.OBJECT) {
+            boolean isHit = data.tickSet != null && data.tickSet.get(entry.nested - 1);
+
+            if (!isHit) {
+                stat.registerHit(0, true, false);
+            } else if (nestedObjects.get(entry.nested) instanceof SliderTick) {
+                stat.registerHit(10, false, false);
+            } else {
+                stat.registerHit(30, false, false);
+            }
+            return;
+        }
+
+        int ticksGot = HitJudgement.isSliderHeadHit(data.accuracy / 1000d, duration, helper, overallDifficulty) ? 1 : 0;
+
+        for (int j = 1; j < nestedObjects.size(); j++) {
+            if (data.tickSet != null && data.tickSet.get(j - 1)) {
+                ticksGot++;
+            }
+        }
+
+        int score = HitJudgement.getSliderScore(ticksGot, nestedObjects.size(), data.accuracy, GameHelper.isScoreV2(),
+            helper, overallDifficulty);
+
+        boolean isTailTracked = data.tickSet != null && data.tickSet.get(nestedObjects.size() - 2);
+        boolean awardCombo = HitJudgement.isSliderEndComboAwarded(isTailTracked, true, replayVersion);
+
+        judgement.registerHit(stat, score, slider.isLastInCombo(), score == 0 || awardCombo);
+    }
+
+    private void applySpinner(StatisticV2 stat, HitJudgement judgement, Spinner spinner, int index) {
+        var data = getData(index);
+
+        float duration = (float) spinner.getDuration() / 1000f;
+        float needRotations = HitJudgement.getSpinnerRequiredRotations(
+            HitJudgement.getSpinnerRotationsPerSecond(overallDifficulty), duration);
+
+        int totalRotations = Math.max(0, data.accuracy / 4);
+        int fullRotations = Math.min(totalRotations, (int) Math.ceil(needRotations));
+
+        for (int i = 0; i < fullRotations; i++) {
+            stat.registerSpinnerHit();
+            stat.changeHp(HitJudgement.getSpinnerRotationHp(false, healthDrain, duration, needRotations));
+        }
+
+        for (int i = fullRotations; i < totalRotations; i++) {
+            stat.registerHit(1000, false, false);
+            stat.changeHp(HitJudgement.getSpinnerRotationHp(true, healthDrain, duration, needRotations));
+        }
+
+        judgement.registerHit(stat, HitJudgement.decodeSpinnerScore(data.accuracy), true, true);
+    }
+
+    /**
+     * Drains health until a time the way {@code GameScene} does every frame. Draining starts once the first object is
+     * spawned, stops at the start of a break and resumes once it's over or the next object is spawned.
+     */
+    private void drainUntil(StatisticV2 stat, double time) {
+
+        while (drainTime < time) {
+            double spawnTime = spawnedCount < objects.size() ? getSpawnTime(spawnedCount) : Double.POSITIVE_INFINITY;
+            double breakStartTime = breakIndex < breaks.size() ? breaks.get(breakIndex).startTime : Double.POSITIVE_INFINITY;
+
+            if (spawnTime <= drainTime) {
+                spawnedCount++;
+                isDraining = true;
+                continue;
+            }
+
+            if (breakStartTime <= drainTime) {
+                breakEndTime = breaks.get(breakIndex).endTime;
+                breakIndex++;
+                isDraining = false;
+                continue;
+            }
+
+            if (breakEndTime <= drainTime) {
+                breakEndTime = Double.NaN;
+                isDraining = true;
+                continue;
+            }
+
+            double next = Math.min(time, Math.min(spawnTime, breakStartTime));
+
+            if (!Double.isNaN(breakEndTime)) {
+                next = Math.min(next, breakEndTime);
+            }
+
+            if (isDraining && spawnedCount > 0) {
+                stat.changeHp(-HitJudgement.getDrainRate(healthDrain, getDistanceToNextObject(spawnedCount - 1)) *
+                    (float) ((next - drainTime) / 1000));
+            }
+
+            drainTime = next;
+        }
+    }
+
+    private double getSpawnTime(int index) {
+        return objects.get(index).startTime - objectTimePreempt * 1000;
+    }
+
+    /**
+     * Mirrors how {@code GameScene} computes the time to the next object when an object is spawned, in seconds.
+     */
+    private double getDistanceToNextObject(int index) {
+        if (index + 1 >= objects.size()) {
+            return 0;
+        }
+
+        var timingPoint = beatmap.getControlPoints().timing.controlPointAt(getSpawnTime(index));
+
+        return Math.max(objects.get(index + 1).startTime - objects.get(index).startTime, timingPoint.msPerBeat / 2) / 1000;
+    }
+
+    private Replay.ReplayObjectData getData(int index) {
+        var data = objectData[index];
+
+        if (data == null) {
+            data = new Replay.ReplayObjectData();
+            objectData[index] = data;
+        }
+
+        return data;
+    }
+
+
+    private static final class Judgement {
+        static final int OBJECT = -1;
+        static final int SLIDER_HEAD = 0;
+
+        final double time;
+        final int object;
+
+        /**
+         * The index of the slider nested object this judgement is for, {@link #SLIDER_HEAD} for the slider head,
+         * or {@link #OBJECT} for the whole object.
+         */
+        final int nested;
+
+        Judgement(double time, int object, int nested) {
+            this.time = time;
+            this.object = object;
+            this.nested = nested;
+        }
+    }
+}
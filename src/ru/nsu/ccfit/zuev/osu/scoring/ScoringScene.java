@@ -1,6 +1,5 @@
 package ru.nsu.ccfit.zuev.osu.scoring;
 
-import android.util.Log;
 
 import com.edlplan.framework.utils.functionality.SmartIterator;
 import com.reco1l.osu.Execution;
@@ -45,6 +44,7 @@ import ru.nsu.ccfit.zuev.osu.game.GameScene;
 import ru.nsu.ccfit.zuev.osu.game.cursor.flashlight.FlashLightEntity;
 import ru.nsu.ccfit.zuev.osu.game.mods.GameMod;
 import ru.nsu.ccfit.zuev.osu.menu.ModMenu;
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoard;
 import ru.nsu.ccfit.zuev.osu.menu.SongMenu;
 import ru.nsu.ccfit.zuev.osu.online.OnlineManager;
 import ru.nsu.ccfit.zuev.osu.online.OnlineScoring;
@@ -496,11 +496,11 @@ public class ScoringScene {
                 stat.setReplayFilename(FilenameUtils.getName(replayPath));
                 stat.setBeatmapMD5(beatmap.getMD5());
 
-                try {
-                    DatabaseManager.getScoreInfoTable().insertScore(stat.toScoreInfo());
-                } catch (Exception e) {
-                    Log.e("GameScene", "Failed to save score to database", e);
-                }
+                var scoreInfo = stat.toScoreInfo();
+                DatabaseManager.async(() -> {
+                    DatabaseManager.getScoreInfoTable().insertScore(scoreInfo);
+                    ScoreBoard.invalidateLocalScores(scoreInfo.getBeatmapMD5());
+                });
             }
 
             if (stat.getTotalScoreWithMultiplier() > 0 && OnlineManager.getInstance().isStayOnline()) {
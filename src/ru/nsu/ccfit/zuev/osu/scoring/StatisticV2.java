@@ -220,6 +220,37 @@ public class StatisticV2 implements Serializable {
         }
     }
 
+    /**
+     * Resets every judgement-derived value of this statistic, leaving the score configuration (mods, multipliers,
+     * beatmap values) untouched.
+     */
+    public void resetJudgements() {
+        hit300 = hit100 = hit50 = 0;
+        hit300k = hit100k = 0;
+        misses = 0;
+        scoreMaxCombo = 0;
+        currentCombo = 0;
+        totalScore = 0;
+        bonusScore = 0;
+        scoreHash = 0;
+        hp = 1;
+        life = 1;
+        isAlive = true;
+
+        resetHitOffsets();
+    }
+
+    /**
+     * Resets the hit offsets and the unstable rate derived from them.
+     */
+    public void resetHitOffsets() {
+        positiveTotalOffsetSum = 0;
+        positiveHitOffsetSum = 0;
+        negativeTotalOffsetSum = 0;
+        negativeHitOffsetSum = 0;
+        unstableRate = 0;
+    }
+
     public float getAccuracy() {
         int notesHit = getNotesHit();
 
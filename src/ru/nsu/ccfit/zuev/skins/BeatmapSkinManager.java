@@ -44,6 +44,16 @@ public class BeatmapSkinManager {
         final File folderFile = new File(beatmapFolder);
         File[] folderFiles = FileUtils.listFiles(folderFile, new String[]{
             ".wav", ".mp3", ".ogg", ".png", ".jpg"});
+        // Gameplay textures are packed into shared atlases once the whole folder was read.
+        ResourceManager.getInstance().beginCustomTextureAtlas();
+        try {
+            loadFiles(folderFiles);
+        } finally {
+            ResourceManager.getInstance().endCustomTextureAtlas();
+        }
+    }
+
+    private void loadFiles(final File[] folderFiles) {
         for (final File f : folderFiles) {
             if (!f.isFile()) {
                 continue;
@@ -0,0 +1,180 @@
+package com.edlplan.framework.support.batch.object;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.edlplan.framework.math.Anchor;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class FlippableTextureQuadTest {
+
+    private static final int QUAD_COUNT = 100000;
+
+    // The storyboard area visible on a 16:9 screen.
+    private static final float LEFT = -107;
+    private static final float TOP = 0;
+    private static final float RIGHT = 747;
+    private static final float BOTTOM = 480;
+
+    private static final Anchor[] ANCHORS = {
+            Anchor.TopLeft,
+            Anchor.TopRight,
+            Anchor.Center,
+            Anchor.CenterRight,
+            Anchor.BottomLeft,
+            Anchor.BottomCenter,
+            Anchor.BottomRight
+    };
+
+
+    @Test
+    public void culledQuadsAreOutsideTheArea() {
+        var random = new Random(0);
+        int culled = 0;
+
+        for (int i = 0; i < QUAD_COUNT; i++) {
+            var quad = quad(random, random.nextBoolean());
+
+            if (!quad.intersects(LEFT, TOP, RIGHT, BOTTOM)) {
+                assertFalse("Quad " + i + " was culled while inside the area", overlapsArea(vertices(quad)));
+                culled++;
+            }
+        }
+
+        // Both sides of the test must be exercised.
+        assertTrue(culled > QUAD_COUNT / 10);
+        assertTrue(culled < QUAD_COUNT * 9 / 10);
+    }
+
+    @Test
+    public void unrotatedQuadsAreCulledExactly() {
+        var random = new Random(1);
+
+        for (int i = 0; i < QUAD_COUNT; i++) {
+            var quad = quad(random, false);
+
+            assertEquals("Quad " + i, overlapsArea(vertices(quad)), quad.intersects(LEFT, TOP, RIGHT, BOTTOM));
+        }
+    }
+
+    @Test
+    public void invisibleQuadsProduceNoVisiblePixels() {
+        var random = new Random(2);
+        int invisible = 0;
+
+        for (int i = 0; i < QUAD_COUNT; i++) {
+            var quad = quad(random, random.nextBoolean());
+
+            // Close to the thresholds so that both outcomes are common.
+            quad.alpha.value = random.nextInt(4) == 0 ? random.nextFloat() * 0.002f : 1;
+            quad.accentColor.a = random.nextInt(4) == 0 ? random.nextFloat() * 0.002f : 1;
+
+            if (random.nextInt(4) == 0) {
+                quad.scale.x.value = (random.nextFloat() - 0.5f) * 0.0004f;
+            }
+
+            if (!quad.isInvisible()) {
+                continue;
+            }
+
+            var vertices = vertices(quad);
+
+            boolean isTransparent = true;
+            for (int v = 0; v < 4; v++) {
+                isTransparent &= vertices[v * 8 + 7] < 0.001f;
+            }
+
+            // Less than a pixel across.
+            float width = Math.min(distance(vertices, 0, 1), distance(vertices, 0, 2));
+
+            assertTrue("Quad " + i + " was culled while visible", isTransparent || width < 1);
+            invisible++;
+        }
+
+        assertTrue(invisible > QUAD_COUNT / 4);
+    }
+
+
+    private static FlippableTextureQuad quad(Random random, boolean isRotated) {
+        var quad = new FlippableTextureQuad().enableScale().enableColor();
+
+        quad.size.set(1 + random.nextFloat() * 999, 1 + random.nextFloat() * 999);
+        quad.position.x.value = -600 + random.nextFloat() * 1800;
+        quad.position.y.value = -500 + random.nextFloat() * 1500;
+        quad.anchor = ANCHORS[random.nextInt(ANCHORS.length)];
+
+        // Negative scales flip the quad around its anchor.
+        quad.scale.x.value = (random.nextFloat() - 0.5f) * 6;
+        quad.scale.y.value = (random.nextFloat() - 0.5f) * 6;
+
+        if (isRotated) {
+            quad.enableRotation();
+            quad.rotation.value = (random.nextFloat() - 0.5f) * 4 * (float) Math.PI;
+        }
+
+        return quad;
+    }
+
+    /**
+     * The vertices the quad is drawn with, 8 floats each: position, texture coordinates and color.
+     */
+    private static float[] vertices(FlippableTextureQuad quad) {
+        var vertices = new float[32];
+        quad.write(vertices, 0);
+        return vertices;
+    }
+
+    private static float distance(float[] vertices, int from, int to) {
+        float dx = vertices[to * 8] - vertices[from * 8];
+        float dy = vertices[to * 8 + 1] - vertices[from * 8 + 1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Whether the parallelogram formed by the vertices overlaps the area, using the separating axis theorem.
+     */
+    private static boolean overlapsArea(float[] vertices) {
+        float[] axes = {
+                1, 0,
+                0, 1,
+                // The normals of the quad's edges.
+                -(vertices[9] - vertices[1]), vertices[8] - vertices[0],
+                -(vertices[17] - vertices[1]), vertices[16] - vertices[0]
+        };
+
+        for (int i = 0; i < axes.length; i += 2) {
+            float ax = axes[i];
+            float ay = axes[i + 1];
+
+            float quadMin = Float.POSITIVE_INFINITY;
+            float quadMax = Float.NEGATIVE_INFINITY;
+
+            for (int v = 0; v < 4; v++) {
+                float projection = vertices[v * 8] * ax + vertices[v * 8 + 1] * ay;
+                quadMin = Math.min(quadMin, projection);
+                quadMax = Math.max(quadMax, projection);
+            }
+
+            float areaMin = Float.POSITIVE_INFINITY;
+            float areaMax = Float.NEGATIVE_INFINITY;
+
+            for (float x : new float[] { LEFT, RIGHT }) {
+                for (float y : new float[] { TOP, BOTTOM }) {
+                    float projection = x * ax + y * ay;
+                    areaMin = Math.min(areaMin, projection);
+                    areaMax = Math.max(areaMax, projection);
+                }
+            }
+
+            if (quadMax < areaMin || quadMin > areaMax) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
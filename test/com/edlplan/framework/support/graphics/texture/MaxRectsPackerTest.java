@@ -0,0 +1,148 @@
+package com.edlplan.framework.support.graphics.texture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.edlplan.framework.math.Vec2Int;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class MaxRectsPackerTest {
+
+    @Test
+    public void firstRectangleIsPlacedAtTheOrigin() {
+        var packer = new MaxRectsPacker(256, 256);
+        var position = packer.insert(100, 50);
+
+        assertEquals(0, position.x);
+        assertEquals(0, position.y);
+        assertEquals(100, packer.getUsedWidth());
+        assertEquals(50, packer.getUsedHeight());
+    }
+
+    @Test
+    public void rectanglesFillThePageCompletely() {
+        var packer = new MaxRectsPacker(256, 256);
+        var placed = new ArrayList<int[]>();
+
+        for (int i = 0; i < 16; i++) {
+            placed.add(place(packer, 64, 64));
+        }
+
+        assertEquals(1f, packer.getOccupancy(), 0);
+        assertNull(packer.insert(1, 1));
+        assertNoOverlap(placed);
+    }
+
+    @Test
+    public void rectanglesLargerThanThePageAreRejected() {
+        var packer = new MaxRectsPacker(256, 256);
+
+        assertNull(packer.insert(257, 1));
+        assertNull(packer.insert(1, 257));
+        assertNotNull(packer.insert(256, 256));
+    }
+
+    @Test
+    public void leftoverSpaceIsReused() {
+        var packer = new MaxRectsPacker(256, 256);
+
+        place(packer, 256, 200);
+        var position = packer.insert(100, 56);
+
+        assertNotNull(position);
+        assertEquals(200, position.y);
+        assertEquals(256, packer.getUsedHeight());
+    }
+
+    @Test
+    public void randomRectanglesDoNotOverlapAndStayInThePage() {
+        var random = new Random(0);
+        var sizes = new ArrayList<int[]>();
+
+        for (int i = 0; i < 500; i++) {
+            sizes.add(new int[] { 1 + random.nextInt(200), 1 + random.nextInt(200) });
+        }
+
+        sizes.sort(MaxRectsPacker.largestFirst(size -> size[0], size -> size[1]));
+
+        var packer = new MaxRectsPacker(2048, 2048);
+        var placed = new ArrayList<int[]>();
+        long area = 0;
+
+        for (int[] size : sizes) {
+            var position = packer.insert(size[0], size[1]);
+
+            if (position != null) {
+                placed.add(new int[] { position.x, position.y, size[0], size[1] });
+                area += (long) size[0] * size[1];
+            }
+        }
+
+        assertNoOverlap(placed);
+
+        for (int[] rect : placed) {
+            assertTrue(rect[0] >= 0 && rect[1] >= 0);
+            assertTrue(rect[0] + rect[2] <= packer.getUsedWidth() && packer.getUsedWidth() <= 2048);
+            assertTrue(rect[1] + rect[3] <= packer.getUsedHeight() && packer.getUsedHeight() <= 2048);
+        }
+
+        assertEquals((float) area / (2048 * 2048), packer.getOccupancy(), 1e-6f);
+
+        // Sorted input of this kind packs well above the shelf packing it replaced.
+        assertTrue(packer.getOccupancy() > 0.8f);
+    }
+
+    @Test
+    public void largestRectanglesComeFirst() {
+        var sizes = Arrays.asList(new int[] { 10, 10 }, new int[] { 5, 40 }, new int[] { 40, 10 }, new int[] { 20, 20 });
+
+        sizes.sort(MaxRectsPacker.largestFirst(size -> size[0], size -> size[1]));
+
+        // Longest side first, then the larger area.
+        assertArrayEquals(new int[] { 40, 10 }, sizes.get(0));
+        assertArrayEquals(new int[] { 5, 40 }, sizes.get(1));
+        assertArrayEquals(new int[] { 20, 20 }, sizes.get(2));
+        assertArrayEquals(new int[] { 10, 10 }, sizes.get(3));
+    }
+
+    @Test
+    public void nextPowerOfTwo() {
+        assertEquals(1, MaxRectsPacker.nextPowerOfTwo(0));
+        assertEquals(1, MaxRectsPacker.nextPowerOfTwo(1));
+        assertEquals(2, MaxRectsPacker.nextPowerOfTwo(2));
+        assertEquals(4, MaxRectsPacker.nextPowerOfTwo(3));
+        assertEquals(1024, MaxRectsPacker.nextPowerOfTwo(1000));
+        assertEquals(1024, MaxRectsPacker.nextPowerOfTwo(1024));
+        assertEquals(2048, MaxRectsPacker.nextPowerOfTwo(1025));
+    }
+
+
+    private static int[] place(MaxRectsPacker packer, int width, int height) {
+        Vec2Int position = packer.insert(width, height);
+        assertNotNull(position);
+        return new int[] { position.x, position.y, width, height };
+    }
+
+    private static void assertNoOverlap(List<int[]> rects) {
+        for (int i = 0; i < rects.size(); i++) {
+            int[] a = rects.get(i);
+
+            for (int j = i + 1; j < rects.size(); j++) {
+                int[] b = rects.get(j);
+
+                boolean overlaps = a[0] < b[0] + b[2] && b[0] < a[0] + a[2] && a[1] < b[1] + b[3] && b[1] < a[1] + a[3];
+                assertFalse("Rectangles " + i + " and " + j + " overlap", overlaps);
+            }
+        }
+    }
+}
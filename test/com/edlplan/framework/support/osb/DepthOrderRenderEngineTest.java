@@ -0,0 +1,196 @@
+package com.edlplan.framework.support.osb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.edlplan.edlosbsupport.elements.StoryboardSprite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class DepthOrderRenderEngineTest {
+
+    @Test
+    public void spritesAreDrawnInDepthOrder() {
+        var engine = new DepthOrderRenderEngine();
+
+        var back = sprite(0);
+        var middle = sprite(5);
+        var front = sprite(10);
+
+        engine.add(front);
+        engine.add(back);
+        engine.add(middle);
+
+        assertEquals(List.of(back, middle, front), drawOrder(engine));
+    }
+
+    @Test
+    public void spritesOfTheSameDepthAreDrawnNewestFirst() {
+        var engine = new DepthOrderRenderEngine();
+
+        var first = sprite(1);
+        var second = sprite(1);
+        var third = sprite(1);
+
+        engine.add(first);
+        engine.add(second);
+        engine.add(third);
+
+        assertEquals(List.of(third, second, first), drawOrder(engine));
+
+        // Added again, it's the newest one.
+        engine.remove(first);
+        engine.add(first);
+
+        assertEquals(List.of(first, third, second), drawOrder(engine));
+    }
+
+    @Test
+    public void removingAMissingSpriteDoesNothing() {
+        var engine = new DepthOrderRenderEngine();
+        var sprite = sprite(1);
+
+        engine.add(sprite);
+        engine.remove(sprite(1));
+        engine.remove(sprite);
+        engine.remove(sprite);
+
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    public void drawOrderMatchesTheLinkedList() {
+        var random = new Random(0);
+        var engine = new DepthOrderRenderEngine();
+        var reference = new LinkedListOrder();
+
+        // Few distinct depths so that most sprites share theirs with others.
+        var sprites = new ArrayList<EGFStoryboardSprite>();
+
+        for (int i = 0; i < 4000; i++) {
+            sprites.add(sprite(random.nextInt(40)));
+        }
+
+        var added = new ArrayList<EGFStoryboardSprite>();
+        var removed = new ArrayList<>(sprites);
+
+        for (int operation = 0; operation < 40000; operation++) {
+            // Adds outweigh removes until most sprites are in the scene.
+            if (removed.isEmpty() || !added.isEmpty() && random.nextInt(3) == 0) {
+                var sprite = added.remove(random.nextInt(added.size()));
+                engine.remove(sprite);
+                reference.remove(sprite);
+                removed.add(sprite);
+            } else {
+                var sprite = removed.remove(random.nextInt(removed.size()));
+                engine.add(sprite);
+                reference.add(sprite);
+                added.add(sprite);
+            }
+
+            assertEquals(reference.size(), engine.size());
+
+            if (operation % 500 == 0) {
+                assertEquals("After " + operation + " operations", reference.toList(), drawOrder(engine));
+            }
+        }
+
+        assertEquals(reference.toList(), drawOrder(engine));
+        assertTrue(engine.size() > 1000);
+    }
+
+
+    private static EGFStoryboardSprite sprite(int depth) {
+        var sprite = new EGFStoryboardSprite(null);
+        sprite.sprite = new StoryboardSprite();
+        sprite.sprite.depth = depth;
+        return sprite;
+    }
+
+    private static List<EGFStoryboardSprite> drawOrder(DepthOrderRenderEngine engine) {
+        var order = new ArrayList<EGFStoryboardSprite>();
+        engine.getSprites().forEach(order::add);
+        return order;
+    }
+
+
+    /**
+     * The ordering of the linked list DepthOrderRenderEngine used before, where a sprite is inserted after the last
+     * sprite of a lower depth.
+     */
+    private static class LinkedListOrder {
+
+        private final Node first = new Node(null);
+
+        private final Node end = new Node(null);
+
+        private int size;
+
+
+        private LinkedListOrder() {
+            first.next = end;
+            end.previous = first;
+        }
+
+
+        private void add(EGFStoryboardSprite sprite) {
+            var node = first;
+
+            for (var s = end.previous; s != first; s = s.previous) {
+                if (s.value.sprite.depth < sprite.sprite.depth) {
+                    node = s;
+                    break;
+                }
+            }
+
+            var inserted = new Node(sprite);
+            inserted.previous = node;
+            inserted.next = node.next;
+            node.next.previous = inserted;
+            node.next = inserted;
+            size++;
+        }
+
+        private void remove(EGFStoryboardSprite sprite) {
+            for (var s = first.next; s != end; s = s.next) {
+                if (s.value == sprite) {
+                    s.previous.next = s.next;
+                    s.next.previous = s.previous;
+                    size--;
+                    break;
+                }
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private List<EGFStoryboardSprite> toList() {
+            var list = new ArrayList<EGFStoryboardSprite>();
+
+            for (var s = first.next; s != end; s = s.next) {
+                list.add(s.value);
+            }
+            return list;
+        }
+    }
+
+    private static class Node {
+
+        private final EGFStoryboardSprite value;
+
+        private Node previous;
+
+        private Node next;
+
+
+        private Node(EGFStoryboardSprite value) {
+            this.value = value;
+        }
+    }
+}
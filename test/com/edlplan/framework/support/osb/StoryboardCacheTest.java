@@ -0,0 +1,147 @@
+package com.edlplan.framework.support.osb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.edlplan.edlosbsupport.OsuStoryboard;
+import com.edlplan.edlosbsupport.OsuStoryboardLayer;
+import com.edlplan.edlosbsupport.elements.IStoryboardElement;
+import com.edlplan.edlosbsupport.elements.StoryboardAnimationSprite;
+import com.edlplan.edlosbsupport.elements.StoryboardSprite;
+import com.edlplan.edlosbsupport.parser.OsbFileParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+
+public class StoryboardCacheTest {
+
+    private static final String STORYBOARD =
+        "[Events]\n" +
+        "//Background and Video events\n" +
+        "0,0,\"background.jpg\",0,0\n" +
+        "//Storyboard Layer 0 (Background)\n" +
+        "Sprite,Background,Centre,\"sb/bg.png\",320,240\n" +
+        " F,0,0,1000,0,1\n" +
+        " S,0,0,1000,0.5,1\n" +
+        "//Storyboard Layer 1 (Fail)\n" +
+        "//Storyboard Layer 2 (Pass)\n" +
+        "//Storyboard Layer 3 (Foreground)\n" +
+        "Sprite,Foreground,TopLeft,\"sb/light.png\",0,0\n" +
+        " M,0,500,1500,0,0,640,480\n" +
+        " L,2000,4\n" +
+        "  R,0,0,250,0,3.14\n" +
+        "Animation,Foreground,Centre,\"sb/anim.png\",320,240,4,100,LoopForever\n" +
+        " C,0,0,1000,255,255,255,0,128,255\n";
+
+
+    @Test
+    public void parsedStoryboardsSurviveARoundTrip() throws Exception {
+        var storyboard = parse(STORYBOARD);
+        var output = new ByteArrayOutputStream();
+
+        StoryboardCache.write(output, "osu:osb", storyboard);
+
+        var cached = StoryboardCache.read(new ByteArrayInputStream(output.toByteArray()), "osu:osb");
+
+        assertNotNull(cached);
+        assertEquals(storyboard.backgroundFile, cached.backgroundFile);
+        assertEquals(storyboard.needReplaceBackground(), cached.needReplaceBackground());
+        assertEquals(storyboard.layers.length, cached.layers.length);
+
+        int elementCount = 0;
+
+        for (int i = 0; i < storyboard.layers.length; i++) {
+            OsuStoryboardLayer layer = storyboard.layers[i];
+            OsuStoryboardLayer cachedLayer = cached.layers[i];
+
+            if (layer == null) {
+                assertNull(cachedLayer);
+                continue;
+            }
+
+            assertEquals(layer.elements.size(), cachedLayer.elements.size());
+
+            for (int j = 0; j < layer.elements.size(); j++) {
+                assertElementEquals(layer.elements.get(j), cachedLayer.elements.get(j));
+                elementCount++;
+            }
+        }
+
+        assertEquals(3, elementCount);
+    }
+
+    @Test
+    public void cachesOfOtherFilesAreIgnored() throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        StoryboardCache.write(output, "osu:osb", parse(STORYBOARD));
+
+        assertNull(StoryboardCache.read(new ByteArrayInputStream(output.toByteArray()), "osu:other"));
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void classesOutsideOfTheModelAreRefused() throws Exception {
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+
+        // A valid header followed by an object that isn't part of the storyboard model.
+        var header = new ByteArrayOutputStream();
+        StoryboardCache.write(header, "osu:osb", parse(STORYBOARD));
+        data.write(header.toByteArray(), 0, 8 + 2 + "osu:osb".length());
+
+        try (var objects = new ObjectOutputStream(data)) {
+            objects.writeObject(new Date());
+        }
+
+        StoryboardCache.read(new ByteArrayInputStream(output.toByteArray()), "osu:osb");
+    }
+
+
+    private static void assertElementEquals(IStoryboardElement expected, IStoryboardElement actual) {
+        assertSame(expected.getClass(), actual.getClass());
+
+        if (expected instanceof StoryboardAnimationSprite) {
+            var expectedAnimation = (StoryboardAnimationSprite) expected;
+            var actualAnimation = (StoryboardAnimationSprite) actual;
+
+            assertEquals(expectedAnimation.frameCount, actualAnimation.frameCount);
+
+            for (int i = 0; i < expectedAnimation.frameCount; i++) {
+                assertEquals(expectedAnimation.buildPath(i), actualAnimation.buildPath(i));
+            }
+        } else if (expected instanceof StoryboardSprite) {
+            assertEquals(((StoryboardSprite) expected).spriteFilename, ((StoryboardSprite) actual).spriteFilename);
+        }
+    }
+
+    private static OsuStoryboard parse(String content) throws Exception {
+        File file = File.createTempFile("storyboard", ".osb");
+        file.deleteOnExit();
+
+        try (var writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+
+        var parser = new OsbFileParser(file, null);
+        parser.parse();
+
+        OsuStoryboard storyboard = parser.getBaseParser().getStoryboard();
+
+        if (storyboard == null) {
+            throw new IOException("The storyboard couldn't be parsed");
+        }
+
+        return storyboard;
+    }
+}
@@ -0,0 +1,143 @@
+package com.edlplan.osu.support.slider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.edlplan.andengine.TriangleBuilder;
+import com.edlplan.framework.math.Vec2;
+import com.edlplan.framework.math.line.LinePath;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class DrawLinePathTest {
+
+    /**
+     * The floats taken by the quads of a segment, 4 triangles of 3 vertices.
+     */
+    private static final int QUAD_FLOATS = 4 * 3 * 2;
+
+    private static final float WIDTH = 20;
+
+
+    @Test
+    public void offsetsFollowThePathOrder() {
+        var path = path();
+        int size = path.size();
+        var jointOffsets = new int[size];
+        var quadOffsets = new int[size];
+
+        var builder = new DrawLinePath().reset(path, WIDTH).computeTriangles(new TriangleBuilder(), jointOffsets, quadOffsets);
+
+        // The start cap comes first.
+        assertTrue(quadOffsets[0] > 0);
+
+        for (int i = 0; i < size - 1; i++) {
+            assertEquals(quadOffsets[i] + QUAD_FLOATS, jointOffsets[i + 1]);
+
+            if (i > 0) {
+                assertTrue(quadOffsets[i] >= jointOffsets[i]);
+            }
+        }
+
+        // As well as the start cap, the end cap is a half circle.
+        assertEquals(quadOffsets[0], builder.length - jointOffsets[size - 1]);
+    }
+
+    @Test
+    public void offsetsDoNotDependOnTheWidth() {
+        var path = path();
+        int size = path.size();
+
+        var jointOffsets = new int[size];
+        var quadOffsets = new int[size];
+        new DrawLinePath().reset(path, WIDTH).computeTriangles(new TriangleBuilder(), jointOffsets, quadOffsets);
+
+        var otherJointOffsets = new int[size];
+        var otherQuadOffsets = new int[size];
+        new DrawLinePath().reset(path, WIDTH * 3).computeTriangles(new TriangleBuilder(), otherJointOffsets, otherQuadOffsets);
+
+        assertArrayEquals(jointOffsets, otherJointOffsets);
+        assertArrayEquals(quadOffsets, otherQuadOffsets);
+    }
+
+    @Test
+    public void quadsAtTheOffsetsBelongToTheirSegment() {
+        var path = path();
+        int size = path.size();
+        var jointOffsets = new int[size];
+        var quadOffsets = new int[size];
+
+        var drawPath = new DrawLinePath();
+        var mesh = copy(drawPath.reset(path, WIDTH).computeTriangles(new TriangleBuilder(), jointOffsets, quadOffsets));
+
+        for (int i = 0; i < size - 1; i++) {
+            Vec2 from = path.get(i);
+            Vec2 to = path.get(i + 1);
+            float theta = Vec2.calTheta(from, to);
+
+            var segment = copy(drawPath.reset(path, WIDTH).computeSegmentTriangles(new TriangleBuilder(), from, to, theta, false, false));
+
+            assertArrayEquals("Segment " + i, segment, Arrays.copyOfRange(mesh, quadOffsets[i], jointOffsets[i + 1]), 0);
+        }
+    }
+
+    @Test
+    public void rangesMatchTheMeshOfTheCoveredPoints() {
+        var path = path();
+        int size = path.size();
+        var jointOffsets = new int[size];
+        var quadOffsets = new int[size];
+
+        var mesh = copy(new DrawLinePath().reset(path, WIDTH).computeTriangles(new TriangleBuilder(), jointOffsets, quadOffsets));
+
+        // A body cut inside segments s and e draws [jointOffsets[s + 1], quadOffsets[e]) from the mesh: the joints of
+        // the points between both cuts and the segments joining them. Those have to be the same triangles as the ones
+        // of a path going from s to e + 1, with the caps and the cut segments left out.
+        for (int s = 0; s < size - 1; s++) {
+            for (int e = s + 1; e < size - 1; e++) {
+                var subPath = new LinePath();
+
+                for (int i = s; i <= e + 1; i++) {
+                    subPath.add(path.get(i));
+                }
+
+                int subSize = subPath.size();
+                var subJointOffsets = new int[subSize];
+                var subQuadOffsets = new int[subSize];
+
+                var subMesh = copy(new DrawLinePath().reset(subPath, WIDTH).computeTriangles(new TriangleBuilder(), subJointOffsets, subQuadOffsets));
+
+                assertArrayEquals(
+                    "Range " + s + " to " + e,
+                    Arrays.copyOfRange(subMesh, subJointOffsets[1], subQuadOffsets[subSize - 2]),
+                    Arrays.copyOfRange(mesh, jointOffsets[s + 1], quadOffsets[e]),
+                    0
+                );
+            }
+        }
+    }
+
+
+    /**
+     * A path with turns in both directions and a straight part, whose joints are empty.
+     */
+    private static LinePath path() {
+        var path = new LinePath();
+        path.add(new Vec2(0, 0));
+        path.add(new Vec2(40, 30));
+        path.add(new Vec2(80, 0));
+        path.add(new Vec2(120, 30));
+        path.add(new Vec2(160, 60));
+        path.add(new Vec2(200, 90));
+        path.add(new Vec2(200, 150));
+        path.add(new Vec2(140, 150));
+        return path;
+    }
+
+    private static float[] copy(TriangleBuilder builder) {
+        return Arrays.copyOf(builder.ary, builder.length);
+    }
+}
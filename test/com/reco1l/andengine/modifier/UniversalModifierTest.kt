@@ -0,0 +1,136 @@
+@file:Suppress("DEPRECATION")
+
+package com.reco1l.andengine.modifier
+
+import com.reco1l.andengine.Modifiers
+import com.reco1l.andengine.modifier.UniversalModifier.Companion.GlobalPool
+import org.anddev.andengine.entity.Entity
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import java.util.Collections
+import java.util.IdentityHashMap
+
+class UniversalModifierTest {
+
+    @Before
+    fun setUp() {
+        GlobalPool.clear()
+    }
+
+
+    @Test
+    fun `finished chains go back to the pool`() {
+        val entity = Entity()
+
+        entity.registerEntityModifier(createChain())
+        run(entity)
+
+        assertEquals(1f, entity.alpha)
+        assertEquals(2f, entity.scaleX)
+        assertEquals(30f, entity.x)
+        assertEquals(40f, entity.y)
+
+        // The sequence, the parallel and the three modifiers inside them.
+        assertEquals(5, GlobalPool.size)
+    }
+
+    @Test
+    fun `chains reuse the modifiers of finished chains`() {
+        val seen = identitySet()
+
+        repeat(100) {
+            val entity = Entity()
+            val chain = createChain()
+
+            collect(chain, seen)
+            entity.registerEntityModifier(chain)
+            run(entity)
+        }
+
+        assertEquals(5, seen.size)
+        assertEquals(5, GlobalPool.size)
+    }
+
+    @Test
+    fun `value arrays and nested lists are kept across pool cycles`() {
+        val entity = Entity()
+        val chain = createChain()
+
+        val modifiers = identitySet()
+        collect(chain, modifiers)
+        val arrays = modifiers.associateWith { ownedArrays(it) }
+
+        entity.registerEntityModifier(chain)
+        run(entity)
+
+        val reused = identitySet()
+        collect(createChain(), reused)
+
+        assertEquals(modifiers, reused)
+
+        for (modifier in reused) {
+            val previous = arrays.getValue(modifier)
+            val current = ownedArrays(modifier)
+
+            for (i in previous.indices) {
+                assertSame(previous[i], current[i])
+            }
+        }
+    }
+
+    @Test
+    fun `recycled modifiers start from their default state`() {
+        Entity().also {
+            it.registerEntityModifier(createChain())
+            run(it)
+        }
+
+        // A recycled sequence must not carry the nested modifiers or the duration of its previous chain.
+        val entity = Entity()
+        val chain = Modifiers.sequence(Modifiers.fadeOut(0.5f), Modifiers.delay(0.25f))
+
+        assertEquals(0.75f, chain.duration)
+
+        entity.registerEntityModifier(chain)
+        run(entity)
+
+        assertEquals(0f, entity.alpha)
+    }
+
+
+    private fun createChain() = Modifiers.sequence(
+        Modifiers.fadeIn(0.5f),
+        Modifiers.parallel(
+            Modifiers.scale(0.5f, 1f, 2f),
+            Modifiers.move(0.25f, 10f, 30f, 20f, 40f)
+        )
+    )
+
+    private fun run(entity: Entity) {
+        // Stepping past the end of the chain, the entity unregisters it once it's finished.
+        repeat(20) { entity.onUpdate(0.1f) }
+    }
+
+    private fun identitySet(): MutableSet<UniversalModifier> = Collections.newSetFromMap(IdentityHashMap())
+
+    private fun collect(modifier: UniversalModifier, into: MutableSet<UniversalModifier>) {
+        into.add(modifier)
+
+        @Suppress("UNCHECKED_CAST")
+        for (nested in field(modifier, "modifiers") as List<UniversalModifier>) {
+            collect(nested, into)
+        }
+    }
+
+    private fun ownedArrays(modifier: UniversalModifier) = listOf(
+        field(modifier, "initialValues"),
+        field(modifier, "finalValues"),
+        field(modifier, "modifiers")
+    )
+
+    private fun field(modifier: UniversalModifier, name: String): Any {
+        return UniversalModifier::class.java.getDeclaredField(name).apply { isAccessible = true }.get(modifier)!!
+    }
+}
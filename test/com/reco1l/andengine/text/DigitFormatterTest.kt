@@ -0,0 +1,109 @@
+package com.reco1l.andengine.text
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.text.DecimalFormat
+import java.text.DecimalFormatSymbols
+import java.util.Locale
+import kotlin.random.Random
+
+class DigitFormatterTest {
+
+    @Test
+    fun `integers are padded with leading zeros`() {
+        assertEquals("0", formatInteger(0))
+        assertEquals("7", formatInteger(7))
+        assertEquals("007", formatInteger(7, 3))
+        assertEquals("-007", formatInteger(-7, 3))
+        assertEquals("123456", formatInteger(123456, 3))
+    }
+
+    @Test
+    fun `long bounds are written without overflowing`() {
+        assertEquals(Long.MAX_VALUE.toString(), formatInteger(Long.MAX_VALUE))
+        assertEquals(Long.MIN_VALUE.toString(), formatInteger(Long.MIN_VALUE))
+        assertEquals(DigitFormatter.MAX_LONG_LENGTH, formatInteger(Long.MIN_VALUE).length)
+    }
+
+    @Test
+    fun `integers match DecimalFormat`() {
+        val random = Random(0)
+
+        for (minDigits in 1..8) {
+            val format = decimalFormat("0".repeat(minDigits))
+
+            repeat(1000) {
+                val value = random.nextLong(-1_000_000_000, 1_000_000_000)
+                assertEquals(format.format(value), formatInteger(value, minDigits))
+            }
+        }
+    }
+
+    @Test
+    fun `fixed point values are rounded half to even on their exact value`() {
+        assertEquals("0.12", formatFixedPoint(0.125, 2))
+        assertEquals("0.38", formatFixedPoint(0.375, 2))
+        assertEquals("2", formatFixedPoint(2.5, 0))
+        assertEquals("4", formatFixedPoint(3.5, 0))
+
+        // 2.85 is slightly above its decimal value although 2.85 * 10 is exactly 28.5 in floating point.
+        assertEquals("2.9", formatFixedPoint(2.85, 1))
+        assertEquals("10.9", formatFixedPoint(10.95, 1))
+    }
+
+    @Test
+    fun `fixed point values keep the sign of negative values`() {
+        assertEquals("-0.50", formatFixedPoint(-0.5, 2))
+        assertEquals("-0.00", formatFixedPoint(-0.001, 2))
+        assertEquals("-0.00", formatFixedPoint(-0.0, 2))
+        assertEquals("-12.35", formatFixedPoint(-12.345678, 2))
+    }
+
+    @Test
+    fun `fixed point values match DecimalFormat`() {
+        val random = Random(0)
+
+        for (decimals in 0..4) {
+            val format = decimalFormat(if (decimals == 0) "0" else "0." + "0".repeat(decimals))
+
+            repeat(20000) {
+                val value = when (it % 3) {
+                    0 -> random.nextDouble(-1000.0, 1000.0)
+                    1 -> random.nextInt(-100000, 100000) / 1000.0
+                    // Values that are ties in decimal, where rounding the scaled value goes wrong.
+                    else -> random.nextInt(-20000, 20000) / 100.0 + 0.005
+                }
+
+                assertEquals("$value with $decimals decimals", format.format(value), formatFixedPoint(value, decimals))
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun `unsupported amounts of decimals are rejected`() {
+        formatFixedPoint(1.0, DigitFormatter.MAX_DECIMALS + 1)
+    }
+
+    @Test
+    fun `values are written at the given position`() {
+        val destination = "x=".toCharArray().copyOf(16)
+
+        var position = DigitFormatter.putFixedPoint(destination, 2, 98.765, 2)
+        position = DigitFormatter.putString(destination, position, "%")
+
+        assertEquals("x=98.77%", String(destination, 0, position))
+    }
+
+
+    private fun formatInteger(value: Long, minDigits: Int = 1): String {
+        val destination = CharArray(DigitFormatter.MAX_LONG_LENGTH + minDigits)
+        return String(destination, 0, DigitFormatter.putInteger(destination, 0, value, minDigits))
+    }
+
+    private fun formatFixedPoint(value: Double, decimals: Int): String {
+        val destination = CharArray(DigitFormatter.MAX_LONG_LENGTH + 2 + decimals)
+        return String(destination, 0, DigitFormatter.putFixedPoint(destination, 0, value, decimals))
+    }
+
+    private fun decimalFormat(pattern: String) = DecimalFormat(pattern, DecimalFormatSymbols(Locale.US))
+}
@@ -0,0 +1,114 @@
+package com.reco1l.andengine.text
+
+import com.reco1l.andengine.text.TextureFont.Companion.INITIAL_GLYPH_CAPACITY
+import com.reco1l.andengine.text.TextureFont.Companion.VERTICES_PER_GLYPH
+import org.anddev.andengine.opengl.buffer.BufferObjectManager
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Test
+import java.nio.FloatBuffer
+
+class TextureFontTest {
+
+    @Before
+    fun setUp() {
+        // Glyph buffers load themselves into the active manager when they're created.
+        BufferObjectManager.setActiveInstance(BufferObjectManager())
+    }
+
+
+    @Test
+    fun `glyph vertices are laid out as two triangles`() {
+        val buffer = FloatBuffer.allocate(2 * FLOATS_PER_GLYPH)
+
+        TextureFont.putGlyphVertices(buffer, 1, 10f, 5f, 7f)
+
+        // The first glyph is left untouched.
+        assertArrayEquals(FloatArray(FLOATS_PER_GLYPH), glyph(buffer, 0), 0f)
+
+        assertArrayEquals(floatArrayOf(
+            10f, 0f, 10f, 7f, 15f, 0f,
+            15f, 0f, 10f, 7f, 15f, 7f
+        ), glyph(buffer, 1), 0f)
+    }
+
+    @Test
+    fun `texture coordinates match the corners of the vertices`() {
+        // A region as a triangle strip: top left, bottom left, top right and bottom right.
+        val region = FloatBuffer.wrap(floatArrayOf(0.1f, 0.2f, 0.1f, 0.8f, 0.6f, 0.2f, 0.6f, 0.8f))
+
+        val vertices = FloatBuffer.allocate(FLOATS_PER_GLYPH)
+        val coordinates = FloatBuffer.allocate(FLOATS_PER_GLYPH)
+
+        TextureFont.putGlyphVertices(vertices, 0, 0f, 1f, 1f)
+        TextureFont.putGlyphTextureCoordinates(coordinates, 0, region)
+
+        assertArrayEquals(floatArrayOf(
+            0.1f, 0.2f, 0.1f, 0.8f, 0.6f, 0.2f,
+            0.6f, 0.2f, 0.1f, 0.8f, 0.6f, 0.8f
+        ), glyph(coordinates, 0), 0f)
+
+        // Every vertex samples the corner of the region it's at.
+        for (vertex in 0 until VERTICES_PER_GLYPH) {
+            val isRight = vertices.get(vertex * 2) == 1f
+            val isBottom = vertices.get(vertex * 2 + 1) == 1f
+            val corner = (if (isRight) 2 else 0) + (if (isBottom) 1 else 0)
+
+            assertEquals(region.get(corner * 2), coordinates.get(vertex * 2), 0f)
+            assertEquals(region.get(corner * 2 + 1), coordinates.get(vertex * 2 + 1), 0f)
+        }
+    }
+
+    @Test
+    fun `buffers only grow past their capacity`() {
+        val initial = INITIAL_GLYPH_CAPACITY
+
+        assertEquals(initial, TextureFont.getGlyphCapacity(initial, 0))
+        assertEquals(initial, TextureFont.getGlyphCapacity(initial, initial))
+
+        val capacity = TextureFont.getGlyphCapacity(initial, initial + 1)
+
+        assertEquals(initial + 5, capacity)
+
+        // Texts a few glyphs longer keep the grown buffers.
+        assertEquals(capacity, TextureFont.getGlyphCapacity(capacity, capacity))
+        assertEquals(capacity, TextureFont.getGlyphCapacity(capacity, 1))
+    }
+
+    @Test
+    fun `grown buffers hold every glyph`() {
+        val capacity = TextureFont.getGlyphCapacity(INITIAL_GLYPH_CAPACITY, INITIAL_GLYPH_CAPACITY + 1)
+        val region = FloatBuffer.wrap(floatArrayOf(0f, 0f, 0f, 1f, 1f, 0f, 1f, 1f))
+
+        val vertexBuffer = TextureFont.GlyphVertexBuffer(capacity).floatBuffer
+        val textureBuffer = TextureFont.GlyphTextureBuffer(capacity).floatBuffer
+
+        assertEquals(capacity * FLOATS_PER_GLYPH, vertexBuffer.capacity())
+        assertEquals(capacity * FLOATS_PER_GLYPH, textureBuffer.capacity())
+
+        for (i in 0 until capacity) {
+            TextureFont.putGlyphVertices(vertexBuffer, i, i * 10f, 10f, 20f)
+            TextureFont.putGlyphTextureCoordinates(textureBuffer, i, region)
+        }
+
+        // The last glyph ends at the end of the buffers, and the next one doesn't fit.
+        assertEquals((capacity - 1) * 10f + 10f, vertexBuffer.get(capacity * FLOATS_PER_GLYPH - 2), 0f)
+        assertEquals(1f, textureBuffer.get(capacity * FLOATS_PER_GLYPH - 1), 0f)
+
+        assertThrows(IndexOutOfBoundsException::class.java) {
+            TextureFont.putGlyphVertices(vertexBuffer, capacity, 0f, 10f, 20f)
+        }
+    }
+
+
+    private fun glyph(buffer: FloatBuffer, index: Int) = FloatArray(FLOATS_PER_GLYPH) {
+        buffer.get(index * FLOATS_PER_GLYPH + it)
+    }
+
+
+    companion object {
+        private const val FLOATS_PER_GLYPH = VERTICES_PER_GLYPH * 2
+    }
+}
@@ -0,0 +1,209 @@
+package com.reco1l.framework.net
+
+import android.app.Application
+import android.graphics.Bitmap
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.awt.image.BufferedImage
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import javax.imageio.ImageIO
+import ru.nsu.ccfit.zuev.osu.Config as GameConfig
+
+// The app's Application class sets up crash reporting, which has nothing to do with images.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class ImageCacheTest {
+
+    private lateinit var server: MockWebServer
+
+    private lateinit var cacheDirectory: File
+
+    private val url
+        get() = server.url("/covers/1.jpg").toString()
+
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+
+        cacheDirectory = Files.createTempDirectory("Cache").toFile()
+        GameConfig.setCachePath(cacheDirectory.path)
+
+        ImageCache.clear()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+        cacheDirectory.deleteRecursively()
+    }
+
+
+    @Test
+    fun `files are fetched once per session`() {
+        server.enqueue(imageResponse(IMAGE, "\"first\""))
+
+        val file = ImageCache.getFile(url)!!
+
+        assertArrayEquals(IMAGE, file.readBytes())
+        assertEquals(file, ImageCache.getFile(url))
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun `cached files are revalidated once in a new session`() {
+        server.enqueue(imageResponse(IMAGE, "\"first\""))
+        ImageCache.getFile(url)
+
+        ImageCache.clear()
+        server.enqueue(MockResponse().setResponseCode(304))
+
+        val file = ImageCache.getFile(url)!!
+
+        server.takeRequest()
+        val request = server.takeRequest()
+
+        assertEquals("\"first\"", request.getHeader("If-None-Match"))
+        assertEquals(LAST_MODIFIED, request.getHeader("If-Modified-Since"))
+        assertArrayEquals(IMAGE, file.readBytes())
+
+        // Validated for the rest of the session.
+        ImageCache.getFile(url)
+
+        assertEquals(2, server.requestCount)
+    }
+
+    @Test
+    fun `changed files are replaced`() {
+        val changedImage = image(16, 16)
+
+        server.enqueue(imageResponse(IMAGE, "\"first\""))
+        ImageCache.getFile(url)
+
+        ImageCache.clear()
+        server.enqueue(imageResponse(changedImage, "\"second\""))
+
+        assertArrayEquals(changedImage, ImageCache.getFile(url)!!.readBytes())
+
+        // The next session revalidates the new version.
+        ImageCache.clear()
+        server.enqueue(MockResponse().setResponseCode(304))
+        ImageCache.getFile(url)
+
+        server.takeRequest()
+        server.takeRequest()
+
+        assertEquals("\"second\"", server.takeRequest().getHeader("If-None-Match"))
+    }
+
+    @Test
+    fun `stale files are used when the server fails`() {
+        server.enqueue(imageResponse(IMAGE, "\"first\""))
+        ImageCache.getFile(url)
+
+        ImageCache.clear()
+        server.enqueue(MockResponse().setResponseCode(500))
+
+        assertArrayEquals(IMAGE, ImageCache.getFile(url)!!.readBytes())
+
+        // Not validated, so the next request tries again.
+        server.enqueue(MockResponse().setResponseCode(304))
+        ImageCache.getFile(url)
+
+        assertEquals(3, server.requestCount)
+    }
+
+    @Test
+    fun `missing images are not cached`() {
+        server.enqueue(MockResponse().setResponseCode(404))
+        server.enqueue(MockResponse().setResponseCode(404))
+
+        assertNull(ImageCache.getFile(url))
+        assertNull(ImageCache.getBitmap(url, 0, 0))
+        assertEquals(2, server.requestCount)
+    }
+
+    @Test
+    fun `concurrent requests are coalesced`() {
+        // Slow enough for every request to arrive while the first one is in flight.
+        server.enqueue(imageResponse(IMAGE, "\"first\"").setBodyDelay(500, TimeUnit.MILLISECONDS))
+
+        val bitmaps = getConcurrently { ImageCache.getBitmap(url, 32, 32) }
+
+        assertEquals(1, server.requestCount)
+
+        for (bitmap in bitmaps) {
+            assertSame(bitmaps[0], bitmap)
+        }
+
+        assertSame(bitmaps[0], ImageCache.getCachedBitmap(url, 32, 32))
+    }
+
+    @Test
+    fun `bitmaps of different sizes share the file`() {
+        server.enqueue(imageResponse(IMAGE, "\"first\""))
+
+        assertNotNull(ImageCache.getBitmap(url, 32, 32))
+        assertNotNull(ImageCache.getBitmap(url, 8, 8))
+        assertNull(ImageCache.getCachedBitmap(url, 16, 16))
+        assertEquals(1, server.requestCount)
+    }
+
+
+    private fun getConcurrently(block: () -> Bitmap?): List<Bitmap?> {
+        val executor = Executors.newFixedThreadPool(THREAD_COUNT)
+        val start = CountDownLatch(1)
+
+        val futures = List(THREAD_COUNT) {
+            executor.submit<Bitmap?> {
+                start.await()
+                block()
+            }
+        }
+
+        start.countDown()
+
+        val results = futures.map { it.get(10, TimeUnit.SECONDS) }
+        executor.shutdown()
+
+        return results
+    }
+
+    private fun imageResponse(image: ByteArray, eTag: String) = MockResponse()
+        .setHeader("ETag", eTag)
+        .setHeader("Last-Modified", LAST_MODIFIED)
+        .setBody(Buffer().write(image))
+
+
+    companion object {
+        private const val THREAD_COUNT = 8
+
+        private const val LAST_MODIFIED = "Mon, 19 Oct 2026 00:00:00 GMT"
+
+        private val IMAGE = image(64, 64)
+
+        private fun image(width: Int, height: Int): ByteArray {
+            val output = ByteArrayOutputStream()
+            ImageIO.write(BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output)
+            return output.toByteArray()
+        }
+    }
+}
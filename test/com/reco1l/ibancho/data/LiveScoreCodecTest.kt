@@ -0,0 +1,126 @@
+package com.reco1l.ibancho.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import ru.nsu.ccfit.zuev.osu.menu.ScoreBoardItem
+import java.io.ByteArrayOutputStream
+import java.io.EOFException
+
+class LiveScoreCodecTest {
+
+    @Test
+    fun `encoded updates decode to the same values`() {
+        val first = ScoreBoardItem("player", 123456, 321, 0.9876f, true)
+        val second = ScoreBoardItem("プレイヤー", 0, 0, 1f, false)
+
+        val updates = LiveScoreCodec.decodeBatch(batch(
+            "player" to LiveScoreCodec.encode(null, first)!!,
+            "プレイヤー" to LiveScoreCodec.encode(null, second)!!
+        ))
+
+        assertEquals(2, updates.size)
+
+        updates[0].let {
+            assertEquals("player", it.username)
+            assertEquals(123456, it.score)
+            assertEquals(321, it.combo)
+            assertEquals(0.9876f, it.accuracy)
+            assertTrue(it.isAlive)
+        }
+
+        updates[1].let {
+            assertEquals("プレイヤー", it.username)
+            assertEquals(1f, it.accuracy)
+            assertFalse(it.isAlive)
+        }
+    }
+
+    @Test
+    fun `only changed fields are encoded`() {
+        val previous = ScoreBoardItem("player", 1000, 10, 1f, true)
+        val current = ScoreBoardItem("player", 1300, 10, 1f, true)
+
+        val update = LiveScoreCodec.decodeBatch(batch("player" to LiveScoreCodec.encode(previous, current)!!))[0]
+
+        assertEquals(LiveScoreCodec.SCORE, update.mask)
+        assertEquals(1300, update.score)
+        assertFalse(update.has(LiveScoreCodec.COMBO))
+    }
+
+    @Test
+    fun `unchanged items are not encoded`() {
+        val item = ScoreBoardItem("player", 1000, 10, 1f, true)
+
+        assertNull(LiveScoreCodec.encode(item, ScoreBoardItem("player", 1000, 10, 1f, true)))
+    }
+
+    @Test
+    fun `empty batches decode to nothing`() {
+        assertTrue(LiveScoreCodec.decodeBatch(byteArrayOf(0)).isEmpty())
+    }
+
+    @Test(expected = EOFException::class)
+    fun `truncated data is rejected`() {
+        val data = batch("player" to LiveScoreCodec.encode(null, ScoreBoardItem("player", 1000, 10, 1f, true))!!)
+
+        LiveScoreCodec.decodeBatch(data.copyOf(data.size - 1))
+    }
+
+    @Test(expected = EOFException::class)
+    fun `counts larger than the data are rejected`() {
+        LiveScoreCodec.decodeBatch(ByteArrayOutputStream().also { writeVarInt(it, Int.MAX_VALUE) }.toByteArray())
+    }
+
+    @Test(expected = EOFException::class)
+    fun `negative counts are rejected`() {
+        LiveScoreCodec.decodeBatch(ByteArrayOutputStream().also { writeVarInt(it, -1) }.toByteArray())
+    }
+
+    @Test(expected = EOFException::class)
+    fun `string lengths larger than the data are rejected`() {
+        LiveScoreCodec.decodeBatch(ByteArrayOutputStream().also {
+            writeVarInt(it, 1)
+            writeVarInt(it, 1000)
+            it.write(0)
+        }.toByteArray())
+    }
+
+    @Test(expected = EOFException::class)
+    fun `negative string lengths are rejected`() {
+        LiveScoreCodec.decodeBatch(ByteArrayOutputStream().also {
+            writeVarInt(it, 1)
+            writeVarInt(it, -1)
+            it.write(0)
+        }.toByteArray())
+    }
+
+
+    /**
+     * Builds a batch the way the server sends it, from client encoded updates.
+     */
+    private fun batch(vararg updates: Pair<String, ByteArray>): ByteArray {
+        val output = ByteArrayOutputStream()
+        writeVarInt(output, updates.size)
+
+        for ((username, fields) in updates) {
+            val name = username.toByteArray(Charsets.UTF_8)
+            writeVarInt(output, name.size)
+            output.write(name)
+            output.write(fields)
+        }
+
+        return output.toByteArray()
+    }
+
+    private fun writeVarInt(output: ByteArrayOutputStream, value: Int) {
+        var remaining = value
+        while (remaining and 0x7F.inv() != 0) {
+            output.write(remaining and 0x7F or 0x80)
+            remaining = remaining ushr 7
+        }
+        output.write(remaining)
+    }
+}
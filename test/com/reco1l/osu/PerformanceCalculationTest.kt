@@ -0,0 +1,320 @@
+package com.reco1l.osu
+
+import android.app.Application
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.reco1l.osu.data.BeatmapInfo
+import com.reco1l.osu.data.DatabaseManager
+import com.reco1l.osu.data.DroidDatabase
+import com.reco1l.osu.data.ScoreInfo
+import com.rian.osu.beatmap.parser.BeatmapParser
+import com.rian.osu.difficulty.calculator.PerformanceCalculator
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicInteger
+import ru.nsu.ccfit.zuev.osu.Config as GameConfig
+
+// The app's Application class sets up crash reporting, which has nothing to do with performance calculation.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class PerformanceCalculationTest {
+
+    private lateinit var database: DroidDatabase
+
+    private lateinit var songsDirectory: File
+
+    private val transactionCount = AtomicInteger()
+
+
+    @Before
+    fun setUp() {
+        // Statistics take the player name from the configuration, which isn't loaded in tests.
+        GameConfig.setOnlineUsername("")
+
+        songsDirectory = Files.createTempDirectory("Songs").toFile()
+        GameConfig.setBeatmapPath("${songsDirectory.path}/")
+
+        database = DatabaseManager.configure(
+            Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DroidDatabase::class.java)
+        ).setQueryCallback({ sql, _ ->
+            if (sql.startsWith("BEGIN")) {
+                transactionCount.incrementAndGet()
+            }
+        }, { it.run() }).build()
+
+        DatabaseManager.load(database)
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+        songsDirectory.deleteRecursively()
+    }
+
+
+    @Test
+    fun `scores of a beatmap that isn't imported are marked unavailable`() {
+        val beatmap = createBeatmap()
+
+        query {
+            DatabaseManager.scoreInfoTable.insertScores(createScores(beatmap.md5, 3))
+            calculatePendingScores()
+        }
+
+        assertUnavailable(beatmap.md5, 3)
+
+        // They're calculated again once their beatmap is imported.
+        val pendingScores = query {
+            DatabaseManager.beatmapInfoTable.insertAll(listOf(beatmap))
+            DatabaseManager.scoreInfoTable.resetUnavailablePerformance()
+            DatabaseManager.scoreInfoTable.getScoresWithoutPerformance()
+        }
+
+        assertEquals(3, pendingScores.size)
+
+        query { PerformanceCalculationManager.calculateBeatmap(pendingScores, this) }
+
+        assertCalculated(beatmap.md5, 3)
+    }
+
+    @Test
+    fun `scores of a beatmap that can't be parsed are marked unavailable`() {
+        val beatmap = createBeatmap()
+        File(beatmap.path).delete()
+
+        query {
+            DatabaseManager.beatmapInfoTable.insertAll(listOf(beatmap))
+            DatabaseManager.scoreInfoTable.insertScores(createScores(beatmap.md5, 3))
+            calculatePendingScores()
+        }
+
+        assertUnavailable(beatmap.md5, 3)
+    }
+
+    @Test
+    fun `scores are written in batches`() {
+        val beatmap = createBeatmap()
+        val scoreCount = 2 * PerformanceCalculationManager.BATCH_SIZE + 200
+
+        val pendingScores = query {
+            DatabaseManager.beatmapInfoTable.insertAll(listOf(beatmap))
+            DatabaseManager.scoreInfoTable.insertScores(createScores(beatmap.md5, scoreCount))
+            DatabaseManager.scoreInfoTable.getScoresWithoutPerformance()
+        }
+
+        transactionCount.set(0)
+        query { PerformanceCalculationManager.calculateBeatmap(pendingScores, this) }
+
+        assertEquals(3, transactionCount.get())
+        assertCalculated(beatmap.md5, scoreCount)
+    }
+
+    @Test
+    fun `scores share the attributes of their mods`() {
+        val beatmap = createBeatmap()
+
+        query {
+            DatabaseManager.beatmapInfoTable.insertAll(listOf(beatmap))
+            DatabaseManager.scoreInfoTable.insertScores(createScores(beatmap.md5, 200))
+            calculatePendingScores()
+        }
+
+        val scores = getScores(beatmap.md5)
+
+        // Calculating a score alone gives the same performance as with every other score of the beatmap.
+        for (mods in MODS) {
+            val score = scores.first { it.mods == mods }
+
+            val alone = query {
+                DatabaseManager.scoreInfoTable.resetPerformance()
+                PerformanceCalculationManager.calculateBeatmap(listOf(score), this)
+                DatabaseManager.scoreInfoTable.getScore(score.id.toInt())!!
+            }
+
+            assertEquals(mods, score.droidPP!!, alone.droidPP!!, 0.0)
+            assertEquals(mods, score.standardPP!!, alone.standardPP!!, 0.0)
+        }
+
+        // Different mods have different attributes.
+        val nomod = scores.first { it.mods == "|" && it.hit100 == 0 }
+        val hardRock = scores.first { it.mods == "r|" && it.hit100 == 0 }
+
+        assertTrue(hardRock.droidPP!! > nomod.droidPP!!)
+        assertTrue(hardRock.standardPP!! > nomod.standardPP!!)
+    }
+
+    @Test
+    fun `outdated performance is calculated again once`() {
+        val beatmap = createBeatmap()
+        val scoreCount = PerformanceCalculationManager.BATCH_SIZE + 100
+        val preferences = ApplicationProvider.getApplicationContext<Context>()
+            .getSharedPreferences("performance", Context.MODE_PRIVATE)
+
+        preferences.edit().putLong("performanceVersion", PerformanceCalculator.VERSION - 1).commit()
+
+        query {
+            DatabaseManager.beatmapInfoTable.insertAll(listOf(beatmap))
+            DatabaseManager.scoreInfoTable.insertScores(createScores(beatmap.md5, scoreCount))
+            calculatePendingScores()
+        }
+
+        assertCalculated(beatmap.md5, scoreCount)
+
+        val pendingScores = query {
+            PerformanceCalculationManager.resetOutdatedPerformance(preferences)
+            DatabaseManager.scoreInfoTable.getScoresWithoutPerformance()
+        }
+
+        assertEquals(scoreCount, pendingScores.size)
+        assertEquals(PerformanceCalculator.VERSION, preferences.getLong("performanceVersion", 0))
+
+        transactionCount.set(0)
+        query { PerformanceCalculationManager.calculateBeatmap(pendingScores, this) }
+
+        assertEquals(2, transactionCount.get())
+        assertCalculated(beatmap.md5, scoreCount)
+
+        // The current version leaves the performance alone.
+        val stillPendingScores = query {
+            PerformanceCalculationManager.resetOutdatedPerformance(preferences)
+            DatabaseManager.scoreInfoTable.getScoresWithoutPerformance()
+        }
+
+        assertEquals(0, stillPendingScores.size)
+    }
+
+
+    private fun assertUnavailable(md5: String, scoreCount: Int) {
+        val scores = getScores(md5)
+
+        assertEquals(scoreCount, scores.size)
+
+        for (score in scores) {
+            assertEquals(ScoreInfo.PERFORMANCE_UNAVAILABLE, score.droidPP!!, 0.0)
+            assertEquals(ScoreInfo.PERFORMANCE_UNAVAILABLE, score.standardPP!!, 0.0)
+        }
+
+        assertEquals(0, query { DatabaseManager.scoreInfoTable.getScoresWithoutPerformance() }.size)
+    }
+
+    private fun assertCalculated(md5: String, scoreCount: Int) {
+        val scores = getScores(md5)
+
+        assertEquals(scoreCount, scores.size)
+
+        for (score in scores) {
+            assertTrue(score.droidPP!! > 0)
+            assertTrue(score.standardPP!! > 0)
+        }
+
+        assertEquals(0, query { DatabaseManager.scoreInfoTable.getScoresWithoutPerformance() }.size)
+    }
+
+    private fun getScores(md5: String) = query {
+        val table = DatabaseManager.scoreInfoTable
+
+        table.getBeatmapLeaderboard(md5, 0, table.getBeatmapScoreCount(md5)).map { table.getScore(it.id.toInt())!! }
+    }
+
+    /**
+     * Runs a block on the database thread, as tests run on the main thread.
+     */
+    private fun <T> query(block: CoroutineScope.() -> T) = runBlocking {
+        DatabaseManager.query { block(this@runBlocking) }
+    }
+
+    /**
+     * Calculates every pending score the way [PerformanceCalculationManager.calculatePerformances] does, without its
+     * thread pool.
+     */
+    private fun CoroutineScope.calculatePendingScores() {
+        DatabaseManager.scoreInfoTable.getScoresWithoutPerformance().groupBy { it.beatmapMD5 }.values.forEach {
+            PerformanceCalculationManager.calculateBeatmap(it, this)
+        }
+    }
+
+    private fun createScores(md5: String, count: Int) = List(count) {
+        val hit100 = it / MODS.size % 5
+        val misses = it / MODS.size / 5 % 3
+
+        ScoreInfo(
+            beatmapMD5 = md5,
+            playerName = "Player",
+            replayFilename = "",
+            mods = MODS[it % MODS.size],
+            score = 1000000 - it,
+            maxCombo = if (misses == 0) OBJECT_COUNT else OBJECT_COUNT / 2,
+            mark = "A",
+            hit300k = 0,
+            hit300 = OBJECT_COUNT - hit100 - misses,
+            hit100k = 0,
+            hit100 = hit100,
+            hit50 = 0,
+            misses = misses,
+            time = it.toLong()
+        )
+    }
+
+    private fun createBeatmap(): BeatmapInfo {
+        val file = File(songsDirectory, "1 Test - Performance/beatmap.osu")
+        file.parentFile!!.mkdirs()
+
+        val hitObjects = StringBuilder()
+
+        for (i in 0 until OBJECT_COUNT) {
+            val x = if (i % 2 == 0) 64 else 448
+            val type = if (i % 4 == 0) 5 else 1
+
+            hitObjects.append("$x,${96 + i % 3 * 96},${1000 + i * 150},$type,0,0:0:0:0:\n")
+        }
+
+        file.writeText("""
+            |osu file format v14
+            |
+            |[General]
+            |AudioFilename: audio.mp3
+            |Mode: 0
+            |
+            |[Metadata]
+            |Title:Performance
+            |Artist:Test
+            |Version:Normal
+            |
+            |[Difficulty]
+            |HPDrainRate:5
+            |CircleSize:4
+            |OverallDifficulty:8
+            |ApproachRate:9
+            |SliderMultiplier:1.4
+            |SliderTickRate:1
+            |
+            |[TimingPoints]
+            |0,300,4,2,0,100,1,0
+            |
+            |[HitObjects]
+            |$hitObjects""".trimMargin())
+
+        return BeatmapInfo(BeatmapParser(file).use { it.parse(true)!! }, file.lastModified(), false)
+    }
+
+
+    companion object {
+        private const val OBJECT_COUNT = 64
+
+        /**
+         * No mods, Hard Rock, Double Time, and no mods in the format of scores set before the extra mods string.
+         */
+        private val MODS = listOf("|", "r|", "d|", "")
+    }
+}
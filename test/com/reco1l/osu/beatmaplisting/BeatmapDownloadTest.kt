@@ -0,0 +1,228 @@
+package com.reco1l.osu.beatmaplisting
+
+import android.app.Application
+import com.reco1l.osu.beatmaplisting.BeatmapDownload.State
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.SocketPolicy
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.charset.Charset
+import java.nio.file.Files
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.random.Random
+import ru.nsu.ccfit.zuev.osu.Config as GameConfig
+
+// The app's Application class sets up crash reporting, which has nothing to do with downloads.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class BeatmapDownloadTest {
+
+    private lateinit var server: MockWebServer
+
+    private lateinit var downloadDirectory: File
+
+    private lateinit var songsDirectory: File
+
+    private val partialFile
+        get() = File(downloadDirectory, "$FILENAME.osz.part")
+
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+
+        downloadDirectory = Files.createTempDirectory("Downloads").toFile()
+        songsDirectory = Files.createTempDirectory("Songs").toFile()
+        GameConfig.setBeatmapPath("${songsDirectory.path}/")
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+        downloadDirectory.deleteRecursively()
+        songsDirectory.deleteRecursively()
+    }
+
+
+    @Test
+    fun `completed transfers are extracted into the beatmaps directory`() {
+        val archive = archive(ENTRIES)
+        val download = download()
+
+        server.enqueue(MockResponse().setBody(Buffer().write(archive)))
+        download.execute()
+
+        assertNull(server.takeRequest().getHeader("Range"))
+
+        assertEquals(State.Completed, download.state)
+        assertEquals(archive.size.toLong(), download.receivedBytes)
+        assertEquals(archive.size.toLong(), download.totalBytes)
+        assertExtracted(download)
+    }
+
+    @Test
+    fun `truncated transfers are resumed with a range request`() {
+        val archive = archive(ENTRIES)
+        val download = download()
+
+        server.enqueue(MockResponse()
+            .setBody(Buffer().write(archive))
+            .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY))
+
+        assertThrows(IOException::class.java) { download.execute() }
+        assertEquals(State.Failed, download.state)
+
+        // The received bytes are kept, and nothing reaches the beatmaps directory.
+        val received = partialFile.length().toInt()
+
+        assertTrue(received in 1 until archive.size)
+        assertArrayEquals(archive.copyOf(received), partialFile.readBytes())
+        assertFalse(download.getDirectory().exists())
+
+        server.enqueue(MockResponse()
+            .setResponseCode(206)
+            .setHeader("Content-Range", "bytes $received-${archive.size - 1}/${archive.size}")
+            .setBody(Buffer().write(archive, received, archive.size - received)))
+
+        download.execute()
+
+        server.takeRequest()
+        assertEquals("bytes=$received-", server.takeRequest().getHeader("Range"))
+
+        assertEquals(State.Completed, download.state)
+        assertEquals(archive.size.toLong(), download.receivedBytes)
+        assertEquals(archive.size.toLong(), download.totalBytes)
+        assertExtracted(download)
+    }
+
+    @Test
+    fun `servers that ignore the range send the whole archive again`() {
+        val archive = archive(ENTRIES)
+        val download = download()
+
+        // What's left of a transfer of an older version of the set.
+        partialFile.writeBytes(Random(1).nextBytes(1000))
+
+        server.enqueue(MockResponse().setBody(Buffer().write(archive)))
+        download.execute()
+
+        assertEquals("bytes=1000-", server.takeRequest().getHeader("Range"))
+
+        assertEquals(State.Completed, download.state)
+        assertEquals(archive.size.toLong(), download.receivedBytes)
+        assertExtracted(download)
+    }
+
+    @Test
+    fun `complete partial archives are extracted from the file`() {
+        val archive = archive(ENTRIES)
+        val download = download()
+
+        partialFile.writeBytes(archive)
+
+        server.enqueue(MockResponse().setResponseCode(416))
+        download.execute()
+
+        assertEquals("bytes=${archive.size}-", server.takeRequest().getHeader("Range"))
+
+        assertEquals(State.Completed, download.state)
+        assertEquals(archive.size.toLong(), download.receivedBytes)
+        assertExtracted(download)
+    }
+
+    @Test
+    fun `archives that can't be extracted while receiving are extracted afterwards`() {
+        val content = "osu file format v14".toByteArray()
+
+        // ZipInputStream can't read entry names that aren't encoded in UTF-8.
+        val archive = archive(mapOf("譜面.osu" to content), Charset.forName("Shift_JIS"))
+        val download = download()
+
+        server.enqueue(MockResponse().setBody(Buffer().write(archive)))
+        download.execute()
+
+        assertEquals(State.Completed, download.state)
+
+        val files = download.getDirectory().listFiles()!!
+
+        assertEquals(1, files.size)
+        assertArrayEquals(content, files[0].readBytes())
+        assertTrue(downloadDirectory.listFiles()!!.isEmpty())
+    }
+
+    @Test
+    fun `cancelling deletes what was received`() {
+        val archive = archive(ENTRIES)
+        val download = download()
+
+        server.enqueue(MockResponse()
+            .setBody(Buffer().write(archive))
+            .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY))
+
+        assertThrows(IOException::class.java) { download.execute() }
+        assertTrue(partialFile.exists())
+
+        download.cancel()
+
+        assertEquals(State.Cancelled, download.state)
+        assertTrue(downloadDirectory.listFiles()!!.isEmpty())
+        assertFalse(download.getDirectory().exists())
+    }
+
+
+    private fun download() = BeatmapDownload(server.url("/d/1").toString(), FILENAME, downloadDirectory)
+
+    private fun assertExtracted(download: BeatmapDownload) {
+        for ((name, content) in ENTRIES) {
+            assertArrayEquals(name, content, File(download.getDirectory(), name).readBytes())
+        }
+
+        // The partial archive and the extraction directory are gone.
+        assertTrue(downloadDirectory.listFiles()!!.isEmpty())
+    }
+
+    private fun archive(entries: Map<String, ByteArray>, charset: Charset = Charsets.UTF_8): ByteArray {
+        val output = ByteArrayOutputStream()
+
+        ZipOutputStream(output, charset).use { zip ->
+            for ((name, content) in entries) {
+                zip.putNextEntry(ZipEntry(name))
+                zip.write(content)
+                zip.closeEntry()
+            }
+        }
+
+        return output.toByteArray()
+    }
+
+
+    companion object {
+        private const val FILENAME = "1 Artist - Title"
+
+        /**
+         * A beatmap set large enough to be truncated in the middle of an entry, random bytes don't compress.
+         */
+        private val ENTRIES = mapOf(
+            "beatmap.osu" to "osu file format v14".toByteArray(),
+            "audio.mp3" to Random(0).nextBytes(300_000),
+            "sb/background.png" to Random(2).nextBytes(4000)
+        )
+    }
+}
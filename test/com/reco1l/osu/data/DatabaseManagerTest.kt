@@ -0,0 +1,71 @@
+package com.reco1l.osu.data
+
+import android.app.Application
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+// The app's Application class sets up crash reporting, which has nothing to do with the database.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class DatabaseManagerTest {
+
+    private lateinit var database: DroidDatabase
+
+
+    @Before
+    fun setUp() {
+        database = DatabaseManager.configure(
+            Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DroidDatabase::class.java)
+        ).build()
+
+        DatabaseManager.load(database)
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+
+    @Test
+    fun `tables can't be obtained on the main thread`() {
+        // Robolectric runs tests on the main thread.
+        assertThrows(IllegalStateException::class.java) { DatabaseManager.blockAreaTable }
+    }
+
+    @Test
+    fun `queries can't run on the main thread`() {
+        val table = runBlocking { DatabaseManager.query { DatabaseManager.blockAreaTable } }
+
+        // Room refuses queries on the main thread on its own, even through a table obtained elsewhere.
+        assertThrows(IllegalStateException::class.java) { table.getAll() }
+    }
+
+    @Test
+    fun `queries run on the database thread`() {
+        val threadName = runBlocking { DatabaseManager.query { Thread.currentThread().name } }
+
+        assertEquals("Database", threadName)
+    }
+
+    @Test
+    fun `operations run asynchronously are visible to later queries`() {
+        runBlocking {
+            DatabaseManager.async { DatabaseManager.blockAreaTable.insert(BlockArea(x = 1f, y = 2f, width = 3f, height = 4f)) }.join()
+
+            val blockAreas = DatabaseManager.query { DatabaseManager.blockAreaTable.getAll() }
+
+            assertEquals(1, blockAreas.size)
+            assertEquals(3f, blockAreas[0].width)
+        }
+    }
+}
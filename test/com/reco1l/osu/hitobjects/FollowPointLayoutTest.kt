@@ -0,0 +1,245 @@
+package com.reco1l.osu.hitobjects
+
+import android.app.Application
+import com.rian.osu.beatmap.hitobject.HitObject
+import com.rian.osu.beatmap.hitobject.Spinner
+import com.rian.osu.beatmap.parser.BeatmapParser
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import kotlin.math.atan2
+import kotlin.math.cos
+import kotlin.math.hypot
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sin
+import kotlin.random.Random
+
+// The app's Application class sets up crash reporting, which has nothing to do with follow points.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class FollowPointLayoutTest {
+
+    @Test
+    fun `points match the connection math`() {
+        val objects = objects()
+        val layout = FollowPointLayout.create(objects)
+
+        val expected = mutableListOf<Point>()
+
+        for (i in 0 until objects.size - 1) {
+            val start = objects[i]
+            val end = objects[i + 1]
+
+            // The same condition GameScene checked before adding a connection.
+            if (start !is Spinner && end !is Spinner && !start.isLastInCombo) {
+                addConnection(expected, start, end)
+            }
+        }
+
+        // List.sortedBy is stable, which is the order points of the same time had before.
+        val sorted = expected.sortedBy { it.fadeInTime }
+
+        assertEquals(sorted.size, layout.size)
+        assertTrue(layout.size > 100)
+
+        for (i in sorted.indices) {
+            val point = sorted[i]
+            val message = "Point $i"
+
+            assertEquals(message, point.startX, layout.startX[i], 0f)
+            assertEquals(message, point.startY, layout.startY[i], 0f)
+            assertEquals(message, point.endX, layout.endX[i], 0f)
+            assertEquals(message, point.endY, layout.endY[i], 0f)
+            assertEquals(message, point.scale, layout.scales[i], 0f)
+            assertEquals(message, point.fadeInTime, layout.fadeInTimes[i], 0f)
+            assertEquals(message, point.fadeOutTime, layout.fadeOutTimes[i], 0f)
+            assertEquals(message, point.fadeDuration, layout.fadeDurations[i], 0f)
+
+            // The rotation was given to sprites in degrees.
+            val radians = Math.toRadians(point.rotation.toDouble())
+
+            assertEquals(message, cos(radians).toFloat(), layout.rotationCos[i], 1e-5f)
+            assertEquals(message, sin(radians).toFloat(), layout.rotationSin[i], 1e-5f)
+        }
+    }
+
+    @Test
+    fun `first visible index finds every visible point of overlapping connections`() {
+        val layout = FollowPointLayout.create(objects())
+        var maxVisibleCount = 0
+
+        val lastTime = layout.fadeOutTimes.max() + layout.fadeDurations.max()
+        var time = layout.fadeInTimes[0] - 1f
+
+        while (time < lastTime + 1f) {
+            val firstIndex = layout.firstVisibleIndex(time)
+            var visibleCount = 0
+
+            for (i in 0 until layout.size) {
+                val isVisible = layout.fadeInTimes[i] <= time && time < layout.fadeOutTimes[i] + layout.fadeDurations[i]
+
+                if (isVisible) {
+                    assertTrue("Point $i is visible at $time before $firstIndex", i >= firstIndex)
+                    visibleCount++
+                }
+            }
+
+            // The renderer stops at the first point that fades in after the time, nothing visible is past it.
+            var end = firstIndex
+
+            while (end < layout.size && layout.fadeInTimes[end] <= time) {
+                end++
+            }
+
+            for (i in end until layout.size) {
+                assertTrue(layout.fadeInTimes[i] > time)
+            }
+
+            maxVisibleCount = max(maxVisibleCount, visibleCount)
+            time += 0.005f
+        }
+
+        // Points of several connections are visible at the same time.
+        assertTrue(maxVisibleCount > 40)
+    }
+
+    @Test
+    fun `points are sorted by their fade in time`() {
+        val layout = FollowPointLayout.create(objects())
+
+        for (i in 1 until layout.size) {
+            assertTrue(layout.fadeInTimes[i - 1] <= layout.fadeInTimes[i])
+        }
+    }
+
+    @Test
+    fun `sorted indices match a stable sort`() {
+        val random = Random(0)
+
+        // Negative values and duplicates, as the first points of a beatmap can fade in before it starts.
+        val values = FloatArray(2000) { (random.nextInt(400) - 100) / 8f }
+        values[0] = -0f
+        values[1] = 0f
+
+        val expected = values.indices.sortedBy { values[it] }.toIntArray()
+
+        assertArrayEquals(expected, FollowPointLayout.sortedIndices(values))
+        assertArrayEquals(intArrayOf(), FollowPointLayout.sortedIndices(floatArrayOf()))
+    }
+
+
+    private class Point(
+        val startX: Float,
+        val startY: Float,
+        val endX: Float,
+        val endY: Float,
+        val rotation: Float,
+        val scale: Float,
+        val fadeInTime: Float,
+        val fadeOutTime: Float,
+        val fadeDuration: Float
+    )
+
+
+    /**
+     * The math of the removed FollowPointConnection.addConnection, which spawned sprites for a connection as its
+     * start object was spawned.
+     */
+    private fun addConnection(points: MutableList<Point>, start: HitObject, end: HitObject) {
+
+        val scale = start.gameplayScale
+        val startTime = (start.endTime / 1000f).toFloat()
+
+        val startPosition = start.gameplayStackedEndPosition
+        val endPosition = end.gameplayStackedPosition
+
+        val distanceX = endPosition.x - startPosition.x
+        val distanceY = endPosition.y - startPosition.y
+        val rotation = atan2(distanceY, distanceX) * (180f / Math.PI).toFloat()
+
+        val endFadeInTime = end.timeFadeIn.toFloat() / 1000f
+        val duration = (end.startTime - start.endTime).toFloat() / 1000f
+
+        val preempt = min(800f, start.timePreempt.toFloat()) * min(1.0, start.timePreempt / HitObject.PREEMPT_MIN).toFloat() / 1000f
+
+        val osuPixelsStartPosition = start.difficultyStackedEndPosition
+        val osuPixelsEndPosition = end.difficultyStackedPosition
+
+        val osuPixelsDistance = hypot(osuPixelsEndPosition.x - osuPixelsStartPosition.x, osuPixelsEndPosition.y - osuPixelsStartPosition.y).toInt()
+
+        var d = (32 * 1.5f).toInt()
+        while (d < osuPixelsDistance - 32) {
+
+            val fraction = d.toFloat() / osuPixelsDistance
+
+            val pointStartX = startPosition.x + distanceX * (fraction - 0.1f)
+            val pointStartY = startPosition.y + distanceY * (fraction - 0.1f)
+
+            val pointEndX = startPosition.x + distanceX * fraction
+            val pointEndY = startPosition.y + distanceY * fraction
+
+            val fadeOutTime = startTime + fraction * duration
+            val fadeInTime = fadeOutTime - preempt
+
+            points.add(Point(pointStartX, pointStartY, pointEndX, pointEndY, rotation, scale, fadeInTime, fadeOutTime, endFadeInTime))
+            d += 32
+        }
+    }
+
+    private fun objects(): List<HitObject> {
+        val file = File.createTempFile("beatmap", ".osu")
+        file.deleteOnExit()
+
+        val hitObjects = StringBuilder()
+
+        // A stream of long jumps, so that many connections are visible at once.
+        for (i in 0 until 24) {
+            val x = if (i % 2 == 0) 32 else 480
+            val y = if (i % 2 == 0) 32 else 352
+            val type = if (i % 8 == 0) 5 else 1
+
+            hitObjects.append("$x,$y,${1000 + i * 120},$type,0,0:0:0:0:\n")
+        }
+
+        // A slider, whose connection starts at its end, followed by a spinner which has no connections.
+        hitObjects.append("64,320,5000,6,0,L|448:320,1,384\n")
+        hitObjects.append("256,64,6500,1,0,0:0:0:0:\n")
+        hitObjects.append("256,192,7000,12,0,9000,0:0:0:0:\n")
+        hitObjects.append("256,192,9500,5,0,0:0:0:0:\n")
+        hitObjects.append("448,320,9700,1,0,0:0:0:0:\n")
+
+        file.writeText("""
+            |osu file format v14
+            |
+            |[General]
+            |AudioFilename: audio.mp3
+            |Mode: 0
+            |
+            |[Metadata]
+            |Title:Follow points
+            |Artist:Test
+            |Version:Normal
+            |
+            |[Difficulty]
+            |HPDrainRate:5
+            |CircleSize:4
+            |OverallDifficulty:8
+            |ApproachRate:9
+            |SliderMultiplier:1.4
+            |SliderTickRate:1
+            |
+            |[TimingPoints]
+            |0,500,4,2,0,100,1,0
+            |
+            |[HitObjects]
+            |$hitObjects""".trimMargin())
+
+        return BeatmapParser(file).use { it.parse(true)!! }.createDroidPlayableBeatmap().hitObjects.objects
+    }
+}
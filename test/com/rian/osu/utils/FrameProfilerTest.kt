@@ -0,0 +1,171 @@
+package com.rian.osu.utils
+
+import com.rian.osu.utils.FrameProfiler.Section
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.StringWriter
+
+class FrameProfilerTest {
+
+    private var now = 1_000_000L
+
+
+    @Test
+    fun `old frames are overwritten once the ring is full`() {
+        val profiler = profiler(4)
+
+        for (i in 1..6) {
+            frame(profiler, update = i * MS, draw = 0, idle = 0)
+        }
+
+        assertEquals(4, profiler.frameCount)
+
+        // The latest frame first, the two oldest ones were overwritten.
+        for (age in 0 until 4) {
+            assertEquals((6 - age) * MS, profiler.getFrameTime(age))
+            assertEquals((6 - age) * MS, profiler.getSectionTime(Section.Update, age))
+        }
+
+        assertThrows(IllegalArgumentException::class.java) { profiler.getFrameTime(4) }
+    }
+
+    @Test
+    fun `frames are measured from the end of the previous one`() {
+        val profiler = profiler(4)
+
+        frame(profiler, update = 2 * MS, draw = 3 * MS, idle = 5 * MS)
+
+        assertEquals(10 * MS, profiler.getFrameTime(0))
+        assertEquals(2 * MS, profiler.getSectionTime(Section.Update, 0))
+        assertEquals(3 * MS, profiler.getSectionTime(Section.Draw, 0))
+        assertEquals(0, profiler.getSectionTime(Section.Audio, 0))
+    }
+
+    @Test
+    fun `sections are accumulated within a frame`() {
+        val profiler = profiler(4)
+
+        repeat(3) {
+            profiler.measure(Section.HitObjects) { now += MS }
+        }
+        profiler.endFrame()
+
+        assertEquals(3 * MS, profiler.getSectionTime(Section.HitObjects, 0))
+    }
+
+    @Test
+    fun `aggregate averages and peaks the latest frames`() {
+        val profiler = profiler(4)
+
+        // Six frames, of which the ring only keeps the four latest.
+        for (i in 1..6) {
+            frame(profiler, update = i * MS, draw = (7 - i) * MS, idle = 0)
+        }
+
+        val averages = LongArray(Section.entries.size)
+        val peaks = LongArray(Section.entries.size)
+
+        assertEquals(3, profiler.aggregate(3, averages, peaks))
+        assertEquals(5 * MS, averages[Section.Update.ordinal])
+        assertEquals(6 * MS, peaks[Section.Update.ordinal])
+        assertEquals(2 * MS, averages[Section.Draw.ordinal])
+        assertEquals(3 * MS, peaks[Section.Draw.ordinal])
+        assertEquals(0, peaks[Section.Storyboard.ordinal])
+
+        // More frames than recorded only aggregates the recorded ones.
+        assertEquals(4, profiler.aggregate(100, averages, peaks))
+        assertEquals(4500 * US, averages[Section.Update.ordinal])
+        assertEquals(6 * MS, peaks[Section.Update.ordinal])
+        assertEquals(4 * MS, peaks[Section.Draw.ordinal])
+
+        profiler.clear()
+
+        assertEquals(0, profiler.aggregate(3, averages, peaks))
+        assertEquals(0, averages[Section.Update.ordinal])
+        assertEquals(0, peaks[Section.Update.ordinal])
+    }
+
+    @Test
+    fun `export writes the frames of the window oldest first`() {
+        val profiler = profiler(16)
+
+        for (i in 1..8) {
+            frame(profiler, update = i * MS, draw = MS, idle = 10 * MS)
+        }
+
+        val writer = StringWriter()
+
+        // The latest frames take 19, 18 and 17ms, the window ends with the frame that reaches it.
+        assertEquals(3, profiler.export(writer, 0.05f))
+
+        val lines = writer.toString().lines().filter { it.isNotEmpty() }
+
+        assertEquals(
+            "frame,Update,Draw,Gameplay,Hit objects,Slider bodies,Storyboard,Audio,HUD,Unattributed,GC",
+            lines[0]
+        )
+        assertEquals(4, lines.size)
+
+        for (row in 1..3) {
+            val columns = lines[row].split(',')
+            val update = 5 + row
+
+            assertEquals(11, columns.size)
+            assertEquals("%.3f".format(java.util.Locale.US, update + 11.0), columns[0])
+            assertEquals("$update.000", columns[1])
+            assertEquals("1.000", columns[2])
+            assertEquals("0.000", columns[3])
+
+            // The idle time isn't attributed to any top-level section.
+            assertEquals("10.000", columns[9])
+            assertTrue(columns[10] == "0" || columns[10] == "1")
+        }
+
+        // A window longer than what was recorded exports every frame.
+        assertEquals(8, profiler.export(StringWriter(), 60f))
+    }
+
+    @Test
+    fun `calls are ignored while disabled`() {
+        val profiler = profiler(4)
+
+        frame(profiler, update = MS, draw = MS, idle = 0)
+
+        profiler.isEnabled = false
+        frame(profiler, update = MS, draw = MS, idle = 0)
+
+        assertEquals(1, profiler.frameCount)
+
+        // The time spent disabled doesn't count towards the next frame.
+        now += 1000 * MS
+        profiler.isEnabled = true
+        profiler.endFrame()
+        frame(profiler, update = MS, draw = MS, idle = 0)
+
+        assertEquals(2, profiler.frameCount)
+        assertEquals(2 * MS, profiler.getFrameTime(0))
+    }
+
+
+    private fun profiler(capacity: Int) = FrameProfiler(capacity) { now }.also {
+        it.isEnabled = true
+
+        // The first frame only marks where the next one starts.
+        it.endFrame()
+    }
+
+    private fun frame(profiler: FrameProfiler, update: Long, draw: Long, idle: Long) {
+        profiler.measure(Section.Update) { now += update }
+        profiler.measure(Section.Draw) { now += draw }
+        now += idle
+        profiler.endFrame()
+    }
+
+
+    companion object {
+        private const val US = 1000L
+        private const val MS = 1000 * US
+    }
+}
@@ -0,0 +1,167 @@
+package ru.nsu.ccfit.zuev.audio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SpectrumAnalyzerTest {
+
+    private static final int BAND_COUNT = 120;
+
+    private static final int BIN_COUNT = 512;
+
+    private static final int WINDOW_SIZE = 240;
+
+
+    @Test
+    public void bandsAreContiguousAndStartAfterTheDCComponent() {
+        var analyzer = analyzer();
+
+        assertEquals(0, analyzer.getBandStart(0));
+
+        for (int i = 1; i < BAND_COUNT; i++) {
+            assertEquals(analyzer.getBandEnd(i - 1), analyzer.getBandStart(i));
+        }
+    }
+
+    @Test
+    public void bandsCoverAtLeastOneBinUntilTheLastBin() {
+        var analyzer = analyzer();
+
+        for (int i = 0; i < BAND_COUNT; i++) {
+            int start = analyzer.getBandStart(i);
+            int end = analyzer.getBandEnd(i);
+
+            assertTrue(end <= BIN_COUNT - 1);
+
+            if (start < BIN_COUNT - 1) {
+                assertTrue(end > start);
+            } else {
+                assertEquals(start, end);
+            }
+        }
+    }
+
+    @Test
+    public void bandsFollowTheLogarithmicScale() {
+        // One band per octave.
+        var analyzer = new SpectrumAnalyzer(null, 10, BIN_COUNT, 10);
+
+        assertEquals(1, analyzer.getBandEnd(0));
+        assertEquals(2, analyzer.getBandEnd(1));
+
+        for (int i = 2; i < 9; i++) {
+            assertEquals(1 << i, analyzer.getBandEnd(i));
+            assertEquals(1 << (i - 1), width(analyzer, i));
+        }
+
+        // The last octave is cut at the last bin.
+        assertEquals(BIN_COUNT - 1, analyzer.getBandEnd(9));
+    }
+
+    @Test
+    public void lowBandsAreWidenedToOneBin() {
+        var analyzer = analyzer();
+
+        // The main menu only shows the lowest part of the spectrum, where the scale is narrower than a bin.
+        for (int i = 0; i < BAND_COUNT; i++) {
+            assertEquals(1, width(analyzer, i));
+        }
+    }
+
+    @Test
+    public void bandsAboveTheLastBinAreEmpty() {
+        var analyzer = new SpectrumAnalyzer(null, 40, 16, 20);
+
+        assertEquals(15, analyzer.getBandEnd(39));
+        assertEquals(15, analyzer.getBandStart(39));
+
+        // The highest FFT bin read has to be inside the frame, which starts with the DC component.
+        var frame = new float[16];
+        frame[15] = 1;
+
+        analyzer.analyze(frame);
+
+        for (int i = 0; i < 40; i++) {
+            assertTrue(analyzer.getPublished().getLevel(i) <= 1);
+        }
+    }
+
+    @Test
+    public void bandsTakeThePeakOfTheirBins() {
+        var analyzer = analyzer();
+        var frame = new float[BIN_COUNT];
+
+        int band = BAND_COUNT - 1;
+        int start = analyzer.getBandStart(band);
+        frame[1 + start] = 0.25f;
+        frame[analyzer.getBandEnd(band)] = 0.5f;
+
+        analyzer.analyze(frame);
+
+        assertEquals(0.5f, analyzer.getPublished().getLevel(band), 0);
+        assertEquals(SpectrumAnalyzer.PEAK_ALPHA, analyzer.getPublished().getAlpha(band), 0);
+        assertEquals(0, analyzer.getPublished().getLevel(0), 0);
+    }
+
+    @Test
+    public void peaksDecayToNothing() {
+        var analyzer = analyzer();
+        var frame = new float[BIN_COUNT];
+        frame[1] = 1;
+
+        analyzer.analyze(frame);
+
+        for (int i = 1; i <= SpectrumAnalyzer.DECAY_STEPS; i++) {
+            analyzer.analyze(null);
+
+            var bands = analyzer.getPublished();
+            assertEquals(1 - (float) i / SpectrumAnalyzer.DECAY_STEPS, bands.getLevel(0), 1e-5f);
+            assertTrue(bands.getAlpha(0) < SpectrumAnalyzer.PEAK_ALPHA);
+        }
+
+        analyzer.analyze(null);
+
+        assertEquals(0, analyzer.getPublished().getLevel(0), 0);
+        assertEquals(0, analyzer.getPublished().getAlpha(0), 0);
+    }
+
+    @Test
+    public void lowerValuesDoNotInterruptTheDecay() {
+        var analyzer = analyzer();
+        var frame = new float[BIN_COUNT];
+        frame[1] = 1;
+
+        analyzer.analyze(frame);
+
+        frame[1] = 0.5f;
+        analyzer.analyze(frame);
+
+        assertEquals(1 - 1f / SpectrumAnalyzer.DECAY_STEPS, analyzer.getPublished().getLevel(0), 1e-5f);
+    }
+
+    @Test
+    public void resetClearsTheBands() {
+        var analyzer = analyzer();
+        var frame = new float[BIN_COUNT];
+        frame[1] = 1;
+
+        analyzer.analyze(frame);
+        analyzer.reset();
+        analyzer.analyze(null);
+
+        assertEquals(0, analyzer.getPublished().getLevel(0), 0);
+        assertEquals(0, analyzer.getPublished().getAlpha(0), 0);
+    }
+
+
+    private static SpectrumAnalyzer analyzer() {
+        // The same layout as the main menu spectrum, without a source since analysis isn't started.
+        return new SpectrumAnalyzer(null, BAND_COUNT, BIN_COUNT, WINDOW_SIZE);
+    }
+
+    private static int width(SpectrumAnalyzer analyzer, int band) {
+        return analyzer.getBandEnd(band) - analyzer.getBandStart(band);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.nsu.ccfit.zuev.audio;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class VoicePoolTest {
+
+    @Test
+    public void idleVoicesAreReused() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 3);
+
+        assertEquals(1, pool.acquire());
+        assertEquals(1, pool.acquire());
+        assertEquals(1, backend.createdCount);
+    }
+
+    @Test
+    public void playingVoicesAreLeftAlone() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 3);
+
+        backend.playing.add(pool.acquire());
+        backend.playing.add(pool.acquire());
+
+        assertEquals(3, pool.acquire());
+        assertEquals(3, backend.createdCount);
+
+        // A voice that stopped is taken before any busy voice.
+        backend.playing.add(3);
+        backend.playing.remove(2);
+
+        assertEquals(2, pool.acquire());
+    }
+
+    @Test
+    public void theOldestVoiceIsStolen() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 3);
+
+        for (int i = 0; i < 3; i++) {
+            backend.playing.add(pool.acquire());
+        }
+
+        assertEquals(1, pool.acquire());
+        assertEquals(2, pool.acquire());
+        assertEquals(3, pool.acquire());
+        assertEquals(1, pool.acquire());
+        assertEquals(3, backend.createdCount);
+    }
+
+    @Test
+    public void failedVoicesAreNotReturned() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 2);
+
+        backend.failing = true;
+
+        assertEquals(0, pool.acquire());
+        assertEquals(0, pool.get(0));
+        assertEquals(0, pool.get(1));
+
+        // Creation is tried again on the next playback.
+        backend.failing = false;
+
+        assertEquals(1, pool.acquire());
+        assertEquals(1, pool.get(0));
+    }
+
+    @Test
+    public void failedVoicesFallBackToStealing() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 2);
+
+        backend.playing.add(pool.acquire());
+        backend.failing = true;
+
+        assertEquals(1, pool.acquire());
+        assertEquals(0, pool.get(1));
+    }
+
+    @Test
+    public void preloadCreatesEveryVoice() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 4);
+
+        pool.preload();
+
+        assertEquals(4, backend.createdCount);
+
+        for (int i = 0; i < pool.size(); i++) {
+            assertEquals(i + 1, pool.get(i));
+        }
+
+        pool.preload();
+
+        assertEquals(4, backend.createdCount);
+    }
+
+    @Test
+    public void clearForgetsEveryVoice() {
+        var backend = new FakeBackend();
+        var pool = new VoicePool(backend, 2);
+
+        backend.playing.add(pool.acquire());
+        backend.playing.add(pool.acquire());
+        pool.acquire();
+
+        pool.clear();
+
+        assertEquals(0, pool.get(0));
+        assertEquals(0, pool.get(1));
+
+        // New voices are created, and the play order starts over.
+        backend.playing.add(pool.acquire());
+        backend.playing.add(pool.acquire());
+
+        assertEquals(3, pool.get(0));
+        assertEquals(4, pool.get(1));
+        assertEquals(3, pool.acquire());
+    }
+
+
+    private static class FakeBackend implements VoicePool.Backend {
+
+        private final Set<Integer> playing = new HashSet<>();
+
+        private boolean failing;
+
+        private int createdCount;
+
+
+        @Override
+        public int createVoice() {
+            if (failing) {
+                return 0;
+            }
+
+            return ++createdCount;
+        }
+
+        @Override
+        public boolean isPlaying(int voice) {
+            return playing.contains(voice);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.nsu.ccfit.zuev.osu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.reco1l.osu.data.BeatmapInfo;
+import com.reco1l.osu.data.BeatmapSetInfo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class LibraryIndexTest {
+
+    @Test
+    public void findsBeatmapsBySetDirectoryAndMD5() {
+        var index = new LibraryIndex();
+        var set = beatmapSet("1 Artist - Title", 1, "a", "b");
+
+        index.rebuild(Arrays.asList(set));
+
+        assertSame(set, index.getBeatmapSet("1 Artist - Title"));
+        assertSame(set.getBeatmaps().get(1), index.getBeatmap("b"));
+        assertNull(index.getBeatmap("c"));
+    }
+
+    @Test
+    public void keepsBeatmapWhenAnotherSetWithTheSameMD5IsRemoved() {
+        var index = new LibraryIndex();
+        var original = beatmapSet("1 Artist - Title", 1, "a");
+        var copy = beatmapSet("1 Artist - Title (1)", 1, "a");
+
+        index.add(original);
+        index.add(copy);
+        index.remove(copy);
+
+        assertSame(original.getBeatmaps().get(0), index.getBeatmap("a"));
+        assertSame(original, index.getBeatmapSet("1 Artist - Title"));
+        assertNull(index.getBeatmapSet("1 Artist - Title (1)"));
+
+        index.remove(original);
+
+        assertNull(index.getBeatmap("a"));
+        assertNull(index.getBeatmapSet("1 Artist - Title"));
+    }
+
+    @Test
+    public void keepsLatestBeatmapWhenTheOlderSetIsRemoved() {
+        var index = new LibraryIndex();
+        var original = beatmapSet("1 Artist - Title", 1, "a");
+        var copy = beatmapSet("1 Artist - Title (1)", 1, "a");
+
+        index.add(original);
+        index.add(copy);
+        index.remove(original);
+
+        assertSame(copy.getBeatmaps().get(0), index.getBeatmap("a"));
+    }
+
+    @Test
+    public void rebuildsPositionsAfterChanges() {
+        var index = new LibraryIndex();
+        var first = beatmapSet("First", 1, "a");
+        var second = beatmapSet("Second", 2, "b");
+        var library = Arrays.asList(first, second);
+
+        index.rebuild(library);
+
+        assertEquals(1, index.getPosition(library, "Second"));
+        assertEquals(-1, index.getPosition(library, "Missing"));
+
+        library = Arrays.asList(second, first);
+        index.invalidatePositions();
+
+        assertEquals(0, index.getPosition(library, "Second"));
+    }
+
+
+    private static BeatmapSetInfo beatmapSet(String directory, Integer id, String... md5s) {
+        var beatmaps = new BeatmapInfo[md5s.length];
+
+        for (int i = 0; i < md5s.length; i++) {
+            beatmaps[i] = beatmap(directory, id, "beatmap" + i + ".osu", md5s[i]);
+        }
+
+        return new BeatmapSetInfo(id, directory, Arrays.asList(beatmaps));
+    }
+
+    private static BeatmapInfo beatmap(String directory, Integer setId, String filename, String md5) {
+        return new BeatmapInfo(
+            filename, md5, null, "audio.mp3", null, null, directory, setId,
+            "Title", "Title", "Artist", "Artist", "Creator", filename, "", "", 0L,
+            9f, 8f, 4f, 5f, null, null, 180f, 180f, 180f, 60000L, 0,
+            100, 1, 50, 200
+        );
+    }
+}
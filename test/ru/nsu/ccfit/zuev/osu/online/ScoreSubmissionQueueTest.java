@@ -0,0 +1,363 @@
+package ru.nsu.ccfit.zuev.osu.online;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.reco1l.osu.data.DroidDatabase;
+import com.reco1l.osu.data.IScoreSubmissionDAO;
+import com.reco1l.osu.data.ScoreSubmission;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// The app's Application class sets up crash reporting, which has nothing to do with score submission.
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class ScoreSubmissionQueueTest {
+
+    private static final long USER_ID = 42;
+
+    private DroidDatabase database;
+
+    private IScoreSubmissionDAO table;
+
+    private FakeTransport transport;
+
+    private ManualExecutor executor;
+
+    private ScoreSubmissionQueue queue;
+
+
+    @Before
+    public void setUp() {
+        // The queue runs its own thread in the game, tasks are run by the test here.
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DroidDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+
+        table = database.getScoreSubmissionTable();
+        transport = new FakeTransport();
+        executor = new ManualExecutor();
+        queue = new ScoreSubmissionQueue(transport, () -> table, executor);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+
+    @Test
+    public void acceptedSubmissionsAreRemoved() {
+        var listener = new RecordingListener();
+
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", listener);
+
+        // Stored before the first attempt.
+        assertEquals(1, table.getPendingSubmissions(USER_ID).size());
+        assertEquals(0, executor.runNext());
+
+        assertEquals(1, transport.sent.size());
+        assertEquals("md5", transport.sent.get(0).getBeatmapMD5());
+        assertEquals("data", transport.sent.get(0).getScoreData());
+        assertEquals("replay.odr", transport.sent.get(0).getReplayPath());
+
+        assertTrue(table.getPendingSubmissions(USER_ID).isEmpty());
+        assertEquals(1, listener.successCount);
+        assertTrue(listener.failures.isEmpty());
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    public void rejectedSubmissionsAreNotRetried() {
+        var listener = new RecordingListener();
+
+        transport.results.add(result(false, true, "Invalid score"));
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", listener);
+        executor.runNext();
+
+        assertTrue(table.getPendingSubmissions(USER_ID).isEmpty());
+        assertEquals(List.of("Invalid score (false)"), listener.failures);
+        assertEquals(0, listener.successCount);
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    public void failedAttemptsBackOff() {
+        var listener = new RecordingListener();
+
+        for (int i = 0; i < 4; i++) {
+            transport.results.add(result(false, false, "Cannot connect"));
+        }
+
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", listener);
+        executor.runNext();
+
+        for (int attempt = 1; attempt <= 4; attempt++) {
+            var delay = ScoreSubmissionQueue.BASE_RETRY_DELAY << (attempt - 1);
+            var submission = table.getPendingSubmissions(USER_ID).get(0);
+            var now = System.currentTimeMillis();
+
+            assertEquals(attempt, submission.getAttempts());
+            assertTrue(submission.getNextAttemptTime() <= now + delay);
+            assertTrue(submission.getNextAttemptTime() > now + delay - 60000);
+
+            assertEquals(delay, executor.runNext());
+        }
+
+        assertEquals(5, transport.sent.size());
+        assertEquals(4, listener.failures.size());
+        assertEquals("Cannot connect (true)", listener.failures.get(0));
+        assertEquals(1, listener.successCount);
+        assertTrue(table.getPendingSubmissions(USER_ID).isEmpty());
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    public void retryDelayIsCapped() {
+        table.insertSubmission(new ScoreSubmission(0, USER_ID, "beatmap.osu", "md5", "data", "replay.odr", 40, 0, 0));
+        transport.results.add(result(false, false, "Cannot connect"));
+
+        queue.resume();
+
+        assertEquals(0, executor.runNext());
+        assertEquals(41, table.getPendingSubmissions(USER_ID).get(0).getAttempts());
+        assertEquals(ScoreSubmissionQueue.MAX_RETRY_DELAY, executor.runNext());
+        assertEquals(2, transport.sent.size());
+    }
+
+    @Test
+    public void listenersCanStopListening() {
+        var listener = new RecordingListener();
+        listener.stopOnFailure = true;
+
+        transport.results.add(result(false, false, "Cannot connect"));
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", listener);
+        executor.runNext();
+        executor.runNext();
+
+        // The submission is still retried without its listener.
+        assertEquals(2, transport.sent.size());
+        assertEquals(1, listener.failures.size());
+        assertEquals(0, listener.successCount);
+        assertTrue(table.getPendingSubmissions(USER_ID).isEmpty());
+    }
+
+    @Test
+    public void submissionsWaitForTheirUser() {
+        var listener = new RecordingListener();
+
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", listener);
+        transport.loggedIn = false;
+        executor.runNext();
+
+        assertTrue(transport.sent.isEmpty());
+        assertEquals(List.of("Not logged in (true)"), listener.failures);
+        assertTrue(executor.tasks.isEmpty());
+
+        // Another user doesn't submit it either.
+        transport.loggedIn = true;
+        transport.userId = USER_ID + 1;
+        queue.resume();
+
+        assertTrue(executor.tasks.isEmpty());
+
+        transport.userId = USER_ID;
+        queue.resume();
+        executor.runNext();
+
+        assertEquals(1, transport.sent.size());
+        assertEquals(1, listener.successCount);
+        assertTrue(table.getPendingSubmissions(USER_ID).isEmpty());
+    }
+
+    @Test
+    public void resumedSubmissionsWaitForTheirNextAttempt() {
+        var nextAttemptTime = System.currentTimeMillis() + 60000;
+
+        table.insertSubmission(
+                new ScoreSubmission(0, USER_ID, "beatmap.osu", "md5", "data", "replay.odr", 3, nextAttemptTime, 0));
+
+        queue.resume();
+        queue.resume();
+
+        // Scheduled submissions aren't scheduled twice.
+        assertEquals(1, executor.tasks.size());
+
+        var delay = executor.runNext();
+
+        assertTrue(delay <= 60000);
+        assertTrue(delay > 0);
+        assertEquals(1, transport.sent.size());
+    }
+
+    @Test
+    public void unexpectedErrorsKeepTheSubmission() {
+        var listener = new RecordingListener();
+
+        transport.failure = new IllegalStateException();
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", listener);
+        executor.runNext();
+
+        assertEquals(List.of("Unexpected error (true)"), listener.failures);
+        assertEquals(1, table.getPendingSubmissions(USER_ID).size());
+        assertTrue(executor.tasks.isEmpty());
+
+        // Scheduled again on the next login.
+        transport.failure = null;
+        queue.resume();
+        executor.runNext();
+
+        assertEquals(1, listener.successCount);
+        assertTrue(table.getPendingSubmissions(USER_ID).isEmpty());
+    }
+
+    @Test
+    public void deletedSubmissionsAreSkipped() {
+        queue.enqueue("beatmap.osu", "md5", "data", "replay.odr", null);
+        table.deleteSubmission(table.getPendingSubmissions(USER_ID).get(0).getId());
+        executor.runNext();
+
+        assertTrue(transport.sent.isEmpty());
+        assertNull(table.getSubmission(1));
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+
+    private static OnlineManager.SubmissionResult result(boolean success, boolean rejected, String failMessage) {
+        var result = new OnlineManager.SubmissionResult();
+        result.success = success;
+        result.rejected = rejected;
+        result.failMessage = failMessage;
+        return result;
+    }
+
+
+    private static class FakeTransport implements ScoreSubmissionQueue.Transport {
+
+        /**
+         * The results of the next attempts, attempts succeed once it's empty.
+         */
+        private final ArrayDeque<OnlineManager.SubmissionResult> results = new ArrayDeque<>();
+
+        private final List<ScoreSubmission> sent = new ArrayList<>();
+
+        private long userId = USER_ID;
+
+        private boolean loggedIn = true;
+
+        private RuntimeException failure;
+
+
+        @Override
+        public long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public boolean isLoggedIn() {
+            return loggedIn;
+        }
+
+        @NonNull
+        @Override
+        public OnlineManager.SubmissionResult send(@NonNull ScoreSubmission submission) {
+            if (failure != null) {
+                throw failure;
+            }
+
+            sent.add(submission);
+
+            var result = results.poll();
+            return result != null ? result : result(true, false, "");
+        }
+    }
+
+    private static class RecordingListener implements ScoreSubmissionQueue.Listener {
+
+        private final List<String> failures = new ArrayList<>();
+
+        private int successCount;
+
+        private boolean stopOnFailure;
+
+
+        @Override
+        public void onSuccess(@NonNull OnlineManager.SubmissionResult result) {
+            successCount++;
+        }
+
+        @Override
+        public boolean onFailure(@NonNull String message, boolean willRetry) {
+            failures.add(message + " (" + willRetry + ")");
+            return stopOnFailure;
+        }
+    }
+
+    /**
+     * Runs tasks on the calling thread, and keeps scheduled tasks until the test runs them.
+     */
+    private static class ManualExecutor extends ScheduledThreadPoolExecutor {
+
+        private final ArrayDeque<ScheduledTask> tasks = new ArrayDeque<>();
+
+
+        private ManualExecutor() {
+            super(1);
+        }
+
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            tasks.add(new ScheduledTask(command, unit.toMillis(delay)));
+            return null;
+        }
+
+        /**
+         * Runs the task that was scheduled first.
+         *
+         * @return The delay it was scheduled with, in milliseconds.
+         */
+        private long runNext() {
+            var task = tasks.remove();
+            task.command.run();
+            return task.delay;
+        }
+    }
+
+    private static class ScheduledTask {
+
+        private final Runnable command;
+
+        private final long delay;
+
+
+        private ScheduledTask(Runnable command, long delay) {
+            this.command = command;
+            this.delay = delay;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package ru.nsu.ccfit.zuev.osu.scoring
+
+import android.app.Application
+import com.rian.osu.beatmap.PlayableBeatmap
+import com.rian.osu.beatmap.parser.BeatmapParser
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import ru.nsu.ccfit.zuev.osu.game.GameHelper
+import java.io.File
+import java.util.Random
+import kotlin.math.abs
+import kotlin.math.max
+import ru.nsu.ccfit.zuev.osu.Config as GameConfig
+
+// The app's Application class sets up crash reporting, which has nothing to do with replays.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class ReplaySeekTest {
+
+    @Before
+    fun setUp() {
+        // Statistics take the player name from the configuration, which isn't loaded in tests.
+        GameConfig.setOnlineUsername("")
+    }
+
+
+    @Test
+    fun `seeking cursors matches stepping through every movement`() {
+        val random = Random(0)
+        val replay = Replay(false)
+        val moves = Replay.MoveArray(16)
+
+        // Taps with a few movements each, the first ones before the start of the beatmap.
+        var time = -300
+
+        while (time < 20000) {
+            moves.pushBack(replay, time, random.nextFloat() * 800, random.nextFloat() * 600, TouchType.DOWN)
+
+            repeat(random.nextInt(6)) {
+                time += 1 + random.nextInt(40)
+                moves.pushBack(replay, time, random.nextFloat() * 800, random.nextFloat() * 600, TouchType.MOVE)
+            }
+
+            time += 1 + random.nextInt(40)
+            moves.pushBack(time, TouchType.UP)
+            time += random.nextInt(2500)
+        }
+
+        val index = ReplaySeekIndex(listOf(moves))
+        val state = ReplaySeekIndex.CursorState()
+
+        // Played back frame by frame the way GameScene does.
+        var cursorIndex = 0
+        var isDown = false
+        var lastMoveIndex = -1
+        var x = 0f
+        var y = 0f
+
+        var frameTime = -500
+
+        while (frameTime <= time + 500) {
+            while (cursorIndex < moves.size && moves.movements[cursorIndex].time <= frameTime) {
+                val movement = moves.movements[cursorIndex]
+
+                when (movement.touchType) {
+                    TouchType.DOWN -> {
+                        isDown = true
+                        lastMoveIndex = -1
+                        x = movement.point.x
+                        y = movement.point.y
+                    }
+
+                    TouchType.MOVE -> {
+                        lastMoveIndex = cursorIndex
+                        x = movement.point.x
+                        y = movement.point.y
+                    }
+
+                    else -> isDown = false
+                }
+
+                cursorIndex++
+            }
+
+            assertEquals(cursorIndex, index.indexAfter(0, frameTime))
+
+            index.restoreCursorState(0, cursorIndex, state)
+
+            assertEquals(isDown, state.isDown)
+
+            // Playback keeps the last movement index after a release, where it's never read until the next press.
+            if (isDown) {
+                assertEquals(lastMoveIndex, state.lastMoveIndex)
+            } else {
+                assertEquals(-1, state.lastMoveIndex)
+            }
+
+            assertEquals(cursorIndex > 0, state.hasPosition)
+
+            if (state.hasPosition) {
+                assertEquals(x, state.x, 0f)
+                assertEquals(y, state.y, 0f)
+            }
+
+            frameTime += 16
+        }
+
+        // Seeking backwards doesn't depend on where the replay was.
+        repeat(200) {
+            val target = -500 + random.nextInt(time + 1000)
+            var expected = 0
+
+            while (expected < moves.size && moves.movements[expected].time <= target) {
+                expected++
+            }
+
+            assertEquals(expected, index.indexAfter(0, target))
+        }
+    }
+
+    @Test
+    fun `seeking statistics matches playing through`() {
+        val random = Random(0)
+        val beatmap = beatmap()
+        val objects = beatmap.hitObjects.objects
+        val window = (GameHelper.getDifficultyHelper().hitWindowFor50(beatmap.difficulty.od) * 1000).toInt()
+
+        val objectData = Array(objects.size) {
+            Replay.ReplayObjectData().apply {
+                accuracy = when (it % 11) {
+                    // Timed out.
+                    3 -> (window + 40).toShort()
+                    else -> (random.nextInt(2 * window - 10) - window + 5).toShort()
+                }
+
+                if (it % 7 == 5) {
+                    result = ResultType.MISS.id
+                }
+            }
+        }
+
+        val reconstructor = ReplayStatisticReconstructor(beatmap, objectData, OBJECT_TIME_PREEMPT, 6)
+        val playback = Playback(beatmap, objectData)
+        val seekStatistic = StatisticV2()
+        val seekJudgement = HitJudgement()
+        val seekOffsets = mutableListOf<Double>()
+        var comparedFrames = 0
+
+        while (playback.elapsedTime * 1000 < objects.last().endTime + 1000) {
+            playback.step()
+
+            val msTime = playback.elapsedTime * 1000
+
+            // The judged objects GameScene finds when seeking to the same time.
+            var judgedCount = 0
+
+            while (judgedCount < objects.size && reconstructor.getJudgementTime(judgedCount) < msTime) {
+                judgedCount++
+            }
+
+            // Seeking moves the target back before an object in the middle of its judgement.
+            if (judgedCount < objects.size && objects[judgedCount].startTime <= msTime) {
+                continue
+            }
+
+            seekOffsets.clear()
+            reconstructor.reconstruct(seekStatistic, seekJudgement, judgedCount, msTime) { seekOffsets.add(it) }
+
+            val statistic = playback.statistic
+            val message = "At ${msTime}ms"
+
+            assertEquals(message, playback.judgedCount, judgedCount)
+            assertEquals(message, statistic.hit300, seekStatistic.hit300)
+            assertEquals(message, statistic.hit300k, seekStatistic.hit300k)
+            assertEquals(message, statistic.hit100, seekStatistic.hit100)
+            assertEquals(message, statistic.hit100k, seekStatistic.hit100k)
+            assertEquals(message, statistic.hit50, seekStatistic.hit50)
+            assertEquals(message, statistic.misses, seekStatistic.misses)
+            assertEquals(message, statistic.combo, seekStatistic.combo)
+            assertEquals(message, statistic.scoreMaxCombo, seekStatistic.scoreMaxCombo)
+            assertEquals(message, statistic.totalScoreWithMultiplier, seekStatistic.totalScoreWithMultiplier)
+            assertEquals(message, playback.offsets, seekOffsets)
+
+            // Health drain is integrated between judgements instead of per frame, which only differs within a frame.
+            assertEquals(message, statistic.hp, seekStatistic.hp, 0.01f)
+
+            comparedFrames++
+        }
+
+        assertTrue(comparedFrames > 100)
+    }
+
+
+    /**
+     * Plays the per-object results of a replay back frame by frame, the way GameScene judges hit circles and drains
+     * health.
+     */
+    private class Playback(
+        private val beatmap: PlayableBeatmap,
+        private val objectData: Array<Replay.ReplayObjectData>
+    ) {
+
+        val statistic = StatisticV2()
+        val offsets = mutableListOf<Double>()
+
+        var elapsedTime = 0.0
+        var judgedCount = 0
+
+        private val objects = beatmap.hitObjects.objects
+        private val breaks = ArrayDeque(beatmap.events.breaks)
+        private val judgement = HitJudgement()
+        private val helper = GameHelper.getDifficultyHelper()
+
+        private var spawnedCount = 0
+        private var distToNextObject = 0.0
+        private var breakEndTime = Double.NaN
+        private var gameStarted = false
+
+
+        fun step() {
+            elapsedTime += FRAME_TIME
+
+            if (breaks.isNotEmpty() && breakEndTime.isNaN() && breaks.first().startTime / 1000.0 <= elapsedTime) {
+                gameStarted = false
+                breakEndTime = breaks.removeFirst().endTime / 1000.0
+            }
+
+            if (!breakEndTime.isNaN() && breakEndTime <= elapsedTime) {
+                gameStarted = true
+                breakEndTime = Double.NaN
+            }
+
+            if (gameStarted) {
+                val drainRate = HitJudgement.getDrainRate(beatmap.difficulty.hp, distToNextObject)
+                statistic.changeHp(-drainRate * FRAME_TIME.toFloat())
+            }
+
+            while (spawnedCount < objects.size &&
+                elapsedTime + OBJECT_TIME_PREEMPT > objects[spawnedCount].startTime / 1000) {
+                gameStarted = true
+
+                val obj = objects[spawnedCount++]
+                val nextObj = objects.getOrNull(spawnedCount)
+                val spawnTime = obj.startTime - OBJECT_TIME_PREEMPT * 1000
+                val timingPoint = beatmap.controlPoints.timing.controlPointAt(spawnTime)
+
+                distToNextObject = if (nextObj != null) {
+                    max(nextObj.startTime - obj.startTime, timingPoint.msPerBeat / 2) / 1000
+                } else {
+                    0.0
+                }
+            }
+
+            while (judgedCount < spawnedCount) {
+                val obj = objects[judgedCount]
+                val data = objectData[judgedCount]
+                val offset = data.accuracy / 1000f
+                val mehWindow = helper.hitWindowFor50(beatmap.difficulty.od)
+
+                if (abs(offset) > mehWindow) {
+                    if (obj.startTime + mehWindow * 1000 >= elapsedTime * 1000) {
+                        break
+                    }
+
+                    // Timed out circles are missed without ending the combo.
+                    judgement.registerHit(statistic, 0, false, true)
+                } else {
+                    if (obj.startTime + offset * 1000 >= elapsedTime * 1000) {
+                        break
+                    }
+
+                    offsets.add(offset.toDouble())
+                    val score = HitJudgement.getCircleScore(abs(offset), data.result, helper, beatmap.difficulty.od)
+                    judgement.registerHit(statistic, score, obj.isLastInCombo, true)
+                }
+
+                judgedCount++
+            }
+        }
+    }
+
+
+    private fun beatmap(): PlayableBeatmap {
+        val file = File.createTempFile("beatmap", ".osu")
+        file.deleteOnExit()
+
+        val hitObjects = StringBuilder()
+
+        // Two parts of hit circles in combos of four, with a break between them. Circles are far enough apart that they
+        // are judged in order with any hit offset.
+        for (part in 0..1) {
+            for (i in 0 until 16) {
+                val time = part * 12500 + 1000 + i * 500
+                val type = if (i % 4 == 0) 5 else 1
+
+                hitObjects.append("${64 + i % 4 * 128},${96 + i / 4 * 64},$time,$type,0,0:0:0:0:\n")
+            }
+        }
+
+        file.writeText("""
+            |osu file format v14
+            |
+            |[General]
+            |AudioFilename: audio.mp3
+            |Mode: 0
+            |
+            |[Metadata]
+            |Title:Seek
+            |Artist:Test
+            |Version:Normal
+            |
+            |[Difficulty]
+            |HPDrainRate:6
+            |CircleSize:4
+            |OverallDifficulty:8
+            |ApproachRate:9
+            |SliderMultiplier:1.4
+            |SliderTickRate:1
+            |
+            |[Events]
+            |2,9000,13000
+            |
+            |[TimingPoints]
+            |0,500,4,2,0,100,1,0
+            |
+            |[HitObjects]
+            |$hitObjects""".trimMargin())
+
+        return BeatmapParser(file).use { it.parse(true)!! }.createDroidPlayableBeatmap()
+    }
+
+
+    companion object {
+        private const val FRAME_TIME = 1 / 60.0
+
+        /**
+         * The time objects are spawned before their start time, in seconds.
+         */
+        private const val OBJECT_TIME_PREEMPT = 0.9f
+    }
+}